@@ -0,0 +1,101 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import com.khartec.waltz.service.authoritative_source.AuthoritativeSourceResolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.benchmarks.SyntheticData.*;
+
+
+/**
+ * Construction of the auth source resolver (done per ratings calculation) and
+ * the per-decorator `resolve` lookups.  Queries are drawn from the same org units
+ * / data types / apps as the vantage points so a realistic mix of hits and
+ * misses is exercised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthoritativeSourceResolverBenchmark {
+
+    private static final int QUERY_COUNT = 10_000;
+
+    @Param({"500", "" + VANTAGE_POINTS})
+    public int vantagePointCount;
+
+    private List<AuthoritativeRatingVantagePoint> vantagePoints;
+    private AuthoritativeSourceResolver resolver;
+    private EntityReference[] queryVantagePoints;
+    private EntityReference[] querySources;
+    private String[] queryDataTypeCodes;
+
+
+    @Setup
+    public void setup() {
+        vantagePoints = mkVantagePoints(vantagePointCount, ORG_UNITS, DATA_TYPES, APPLICATIONS, 42L);
+        resolver = new AuthoritativeSourceResolver(vantagePoints);
+
+        Random rnd = new Random(7L);
+        queryVantagePoints = new EntityReference[QUERY_COUNT];
+        querySources = new EntityReference[QUERY_COUNT];
+        queryDataTypeCodes = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            AuthoritativeRatingVantagePoint vp = vantagePoints.get(rnd.nextInt(vantagePoints.size()));
+            boolean hit = rnd.nextBoolean();
+            queryVantagePoints[i] = vp.vantagePoint();
+            queryDataTypeCodes[i] = vp.dataTypeCode();
+            querySources[i] = hit
+                    ? EntityReference.mkRef(EntityKind.APPLICATION, vp.applicationId())
+                    : randomRef(EntityKind.APPLICATION, APPLICATION_ID_OFFSET, APPLICATIONS, rnd);
+        }
+    }
+
+
+    @Benchmark
+    public AuthoritativeSourceResolver construct() {
+        return new AuthoritativeSourceResolver(vantagePoints);
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(QUERY_COUNT)
+    public void resolve(Blackhole bh) {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            AuthoritativenessRating rating = resolver.resolve(
+                    queryVantagePoints[i],
+                    querySources[i],
+                    queryDataTypeCodes[i]);
+            bh.consume(rating);
+        }
+    }
+
+}
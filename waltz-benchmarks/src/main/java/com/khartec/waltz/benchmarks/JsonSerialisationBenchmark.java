@@ -0,0 +1,110 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JSR310Module;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.benchmarks.SyntheticData.*;
+
+
+/**
+ * Jackson serialisation of large lists of model immutables, as returned by the
+ * bulk list endpoints.  The mapper is configured as per `WebUtilities`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerialisationBenchmark {
+
+    public enum Payload {
+        APPLICATIONS,
+        LOGICAL_FLOWS,
+        DECORATORS
+    }
+
+    @Param({"APPLICATIONS", "LOGICAL_FLOWS", "DECORATORS"})
+    public Payload payload;
+
+    private ObjectMapper mapper;
+    private List<?> values;
+
+    private static final OutputStream NULL_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JSR310Module());
+        mapper.registerModule(new Jdk8Module());
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        switch (payload) {
+            case APPLICATIONS:
+                values = mkApplications(APPLICATIONS, ORG_UNITS, 42L);
+                break;
+            case LOGICAL_FLOWS:
+                values = mkLogicalFlows(LOGICAL_FLOWS, APPLICATIONS, 42L);
+                break;
+            case DECORATORS:
+                List<LogicalFlow> flows = mkLogicalFlows(LOGICAL_FLOWS, APPLICATIONS, 42L);
+                values = mkDecorators(flows, DATA_TYPES, 42L);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown payload: " + payload);
+        }
+    }
+
+
+    /**
+     * Mirrors the `ResponseTransformer` used by the web endpoints.
+     */
+    @Benchmark
+    public String writeValueAsString() throws JsonProcessingException {
+        return mapper.writeValueAsString(values);
+    }
+
+
+    @Benchmark
+    public void writeToStream() throws IOException {
+        mapper.writeValue(NULL_STREAM, values);
+    }
+
+}
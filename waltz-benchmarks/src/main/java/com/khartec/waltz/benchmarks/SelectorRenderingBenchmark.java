@@ -0,0 +1,128 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
+import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
+import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyIndexes;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.HierarchyQueryScope;
+import com.khartec.waltz.model.IdSelectionOptions;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.benchmarks.SyntheticData.*;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
+
+
+/**
+ * Creation and rendering (to SQL) of application id selectors.  Selectors are
+ * built on nearly every request so their cost is paid constantly.
+ *
+ * The `hierarchyIndex` parameter controls whether in-memory hierarchy indexes are
+ * registered, which allows hierarchical selectors to inline their id lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectorRenderingBenchmark {
+
+    @Param({"ORG_UNIT", "DATA_TYPE", "MEASURABLE", "APP_GROUP", "PERSON"})
+    public EntityKind kind;
+
+    @Param({"POSTGRES", "H2"})
+    public SQLDialect dialect;
+
+    @Param({"false", "true"})
+    public boolean hierarchyIndex;
+
+    private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
+    private IdSelectionOptions options;
+    private Select<Record1<Long>> selector;
+    private DSLContext dsl;
+
+
+    @Setup
+    public void setup() {
+        dsl = DSL.using(dialect);
+
+        if (hierarchyIndex) {
+            registerIndex(EntityKind.ORG_UNIT, ORG_UNITS, ORG_UNIT_ID_OFFSET);
+            registerIndex(EntityKind.DATA_TYPE, DATA_TYPES, DATA_TYPE_ID_OFFSET);
+            registerIndex(EntityKind.MEASURABLE, MEASURABLES, 0L);
+        }
+
+        // a node part way down the hierarchy, so it has both ancestors and descendants
+        long id = kind == EntityKind.ORG_UNIT
+                ? orgUnitId(10)
+                : kind == EntityKind.DATA_TYPE
+                    ? dataTypeId(10)
+                    : 10L;
+        HierarchyQueryScope scope = kind == EntityKind.APP_GROUP
+                ? HierarchyQueryScope.EXACT
+                : HierarchyQueryScope.CHILDREN;
+        options = mkOpts(mkRef(kind, id), scope);
+        selector = factory.apply(options);
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        EntityHierarchyIndexes.remove(EntityKind.ORG_UNIT);
+        EntityHierarchyIndexes.remove(EntityKind.DATA_TYPE);
+        EntityHierarchyIndexes.remove(EntityKind.MEASURABLE);
+    }
+
+
+    @Benchmark
+    public Select<Record1<Long>> build() {
+        return factory.apply(options);
+    }
+
+
+    @Benchmark
+    public String render() {
+        return dsl.render(selector);
+    }
+
+
+    @Benchmark
+    public String buildAndRender() {
+        return dsl.render(factory.apply(options));
+    }
+
+
+    private static void registerIndex(EntityKind kind, int size, long idOffset) {
+        int[] parents = mkParentIndexes(size, Math.max(1, size / 500), kind.ordinal());
+        HierarchyIndex index = HierarchyIndex.fromForest(HierarchyUtilities.toForest(mkFlatNodes(parents, idOffset)));
+        EntityHierarchyIndexes.register(kind, index);
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.common.hierarchy.FlatNode;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.application.Application;
+import com.khartec.waltz.model.application.ApplicationKind;
+import com.khartec.waltz.model.application.ImmutableApplication;
+import com.khartec.waltz.model.application.LifecyclePhase;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.ImmutableAuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.datatype.DataTypeDecorator;
+import com.khartec.waltz.model.datatype.ImmutableDataTypeDecorator;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlow;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import com.khartec.waltz.model.rating.RagRating;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+
+
+/**
+ * Deterministic generators for benchmark data.  Every generator takes a seed so
+ * repeated runs (and forks) operate on identical data.
+ *
+ * The default sizes approximate a large production install.
+ */
+public class SyntheticData {
+
+    public static final int ORG_UNITS = 2_000;
+    public static final int DATA_TYPES = 1_000;
+    public static final int APPLICATIONS = 10_000;
+    public static final int LOGICAL_FLOWS = 50_000;
+    public static final int VANTAGE_POINTS = 5_000;
+    public static final int MEASURABLES = 20_000;
+
+    public static final long ORG_UNIT_ID_OFFSET = 1_000_000L;
+    public static final long DATA_TYPE_ID_OFFSET = 2_000_000L;
+    public static final long APPLICATION_ID_OFFSET = 3_000_000L;
+    public static final long LOGICAL_FLOW_ID_OFFSET = 4_000_000L;
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final AuthoritativenessRating[] AUTH_RATINGS = {
+            AuthoritativenessRating.PRIMARY,
+            AuthoritativenessRating.SECONDARY,
+            AuthoritativenessRating.DISCOURAGED };
+
+
+    /**
+     * Generates a forest as an array of parent indexes (-1 for roots).  Each node's
+     * parent precedes it, and is biased towards recent nodes so the forest has a
+     * realistic depth (roughly 6-12 levels) rather than being flat.
+     *
+     * @param size  number of nodes
+     * @param rootCount  number of root nodes
+     */
+    public static int[] mkParentIndexes(int size, int rootCount, long seed) {
+        checkTrue(rootCount > 0 && rootCount <= size, "rootCount must be between 1 and size");
+        Random rnd = new Random(seed);
+        int[] parents = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (i < rootCount) {
+                parents[i] = -1;
+            } else {
+                int window = Math.max(1, i / 4);
+                parents[i] = i - 1 - rnd.nextInt(window);
+            }
+        }
+        return parents;
+    }
+
+
+    public static List<FlatNode<String, Long>> mkFlatNodes(int[] parentIndexes, long idOffset) {
+        List<FlatNode<String, Long>> nodes = new ArrayList<>(parentIndexes.length);
+        for (int i = 0; i < parentIndexes.length; i++) {
+            Optional<Long> parentId = parentIndexes[i] < 0
+                    ? Optional.empty()
+                    : Optional.of(idOffset + parentIndexes[i]);
+            nodes.add(new FlatNode<>(idOffset + i, parentId, "node-" + i));
+        }
+        return nodes;
+    }
+
+
+    public static long orgUnitId(int idx) {
+        return ORG_UNIT_ID_OFFSET + idx;
+    }
+
+
+    public static long dataTypeId(int idx) {
+        return DATA_TYPE_ID_OFFSET + idx;
+    }
+
+
+    public static String dataTypeCode(int idx) {
+        return "DT_" + idx;
+    }
+
+
+    public static long applicationId(int idx) {
+        return APPLICATION_ID_OFFSET + idx;
+    }
+
+
+    public static List<Application> mkApplications(int count, int orgUnitCount, long seed) {
+        Random rnd = new Random(seed);
+        List<Application> apps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            apps.add(ImmutableApplication.builder()
+                    .id(applicationId(i))
+                    .name("Application " + i)
+                    .description("Synthetic application " + i + " used for benchmarking, with a description of typical length")
+                    .assetCode("ASSET-" + i)
+                    .parentAssetCode("ASSET-" + (i / 10))
+                    .organisationalUnitId(orgUnitId(rnd.nextInt(orgUnitCount)))
+                    .applicationKind(ApplicationKind.values()[rnd.nextInt(ApplicationKind.values().length)])
+                    .lifecyclePhase(LifecyclePhase.PRODUCTION)
+                    .overallRating(RagRating.G)
+                    .plannedRetirementDate(NOW.plusYears(3))
+                    .build());
+        }
+        return apps;
+    }
+
+
+    /**
+     * Generates flows between distinct pairs of applications, no self loops.
+     */
+    public static List<LogicalFlow> mkLogicalFlows(int count, int applicationCount, long seed) {
+        checkTrue(applicationCount > 1, "need at least two applications");
+        Random rnd = new Random(seed);
+        Set<Long> seenPairs = new HashSet<>();
+        List<LogicalFlow> flows = new ArrayList<>(count);
+        while (flows.size() < count) {
+            int source = rnd.nextInt(applicationCount);
+            int target = rnd.nextInt(applicationCount);
+            if (source == target || ! seenPairs.add((long) source * applicationCount + target)) {
+                continue;
+            }
+            flows.add(ImmutableLogicalFlow.builder()
+                    .id(LOGICAL_FLOW_ID_OFFSET + flows.size())
+                    .source(mkRef(EntityKind.APPLICATION, applicationId(source)))
+                    .target(mkRef(EntityKind.APPLICATION, applicationId(target)))
+                    .lastUpdatedAt(NOW)
+                    .lastUpdatedBy("benchmark")
+                    .provenance("benchmark")
+                    .build());
+        }
+        return flows;
+    }
+
+
+    /**
+     * Generates between one and three data type decorators per flow.
+     */
+    public static List<DataTypeDecorator> mkDecorators(List<LogicalFlow> flows, int dataTypeCount, long seed) {
+        Random rnd = new Random(seed);
+        List<DataTypeDecorator> decorators = new ArrayList<>(flows.size() * 2);
+        for (LogicalFlow flow : flows) {
+            Set<Integer> dataTypes = new HashSet<>();
+            int n = 1 + rnd.nextInt(3);
+            while (dataTypes.size() < n) {
+                dataTypes.add(rnd.nextInt(dataTypeCount));
+            }
+            for (int dt : dataTypes) {
+                decorators.add(ImmutableDataTypeDecorator.builder()
+                        .entityReference(mkRef(EntityKind.LOGICAL_DATA_FLOW, flow.id().get()))
+                        .decoratorEntity(mkRef(EntityKind.DATA_TYPE, dataTypeId(dt)))
+                        .rating(AuthoritativenessRating.NO_OPINION)
+                        .provenance("benchmark")
+                        .lastUpdatedAt(NOW)
+                        .lastUpdatedBy("benchmark")
+                        .build());
+            }
+        }
+        return decorators;
+    }
+
+
+    /**
+     * Generates vantage points with distinct (org unit, data type, application) combinations.
+     */
+    public static List<AuthoritativeRatingVantagePoint> mkVantagePoints(int count,
+                                                                        int orgUnitCount,
+                                                                        int dataTypeCount,
+                                                                        int applicationCount,
+                                                                        long seed) {
+        Random rnd = new Random(seed);
+        Set<List<Integer>> seen = new HashSet<>();
+        List<AuthoritativeRatingVantagePoint> vantagePoints = new ArrayList<>(count);
+        while (vantagePoints.size() < count) {
+            int ou = rnd.nextInt(orgUnitCount);
+            int dt = rnd.nextInt(dataTypeCount);
+            int app = rnd.nextInt(applicationCount);
+            if (! seen.add(Arrays.asList(ou, dt, app))) {
+                continue;
+            }
+            vantagePoints.add(ImmutableAuthoritativeRatingVantagePoint.builder()
+                    .vantagePoint(mkRef(EntityKind.ORG_UNIT, orgUnitId(ou)))
+                    .vantagePointRank(1 + rnd.nextInt(8))
+                    .dataType(mkRef(EntityKind.DATA_TYPE, dataTypeId(dt)))
+                    .dataTypeCode(dataTypeCode(dt))
+                    .dataTypeRank(1 + rnd.nextInt(6))
+                    .applicationId(applicationId(app))
+                    .rating(AUTH_RATINGS[rnd.nextInt(AUTH_RATINGS.length)])
+                    .build());
+        }
+        return vantagePoints;
+    }
+
+
+    public static EntityReference randomRef(EntityKind kind, long idOffset, int count, Random rnd) {
+        return mkRef(kind, idOffset + rnd.nextInt(count));
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks.dao;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.application.Application;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.datatype.DataTypeDecorator;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.schema.tables.records.*;
+import org.jooq.DSLContext;
+import org.jooq.TableRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.khartec.waltz.benchmarks.SyntheticData.*;
+import static com.khartec.waltz.schema.Tables.*;
+
+
+/**
+ * Populates the (empty) benchmark database with synthetic org units, data types,
+ * applications, logical flows (with decorators) and auth sources, plus the
+ * `ENTITY_HIERARCHY` rows for the org unit and data type trees.
+ */
+public class BenchmarkDataLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BenchmarkDataLoader.class);
+    private static final int BATCH_SIZE = 5_000;
+    private static final Timestamp NOW = Timestamp.valueOf("2020-01-01 00:00:00");
+
+    private final DSLContext dsl;
+    private final long seed;
+
+
+    public BenchmarkDataLoader(DSLContext dsl, long seed) {
+        this.dsl = dsl;
+        this.seed = seed;
+    }
+
+
+    public List<LogicalFlow> load(int orgUnitCount,
+                                  int dataTypeCount,
+                                  int applicationCount,
+                                  int flowCount,
+                                  int vantagePointCount) {
+        long start = System.currentTimeMillis();
+
+        int[] orgUnitParents = mkParentIndexes(orgUnitCount, 1, seed);
+        int[] dataTypeParents = mkParentIndexes(dataTypeCount, Math.max(1, dataTypeCount / 100), seed + 1);
+
+        loadOrgUnits(orgUnitParents);
+        loadDataTypes(dataTypeParents);
+        loadHierarchy(EntityKind.ORG_UNIT, orgUnitParents, ORG_UNIT_ID_OFFSET);
+        loadHierarchy(EntityKind.DATA_TYPE, dataTypeParents, DATA_TYPE_ID_OFFSET);
+        loadApplications(mkApplications(applicationCount, orgUnitCount, seed + 2));
+
+        List<LogicalFlow> flows = mkLogicalFlows(flowCount, applicationCount, seed + 3);
+        loadFlows(flows);
+        loadDecorators(mkDecorators(flows, dataTypeCount, seed + 4));
+        loadAuthSources(mkVantagePoints(vantagePointCount, orgUnitCount, dataTypeCount, applicationCount, seed + 5));
+
+        LOG.info("Loaded benchmark data in {}ms", System.currentTimeMillis() - start);
+        return flows;
+    }
+
+
+    private void loadOrgUnits(int[] parents) {
+        List<OrganisationalUnitRecord> records = new ArrayList<>(parents.length);
+        for (int i = 0; i < parents.length; i++) {
+            OrganisationalUnitRecord r = dsl.newRecord(ORGANISATIONAL_UNIT);
+            r.setId(orgUnitId(i));
+            r.setName("Org Unit " + i);
+            r.setDescription("Org Unit " + i);
+            r.setParentId(parents[i] < 0 ? null : orgUnitId(parents[i]));
+            r.setCreatedAt(NOW);
+            r.setLastUpdatedAt(NOW);
+            records.add(r);
+        }
+        insert(records);
+    }
+
+
+    private void loadDataTypes(int[] parents) {
+        List<DataTypeRecord> records = new ArrayList<>(parents.length);
+        for (int i = 0; i < parents.length; i++) {
+            DataTypeRecord r = dsl.newRecord(DATA_TYPE);
+            r.setId(dataTypeId(i));
+            r.setCode(dataTypeCode(i));
+            r.setName("Data Type " + i);
+            r.setDescription("Data Type " + i);
+            r.setParentId(parents[i] < 0 ? null : dataTypeId(parents[i]));
+            records.add(r);
+        }
+        insert(records);
+    }
+
+
+    /**
+     * Writes a row for every (node, ancestor) pair, including the node itself,
+     * with `level` being the depth of the ancestor (roots are level 1).
+     */
+    private void loadHierarchy(EntityKind kind, int[] parents, long idOffset) {
+        int[] depths = new int[parents.length];
+        for (int i = 0; i < parents.length; i++) {
+            depths[i] = parents[i] < 0 ? 1 : depths[parents[i]] + 1;
+        }
+
+        List<EntityHierarchyRecord> records = new ArrayList<>();
+        for (int i = 0; i < parents.length; i++) {
+            for (int a = i; a >= 0; a = parents[a]) {
+                EntityHierarchyRecord r = dsl.newRecord(ENTITY_HIERARCHY);
+                r.setKind(kind.name());
+                r.setId(idOffset + i);
+                r.setAncestorId(idOffset + a);
+                r.setLevel(depths[a]);
+                records.add(r);
+            }
+        }
+        insert(records);
+    }
+
+
+    private void loadApplications(List<Application> apps) {
+        List<ApplicationRecord> records = new ArrayList<>(apps.size());
+        for (Application app : apps) {
+            ApplicationRecord r = dsl.newRecord(APPLICATION);
+            r.setId(app.id().get());
+            r.setName(app.name());
+            r.setDescription(app.description());
+            r.setAssetCode(app.assetCode().orElse(null));
+            r.setParentAssetCode(app.parentAssetCode().orElse(null));
+            r.setOrganisationalUnitId(app.organisationalUnitId());
+            r.setKind(app.applicationKind().name());
+            r.setLifecyclePhase(app.lifecyclePhase().name());
+            r.setOverallRating(app.overallRating().name());
+            r.setBusinessCriticality(app.businessCriticality().name());
+            r.setProvenance(app.provenance());
+            r.setCreatedAt(NOW);
+            r.setUpdatedAt(NOW);
+            records.add(r);
+        }
+        insert(records);
+    }
+
+
+    private void loadFlows(List<LogicalFlow> flows) {
+        List<LogicalFlowRecord> records = new ArrayList<>(flows.size());
+        for (LogicalFlow flow : flows) {
+            LogicalFlowRecord r = dsl.newRecord(LOGICAL_FLOW);
+            r.setId(flow.id().get());
+            r.setSourceEntityKind(flow.source().kind().name());
+            r.setSourceEntityId(flow.source().id());
+            r.setTargetEntityKind(flow.target().kind().name());
+            r.setTargetEntityId(flow.target().id());
+            r.setProvenance(flow.provenance());
+            r.setLastUpdatedAt(NOW);
+            r.setLastUpdatedBy(flow.lastUpdatedBy());
+            r.setCreatedAt(NOW);
+            r.setCreatedBy(flow.lastUpdatedBy());
+            records.add(r);
+        }
+        insert(records);
+    }
+
+
+    private void loadDecorators(List<DataTypeDecorator> decorators) {
+        List<LogicalFlowDecoratorRecord> records = new ArrayList<>(decorators.size());
+        for (DataTypeDecorator decorator : decorators) {
+            LogicalFlowDecoratorRecord r = dsl.newRecord(LOGICAL_FLOW_DECORATOR);
+            r.setLogicalFlowId(decorator.dataFlowId());
+            r.setDecoratorEntityKind(decorator.decoratorEntity().kind().name());
+            r.setDecoratorEntityId(decorator.decoratorEntity().id());
+            r.setRating(decorator.rating().get().name());
+            r.setProvenance(decorator.provenance());
+            r.setLastUpdatedAt(NOW);
+            r.setLastUpdatedBy(decorator.lastUpdatedBy());
+            records.add(r);
+        }
+        insert(records);
+    }
+
+
+    private void loadAuthSources(List<AuthoritativeRatingVantagePoint> vantagePoints) {
+        List<AuthoritativeSourceRecord> records = new ArrayList<>(vantagePoints.size());
+        for (AuthoritativeRatingVantagePoint vp : vantagePoints) {
+            AuthoritativeSourceRecord r = dsl.newRecord(AUTHORITATIVE_SOURCE);
+            r.setParentKind(vp.vantagePoint().kind().name());
+            r.setParentId(vp.vantagePoint().id());
+            r.setDataType(vp.dataTypeCode());
+            r.setApplicationId(vp.applicationId());
+            r.setRating(vp.rating().name());
+            r.setProvenance("benchmark");
+            records.add(r);
+        }
+        insert(records);
+    }
+
+
+    private void insert(List<? extends TableRecord<?>> records) {
+        for (int start = 0; start < records.size(); start += BATCH_SIZE) {
+            dsl.batchInsert(records.subList(start, Math.min(records.size(), start + BATCH_SIZE)))
+                    .execute();
+        }
+    }
+
+}
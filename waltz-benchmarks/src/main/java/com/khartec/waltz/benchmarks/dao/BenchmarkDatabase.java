@@ -0,0 +1,63 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks.dao;
+
+import com.khartec.waltz.common.LoggingUtilities;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import org.jooq.DSLContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+
+import static com.khartec.waltz.benchmarks.SyntheticData.*;
+
+
+/**
+ * Lazily starts the benchmark application context and loads the synthetic data set.
+ * JMH runs each benchmark class in its own fork, so this happens (at most) once
+ * per fork, during trial setup and outside of any measurements.
+ */
+public class BenchmarkDatabase {
+
+    private static ApplicationContext ctx;
+    private static List<LogicalFlow> flows;
+
+
+    public static synchronized ApplicationContext getContext() {
+        if (ctx == null) {
+            LoggingUtilities.configureLogging();
+            AnnotationConfigApplicationContext newCtx = new AnnotationConfigApplicationContext(DIBenchmarkConfiguration.class);
+            flows = new BenchmarkDataLoader(newCtx.getBean(DSLContext.class), 42L)
+                    .load(ORG_UNITS, DATA_TYPES, APPLICATIONS, LOGICAL_FLOWS, VANTAGE_POINTS);
+            ctx = newCtx;
+        }
+        return ctx;
+    }
+
+
+    /**
+     * @return the flows which were loaded into the database
+     */
+    public static synchronized List<LogicalFlow> getFlows() {
+        getContext();
+        return flows;
+    }
+
+}
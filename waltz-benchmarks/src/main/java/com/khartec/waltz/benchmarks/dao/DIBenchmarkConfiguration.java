@@ -0,0 +1,129 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks.dao;
+
+import com.khartec.waltz.data.DBExecutorPool;
+import com.khartec.waltz.data.DBExecutorPoolInterface;
+import com.khartec.waltz.data.authoritative_source.AuthoritativeSourceDao;
+import com.khartec.waltz.data.data_type.DataTypeDao;
+import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.service.application.ApplicationService;
+import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+
+/**
+ * Spring configuration for the dao level benchmarks.  Mirrors the integration test
+ * configuration but uses an in-memory H2 database (in PostgreSQL compatibility
+ * mode) whose schema is created from the liquibase changelogs on startup.
+ */
+@Configuration
+@ComponentScan(basePackages = {
+        "com.khartec.waltz.data",
+        "com.khartec.waltz.service.application",
+        "com.khartec.waltz.service.changelog",
+        "com.khartec.waltz.service.tag"
+})
+public class DIBenchmarkConfiguration {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:waltz-benchmarks;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    private static final String CHANGELOG = "liquibase/db.changelog-master.xml";
+
+
+    @Bean
+    public DBExecutorPoolInterface dbExecutorPool() {
+        return new DBExecutorPool(2, 4);
+    }
+
+
+    @Bean
+    public DataSource dataSource() throws SQLException, LiquibaseException {
+        HikariConfig dsConfig = new HikariConfig();
+        dsConfig.setJdbcUrl(JDBC_URL);
+        dsConfig.setUsername("sa");
+        dsConfig.setPassword("");
+        dsConfig.setDriverClassName("org.h2.Driver");
+        dsConfig.setMaximumPoolSize(5);
+        dsConfig.setMinimumIdle(2);
+
+        HikariDataSource dataSource = new HikariDataSource(dsConfig);
+        createSchema(dataSource);
+        return dataSource;
+    }
+
+
+    @Bean
+    @Autowired
+    public DSLContext dsl(DataSource dataSource) {
+        org.jooq.Configuration configuration = new DefaultConfiguration()
+                .set(dataSource)
+                .set(SQLDialect.H2);
+        return DSL.using(configuration);
+    }
+
+
+    @Bean
+    @Autowired
+    public LogicalFlowDecoratorRatingsCalculator logicalFlowDecoratorRatingsCalculator(ApplicationService applicationService,
+                                                                                       AuthoritativeSourceDao authoritativeSourceDao,
+                                                                                       LogicalFlowDao logicalFlowDao,
+                                                                                       DataTypeDao dataTypeDao) {
+        return new LogicalFlowDecoratorRatingsCalculator(
+                applicationService,
+                authoritativeSourceDao,
+                logicalFlowDao,
+                dataTypeDao);
+    }
+
+
+    private static void createSchema(DataSource dataSource) throws SQLException, LiquibaseException {
+        try (Connection connection = dataSource.getConnection()) {
+            Database database = DatabaseFactory
+                    .getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            Liquibase liquibase = new Liquibase(
+                    CHANGELOG,
+                    new ClassLoaderResourceAccessor(),
+                    database);
+            liquibase.update(new Contexts(), new LabelExpression());
+        }
+    }
+
+}
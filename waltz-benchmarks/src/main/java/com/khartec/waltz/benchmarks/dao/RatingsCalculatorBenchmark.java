@@ -0,0 +1,71 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks.dao;
+
+import com.khartec.waltz.model.datatype.DataTypeDecorator;
+import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.benchmarks.SyntheticData.DATA_TYPES;
+import static com.khartec.waltz.benchmarks.SyntheticData.mkDecorators;
+
+
+/**
+ * Rating a batch of (unrated) decorators, as happens whenever data types are added
+ * to flows.  Includes the dao calls made by the calculator (flows, apps, data types
+ * and expanded vantage points).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RatingsCalculatorBenchmark {
+
+    @Param({"10", "1000"})
+    public int batchSize;
+
+    private LogicalFlowDecoratorRatingsCalculator calculator;
+    private List<DataTypeDecorator> decorators;
+
+
+    @Setup
+    public void setup() {
+        calculator = BenchmarkDatabase
+                .getContext()
+                .getBean(LogicalFlowDecoratorRatingsCalculator.class);
+
+        decorators = mkDecorators(
+                BenchmarkDatabase.getFlows().subList(0, batchSize),
+                DATA_TYPES,
+                7L);
+    }
+
+
+    @Benchmark
+    public Collection<DataTypeDecorator> calculate() {
+        return calculator.calculate(decorators);
+    }
+
+}
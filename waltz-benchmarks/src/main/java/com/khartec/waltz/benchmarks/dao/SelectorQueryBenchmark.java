@@ -0,0 +1,92 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks.dao;
+
+import com.khartec.waltz.data.application.ApplicationDao;
+import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.data.logical_flow.LogicalFlowIdSelectorFactory;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.HierarchyQueryScope;
+import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.model.application.Application;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.benchmarks.SyntheticData.dataTypeId;
+import static com.khartec.waltz.benchmarks.SyntheticData.orgUnitId;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
+
+
+/**
+ * Executing application and logical flow selectors for org units and data types,
+ * i.e. the queries behind most of the 'group' pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SelectorQueryBenchmark {
+
+    // data type selectors reference a quoted column alias without quotes, which the
+    // embedded H2 (1.3.x) cannot resolve, pass `-p kind=DATA_TYPE` when pointing at postgres
+    @Param({"ORG_UNIT"})
+    public EntityKind kind;
+
+    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final LogicalFlowIdSelectorFactory logicalFlowIdSelectorFactory = new LogicalFlowIdSelectorFactory();
+
+    private ApplicationDao applicationDao;
+    private LogicalFlowDao logicalFlowDao;
+    private IdSelectionOptions options;
+
+
+    @Setup
+    public void setup() {
+        ApplicationContext ctx = BenchmarkDatabase.getContext();
+        applicationDao = ctx.getBean(ApplicationDao.class);
+        logicalFlowDao = ctx.getBean(LogicalFlowDao.class);
+
+        // a node just below the root, so the selection covers a good part of the tree
+        long id = kind == EntityKind.ORG_UNIT
+                ? orgUnitId(1)
+                : dataTypeId(1);
+        options = mkOpts(mkRef(kind, id), HierarchyQueryScope.CHILDREN);
+    }
+
+
+    @Benchmark
+    public List<Application> findApplications() {
+        return applicationDao.findByAppIdSelector(appIdSelectorFactory.apply(options));
+    }
+
+
+    @Benchmark
+    public List<LogicalFlow> findLogicalFlows() {
+        return logicalFlowDao.findBySelector(logicalFlowIdSelectorFactory.apply(options));
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Simple thread safe, size bounded cache which evicts the least recently
+ * used entries.  Entries may optionally expire a fixed time after they
+ * were added.
+ *
+ * Null values are not cached.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+
+    private static class Entry<V> {
+        private final V value;
+        private final long addedAt;
+
+        private Entry(V value, long addedAt) {
+            this.value = value;
+            this.addedAt = addedAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long expireAfterMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+
+    /**
+     * @param maxSize  maximum number of entries to retain
+     * @param expireAfterMillis  how long entries remain valid, zero (or less) to never expire
+     */
+    public LruCache(int maxSize, long expireAfterMillis) {
+        checkTrue(maxSize > 0, "maxSize must be positive");
+        this.maxSize = maxSize;
+        this.expireAfterMillis = expireAfterMillis;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+
+    public LruCache(int maxSize) {
+        this(maxSize, 0);
+    }
+
+
+    public synchronized Optional<V> get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(key);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        } else {
+            hits.increment();
+            return Optional.of(entry.value);
+        }
+    }
+
+
+    public synchronized void put(K key, V value) {
+        checkNotNull(key, "key cannot be null");
+        if (value != null) {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+        }
+    }
+
+
+    /**
+     * Returns the cached value or, if absent, computes and caches it.  The
+     * computation is performed outside of the cache lock, concurrent callers
+     * may therefore compute the same value.
+     */
+    public V get(K key, Function<K, V> loader) {
+        checkNotNull(loader, "loader cannot be null");
+        return get(key)
+                .orElseGet(() -> {
+                    V value = loader.apply(key);
+                    put(key, value);
+                    return value;
+                });
+    }
+
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+
+    public synchronized void invalidateIf(Predicate<K> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+
+    private boolean isExpired(Entry<V> entry) {
+        return expireAfterMillis > 0
+                && System.currentTimeMillis() - entry.addedAt > expireAfterMillis;
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("LruCache{");
+        sb.append("size=").append(size());
+        sb.append(", maxSize=").append(maxSize);
+        sb.append(", hits=").append(hitCount());
+        sb.append(", misses=").append(missCount());
+        sb.append('}');
+        return sb.toString();
+    }
+}
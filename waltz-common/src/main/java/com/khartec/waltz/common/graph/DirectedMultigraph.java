@@ -0,0 +1,445 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Mutable, primitive backed, directed multigraph intended for large graphs
+ * (e.g. all logical flows) which need to be traversed quickly.
+ *
+ * Nodes are identified by dense int indexes handed out by `addNode`.  Edges are
+ * identified by caller supplied long ids and may carry a set of long labels
+ * (e.g. data type ids) which traversals may filter upon.
+ *
+ * This class is not thread safe, callers must co-ordinate access (e.g. with a
+ * read/write lock).
+ */
+public class DirectedMultigraph {
+
+    public enum Direction {
+        /** follow edges from their source to their target */
+        FORWARD,
+        /** follow edges from their target back to their source */
+        BACKWARD
+    }
+
+
+    /**
+     * An edge encountered during a traversal.  `hops` is the distance from the
+     * starting node to the far end of the edge (i.e. direct edges have a hop
+     * count of 1).
+     */
+    public static final class Edge {
+        private final long id;
+        private final int source;
+        private final int target;
+        private final int hops;
+
+        private Edge(long id, int source, int target, int hops) {
+            this.id = id;
+            this.source = source;
+            this.target = target;
+            this.hops = hops;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public int source() {
+            return source;
+        }
+
+        public int target() {
+            return target;
+        }
+
+        public int hops() {
+            return hops;
+        }
+
+        @Override
+        public String toString() {
+            return "Edge{" + id + ": " + source + " -> " + target + ", hops=" + hops + '}';
+        }
+    }
+
+
+    private static final int[] NO_EDGES = new int[0];
+    private static final long[] NO_LABELS = new long[0];
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int nodeCount = 0;
+    private int[][] outEdges = new int[INITIAL_CAPACITY][];
+    private int[] outDegrees = new int[INITIAL_CAPACITY];
+    private int[][] inEdges = new int[INITIAL_CAPACITY][];
+    private int[] inDegrees = new int[INITIAL_CAPACITY];
+
+    private int edgeSlotCount = 0;
+    private long[] edgeIds = new long[INITIAL_CAPACITY];
+    private int[] edgeSources = new int[INITIAL_CAPACITY];
+    private int[] edgeTargets = new int[INITIAL_CAPACITY];
+    private long[][] edgeLabels = new long[INITIAL_CAPACITY][];
+    private int[] freeEdgeSlots = new int[INITIAL_CAPACITY];
+    private int freeEdgeSlotCount = 0;
+    private final Map<Long, Integer> edgeSlotsById = new HashMap<>();
+
+
+    /**
+     * @return index of the newly added node
+     */
+    public int addNode() {
+        if (nodeCount == outEdges.length) {
+            int capacity = nodeCount * 2;
+            outEdges = Arrays.copyOf(outEdges, capacity);
+            outDegrees = Arrays.copyOf(outDegrees, capacity);
+            inEdges = Arrays.copyOf(inEdges, capacity);
+            inDegrees = Arrays.copyOf(inDegrees, capacity);
+        }
+        outEdges[nodeCount] = NO_EDGES;
+        inEdges[nodeCount] = NO_EDGES;
+        return nodeCount++;
+    }
+
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+
+    public int edgeCount() {
+        return edgeSlotsById.size();
+    }
+
+
+    public boolean containsEdge(long edgeId) {
+        return edgeSlotsById.containsKey(edgeId);
+    }
+
+
+    /**
+     * Adds an edge, replacing any existing edge with the same id.
+     *
+     * @param edgeId  caller supplied identifier
+     * @param source  index of the source node
+     * @param target  index of the target node
+     * @param labels  labels associated with this edge (may be empty)
+     */
+    public void putEdge(long edgeId, int source, int target, long[] labels) {
+        checkNode(source);
+        checkNode(target);
+        removeEdge(edgeId);
+
+        int slot = allocateEdgeSlot();
+        edgeIds[slot] = edgeId;
+        edgeSources[slot] = source;
+        edgeTargets[slot] = target;
+        edgeLabels[slot] = toSortedLabels(labels);
+        edgeSlotsById.put(edgeId, slot);
+
+        outEdges[source] = append(outEdges[source], outDegrees[source]++, slot);
+        inEdges[target] = append(inEdges[target], inDegrees[target]++, slot);
+    }
+
+
+    /**
+     * @return true if an edge was removed
+     */
+    public boolean removeEdge(long edgeId) {
+        Integer slot = edgeSlotsById.remove(edgeId);
+        if (slot == null) {
+            return false;
+        }
+
+        int source = edgeSources[slot];
+        int target = edgeTargets[slot];
+        outDegrees[source] = remove(outEdges[source], outDegrees[source], slot);
+        inDegrees[target] = remove(inEdges[target], inDegrees[target], slot);
+
+        edgeLabels[slot] = null;
+        if (freeEdgeSlotCount == freeEdgeSlots.length) {
+            freeEdgeSlots = Arrays.copyOf(freeEdgeSlots, freeEdgeSlotCount * 2);
+        }
+        freeEdgeSlots[freeEdgeSlotCount++] = slot;
+        return true;
+    }
+
+
+    /**
+     * @return true if the edge exists (and so the labels were replaced)
+     */
+    public boolean setLabels(long edgeId, long[] labels) {
+        Integer slot = edgeSlotsById.get(edgeId);
+        if (slot == null) {
+            return false;
+        }
+        edgeLabels[slot] = toSortedLabels(labels);
+        return true;
+    }
+
+
+    public List<Edge> traverse(int start, Direction direction, int maxHops) {
+        return traverse(start, direction, maxHops, null);
+    }
+
+
+    /**
+     * Breadth first traversal from the given node.  Every edge reachable within
+     * `maxHops` is returned exactly once, ordered by hop count.
+     *
+     * @param labelFilter  if not null, only edges with at least one label matching the filter are followed
+     */
+    public List<Edge> traverse(int start, Direction direction, int maxHops, LongPredicate labelFilter) {
+        checkNode(start);
+        checkNotNull(direction, "direction cannot be null");
+        checkTrue(maxHops >= 0, "maxHops cannot be negative");
+
+        List<Edge> result = new ArrayList<>();
+        BitSet visited = new BitSet(nodeCount);
+        visited.set(start);
+
+        int[] frontier = { start };
+        for (int hops = 1; hops <= maxHops && frontier.length > 0; hops++) {
+            int[] next = new int[INITIAL_CAPACITY];
+            int nextCount = 0;
+            for (int node : frontier) {
+                int[] slots = edgesOf(node, direction);
+                int degree = degreeOf(node, direction);
+                for (int i = 0; i < degree; i++) {
+                    int slot = slots[i];
+                    if (! matches(slot, labelFilter)) {
+                        continue;
+                    }
+                    result.add(new Edge(edgeIds[slot], edgeSources[slot], edgeTargets[slot], hops));
+                    int other = otherEnd(slot, direction);
+                    if (! visited.get(other)) {
+                        visited.set(other);
+                        next = append(next, nextCount++, other);
+                    }
+                }
+            }
+            frontier = Arrays.copyOf(next, nextCount);
+        }
+        return result;
+    }
+
+
+    /**
+     * @param labelFilter  if not null, only edges with at least one label matching the filter are followed
+     * @return indexes of all nodes reachable from (but not including) the start node
+     */
+    public int[] findReachable(int start, Direction direction, LongPredicate labelFilter) {
+        checkNode(start);
+        checkNotNull(direction, "direction cannot be null");
+
+        BitSet visited = new BitSet(nodeCount);
+        visited.set(start);
+        int[] queue = new int[INITIAL_CAPACITY];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int node = queue[head++];
+            int[] slots = edgesOf(node, direction);
+            int degree = degreeOf(node, direction);
+            for (int i = 0; i < degree; i++) {
+                int slot = slots[i];
+                int other = otherEnd(slot, direction);
+                if (! visited.get(other) && matches(slot, labelFilter)) {
+                    visited.set(other);
+                    queue = append(queue, tail++, other);
+                }
+            }
+        }
+        return Arrays.copyOfRange(queue, 1, tail);
+    }
+
+
+    /**
+     * Finds a path with the fewest edges from `source` to `target` following
+     * edges in their natural (forward) direction.
+     *
+     * @param labelFilter  if not null, only edges with at least one label matching the filter are followed
+     * @return edges on the path, in order, or an empty list if the target cannot be reached
+     */
+    public List<Edge> findShortestPath(int source, int target, LongPredicate labelFilter) {
+        checkNode(source);
+        checkNode(target);
+        if (source == target) {
+            return Collections.emptyList();
+        }
+
+        int[] arrivedVia = new int[nodeCount];
+        Arrays.fill(arrivedVia, -1);
+        BitSet visited = new BitSet(nodeCount);
+        visited.set(source);
+        int[] queue = new int[INITIAL_CAPACITY];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+
+        while (head < tail && ! visited.get(target)) {
+            int node = queue[head++];
+            for (int i = 0; i < outDegrees[node]; i++) {
+                int slot = outEdges[node][i];
+                int next = edgeTargets[slot];
+                if (! visited.get(next) && matches(slot, labelFilter)) {
+                    visited.set(next);
+                    arrivedVia[next] = slot;
+                    queue = append(queue, tail++, next);
+                }
+            }
+        }
+
+        if (! visited.get(target)) {
+            return Collections.emptyList();
+        }
+
+        List<Integer> slots = new ArrayList<>();
+        for (int node = target; node != source; node = edgeSources[arrivedVia[node]]) {
+            slots.add(arrivedVia[node]);
+        }
+        Collections.reverse(slots);
+
+        List<Edge> path = new ArrayList<>(slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            int slot = slots.get(i);
+            path.add(new Edge(edgeIds[slot], edgeSources[slot], edgeTargets[slot], i + 1));
+        }
+        return path;
+    }
+
+
+    // -- HELPERS
+
+    private void checkNode(int node) {
+        checkTrue(node >= 0 && node < nodeCount, "unknown node: " + node);
+    }
+
+
+    private int[] edgesOf(int node, Direction direction) {
+        return direction == Direction.FORWARD
+                ? outEdges[node]
+                : inEdges[node];
+    }
+
+
+    private int degreeOf(int node, Direction direction) {
+        return direction == Direction.FORWARD
+                ? outDegrees[node]
+                : inDegrees[node];
+    }
+
+
+    private int otherEnd(int slot, Direction direction) {
+        return direction == Direction.FORWARD
+                ? edgeTargets[slot]
+                : edgeSources[slot];
+    }
+
+
+    private boolean matches(int slot, LongPredicate labelFilter) {
+        if (labelFilter == null) {
+            return true;
+        }
+        for (long label : edgeLabels[slot]) {
+            if (labelFilter.test(label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private int allocateEdgeSlot() {
+        if (freeEdgeSlotCount > 0) {
+            return freeEdgeSlots[--freeEdgeSlotCount];
+        }
+        if (edgeSlotCount == edgeIds.length) {
+            int capacity = edgeSlotCount * 2;
+            edgeIds = Arrays.copyOf(edgeIds, capacity);
+            edgeSources = Arrays.copyOf(edgeSources, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeLabels = Arrays.copyOf(edgeLabels, capacity);
+        }
+        return edgeSlotCount++;
+    }
+
+
+    private static long[] toSortedLabels(long[] labels) {
+        if (labels == null || labels.length == 0) {
+            return NO_LABELS;
+        }
+        long[] sorted = labels.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+
+    /**
+     * Sets `values[position]`, growing the array if required.
+     * @return the (possibly new) array
+     */
+    private static int[] append(int[] values, int position, int value) {
+        int[] result = position < values.length
+                ? values
+                : Arrays.copyOf(values, Math.max(4, values.length * 2));
+        result[position] = value;
+        return result;
+    }
+
+
+    /**
+     * Removes the first occurrence of `value` from the first `size` elements,
+     * order is not preserved.
+     * @return the new size
+     */
+    private static int remove(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                values[i] = values[size - 1];
+                return size - 1;
+            }
+        }
+        return size;
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("DirectedMultigraph{");
+        sb.append("#nodes=").append(nodeCount);
+        sb.append(", #edges=").append(edgeCount());
+        sb.append('}');
+        return sb.toString();
+    }
+}
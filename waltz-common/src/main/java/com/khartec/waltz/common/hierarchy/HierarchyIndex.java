@@ -0,0 +1,202 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.hierarchy;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Immutable, primitive backed index over a forest of long keyed nodes.
+ *
+ * Nodes are laid out in pre-order so the descendants of any node occupy a
+ * contiguous range of the index.  This lets us answer descendant and ancestor
+ * queries without walking object graphs or going back to the database.
+ *
+ * Nodes which cannot be reached from a root (e.g. those in a cycle) are
+ * not included in the index.
+ */
+public class HierarchyIndex {
+
+    private static final long[] NO_IDS = new long[0];
+
+    private final long[] idsInOrder;
+    private final int[] subtreeEnds;
+    private final int[] parentPositions;
+    private final long[] sortedIds;
+    private final int[] sortedIdPositions;
+
+
+    private HierarchyIndex(long[] idsInOrder,
+                           int[] subtreeEnds,
+                           int[] parentPositions) {
+        this.idsInOrder = idsInOrder;
+        this.subtreeEnds = subtreeEnds;
+        this.parentPositions = parentPositions;
+
+        int size = idsInOrder.length;
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(idsInOrder[a], idsInOrder[b]));
+
+        this.sortedIds = new long[size];
+        this.sortedIdPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = idsInOrder[order[i]];
+            sortedIdPositions[i] = order[i];
+        }
+    }
+
+
+    public static <T> HierarchyIndex fromForest(Forest<T, Long> forest) {
+        checkNotNull(forest, "forest cannot be null");
+
+        int capacity = forest.getAllNodes().size();
+        long[] ids = new long[capacity];
+        int[] ends = new int[capacity];
+        int[] parents = new int[capacity];
+
+        // iterative pre-order walk, deep hierarchies should not blow the stack
+        Deque<Node<T, Long>> toVisit = new ArrayDeque<>();
+        Deque<Integer> toVisitParents = new ArrayDeque<>();
+        Deque<Integer> openPositions = new ArrayDeque<>();
+
+        int position = 0;
+        for (Node<T, Long> root : forest.getRootNodes()) {
+            toVisit.push(root);
+            toVisitParents.push(-1);
+
+            while (! toVisit.isEmpty()) {
+                Node<T, Long> node = toVisit.pop();
+                int parentPosition = toVisitParents.pop();
+
+                // close any subtrees which this node is not a member of
+                while (! openPositions.isEmpty() && openPositions.peek() != parentPosition) {
+                    ends[openPositions.pop()] = position;
+                }
+
+                ids[position] = node.getId();
+                parents[position] = parentPosition;
+                openPositions.push(position);
+
+                for (Node<T, Long> child : node.getChildren()) {
+                    toVisit.push(child);
+                    toVisitParents.push(position);
+                }
+
+                position++;
+            }
+
+            while (! openPositions.isEmpty()) {
+                ends[openPositions.pop()] = position;
+            }
+        }
+
+        return new HierarchyIndex(
+                Arrays.copyOf(ids, position),
+                Arrays.copyOf(ends, position),
+                Arrays.copyOf(parents, position));
+    }
+
+
+    public int size() {
+        return idsInOrder.length;
+    }
+
+
+    public boolean contains(long id) {
+        return findPosition(id) >= 0;
+    }
+
+
+    /**
+     * @param id  node identifier
+     * @return number of nodes in the subtree rooted at the given node (including the node itself),
+     *          or zero if the node is not part of the index
+     */
+    public int countDescendants(long id) {
+        int position = findPosition(id);
+        return position < 0
+                ? 0
+                : subtreeEnds[position] - position;
+    }
+
+
+    /**
+     * @param id  node identifier
+     * @return number of nodes on the path from the given node to its root (including the node itself),
+     *          or zero if the node is not part of the index
+     */
+    public int countAncestors(long id) {
+        int count = 0;
+        for (int p = findPosition(id); p >= 0; p = parentPositions[p]) {
+            count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * @param id  node identifier
+     * @return ids of the node and all of its descendants, or an empty array if the node is not indexed
+     */
+    public long[] findDescendants(long id) {
+        int position = findPosition(id);
+        return position < 0
+                ? NO_IDS
+                : Arrays.copyOfRange(idsInOrder, position, subtreeEnds[position]);
+    }
+
+
+    /**
+     * @param id  node identifier
+     * @return ids of the node and all of its ancestors (immediate parents first), or an empty array
+     *          if the node is not indexed
+     */
+    public long[] findAncestors(long id) {
+        long[] result = new long[countAncestors(id)];
+        int i = 0;
+        for (int p = findPosition(id); p >= 0; p = parentPositions[p]) {
+            result[i++] = idsInOrder[p];
+        }
+        return result;
+    }
+
+
+    private int findPosition(long id) {
+        int idx = Arrays.binarySearch(sortedIds, id);
+        return idx < 0
+                ? -1
+                : sortedIdPositions[idx];
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("HierarchyIndex{");
+        sb.append("#nodes=").append(idsInOrder.length);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.search;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Immutable, in-memory inverted index over a collection of documents.
+ *
+ * Documents are tokenised (lower cased, split on non alpha-numeric characters)
+ * from one or more weighted fields.  Queries are matched term by term, every
+ * query term must match a document for it to be returned.  A query term
+ * matches index terms exactly, by prefix or, for longer terms, with a small
+ * number of typos (the first character must match).  Results are ranked using
+ * BM25, with prefix and fuzzy matches scoring less than exact matches.
+ *
+ * @param <T> document type
+ */
+public class InvertedIndex<T> {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_MATCH_WEIGHT = 0.7;
+    private static final double FUZZY_MATCH_WEIGHT = 0.5;
+    private static final int MIN_FUZZY_TERM_LENGTH = 4;
+    private static final int MAX_EXPANSIONS_PER_TERM = 64;
+
+
+    public static class Field<T> {
+
+        private final Function<T, String> extractor;
+        private final float weight;
+
+
+        private Field(Function<T, String> extractor, float weight) {
+            this.extractor = extractor;
+            this.weight = weight;
+        }
+
+
+        /**
+         * @param extractor  returns the text to index, may return null
+         * @param weight  relative importance of matches in this field (e.g. names are more important than descriptions)
+         */
+        public static <T> Field<T> of(Function<T, String> extractor, double weight) {
+            checkNotNull(extractor, "extractor cannot be null");
+            checkTrue(weight > 0, "weight must be positive");
+            return new Field<>(extractor, (float) weight);
+        }
+    }
+
+
+    private final List<T> documents;
+    private final String[] terms;
+    private final int[][] postingDocs;
+    private final float[][] postingFrequencies;
+    private final float[] documentLengths;
+    private final double averageDocumentLength;
+
+
+    private InvertedIndex(List<T> documents,
+                          String[] terms,
+                          int[][] postingDocs,
+                          float[][] postingFrequencies,
+                          float[] documentLengths) {
+        this.documents = documents;
+        this.terms = terms;
+        this.postingDocs = postingDocs;
+        this.postingFrequencies = postingFrequencies;
+        this.documentLengths = documentLengths;
+
+        double totalLength = 0;
+        for (float length : documentLengths) {
+            totalLength += length;
+        }
+        this.averageDocumentLength = documents.isEmpty()
+                ? 1
+                : Math.max(totalLength / documents.size(), 1);
+    }
+
+
+    public static <T> InvertedIndex<T> build(Collection<T> documents,
+                                             List<Field<T>> fields) {
+        checkNotNull(documents, "documents cannot be null");
+        checkNotNull(fields, "fields cannot be null");
+
+        List<T> docs = new ArrayList<>(documents);
+        float[] documentLengths = new float[docs.size()];
+        Map<String, PostingsBuilder> postingsByTerm = new HashMap<>();
+
+        for (int docIdx = 0; docIdx < docs.size(); docIdx++) {
+            T doc = docs.get(docIdx);
+            for (Field<T> field : fields) {
+                for (String term : tokenise(field.extractor.apply(doc))) {
+                    postingsByTerm
+                            .computeIfAbsent(term, t -> new PostingsBuilder())
+                            .add(docIdx, field.weight);
+                    documentLengths[docIdx] += field.weight;
+                }
+            }
+        }
+
+        String[] terms = postingsByTerm.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+
+        int[][] postingDocs = new int[terms.length][];
+        float[][] postingFrequencies = new float[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            PostingsBuilder postings = postingsByTerm.get(terms[i]);
+            postingDocs[i] = Arrays.copyOf(postings.docs, postings.size);
+            postingFrequencies[i] = Arrays.copyOf(postings.frequencies, postings.size);
+        }
+
+        return new InvertedIndex<>(docs, terms, postingDocs, postingFrequencies, documentLengths);
+    }
+
+
+    public int size() {
+        return documents.size();
+    }
+
+
+    public List<T> documents() {
+        return Collections.unmodifiableList(documents);
+    }
+
+
+    public List<T> search(String query, int limit) {
+        return search(query, d -> true, limit);
+    }
+
+
+    /**
+     * @param query  free text query
+     * @param filter  documents failing this predicate are excluded
+     * @param limit  maximum number of results
+     * @return matching documents, best match first
+     */
+    public List<T> search(String query,
+                          Predicate<T> filter,
+                          int limit) {
+        checkNotNull(filter, "filter cannot be null");
+
+        Set<String> queryTerms = new LinkedHashSet<>(tokenise(query));
+        if (queryTerms.isEmpty() || documents.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        float[] totals = null;
+        for (String queryTerm : queryTerms) {
+            float[] termScores = scoreTerm(queryTerm);
+            if (totals == null) {
+                totals = termScores;
+            } else {
+                for (int d = 0; d < totals.length; d++) {
+                    totals[d] = totals[d] > 0 && termScores[d] > 0
+                            ? totals[d] + termScores[d]
+                            : 0;
+                }
+            }
+        }
+
+        List<Integer> matches = new ArrayList<>();
+        for (int d = 0; d < totals.length; d++) {
+            if (totals[d] > 0 && filter.test(documents.get(d))) {
+                matches.add(d);
+            }
+        }
+
+        float[] scores = totals;
+        matches.sort((a, b) -> Float.compare(scores[b], scores[a]));
+
+        List<T> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(documents.get(matches.get(i)));
+        }
+        return result;
+    }
+
+
+    static List<String> tokenise(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+
+    /**
+     * Computes the best score for each document for a single query term,
+     * considering exact, prefix and fuzzy matches of that term.
+     */
+    private float[] scoreTerm(String queryTerm) {
+        float[] scores = new float[documents.size()];
+
+        int start = Arrays.binarySearch(terms, queryTerm);
+        if (start < 0) {
+            start = -(start + 1);
+        }
+
+        // exact and prefix matches form a contiguous range of the sorted terms
+        int expansions = 0;
+        int i = start;
+        for (; i < terms.length && terms[i].startsWith(queryTerm) && expansions < MAX_EXPANSIONS_PER_TERM; i++) {
+            double weight = terms[i].length() == queryTerm.length()
+                    ? 1
+                    : PREFIX_MATCH_WEIGHT;
+            accumulate(scores, i, weight);
+            expansions++;
+        }
+        int prefixEnd = i;
+
+        if (queryTerm.length() >= MIN_FUZZY_TERM_LENGTH) {
+            int maxEdits = queryTerm.length() >= 8 ? 2 : 1;
+            char first = queryTerm.charAt(0);
+
+            // fuzzy candidates share the first character, so lie within a contiguous range
+            int rangeStart = start;
+            while (rangeStart > 0 && terms[rangeStart - 1].charAt(0) == first) {
+                rangeStart--;
+            }
+
+            for (int t = rangeStart; t < terms.length && terms[t].charAt(0) == first && expansions < MAX_EXPANSIONS_PER_TERM; t++) {
+                if (t >= start && t < prefixEnd) {
+                    continue;
+                }
+                if (Math.abs(terms[t].length() - queryTerm.length()) <= maxEdits
+                        && editDistance(queryTerm, terms[t], maxEdits) <= maxEdits) {
+                    accumulate(scores, t, FUZZY_MATCH_WEIGHT);
+                    expansions++;
+                }
+            }
+        }
+
+        return scores;
+    }
+
+
+    private void accumulate(float[] scores, int termIdx, double weight) {
+        int[] docs = postingDocs[termIdx];
+        float[] frequencies = postingFrequencies[termIdx];
+
+        double n = documents.size();
+        double idf = Math.log(1 + (n - docs.length + 0.5) / (docs.length + 0.5));
+
+        for (int p = 0; p < docs.length; p++) {
+            int d = docs[p];
+            double tf = frequencies[p];
+            double norm = K1 * (1 - B + B * documentLengths[d] / averageDocumentLength);
+            float score = (float) (weight * idf * (tf * (K1 + 1)) / (tf + norm));
+            if (score > scores[d]) {
+                scores[d] = score;
+            }
+        }
+    }
+
+
+    /**
+     * Edit distance (optimal string alignment, so an adjacent transposition counts as a
+     * single edit), giving up and returning `max + 1` once the distance is known to exceed `max`.
+     */
+    static int editDistance(String a, String b, int max) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(
+                        Math.min(current[j - 1] + 1, previous[j] + 1),
+                        previous[j - 1] + cost);
+                if (i > 1 && j > 1
+                        && a.charAt(i - 1) == b.charAt(j - 2)
+                        && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        return previous[b.length()];
+    }
+
+
+    private static class PostingsBuilder {
+
+        private int[] docs = new int[4];
+        private float[] frequencies = new float[4];
+        private int size = 0;
+
+
+        private void add(int doc, float weight) {
+            if (size > 0 && docs[size - 1] == doc) {
+                frequencies[size - 1] += weight;
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = weight;
+            size++;
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("InvertedIndex{");
+        sb.append("#documents=").append(documents.size());
+        sb.append(", #terms=").append(terms.length);
+        sb.append('}');
+        return sb.toString();
+    }
+}
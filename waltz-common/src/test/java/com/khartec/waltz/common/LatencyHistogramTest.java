@@ -0,0 +1,88 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.common;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.count());
+        assertEquals(0, h.mean());
+        assertEquals(0, h.percentile(99));
+    }
+
+    @Test
+    public void countsTotalsAndMaxAreExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(10);
+        h.record(20);
+        h.record(30);
+        assertEquals(3, h.count());
+        assertEquals(60, h.total());
+        assertEquals(20, h.mean());
+        assertEquals(30, h.max());
+    }
+
+    @Test
+    public void percentilesAreWithinBucketAccuracy() {
+        LatencyHistogram h = new LatencyHistogram();
+        IntStream.rangeClosed(1, 1000).forEach(h::record);
+
+        assertWithin(500, h.percentile(50));
+        assertWithin(950, h.percentile(95));
+        assertWithin(990, h.percentile(99));
+        assertEquals(1000, h.percentile(100));
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (long v = 0; v < 10_000; v++) {
+            int bucket = LatencyHistogram.bucketFor(v);
+            assertTrue(v <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || v > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+    }
+
+    @Test
+    public void negativeValuesAreTreatedAsZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        assertEquals(1, h.count());
+        assertEquals(0, h.max());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileMustBeInRange() {
+        new LatencyHistogram().percentile(101);
+    }
+
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(
+                String.format("expected %d to be within 25%% of %d", actual, expected),
+                actual >= expected && actual <= expected * 1.25);
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.common;
+
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LruCacheTest {
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a"); // 'b' is now the least recently used
+        cache.put("c", 3);
+
+        assertEquals(Optional.of(1), cache.get("a"));
+        assertEquals(Optional.empty(), cache.get("b"));
+        assertEquals(Optional.of(3), cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+
+    @Test
+    public void loaderIsOnlyCalledOnMiss() {
+        LruCache<String, Integer> cache = new LruCache<>(10);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(Integer.valueOf(3), cache.get("abc", k -> { calls.incrementAndGet(); return k.length(); }));
+        assertEquals(Integer.valueOf(3), cache.get("abc", k -> { calls.incrementAndGet(); return k.length(); }));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+
+    @Test
+    public void nullValuesAreNotCached() {
+        LruCache<String, Integer> cache = new LruCache<>(10);
+        cache.put("a", null);
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void entriesCanBeInvalidated() {
+        LruCache<String, Integer> cache = new LruCache<>(10);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        cache.invalidate("a");
+        assertFalse(cache.get("a").isPresent());
+
+        cache.invalidateIf(k -> k.equals("b"));
+        assertFalse(cache.get("b").isPresent());
+        assertTrue(cache.get("c").isPresent());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void entriesExpire() throws InterruptedException {
+        LruCache<String, Integer> cache = new LruCache<>(10, 10);
+        cache.put("a", 1);
+        Thread.sleep(30);
+        assertFalse(cache.get("a").isPresent());
+    }
+
+}
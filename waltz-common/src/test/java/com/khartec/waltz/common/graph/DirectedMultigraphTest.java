@@ -0,0 +1,162 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.graph;
+
+import com.khartec.waltz.common.graph.DirectedMultigraph.Edge;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.khartec.waltz.common.graph.DirectedMultigraph.Direction.BACKWARD;
+import static com.khartec.waltz.common.graph.DirectedMultigraph.Direction.FORWARD;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+public class DirectedMultigraphTest {
+
+    //  a -1-> b -2-> c -3-> d
+    //  a -4-> c      c -5-> a   (cycle)
+    //  e (isolated)
+    private DirectedMultigraph g;
+    private int a, b, c, d, e;
+
+
+    @Before
+    public void setUp() {
+        g = new DirectedMultigraph();
+        a = g.addNode();
+        b = g.addNode();
+        c = g.addNode();
+        d = g.addNode();
+        e = g.addNode();
+        g.putEdge(1, a, b, new long[]{ 10 });
+        g.putEdge(2, b, c, new long[]{ 10, 20 });
+        g.putEdge(3, c, d, new long[]{ 20 });
+        g.putEdge(4, a, c, new long[]{ 30 });
+        g.putEdge(5, c, a, null);
+    }
+
+
+    @Test
+    public void traversalRespectsHopLimit() {
+        assertEquals(listOf(1L, 4L), ids(g.traverse(a, FORWARD, 1)));
+        assertEquals(listOf(1L, 4L, 2L, 3L, 5L), sortedWithinHops(g.traverse(a, FORWARD, 2)));
+        assertTrue(g.traverse(a, FORWARD, 0).isEmpty());
+    }
+
+
+    @Test
+    public void traversalReportsHopCounts() {
+        List<Edge> upstreamOfD = g.traverse(d, BACKWARD, 10);
+        assertEquals(1, find(upstreamOfD, 3).hops());
+        assertEquals(2, find(upstreamOfD, 2).hops());
+        assertEquals(2, find(upstreamOfD, 4).hops());
+        assertEquals(3, find(upstreamOfD, 1).hops());
+        assertEquals(5, upstreamOfD.size());
+    }
+
+
+    @Test
+    public void labelsFilterTraversals() {
+        assertEquals(listOf(1L, 2L), ids(g.traverse(a, FORWARD, 10, label -> label == 10)));
+        assertArrayEquals(new int[]{ b, c }, g.findReachable(a, FORWARD, label -> label == 10));
+        assertArrayEquals(new int[]{ c, d }, g.findReachable(a, FORWARD, label -> label == 30 || label == 20));
+    }
+
+
+    @Test
+    public void reachabilityExcludesStartNode() {
+        assertArrayEquals(new int[]{ b, c, d }, sorted(g.findReachable(a, FORWARD, null)));
+        assertArrayEquals(new int[]{ a, b, c }, sorted(g.findReachable(d, BACKWARD, null)));
+        assertArrayEquals(new int[0], g.findReachable(e, FORWARD, null));
+    }
+
+
+    @Test
+    public void shortestPathPrefersFewestEdges() {
+        List<Edge> path = g.findShortestPath(a, d, null);
+        assertEquals(listOf(4L, 3L), ids(path));
+        assertEquals(2, path.get(1).hops());
+
+        assertEquals(listOf(1L, 2L, 3L), ids(g.findShortestPath(a, d, label -> label != 30)));
+        assertTrue(g.findShortestPath(d, a, null).isEmpty());
+        assertTrue(g.findShortestPath(a, e, null).isEmpty());
+    }
+
+
+    @Test
+    public void edgesCanBeRemovedAndReplaced() {
+        assertTrue(g.removeEdge(4));
+        assertFalse(g.removeEdge(4));
+        assertEquals(listOf(1L, 2L, 3L), ids(g.findShortestPath(a, d, null)));
+
+        g.putEdge(2, b, d, new long[]{ 10 });
+        assertEquals(listOf(1L, 2L), ids(g.findShortestPath(a, d, null)));
+        assertEquals(4, g.edgeCount());
+
+        g.putEdge(6, a, d, null);
+        assertEquals(listOf(6L), ids(g.findShortestPath(a, d, null)));
+        assertEquals(5, g.edgeCount());
+    }
+
+
+    @Test
+    public void labelsCanBeReplaced() {
+        assertTrue(g.setLabels(1, new long[]{ 99 }));
+        assertFalse(g.setLabels(42, new long[]{ 99 }));
+        assertTrue(g.traverse(a, FORWARD, 10, label -> label == 10).isEmpty());
+    }
+
+
+    // -- HELPERS
+
+    private static List<Long> listOf(Long... ids) {
+        return Arrays.asList(ids);
+    }
+
+
+    private static List<Long> ids(List<Edge> edges) {
+        return edges.stream().map(Edge::id).collect(toList());
+    }
+
+
+    private static List<Long> sortedWithinHops(List<Edge> edges) {
+        return edges.stream()
+                .sorted((x, y) -> x.hops() != y.hops()
+                        ? Integer.compare(x.hops(), y.hops())
+                        : Long.compare(x.id(), y.id()))
+                .map(Edge::id)
+                .collect(toList());
+    }
+
+
+    private static Edge find(List<Edge> edges, long id) {
+        return edges.stream().filter(x -> x.id() == id).findFirst().get();
+    }
+
+
+    private static int[] sorted(int[] values) {
+        int[] result = values.clone();
+        Arrays.sort(result);
+        return result;
+    }
+
+}
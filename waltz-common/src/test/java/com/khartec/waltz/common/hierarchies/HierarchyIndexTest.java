@@ -0,0 +1,103 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.hierarchies;
+
+import com.khartec.waltz.common.ListUtilities;
+import com.khartec.waltz.common.hierarchy.FlatNode;
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
+import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.junit.Assert.*;
+
+
+public class HierarchyIndexTest {
+
+    private static final List<FlatNode<Void, Long>> TWO_TREES = ListUtilities.newArrayList(
+            new FlatNode<>(1L, empty(), null),
+            new FlatNode<>(2L, of(1L), null),
+            new FlatNode<>(3L, of(2L), null),
+            new FlatNode<>(4L, of(2L), null),
+            new FlatNode<>(5L, of(1L), null),
+            new FlatNode<>(6L, empty(), null),
+            new FlatNode<>(7L, of(6L), null));
+
+
+    private static final List<FlatNode<Void, Long>> CIRCULAR = ListUtilities.newArrayList(
+            new FlatNode<>(1L, of(3L), null),
+            new FlatNode<>(2L, of(1L), null),
+            new FlatNode<>(3L, of(1L), null),
+            new FlatNode<>(4L, empty(), null));
+
+
+    @Test
+    public void descendantsIncludeSelf() {
+        HierarchyIndex index = mkIndex(TWO_TREES);
+        assertArrayEquals(new long[]{1, 2, 3, 4, 5}, sorted(index.findDescendants(1L)));
+        assertArrayEquals(new long[]{2, 3, 4}, sorted(index.findDescendants(2L)));
+        assertArrayEquals(new long[]{3}, index.findDescendants(3L));
+        assertArrayEquals(new long[]{6, 7}, sorted(index.findDescendants(6L)));
+        assertEquals(5, index.countDescendants(1L));
+    }
+
+
+    @Test
+    public void ancestorsAreImmediateParentFirst() {
+        HierarchyIndex index = mkIndex(TWO_TREES);
+        assertArrayEquals(new long[]{4, 2, 1}, index.findAncestors(4L));
+        assertArrayEquals(new long[]{6}, index.findAncestors(6L));
+        assertEquals(2, index.countAncestors(7L));
+    }
+
+
+    @Test
+    public void unknownIdsGiveEmptyResults() {
+        HierarchyIndex index = mkIndex(TWO_TREES);
+        assertFalse(index.contains(99L));
+        assertEquals(0, index.findDescendants(99L).length);
+        assertEquals(0, index.findAncestors(99L).length);
+        assertEquals(0, index.countDescendants(99L));
+    }
+
+
+    @Test
+    public void nodesInCyclesAreNotIndexed() {
+        HierarchyIndex index = mkIndex(CIRCULAR);
+        assertEquals(1, index.size());
+        assertTrue(index.contains(4L));
+        assertFalse(index.contains(1L));
+    }
+
+
+    private static HierarchyIndex mkIndex(List<FlatNode<Void, Long>> nodes) {
+        return HierarchyIndex.fromForest(HierarchyUtilities.toForest(nodes));
+    }
+
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = Arrays.copyOf(ids, ids.length);
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.common.search;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static org.junit.Assert.*;
+
+public class InvertedIndexTest {
+
+    private static class Doc {
+        final String name;
+        final String description;
+
+        Doc(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+    }
+
+    private static final Doc PAYMENTS = new Doc("Payments Gateway", "Routes card payments to acquirers");
+    private static final Doc LEDGER = new Doc("General Ledger", "Books of record, receives payments summaries");
+    private static final Doc TRADING = new Doc("Equities Trading", "Order management for cash equities");
+    private static final Doc RISK = new Doc("Market Risk", null);
+
+    private static final InvertedIndex<Doc> INDEX = InvertedIndex.build(
+            newArrayList(PAYMENTS, LEDGER, TRADING, RISK),
+            newArrayList(
+                    InvertedIndex.Field.of(d -> d.name, 3),
+                    InvertedIndex.Field.of(d -> d.description, 1)));
+
+
+    @Test
+    public void exactMatchesInHigherWeightedFieldsRankFirst() {
+        List<Doc> results = INDEX.search("payments", 10);
+        assertEquals(newArrayList(PAYMENTS, LEDGER), results);
+    }
+
+
+    @Test
+    public void prefixesMatch() {
+        assertEquals(newArrayList(TRADING), INDEX.search("equit trad", 10));
+    }
+
+
+    @Test
+    public void allTermsMustMatch() {
+        assertEquals(newArrayList(LEDGER), INDEX.search("payments ledger", 10));
+        assertTrue(INDEX.search("payments risk", 10).isEmpty());
+    }
+
+
+    @Test
+    public void smallTyposAreTolerated() {
+        assertEquals(newArrayList(RISK), INDEX.search("markte", 10));
+        assertEquals(newArrayList(LEDGER), INDEX.search("genral", 10));
+    }
+
+
+    @Test
+    public void filterAndLimitAreApplied() {
+        assertEquals(newArrayList(LEDGER), INDEX.search("payments", d -> d != PAYMENTS, 10));
+        assertEquals(newArrayList(PAYMENTS), INDEX.search("payments", 1));
+    }
+
+
+    @Test
+    public void emptyQueriesReturnNothing() {
+        assertTrue(INDEX.search("", 10).isEmpty());
+        assertTrue(INDEX.search(null, 10).isEmpty());
+        assertTrue(INDEX.search("--", 10).isEmpty());
+    }
+
+
+    @Test
+    public void editDistanceGivesUpBeyondMax() {
+        assertEquals(0, InvertedIndex.editDistance("risk", "risk", 1));
+        assertEquals(1, InvertedIndex.editDistance("risk", "rusk", 1));
+        assertEquals(1, InvertedIndex.editDistance("market", "markte", 1));
+        assertEquals(2, InvertedIndex.editDistance("market", "mrakte", 2));
+        assertEquals(2, InvertedIndex.editDistance("abcdef", "uvwxyz", 1));
+    }
+
+}
@@ -20,14 +20,20 @@ package com.khartec.waltz.data;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
 
 public class DBExecutorPool implements DBExecutorPoolInterface {
 
     private final ExecutorService executorPool;
+    private final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor(
+            (runnable) -> {
+                Thread t = new Thread(runnable, "DB Executor Timeout");
+                t.setDaemon(true);
+                return t;
+            });
 
 
     @Autowired
@@ -48,4 +54,35 @@ public class DBExecutorPool implements DBExecutorPoolInterface {
         return executorPool.submit(task);
     }
 
+
+    @Override
+    public <T> CompletableFuture<T> submit(Callable<T> task, Duration timeout) {
+        checkNotNull(task, "task cannot be null");
+        checkNotNull(timeout, "timeout cannot be null");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+
+        Future<?> execution = executorPool.submit(() -> {
+            try {
+                result.complete(QueryDeadlineListener.callWithDeadline(deadlineNanos, task));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        ScheduledFuture<?> deadline = timeoutScheduler.schedule(
+                () -> result.completeExceptionally(new TimeoutException("Task did not complete within " + timeout)),
+                timeout.toMillis(),
+                TimeUnit.MILLISECONDS);
+
+        result.whenComplete((r, e) -> {
+            deadline.cancel(false);
+            // do not interrupt, some jdbc drivers close the connection if interrupted mid-query
+            execution.cancel(false);
+        });
+
+        return result;
+    }
+
 }
@@ -19,10 +19,31 @@
 package com.khartec.waltz.data;
 
 
+import java.time.Duration;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 public interface DBExecutorPoolInterface {
 
     <T> Future<T> submit(Callable<T> task);
+
+
+    /**
+     * Submits a task which must complete within the given timeout.  If the
+     * deadline passes the returned future completes exceptionally with a
+     * `TimeoutException`.  A task which has not yet started by then is never
+     * run, however a task which is already executing is not interrupted.
+     * Instead, where the DSLContext is configured with a `QueryDeadlineListener`,
+     * queries issued by the task carry a statement timeout so the database
+     * cancels them once the deadline has passed.
+     *
+     * Cancelling the returned future also prevents a queued task from running.
+     *
+     * @param task  work to perform
+     * @param timeout  maximum time to wait for the task to complete
+     * @param <T>  result type
+     * @return future which completes with the task result, or exceptionally on failure/timeout
+     */
+    <T> CompletableFuture<T> submit(Callable<T> task, Duration timeout);
 }
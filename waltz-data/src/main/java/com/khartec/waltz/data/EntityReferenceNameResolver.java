@@ -18,78 +18,143 @@
 
 package com.khartec.waltz.data;
 
-import com.khartec.waltz.common.ListUtilities;
+import com.khartec.waltz.common.LruCache;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
 import org.jooq.*;
-import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.maybeFirst;
-import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.data.JooqUtilities.isSQLServer;
 import static com.khartec.waltz.model.EntityReference.mkRef;
+import static java.util.stream.Collectors.*;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 /**
  * Service which takes a list of entity references and returns a list
  * enriched with entity names.
+ *
+ * References are grouped by kind and resolved with one (chunked) `id in (...)`
+ * query per kind.  Resolved names are held in a bounded LRU cache, entries for
+ * an entity should be invalidated (via `invalidate`) when that entity changes.
  */
 @Repository
 public class EntityReferenceNameResolver {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntityReferenceNameResolver.class);
+
+    private static final int MAX_CACHED_NAMES = 50_000;
+    private static final long CACHE_EXPIRY_MILLIS = 15 * 60 * 1000;
+
+    /** SQL Server allows at most 2100 parameters per statement, other vendors are more generous */
+    private static final int SQL_SERVER_MAX_IDS_PER_QUERY = 2_000;
+    private static final int DEFAULT_MAX_IDS_PER_QUERY = 10_000;
+
     private final DSLContext dsl;
+    private final int maxIdsPerQuery;
+    private final LruCache<Tuple2<EntityKind, Long>, String> nameCache = new LruCache<>(MAX_CACHED_NAMES, CACHE_EXPIRY_MILLIS);
+
 
     @Autowired
     public EntityReferenceNameResolver(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
         this.dsl = dsl;
+        this.maxIdsPerQuery = isSQLServer(dsl.dialect())
+                ? SQL_SERVER_MAX_IDS_PER_QUERY
+                : DEFAULT_MAX_IDS_PER_QUERY;
     }
 
+
     public Optional<EntityReference> resolve(EntityReference ref) {
         return maybeFirst(resolve(newArrayList(ref)));
     }
 
+
+    /**
+     * @param refs  references to resolve
+     * @return distinct references (in the order given) with names populated.  If the name cannot
+     *          be determined (unsupported kind or missing entity) the name will be empty
+     */
     public List<EntityReference> resolve(List<EntityReference> refs) {
         checkNotNull(refs, "refs cannot be null");
-        
-        Field<Long> idField = DSL.field("tref_id", Long.class);
-        Field<String> kindField = DSL.field("tref_kind", String.class);
-
-        Field<String> nameField = InlineSelectFieldFactory.mkNameField(
-                idField,
-                kindField);
-
-        List<SelectSelectStep<Record2<String, Long>>> parts = map(
-                refs,
-                r -> DSL.select(
-                        DSL.val(r.kind().name()).as(kindField),
-                        DSL.val(r.id()).as(idField)));
-
-
-        if (parts.size() > 0) {
-            SelectSelectStep<Record2<String, Long>> firstPart = parts.get(0);
-            if (parts.size() > 1) {
-                List<SelectSelectStep<Record2<String, Long>>> tail = ListUtilities.drop(parts, 1);
-                tail.forEach(firstPart::union);
+
+        List<Tuple2<EntityKind, Long>> keys = refs
+                .stream()
+                .map(r -> tuple(r.kind(), r.id()))
+                .distinct()
+                .collect(toList());
+
+        Map<Tuple2<EntityKind, Long>, String> names = new HashMap<>();
+        Map<EntityKind, List<Long>> missingIdsByKind = new EnumMap<>(EntityKind.class);
+
+        for (Tuple2<EntityKind, Long> key : keys) {
+            Optional<String> cachedName = nameCache.get(key);
+            if (cachedName.isPresent()) {
+                names.put(key, cachedName.get());
+            } else {
+                missingIdsByKind
+                        .computeIfAbsent(key.v1, k -> new ArrayList<>())
+                        .add(key.v2);
             }
+        }
+
+        missingIdsByKind.forEach((kind, ids) -> fetchNames(kind, ids)
+                .forEach((id, name) -> {
+                    Tuple2<EntityKind, Long> key = tuple(kind, id);
+                    names.put(key, name);
+                    nameCache.put(key, name);
+                }));
+
+        return keys
+                .stream()
+                .map(k -> mkRef(k.v1, k.v2, names.get(k)))
+                .collect(toList());
+    }
+
+
+    public void invalidate(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+        nameCache.invalidate(tuple(ref.kind(), ref.id()));
+    }
+
 
-            Table<Record2<String, Long>> tempRefs = firstPart.asTable("temp_refs");
-            return dsl
-                    .select(idField, kindField, nameField)
-                    .from(tempRefs)
-                    .fetch(r -> mkRef(
-                            EntityKind.valueOf(r.get(kindField)),
-                            r.get(idField),
-                            r.get(nameField)));
-        } else {
-            return Collections.emptyList();
+    public void invalidateAll() {
+        nameCache.invalidateAll();
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, String> fetchNames(EntityKind kind, List<Long> ids) {
+        Optional<Tuple3<Table, Field<Long>, Field<String>>> mapping = InlineSelectFieldFactory.findNameMapping(kind);
+
+        if (! mapping.isPresent()) {
+            LOG.debug("Cannot resolve names for entities of kind: {}", kind);
+            return Collections.emptyMap();
         }
 
+        Table<Record> table = mapping.get().v1;
+        Field<Long> idField = mapping.get().v2;
+        Field<String> nameField = mapping.get().v3;
+
+        Map<Long, String> result = new HashMap<>();
+        for (int start = 0; start < ids.size(); start += maxIdsPerQuery) {
+            List<Long> chunk = ids.subList(start, Math.min(ids.size(), start + maxIdsPerQuery));
+            dsl.select(idField, nameField)
+                    .from(table)
+                    .where(idField.in(chunk))
+                    .fetch()
+                    .forEach(r -> result.put(r.value1(), r.value2()));
+        }
+        return result;
     }
 
 }
@@ -0,0 +1,242 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.common.search.InvertedIndex;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.IdProvider;
+import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.RecordMapper;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.schema.tables.EntityAlias.ENTITY_ALIAS;
+
+
+/**
+ * Database independent full text search backed by an in-memory inverted index.
+ *
+ * The index is built on first use (or explicitly via `refresh`), searches
+ * then require no database access.  Callers are responsible for calling
+ * `refresh` when the underlying data changes.
+ *
+ * If an alias kind is given the entities' aliases (from `entity_alias`) are
+ * indexed alongside the other fields.
+ *
+ * @param <T> entity type
+ */
+public class InMemoryFullTextSearch<T extends IdProvider> implements FullTextSearch<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryFullTextSearch.class);
+
+    /**
+     * Refreshes of more entities than this reload the whole table, which also
+     * keeps the number of bind parameters in the `IN` clause bounded.
+     */
+    private static final int MAX_PARTIAL_REFRESH_SIZE = 1000;
+
+    private static final double ALIAS_WEIGHT = 2;
+
+    private final String name;
+    private final Table<?> table;
+    private final Field<Long> idField;
+    private final RecordMapper<Record, T> mapper;
+    private final List<InvertedIndex.Field<T>> fields;
+    private final BiPredicate<T, EntitySearchOptions> filter;
+    private final Optional<EntityKind> aliasKind;
+
+    private volatile InvertedIndex<T> index;
+
+    // aliases of the entities in `index`, only used whilst (re)building the index
+    private Map<Long, String> aliasesById = Collections.emptyMap();
+
+
+    /**
+     * @param name  used for logging
+     * @param table  table holding the searchable entities
+     * @param idField  id column of `table`
+     * @param mapper  converts rows of `table` to entities
+     * @param fields  fields to index (with relative weights)
+     * @param filter  applied to matching entities, typically to restrict by lifecycle status
+     */
+    public InMemoryFullTextSearch(String name,
+                                  Table<?> table,
+                                  Field<Long> idField,
+                                  RecordMapper<Record, T> mapper,
+                                  List<InvertedIndex.Field<T>> fields,
+                                  BiPredicate<T, EntitySearchOptions> filter) {
+        this(name, table, idField, mapper, fields, filter, Optional.empty());
+    }
+
+
+    /**
+     * @param aliasKind  if present, aliases registered against this kind of entity are also indexed
+     */
+    public InMemoryFullTextSearch(String name,
+                                  Table<?> table,
+                                  Field<Long> idField,
+                                  RecordMapper<Record, T> mapper,
+                                  List<InvertedIndex.Field<T>> fields,
+                                  BiPredicate<T, EntitySearchOptions> filter,
+                                  Optional<EntityKind> aliasKind) {
+        checkNotNull(name, "name cannot be null");
+        checkNotNull(table, "table cannot be null");
+        checkNotNull(idField, "idField cannot be null");
+        checkNotNull(mapper, "mapper cannot be null");
+        checkNotNull(fields, "fields cannot be null");
+        checkNotNull(filter, "filter cannot be null");
+        checkNotNull(aliasKind, "aliasKind cannot be null");
+
+        this.name = name;
+        this.table = table;
+        this.idField = idField;
+        this.mapper = mapper;
+        this.fields = fields;
+        this.filter = filter;
+        this.aliasKind = aliasKind;
+    }
+
+
+    @Override
+    public List<T> searchFullText(DSLContext dsl, EntitySearchOptions options) {
+        InvertedIndex<T> current = index;
+        if (current == null) {
+            current = refresh(dsl);
+        }
+
+        return current.search(
+                options.searchQuery(),
+                d -> filter.test(d, options),
+                options.limit());
+    }
+
+
+    /**
+     * Rebuilds the index.  Searches continue to use the previous index until
+     * the new one is ready.
+     */
+    public synchronized InvertedIndex<T> refresh(DSLContext dsl) {
+        long start = System.currentTimeMillis();
+        List<T> documents = load(dsl, DSL.trueCondition());
+        aliasesById = loadAliases(dsl, DSL.trueCondition());
+
+        InvertedIndex<T> rebuilt = build(documents);
+        index = rebuilt;
+        LOG.info("Built {} search index in {}ms: {}", name, System.currentTimeMillis() - start, rebuilt);
+        return rebuilt;
+    }
+
+
+    /**
+     * Updates the index with the current state of the given entities.  Only
+     * those entities are loaded, the rest are taken from the existing index.
+     * Entities which no longer exist are removed.  If the index has not yet
+     * been built (or many entities have changed) this is a full `refresh`.
+     */
+    public synchronized InvertedIndex<T> refresh(DSLContext dsl, Set<Long> ids) {
+        checkNotNull(ids, "ids cannot be null");
+
+        InvertedIndex<T> current = index;
+        if (current == null || ids.size() > MAX_PARTIAL_REFRESH_SIZE) {
+            return refresh(dsl);
+        }
+
+        if (ids.isEmpty()) {
+            return current;
+        }
+
+        long start = System.currentTimeMillis();
+        List<T> documents = current
+                .documents()
+                .stream()
+                .filter(d -> ! ids.contains(d.id().orElse(null)))
+                .collect(Collectors.toList());
+        documents.addAll(load(dsl, idField.in(ids)));
+
+        Map<Long, String> aliases = new HashMap<>(aliasesById);
+        aliases.keySet().removeAll(ids);
+        aliases.putAll(loadAliases(dsl, ENTITY_ALIAS.ID.in(ids)));
+        aliasesById = aliases;
+
+        InvertedIndex<T> rebuilt = build(documents);
+        index = rebuilt;
+        LOG.debug("Updated {} {} entities in search index in {}ms: {}", ids.size(), name, System.currentTimeMillis() - start, rebuilt);
+        return rebuilt;
+    }
+
+
+    private InvertedIndex<T> build(List<T> documents) {
+        if (! aliasKind.isPresent()) {
+            return InvertedIndex.build(documents, fields);
+        }
+
+        Map<Long, String> aliases = aliasesById;
+        List<InvertedIndex.Field<T>> fieldsWithAliases = new ArrayList<>(fields);
+        fieldsWithAliases.add(InvertedIndex.Field.of(d -> aliases.get(d.id().orElse(null)), ALIAS_WEIGHT));
+        return InvertedIndex.build(documents, fieldsWithAliases);
+    }
+
+
+    /**
+     * @return all aliases of each entity, space separated as only their terms are indexed
+     */
+    private Map<Long, String> loadAliases(DSLContext dsl, Condition condition) {
+        if (! aliasKind.isPresent()) {
+            return Collections.emptyMap();
+        }
+
+        return dsl
+                .select(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS)
+                .from(ENTITY_ALIAS)
+                .where(ENTITY_ALIAS.KIND.eq(aliasKind.get().name()))
+                .and(condition)
+                .fetch()
+                .stream()
+                .collect(Collectors.groupingBy(
+                        r -> r.get(ENTITY_ALIAS.ID),
+                        Collectors.mapping(r -> r.get(ENTITY_ALIAS.ALIAS), Collectors.joining(" "))));
+    }
+
+
+    private List<T> load(DSLContext dsl, Condition condition) {
+        return dsl
+                .select(table.fields())
+                .from(table)
+                .where(condition)
+                .fetch(mapper);
+    }
+
+}
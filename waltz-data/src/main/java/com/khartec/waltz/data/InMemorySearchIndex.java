@@ -0,0 +1,128 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.common.search.InvertedIndex;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.IdProvider;
+import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.RecordMapper;
+import org.jooq.Table;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * In-memory search index over all rows of a table, used by the search daos
+ * when `waltz.search.in-memory.enabled` is set.  When disabled the index is
+ * never built and `refresh` does nothing.
+ *
+ * @param <T> entity type
+ */
+public class InMemorySearchIndex<T extends IdProvider> {
+
+    private final DSLContext dsl;
+    private final boolean enabled;
+    private final InMemoryFullTextSearch<T> searcher;
+
+
+    /**
+     * @param dsl  used to load the indexed entities
+     * @param enabled  whether in-memory search is in use
+     * @param name  used for logging
+     * @param table  table holding the entities to index
+     * @param idField  id column of `table`
+     * @param mapper  converts rows of `table` to entities
+     * @param fields  fields to index (with relative weights)
+     * @param filter  applied to matching entities, typically to restrict by lifecycle status
+     */
+    public InMemorySearchIndex(DSLContext dsl,
+                               boolean enabled,
+                               String name,
+                               Table<?> table,
+                               Field<Long> idField,
+                               RecordMapper<Record, T> mapper,
+                               List<InvertedIndex.Field<T>> fields,
+                               BiPredicate<T, EntitySearchOptions> filter) {
+        this(dsl, enabled, name, table, idField, mapper, fields, filter, Optional.empty());
+    }
+
+
+    /**
+     * @param aliasKind  if present, aliases registered against this kind of entity are also indexed
+     */
+    public InMemorySearchIndex(DSLContext dsl,
+                               boolean enabled,
+                               String name,
+                               Table<?> table,
+                               Field<Long> idField,
+                               RecordMapper<Record, T> mapper,
+                               List<InvertedIndex.Field<T>> fields,
+                               BiPredicate<T, EntitySearchOptions> filter,
+                               Optional<EntityKind> aliasKind) {
+        checkNotNull(dsl, "dsl cannot be null");
+
+        this.dsl = dsl;
+        this.enabled = enabled;
+        this.searcher = new InMemoryFullTextSearch<>(name, table, idField, mapper, fields, filter, aliasKind);
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    public List<T> search(EntitySearchOptions options) {
+        return searcher.searchFullText(dsl, options);
+    }
+
+
+    /**
+     * Rebuilds the index, if in-memory search is enabled.
+     * @return true if the index was rebuilt
+     */
+    public boolean refresh() {
+        if (enabled) {
+            searcher.refresh(dsl);
+        }
+        return enabled;
+    }
+
+
+    /**
+     * Updates just the given entities in the index, if in-memory search is enabled.
+     * @return true if the index was updated
+     */
+    public boolean refresh(Set<Long> ids) {
+        if (enabled) {
+            searcher.refresh(dsl, ids);
+        }
+        return enabled;
+    }
+
+}
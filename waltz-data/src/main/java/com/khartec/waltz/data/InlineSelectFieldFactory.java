@@ -59,6 +59,13 @@ public class InlineSelectFieldFactory {
         return NAME_RESOLVER.mkField(idCompareField, kindCompareField, NAME_RESOLVER.getSupportedEntityKinds());
     }
 
+    /**
+     * @return the table, id field and name field used to resolve names for the given kind, if supported
+     */
+    static Optional<Tuple3<Table, Field<Long>, Field<String>>> findNameMapping(EntityKind kind) {
+        return Optional.ofNullable(NAME_RESOLVER.mappings.get(kind));
+    }
+
 
     // --- External Id
 
@@ -29,6 +29,7 @@ import com.khartec.waltz.model.tally.OrderedTally;
 import com.khartec.waltz.model.tally.Tally;
 import com.khartec.waltz.schema.tables.records.ChangeLogRecord;
 import org.jooq.*;
+import org.jooq.conf.SettingsTools;
 import org.jooq.impl.DSL;
 
 import java.sql.Date;
@@ -53,6 +54,9 @@ public class JooqUtilities {
 
     public static final Field<Integer> TALLY_COUNT_FIELD = DSL.field("count", Integer.class);
 
+    // keeps multi-row inserts well within sql server's limit of 2100 bind parameters per statement
+    private static final int MULTI_ROW_INSERT_CHUNK_SIZE = 100;
+
 
     public static EntityReference readRef(Record record, Field<String> kindField, Field<Long> idField) {
         return mkRef(
@@ -209,6 +213,88 @@ public class JooqUtilities {
     }
 
 
+    /**
+     * Inserts the records, returning their generated ids in the same order as
+     * the given records.
+     *
+     * Postgres and SQL Server insert the records in multi-row chunks, each
+     * returning the ids of every row.  The database does not guarantee the
+     * order of returned rows, so ids are matched back to records using the
+     * `keyFields` (records with equal keys are assumed to be interchangeable).
+     * Other dialects (e.g. H2, MariaDB) only report the last generated key of
+     * a multi-row insert so fall back to a round trip per record.
+     *
+     * @param dsl  context to insert with (typically a transaction)
+     * @param table  table to insert into
+     * @param idField  generated id column
+     * @param records  records to insert, all records must set the same fields
+     * @param keyFields  columns which identify a record within the given records
+     * @param <R>  record type
+     * @return generated ids, one per record
+     */
+    @SafeVarargs
+    public static <R extends Record> List<Long> insertReturningIds(DSLContext dsl,
+                                                                   Table<R> table,
+                                                                   TableField<R, Long> idField,
+                                                                   List<R> records,
+                                                                   TableField<R, ?>... keyFields) {
+        checkNotNull(records, "records cannot be null");
+
+        SQLDialect dialect = dsl.dialect();
+        if (! (isPostgres(dialect) || isSQLServer(dialect))) {
+            return records
+                    .stream()
+                    .map(r -> dsl
+                            .insertInto(table)
+                            .set(r)
+                            .returning(idField)
+                            .fetchOne()
+                            .get(idField))
+                    .collect(toList());
+        }
+
+        // the output clause is disabled by default for sql server (see DIBaseConfiguration), enable it for these inserts
+        DSLContext multiRowDsl = isSQLServer(dialect)
+                ? DSL.using(dsl.configuration().derive(SettingsTools
+                        .clone(dsl.settings())
+                        .withRenderOutputForSQLServerReturningClause(true)))
+                : dsl;
+
+        List<Field<?>> returningFields = new ArrayList<>();
+        returningFields.add(idField);
+        returningFields.addAll(Arrays.asList(keyFields));
+
+        List<Long> ids = new ArrayList<>(records.size());
+        for (int start = 0; start < records.size(); start += MULTI_ROW_INSERT_CHUNK_SIZE) {
+            List<R> chunk = records.subList(start, Math.min(records.size(), start + MULTI_ROW_INSERT_CHUNK_SIZE));
+
+            InsertSetMoreStep<R> insert = null;
+            for (R record : chunk) {
+                insert = insert == null
+                        ? multiRowDsl.insertInto(table).set(record)
+                        : insert.newRecord().set(record);
+            }
+
+            Map<List<Object>, Deque<Long>> idsByKey = new HashMap<>();
+            insert.returning(returningFields)
+                    .fetch()
+                    .forEach(r -> idsByKey
+                            .computeIfAbsent(readKey(r, keyFields), k -> new ArrayDeque<>())
+                            .add(r.get(idField)));
+
+            chunk.forEach(r -> ids.add(idsByKey.get(readKey(r, keyFields)).remove()));
+        }
+        return ids;
+    }
+
+
+    private static List<Object> readKey(Record record, Field<?>... keyFields) {
+        return Stream.of(keyFields)
+                .map(record::get)
+                .collect(toList());
+    }
+
+
     public static class MSSQL {
 
         public static SQL mkContains(Collection<String> terms) {
@@ -217,12 +303,13 @@ public class JooqUtilities {
         }
 
         public static SQL mkContains(String... terms) {
-            StringJoiner joiner = new StringJoiner(" AND ", "CONTAINS(*, '", "')");
+            StringJoiner joiner = new StringJoiner(" AND ");
             Stream.of(terms)
                     .filter(StringUtilities::notEmpty)
                     .map(t -> wrapSpecialInQuotes(t))
                     .forEach(joiner::add);
-            return DSL.sql(joiner.toString());
+            // search condition is bound so each search does not produce a new statement (and plan)
+            return DSL.sql("CONTAINS(*, {0})", DSL.val(joiner.toString()));
         }
 
         public static SQL mkContainsPrefix(Collection<String> terms) {
@@ -253,7 +340,7 @@ public class JooqUtilities {
                 fieldToTally,
                 DSL.count(fieldToTally).as(TALLY_COUNT_FIELD))
                 .from(table)
-                .where(dsl.renderInlined(recordsInScopeCondition))
+                .where(recordsInScopeCondition)
                 .groupBy(fieldToTally);
     }
 
@@ -268,7 +355,7 @@ public class JooqUtilities {
                 DSL.count(fieldToTally).as(TALLY_COUNT_FIELD),
                 DSL.rowNumber().over(DSL.orderBy(DSL.count(fieldToTally).desc())))
                 .from(table)
-                .where(dsl.renderInlined(recordsInScopeCondition))
+                .where(recordsInScopeCondition)
                 .groupBy(fieldToTally);
     }
 
@@ -0,0 +1,98 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import org.jooq.ExecuteContext;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Applies a statement query timeout to every query issued by a thread which is
+ * running a task with a deadline (see `DBExecutorPool#submit(Callable, Duration)`).
+ *
+ * The timeout is the time remaining until the deadline, rounded up to whole
+ * seconds, so the database cancels an overrunning query itself rather than it
+ * holding a pool thread and connection until it eventually completes.
+ */
+public class QueryDeadlineListener extends DefaultExecuteListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryDeadlineListener.class);
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+
+    /**
+     * Runs the task with the given deadline applied to any queries it issues.
+     *
+     * @param deadlineNanos  deadline, as measured by `System.nanoTime()`
+     * @param task  work to perform
+     * @param <T>  result type
+     * @return result of the task
+     * @throws Exception  if the task fails
+     */
+    public static <T> T callWithDeadline(long deadlineNanos, Callable<T> task) throws Exception {
+        Long previous = DEADLINE_NANOS.get();
+        DEADLINE_NANOS.set(deadlineNanos);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                DEADLINE_NANOS.remove();
+            } else {
+                DEADLINE_NANOS.set(previous);
+            }
+        }
+    }
+
+
+    /**
+     * @return seconds remaining until the current thread's deadline (at least 1),
+     * or 0 if the thread has no deadline
+     */
+    static int remainingSeconds() {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return 0;
+        }
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        return (int) Math.max(1, (remainingMillis + 999) / 1000);
+    }
+
+
+    @Override
+    public void prepareEnd(ExecuteContext ctx) {
+        int seconds = remainingSeconds();
+        if (seconds == 0 || ctx.statement() == null) {
+            return;
+        }
+
+        try {
+            ctx.statement().setQueryTimeout(seconds);
+        } catch (SQLException e) {
+            LOG.debug("Could not set query timeout: {}", e.getMessage());
+        }
+    }
+
+}
@@ -22,6 +22,11 @@ import com.khartec.waltz.model.HierarchyQueryScope;
 import com.khartec.waltz.model.IdSelectionOptions;
 import com.khartec.waltz.model.application.ApplicationKind;
 import org.jooq.Condition;
+import org.jooq.Record1;
+import org.jooq.Row1;
+import org.jooq.Select;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
 
 import java.util.Set;
 
@@ -54,4 +59,38 @@ public class SelectorUtilities {
                 .and(APPLICATION.ENTITY_LIFECYCLE_STATUS.in(options.entityLifecycleStatuses()));
     }
 
+
+
+    /**
+     * Creates a selector which lists the given ids directly (as a `VALUES`
+     * table) rather than deriving them via a sub-select.  Callers are
+     * responsible for keeping the number of ids reasonable, each id is a
+     * bind parameter.
+     *
+     * @param tableAlias  alias for the derived table, the single column is named `id`
+     * @param ids  ids to select
+     * @return selector returning exactly the given ids
+     */
+    @SuppressWarnings("unchecked")
+    public static Select<Record1<Long>> mkIdListSelector(String tableAlias, long[] ids) {
+        if (ids.length == 0) {
+            return DSL
+                    .select(DSL.inline(-1L))
+                    .where(DSL.falseCondition());
+        }
+
+        Row1<Long>[] rows = new Row1[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rows[i] = DSL.row(ids[i]);
+        }
+
+        Table<Record1<Long>> idTable = DSL
+                .values(rows)
+                .as(tableAlias, "id");
+
+        return DSL
+                .select(idTable.field("id", Long.class))
+                .from(idTable);
+    }
+
 }
@@ -18,27 +18,36 @@
 
 package com.khartec.waltz.data.access_log;
 
-import com.khartec.waltz.model.accesslog.AccessLog;
-import com.khartec.waltz.model.accesslog.AccessTime;
-import com.khartec.waltz.model.accesslog.ImmutableAccessLog;
-import com.khartec.waltz.model.accesslog.ImmutableAccessTime;
+import com.khartec.waltz.model.accesslog.*;
+import com.khartec.waltz.schema.tables.records.AccessLogDailyRecord;
 import com.khartec.waltz.schema.tables.records.AccessLogRecord;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertValuesStep4;
+import org.jooq.Query;
 import org.jooq.Record;
+import org.jooq.Record2;
 import org.jooq.RecordMapper;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.DateTimeUtilities.toSqlDate;
 import static com.khartec.waltz.schema.tables.AccessLog.ACCESS_LOG;
+import static com.khartec.waltz.schema.tables.AccessLogDaily.ACCESS_LOG_DAILY;
+import static java.util.stream.Collectors.groupingBy;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
 @Repository
@@ -46,6 +55,12 @@ public class AccessLogDao {
 
     private static final Logger LOG = LoggerFactory.getLogger(AccessLogDao.class);
 
+    /**
+     * Keeps the number of bind parameters per statement (4 per row) well
+     * below the SQL Server limit of 2100.
+     */
+    private static final int MAX_ROWS_PER_INSERT = 250;
+
     private final DSLContext dsl;
 
     private final static RecordMapper<Record, AccessLog> TO_ACCESS_LOG = r -> {
@@ -59,13 +74,14 @@ public class AccessLogDao {
     };
 
 
-    private final static RecordMapper<Record, AccessTime> TO_ACCESS_TIME = r -> {
-        AccessLogRecord record = r.into(ACCESS_LOG);
-        return ImmutableAccessTime.builder()
-                .userId(record.getUserId())
-                .createdAt(record.getCreatedAt().toLocalDateTime())
-                .build();
-    };
+    private final static RecordMapper<AccessLogDailyRecord, DailyAccessCount> TO_DAILY_ACCESS_COUNT = r ->
+            ImmutableDailyAccessCount.builder()
+                    .userId(r.getUserId())
+                    .date(r.getAccessDate().toLocalDate())
+                    .state(r.getState())
+                    .count(r.getAccessCount())
+                    .lastAccessedAt(r.getLastAccessedAt().toLocalDateTime())
+                    .build();
 
 
     @Autowired
@@ -75,12 +91,101 @@ public class AccessLogDao {
 
 
     public int write(AccessLog logEntry) {
-        return dsl.insertInto(ACCESS_LOG)
-                .set(ACCESS_LOG.PARAMS, logEntry.params())
-                .set(ACCESS_LOG.STATE, logEntry.state())
-                .set(ACCESS_LOG.USER_ID, logEntry.userId())
-                .set(ACCESS_LOG.CREATED_AT, Timestamp.valueOf(logEntry.createdAt()))
-                .execute();
+        return write(Collections.singletonList(logEntry));
+    }
+
+
+    /**
+     * Writes the given entries using multi-row inserts and, in the same
+     * transaction, adds them to the daily counts in `ACCESS_LOG_DAILY`.
+     *
+     * @return number of entries written
+     */
+    public int write(Collection<AccessLog> logEntries) {
+        checkNotNull(logEntries, "logEntries cannot be null");
+
+        if (logEntries.isEmpty()) {
+            return 0;
+        }
+
+        List<AccessLog> entries = new ArrayList<>(logEntries);
+
+        Map<Tuple3<String, LocalDate, String>, List<AccessLog>> entriesByUserDayAndState = entries
+                .stream()
+                .collect(groupingBy(e -> tuple(e.userId(), e.createdAt().toLocalDate(), e.state())));
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            int count = 0;
+            for (int start = 0; start < entries.size(); start += MAX_ROWS_PER_INSERT) {
+                List<AccessLog> chunk = entries.subList(start, Math.min(entries.size(), start + MAX_ROWS_PER_INSERT));
+
+                InsertValuesStep4<AccessLogRecord, String, String, String, Timestamp> insert = tx
+                        .insertInto(ACCESS_LOG,
+                                ACCESS_LOG.PARAMS,
+                                ACCESS_LOG.STATE,
+                                ACCESS_LOG.USER_ID,
+                                ACCESS_LOG.CREATED_AT);
+
+                for (AccessLog entry : chunk) {
+                    insert = insert.values(
+                            entry.params(),
+                            entry.state(),
+                            entry.userId(),
+                            Timestamp.valueOf(entry.createdAt()));
+                }
+
+                count += insert.execute();
+            }
+
+            // existing daily counts are incremented first, the insert then
+            // only adds the counts which did not already exist
+            List<Query> dailyCountUpdates = new ArrayList<>();
+            List<Query> dailyCountInserts = new ArrayList<>();
+
+            entriesByUserDayAndState.forEach((key, entriesForKey) -> {
+                int visits = entriesForKey.size();
+                Timestamp lastAccessedAt = Timestamp.valueOf(entriesForKey
+                        .stream()
+                        .map(AccessLog::createdAt)
+                        .max(LocalDateTime::compareTo)
+                        .get());
+
+                Condition isDailyCount = ACCESS_LOG_DAILY.USER_ID.eq(key.v1)
+                        .and(ACCESS_LOG_DAILY.ACCESS_DATE.eq(toSqlDate(key.v2)))
+                        .and(ACCESS_LOG_DAILY.STATE.eq(key.v3));
+
+                dailyCountUpdates.add(tx
+                        .update(ACCESS_LOG_DAILY)
+                        .set(ACCESS_LOG_DAILY.ACCESS_COUNT, ACCESS_LOG_DAILY.ACCESS_COUNT.plus(visits))
+                        .set(ACCESS_LOG_DAILY.LAST_ACCESSED_AT, DSL.greatest(ACCESS_LOG_DAILY.LAST_ACCESSED_AT, DSL.val(lastAccessedAt)))
+                        .where(isDailyCount));
+
+                dailyCountInserts.add(tx
+                        .insertInto(ACCESS_LOG_DAILY,
+                                ACCESS_LOG_DAILY.USER_ID,
+                                ACCESS_LOG_DAILY.ACCESS_DATE,
+                                ACCESS_LOG_DAILY.STATE,
+                                ACCESS_LOG_DAILY.ACCESS_COUNT,
+                                ACCESS_LOG_DAILY.LAST_ACCESSED_AT)
+                        .select(DSL
+                                .select(DSL.val(key.v1),
+                                        DSL.val(toSqlDate(key.v2)),
+                                        DSL.val(key.v3),
+                                        DSL.val(visits),
+                                        DSL.val(lastAccessedAt))
+                                .whereNotExists(DSL
+                                        .selectOne()
+                                        .from(ACCESS_LOG_DAILY)
+                                        .where(isDailyCount))));
+            });
+
+            tx.batch(dailyCountUpdates).execute();
+            tx.batch(dailyCountInserts).execute();
+
+            return count;
+        });
     }
 
 
@@ -95,14 +200,69 @@ public class AccessLogDao {
     }
 
 
+    /**
+     * Uses the daily counts, a user's latest access on any day is enough to
+     * tell whether they have been active since the given time.
+     */
     public List<AccessTime> findActiveUsersSince(LocalDateTime dateTime) {
-        Field maxCreatedAt = DSL.max(ACCESS_LOG.CREATED_AT).as(ACCESS_LOG.CREATED_AT);
-        return dsl.select(ACCESS_LOG.USER_ID, maxCreatedAt)
+        Field<Timestamp> lastAccessedAt = DSL.max(ACCESS_LOG_DAILY.LAST_ACCESSED_AT).as("last_accessed_at");
+        Timestamp since = Timestamp.valueOf(dateTime);
+
+        return dsl.select(ACCESS_LOG_DAILY.USER_ID, lastAccessedAt)
+                .from(ACCESS_LOG_DAILY)
+                .where(ACCESS_LOG_DAILY.ACCESS_DATE.greaterOrEqual(toSqlDate(dateTime.toLocalDate())))
+                .and(ACCESS_LOG_DAILY.LAST_ACCESSED_AT.greaterOrEqual(since))
+                .groupBy(ACCESS_LOG_DAILY.USER_ID)
+                .orderBy(lastAccessedAt.desc())
+                .fetch(r -> ImmutableAccessTime.builder()
+                        .userId(r.get(ACCESS_LOG_DAILY.USER_ID))
+                        .createdAt(r.get(lastAccessedAt).toLocalDateTime())
+                        .build());
+    }
+
+
+    public List<DailyAccessCount> findDailyCountsForUserId(String userId,
+                                                           LocalDate sinceDate) {
+        return dsl.selectFrom(ACCESS_LOG_DAILY)
+                .where(ACCESS_LOG_DAILY.USER_ID.equalIgnoreCase(userId))
+                .and(ACCESS_LOG_DAILY.ACCESS_DATE.greaterOrEqual(toSqlDate(sinceDate)))
+                .orderBy(ACCESS_LOG_DAILY.ACCESS_DATE.desc(), ACCESS_LOG_DAILY.STATE)
+                .fetch(TO_DAILY_ACCESS_COUNT);
+    }
+
+
+    /**
+     * Removes raw entries created before the given time, deleting at most
+     * `chunkSize` ids at a time to avoid long running transactions.  The
+     * entries remain accounted for in the daily counts.
+     *
+     * @return number of entries removed
+     */
+    public int removeOlderThan(LocalDateTime cutoff, int chunkSize) {
+        checkNotNull(cutoff, "cutoff cannot be null");
+        checkTrue(chunkSize > 0, "chunkSize must be positive");
+
+        Condition isExpired = ACCESS_LOG.CREATED_AT.lessThan(Timestamp.valueOf(cutoff));
+
+        Record2<Integer, Integer> idRange = dsl
+                .select(DSL.min(ACCESS_LOG.ID), DSL.max(ACCESS_LOG.ID))
                 .from(ACCESS_LOG)
-                .where(ACCESS_LOG.CREATED_AT.greaterOrEqual(Timestamp.valueOf(dateTime)))
-                .groupBy(ACCESS_LOG.USER_ID)
-                .orderBy(maxCreatedAt.desc())
-                .fetch(TO_ACCESS_TIME);
+                .where(isExpired)
+                .fetchOne();
+
+        if (idRange.value1() == null) {
+            return 0;
+        }
+
+        int removed = 0;
+        for (long start = idRange.value1(); start <= idRange.value2(); start += chunkSize) {
+            removed += dsl
+                    .deleteFrom(ACCESS_LOG)
+                    .where(ACCESS_LOG.ID.between((int) start, (int) Math.min(idRange.value2(), start + chunkSize - 1)))
+                    .and(isExpired)
+                    .execute();
+        }
+        return removed;
     }
 
 }
@@ -0,0 +1,219 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.application;
+
+import com.khartec.waltz.common.LruCache;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.model.ImmutableIdSelectionOptions;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.data.SelectorUtilities.mkIdListSelector;
+import static com.khartec.waltz.data.entity_hierarchy.EntityHierarchyIndexes.MAX_INLINE_IDS;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+
+
+/**
+ * Caches the set of application ids resolved for an `IdSelectionOptions`
+ * so the (often expensive) application selectors are evaluated once and then
+ * shared, as an inline id list, by every query which embeds them.
+ *
+ * Ids are held as sorted, distinct long arrays.  Selections which resolve to
+ * more than `MAX_INLINE_IDS` applications are remembered as such, and the
+ * original sub-select is used for them, rather than repeatedly fetching them.
+ *
+ * Resolving a selection queries the database outside of any transaction the
+ * caller may be in, so the cache should only be used for read only queries.
+ * Entries are invalidated once changes to related kinds have been committed
+ * and in any case expire after a fixed time, bounding staleness caused by
+ * changes made by other servers or which bypass the change log.  Selections
+ * resolved whilst an invalidation takes place are not cached.
+ */
+public class ApplicationIdSetCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApplicationIdSetCache.class);
+
+    /**
+     * Marks selections which resolve to too many ids to be inlined.
+     * Compared by identity.
+     */
+    private static final long[] TOO_MANY_IDS = new long[0];
+
+    /**
+     * Kinds whose changes may alter the applications selected via another kind,
+     * e.g. a new measurable rating changes the apps selected via a measurable.
+     * Changes to a kind always invalidate selections made via that kind, and
+     * changes to applications invalidate everything.
+     */
+    private static final Map<EntityKind, Set<EntityKind>> AFFECTED_SELECTION_KINDS = new EnumMap<>(EntityKind.class);
+
+    static {
+        AFFECTED_SELECTION_KINDS.put(EntityKind.ENTITY_HIERARCHY, EnumSet.of(EntityKind.DATA_TYPE, EntityKind.MEASURABLE, EntityKind.ORG_UNIT, EntityKind.APP_GROUP));
+        AFFECTED_SELECTION_KINDS.put(EntityKind.INVOLVEMENT, EnumSet.of(EntityKind.PERSON));
+        AFFECTED_SELECTION_KINDS.put(EntityKind.LOGICAL_DATA_FLOW, EnumSet.of(EntityKind.ACTOR, EntityKind.DATA_TYPE, EntityKind.FLOW_DIAGRAM));
+        AFFECTED_SELECTION_KINDS.put(EntityKind.MEASURABLE_RATING, EnumSet.of(EntityKind.MEASURABLE));
+        AFFECTED_SELECTION_KINDS.put(EntityKind.ORG_UNIT, EnumSet.of(EntityKind.ORG_UNIT, EntityKind.APP_GROUP));
+        AFFECTED_SELECTION_KINDS.put(EntityKind.SOFTWARE_VERSION, EnumSet.of(EntityKind.SOFTWARE, EntityKind.SOFTWARE_VERSION, EntityKind.LICENCE));
+    }
+
+    private final DSLContext dsl;
+    private final LruCache<IdSelectionOptions, long[]> idsBySelection;
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+
+    public ApplicationIdSetCache(DSLContext dsl,
+                                 int maxSize,
+                                 long maxAgeMillis) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkTrue(maxSize > 0, "maxSize must be positive");
+
+        this.dsl = dsl;
+        this.idsBySelection = new LruCache<>(maxSize, maxAgeMillis);
+    }
+
+
+    /**
+     * Returns an inline id list selector for the given options, resolving
+     * (and caching) the ids via the given selector factory if needed.  If
+     * the selection is too large to inline the factory's selector is returned.
+     *
+     * @param options  selection options
+     * @param selectorFactory  creates the (uncached) selector for the options
+     * @return selector of application ids
+     */
+    public Select<Record1<Long>> apply(IdSelectionOptions options,
+                                       Function<IdSelectionOptions, Select<Record1<Long>>> selectorFactory) {
+        checkNotNull(options, "options cannot be null");
+        checkNotNull(selectorFactory, "selectorFactory cannot be null");
+
+        IdSelectionOptions key = normalise(options);
+
+        long[] ids = idsBySelection
+                .get(key)
+                .orElseGet(() -> {
+                    long invalidationsBefore = invalidationCount.get();
+                    long[] resolved = resolve(selectorFactory.apply(key));
+                    if (invalidationCount.get() == invalidationsBefore) {
+                        idsBySelection.put(key, resolved);
+                    }
+                    return resolved;
+                });
+
+        return ids == TOO_MANY_IDS
+                ? selectorFactory.apply(options)
+                : mkIdListSelector("app_ids", ids);
+    }
+
+
+    /**
+     * Removes any cached selections which may be affected by changes to the given kinds.
+     *
+     * @param changedKinds  kinds which have changed
+     */
+    public void invalidate(Collection<EntityKind> changedKinds) {
+        checkNotNull(changedKinds, "changedKinds cannot be null");
+
+        if (changedKinds.isEmpty()) {
+            return;
+        }
+
+        if (changedKinds.contains(EntityKind.APPLICATION)) {
+            invalidateAll();
+            return;
+        }
+
+        Set<EntityKind> affectedKinds = EnumSet.noneOf(EntityKind.class);
+        changedKinds.forEach(k -> {
+            affectedKinds.add(k);
+            affectedKinds.addAll(AFFECTED_SELECTION_KINDS.getOrDefault(k, Collections.emptySet()));
+        });
+
+        invalidationCount.incrementAndGet();
+        idsBySelection.invalidateIf(opts -> affectedKinds.contains(opts.entityReference().kind()));
+    }
+
+
+    public void invalidateAll() {
+        invalidationCount.incrementAndGet();
+        idsBySelection.invalidateAll();
+    }
+
+
+    public int size() {
+        return idsBySelection.size();
+    }
+
+
+    public long hitCount() {
+        return idsBySelection.hitCount();
+    }
+
+
+    public long missCount() {
+        return idsBySelection.missCount();
+    }
+
+
+    private long[] resolve(Select<Record1<Long>> selector) {
+        // fetch one more than we can inline so we know when to give up
+        List<Long> fetched = dsl
+                .selectFrom(selector.asTable("app_id_selection"))
+                .limit(MAX_INLINE_IDS + 1)
+                .fetch(r -> r.get(0, Long.class));
+
+        if (fetched.size() > MAX_INLINE_IDS) {
+            LOG.debug("Selection exceeds {} apps, will not be inlined", MAX_INLINE_IDS);
+            return TOO_MANY_IDS;
+        }
+
+        return fetched
+                .stream()
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+
+    /**
+     * Names and descriptions of the entity reference do not affect the
+     * selection, so are dropped to increase the chance of a cache hit.
+     */
+    private static IdSelectionOptions normalise(IdSelectionOptions options) {
+        return ImmutableIdSelectionOptions
+                .builder()
+                .from(options)
+                .entityReference(mkRef(
+                        options.entityReference().kind(),
+                        options.entityReference().id()))
+                .build();
+    }
+
+}
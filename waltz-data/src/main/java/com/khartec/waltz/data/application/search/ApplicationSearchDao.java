@@ -18,7 +18,9 @@
 
 package com.khartec.waltz.data.application.search;
 
+import com.khartec.waltz.common.search.InvertedIndex;
 import com.khartec.waltz.data.FullTextSearch;
+import com.khartec.waltz.data.InMemorySearchIndex;
 import com.khartec.waltz.data.UnsupportedSearcher;
 import com.khartec.waltz.data.application.ApplicationDao;
 import com.khartec.waltz.model.EntityKind;
@@ -30,13 +32,17 @@ import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.SetUtilities.orderedUnion;
 import static com.khartec.waltz.data.JooqUtilities.*;
 import static com.khartec.waltz.data.SearchUtilities.mkRelevancyComparator;
@@ -50,12 +56,15 @@ public class ApplicationSearchDao {
 
     private final DSLContext dsl;
     private final FullTextSearch<Application> searcher;
+    private final InMemorySearchIndex<Application> inMemoryIndex;
 
 
     @Autowired
-    public ApplicationSearchDao(DSLContext dsl) {
+    public ApplicationSearchDao(DSLContext dsl,
+                                @Value("${waltz.search.in-memory.enabled:false}") boolean inMemorySearchEnabled) {
         this.dsl = dsl;
         this.searcher = determineSearcher(dsl.dialect());
+        this.inMemoryIndex = mkInMemoryIndex(dsl, inMemorySearchEnabled);
     }
 
 
@@ -68,20 +77,11 @@ public class ApplicationSearchDao {
             return Collections.emptyList();
         }
 
-        Condition lifecycleCondition = APPLICATION.ENTITY_LIFECYCLE_STATUS.in(options.entityLifecycleStatuses());
-
-        Condition assetCodeCondition = terms
-                .stream()
-                .map(APPLICATION.ASSET_CODE::startsWith)
-                .reduce(DSL.trueCondition(), Condition::and);
+        if (inMemoryIndex.isEnabled()) {
+            return inMemoryIndex.search(options);
+        }
 
-        List<Application> appsViaAssetCode = dsl.selectDistinct(APPLICATION.fields())
-                .from(APPLICATION)
-                .where(assetCodeCondition)
-                .and(lifecycleCondition)
-                .orderBy(APPLICATION.NAME)
-                .limit(options.limit())
-                .fetch(ApplicationDao.TO_DOMAIN_MAPPER);
+        Condition lifecycleCondition = APPLICATION.ENTITY_LIFECYCLE_STATUS.in(options.entityLifecycleStatuses());
 
         Condition aliasCondition = terms
                 .stream()
@@ -99,6 +99,19 @@ public class ApplicationSearchDao {
                 .limit(options.limit())
                 .fetch(ApplicationDao.TO_DOMAIN_MAPPER);
 
+        Condition assetCodeCondition = terms
+                .stream()
+                .map(APPLICATION.ASSET_CODE::startsWith)
+                .reduce(DSL.trueCondition(), Condition::and);
+
+        List<Application> appsViaAssetCode = dsl.selectDistinct(APPLICATION.fields())
+                .from(APPLICATION)
+                .where(assetCodeCondition)
+                .and(lifecycleCondition)
+                .orderBy(APPLICATION.NAME)
+                .limit(options.limit())
+                .fetch(ApplicationDao.TO_DOMAIN_MAPPER);
+
         Condition nameCondition = terms
                 .stream()
                 .map(APPLICATION.NAME::containsIgnoreCase)
@@ -122,6 +135,35 @@ public class ApplicationSearchDao {
     }
 
 
+    public boolean refreshIndex() {
+        return inMemoryIndex.refresh();
+    }
+
+
+    public boolean refreshIndex(Set<Long> ids) {
+        return inMemoryIndex.refresh(ids);
+    }
+
+
+    private static InMemorySearchIndex<Application> mkInMemoryIndex(DSLContext dsl, boolean enabled) {
+        return new InMemorySearchIndex<>(
+                dsl,
+                enabled,
+                "application",
+                APPLICATION,
+                APPLICATION.ID,
+                ApplicationDao.TO_DOMAIN_MAPPER,
+                newArrayList(
+                        InvertedIndex.Field.of(a -> a.name(), 3),
+                        InvertedIndex.Field.of(a -> a.assetCode().orElse(null), 3),
+                        InvertedIndex.Field.of(a -> a.externalId().orElse(null), 2),
+                        InvertedIndex.Field.of(a -> a.parentAssetCode().orElse(null), 1),
+                        InvertedIndex.Field.of(a -> a.description(), 1)),
+                (a, options) -> options.entityLifecycleStatuses().contains(a.entityLifecycleStatus()),
+                Optional.of(EntityKind.APPLICATION));
+    }
+
+
     private FullTextSearch<Application> determineSearcher(SQLDialect dialect) {
 
         if (isPostgres(dialect)) {
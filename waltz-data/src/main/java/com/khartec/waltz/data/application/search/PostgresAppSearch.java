@@ -41,7 +41,7 @@ public class PostgresAppSearch implements FullTextSearch<Application>, DatabaseV
                         Double.class,
                         DSL.lower(APPLICATION.DESCRIPTION),
                         DSL.lower(APPLICATION.PARENT_ASSET_CODE),
-                        DSL.inline(options.searchQuery().toLowerCase()));
+                        DSL.val(options.searchQuery().toLowerCase()));
 
         Condition lifecycleCondition = APPLICATION.ENTITY_LIFECYCLE_STATUS.in(options.entityLifecycleStatuses());
 
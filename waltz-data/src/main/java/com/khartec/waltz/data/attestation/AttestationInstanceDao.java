@@ -18,6 +18,8 @@
 
 package com.khartec.waltz.data.attestation;
 
+import com.khartec.waltz.common.ListUtilities;
+import com.khartec.waltz.common.SetUtilities;
 import com.khartec.waltz.data.InlineSelectFieldFactory;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityLifecycleStatus;
@@ -25,19 +27,26 @@ import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.attestation.AttestEntityCommand;
 import com.khartec.waltz.model.attestation.AttestationInstance;
 import com.khartec.waltz.model.attestation.ImmutableAttestationInstance;
+import com.khartec.waltz.schema.tables.records.AttestationInstanceRecipientRecord;
 import com.khartec.waltz.schema.tables.records.AttestationInstanceRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.data.JooqUtilities.insertReturningIds;
 import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 
@@ -89,11 +98,8 @@ public class AttestationInstanceDao {
     public long create(AttestationInstance attestationInstance) {
         checkNotNull(attestationInstance, "attestationInstance cannot be null");
 
-        AttestationInstanceRecord record = dsl.newRecord(ATTESTATION_INSTANCE);
-        record.setAttestationRunId(attestationInstance.attestationRunId());
-        record.setParentEntityKind(attestationInstance.parentEntity().kind().name());
-        record.setParentEntityId(attestationInstance.parentEntity().id());
-        record.setAttestedEntityKind(attestationInstance.attestedEntityKind().name());
+        AttestationInstanceRecord record = mkRecord(attestationInstance);
+        record.attach(dsl.configuration());
 
         record.store();
 
@@ -101,6 +107,58 @@ public class AttestationInstanceDao {
     }
 
 
+    /**
+     * Creates instances, and their recipients, for a single attestation run in
+     * one transaction.  The instances are bulk inserted returning their
+     * generated ids (see `JooqUtilities.insertReturningIds`) and the
+     * recipients are then batch inserted.
+     *
+     * @param instancesWithRecipients  instances paired with the user ids of their recipients
+     * @return number of recipients created
+     */
+    public int createWithRecipients(List<Tuple2<AttestationInstance, Collection<String>>> instancesWithRecipients) {
+        checkNotNull(instancesWithRecipients, "instancesWithRecipients cannot be null");
+
+        if (instancesWithRecipients.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> runIds = SetUtilities.map(instancesWithRecipients, t -> t.v1.attestationRunId());
+        checkTrue(runIds.size() == 1, "All instances must belong to the same attestation run");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            List<Long> instanceIds = insertReturningIds(
+                    tx,
+                    ATTESTATION_INSTANCE,
+                    ATTESTATION_INSTANCE.ID,
+                    ListUtilities.map(instancesWithRecipients, t -> mkRecord(t.v1)),
+                    ATTESTATION_INSTANCE.PARENT_ENTITY_KIND,
+                    ATTESTATION_INSTANCE.PARENT_ENTITY_ID,
+                    ATTESTATION_INSTANCE.ATTESTED_ENTITY_KIND);
+
+            List<AttestationInstanceRecipientRecord> recipientRecords = new ArrayList<>();
+
+            for (int i = 0; i < instancesWithRecipients.size(); i++) {
+                Long instanceId = instanceIds.get(i);
+                instancesWithRecipients.get(i).v2.forEach(userId -> {
+                    AttestationInstanceRecipientRecord record = new AttestationInstanceRecipientRecord();
+                    record.setAttestationInstanceId(instanceId);
+                    record.setUserId(userId);
+                    recipientRecords.add(record);
+                });
+            }
+
+            if (! recipientRecords.isEmpty()) {
+                tx.batchInsert(recipientRecords).execute();
+            }
+
+            return recipientRecords.size();
+        });
+    }
+
+
     public List<AttestationInstance> findByRecipient(String userId, boolean unattestedOnly) {
         Condition condition = ATTESTATION_INSTANCE_RECIPIENT.USER_ID.eq(userId);
         if(unattestedOnly) {
@@ -228,4 +286,14 @@ public class AttestationInstanceDao {
                 .and(ATTESTATION_INSTANCE.ATTESTED_AT.isNotNull())
                 .fetch(TO_DOMAIN_MAPPER);
     }
-}
\ No newline at end of file
+
+
+    private static AttestationInstanceRecord mkRecord(AttestationInstance attestationInstance) {
+        AttestationInstanceRecord record = new AttestationInstanceRecord();
+        record.setAttestationRunId(attestationInstance.attestationRunId());
+        record.setParentEntityKind(attestationInstance.parentEntity().kind().name());
+        record.setParentEntityId(attestationInstance.parentEntity().id());
+        record.setAttestedEntityKind(attestationInstance.attestedEntityKind().name());
+        return record;
+    }
+}
@@ -18,7 +18,9 @@
 
 package com.khartec.waltz.data.change_initiative.search;
 
+import com.khartec.waltz.common.search.InvertedIndex;
 import com.khartec.waltz.data.FullTextSearch;
+import com.khartec.waltz.data.InMemorySearchIndex;
 import com.khartec.waltz.data.UnsupportedSearcher;
 import com.khartec.waltz.data.change_initiative.ChangeInitiativeDao;
 import com.khartec.waltz.model.change_initiative.ChangeInitiative;
@@ -28,13 +30,16 @@ import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.SetUtilities.orderedUnion;
 import static com.khartec.waltz.data.JooqUtilities.*;
 import static com.khartec.waltz.data.SearchUtilities.mkTerms;
@@ -46,12 +51,15 @@ public class ChangeInitiativeSearchDao {
 
     private final DSLContext dsl;
     private final FullTextSearch<ChangeInitiative> searcher;
+    private final InMemorySearchIndex<ChangeInitiative> inMemoryIndex;
 
 
     @Autowired
-    public ChangeInitiativeSearchDao(DSLContext dsl) {
+    public ChangeInitiativeSearchDao(DSLContext dsl,
+                                     @Value("${waltz.search.in-memory.enabled:false}") boolean inMemorySearchEnabled) {
         this.dsl = dsl;
         this.searcher = determineSearcher(dsl.dialect());
+        this.inMemoryIndex = mkInMemoryIndex(dsl, inMemorySearchEnabled);
     }
 
 
@@ -61,6 +69,10 @@ public class ChangeInitiativeSearchDao {
             return Collections.emptyList();
         }
 
+        if (inMemoryIndex.isEnabled()) {
+            return inMemoryIndex.search(options);
+        }
+
         Condition nameCondition = terms.stream()
                 .map(CHANGE_INITIATIVE.NAME::containsIgnoreCase)
                 .collect(Collectors.reducing(
@@ -79,6 +91,32 @@ public class ChangeInitiativeSearchDao {
     }
 
 
+    public boolean refreshIndex() {
+        return inMemoryIndex.refresh();
+    }
+
+
+    public boolean refreshIndex(Set<Long> ids) {
+        return inMemoryIndex.refresh(ids);
+    }
+
+
+    private static InMemorySearchIndex<ChangeInitiative> mkInMemoryIndex(DSLContext dsl, boolean enabled) {
+        return new InMemorySearchIndex<>(
+                dsl,
+                enabled,
+                "change initiative",
+                CHANGE_INITIATIVE,
+                CHANGE_INITIATIVE.ID,
+                ChangeInitiativeDao.TO_DOMAIN_MAPPER,
+                newArrayList(
+                        InvertedIndex.Field.of(ci -> ci.name(), 3),
+                        InvertedIndex.Field.of(ci -> ci.externalId().orElse(null), 2),
+                        InvertedIndex.Field.of(ci -> ci.description(), 1)),
+                (ci, options) -> true);
+    }
+
+
     private FullTextSearch<ChangeInitiative> determineSearcher(SQLDialect dialect) {
 
         if (isPostgres(dialect)) {
@@ -32,10 +32,13 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotEmpty;
 import static com.khartec.waltz.common.Checks.checkNotNull;
@@ -48,6 +51,12 @@ import static com.khartec.waltz.schema.tables.ChangeLog.CHANGE_LOG;
 @Repository
 public class ChangeLogDao {
 
+    /**
+     * Keeps the number of bind parameters per statement (8 per row) well
+     * below the SQL Server limit of 2100.
+     */
+    public static final int MAX_ROWS_PER_INSERT = 200;
+
     private final DSLContext dsl;
 
     public static final RecordMapper<? super Record, ChangeLog> TO_DOMAIN_MAPPER = r -> {
@@ -196,6 +205,31 @@ public class ChangeLogDao {
     }
 
 
+    /**
+     * @param since  only entries created at or after this time are returned
+     * @param parentKinds  only entries for these parent kinds are returned
+     * @return map of change log entry id to the parent reference of that entry
+     */
+    public Map<Integer, EntityReference> findParentReferencesCreatedSince(LocalDateTime since,
+                                                                          Collection<EntityKind> parentKinds) {
+        checkNotNull(since, "since cannot be null");
+        checkNotNull(parentKinds, "parentKinds cannot be null");
+
+        return dsl
+                .select(CHANGE_LOG.ID, CHANGE_LOG.PARENT_KIND, CHANGE_LOG.PARENT_ID)
+                .from(CHANGE_LOG)
+                .where(CHANGE_LOG.CREATED_AT.ge(Timestamp.valueOf(since)))
+                .and(CHANGE_LOG.PARENT_KIND.in(parentKinds.stream().map(Enum::name).collect(Collectors.toList())))
+                .fetch()
+                .stream()
+                .collect(Collectors.toMap(
+                        r -> r.get(CHANGE_LOG.ID),
+                        r -> EntityReference.mkRef(
+                                EntityKind.valueOf(r.get(CHANGE_LOG.PARENT_KIND)),
+                                r.get(CHANGE_LOG.PARENT_ID))));
+    }
+
+
     public int write(ChangeLog changeLog) {
         checkNotNull(changeLog, "changeLog must not be null");
 
@@ -212,22 +246,54 @@ public class ChangeLogDao {
     }
 
 
-    public int[] write(Collection<ChangeLog> changeLogs) {
+    /**
+     * Writes the given entries using multi-row inserts (of at most
+     * `MAX_ROWS_PER_INSERT` rows each) within a single transaction.
+     *
+     * @return number of entries written
+     */
+    public int write(Collection<ChangeLog> changeLogs) {
         checkNotNull(changeLogs, "changeLogs must not be null");
 
-        Query[] queries = changeLogs
-                .stream()
-                .map(changeLog -> DSL.insertInto(CHANGE_LOG)
-                        .set(CHANGE_LOG.MESSAGE, changeLog.message())
-                        .set(CHANGE_LOG.PARENT_ID, changeLog.parentReference().id())
-                        .set(CHANGE_LOG.PARENT_KIND, changeLog.parentReference().kind().name())
-                        .set(CHANGE_LOG.USER_ID, changeLog.userId())
-                        .set(CHANGE_LOG.SEVERITY, changeLog.severity().name())
-                        .set(CHANGE_LOG.CHILD_KIND, changeLog.childKind().map(ck -> ck.name()).orElse(null))
-                        .set(CHANGE_LOG.OPERATION, changeLog.operation().name())
-                        .set(CHANGE_LOG.CREATED_AT, Timestamp.valueOf(changeLog.createdAt())))
-                .toArray(Query[]::new);
-        return dsl.batch(queries).execute();
+        if (changeLogs.isEmpty()) {
+            return 0;
+        }
+
+        List<ChangeLog> changeLogList = new ArrayList<>(changeLogs);
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            int count = 0;
+            for (int start = 0; start < changeLogList.size(); start += MAX_ROWS_PER_INSERT) {
+                List<ChangeLog> chunk = changeLogList.subList(start, Math.min(changeLogList.size(), start + MAX_ROWS_PER_INSERT));
+
+                InsertValuesStep8<ChangeLogRecord, String, Long, String, String, String, String, String, Timestamp> insert = tx
+                        .insertInto(CHANGE_LOG,
+                                CHANGE_LOG.MESSAGE,
+                                CHANGE_LOG.PARENT_ID,
+                                CHANGE_LOG.PARENT_KIND,
+                                CHANGE_LOG.USER_ID,
+                                CHANGE_LOG.SEVERITY,
+                                CHANGE_LOG.CHILD_KIND,
+                                CHANGE_LOG.OPERATION,
+                                CHANGE_LOG.CREATED_AT);
+
+                for (ChangeLog changeLog : chunk) {
+                    insert = insert.values(
+                            changeLog.message(),
+                            changeLog.parentReference().id(),
+                            changeLog.parentReference().kind().name(),
+                            changeLog.userId(),
+                            changeLog.severity().name(),
+                            changeLog.childKind().map(ck -> ck.name()).orElse(null),
+                            changeLog.operation().name(),
+                            Timestamp.valueOf(changeLog.createdAt()));
+                }
+
+                count += insert.execute();
+            }
+            return count;
+        });
     }
 
 
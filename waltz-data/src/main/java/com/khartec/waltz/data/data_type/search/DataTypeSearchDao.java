@@ -18,17 +18,24 @@
 
 package com.khartec.waltz.data.data_type.search;
 
+import com.khartec.waltz.common.search.InvertedIndex;
+import com.khartec.waltz.data.InMemorySearchIndex;
 import com.khartec.waltz.data.SearchUtilities;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Set;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.PredicateUtilities.all;
+import static com.khartec.waltz.schema.tables.DataType.DATA_TYPE;
 import static java.util.stream.Collectors.toList;
 
 
@@ -36,19 +43,27 @@ import static java.util.stream.Collectors.toList;
 public class DataTypeSearchDao {
 
     private final DataTypeDao dataTypeDao;
+    private final InMemorySearchIndex<DataType> inMemoryIndex;
 
 
     @Autowired
-    public DataTypeSearchDao(DataTypeDao dataTypeDao) {
+    public DataTypeSearchDao(DataTypeDao dataTypeDao,
+                             DSLContext dsl,
+                             @Value("${waltz.search.in-memory.enabled:false}") boolean inMemorySearchEnabled) {
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
 
         this.dataTypeDao = dataTypeDao;
+        this.inMemoryIndex = mkInMemoryIndex(dsl, inMemorySearchEnabled);
     }
 
 
     public List<DataType> search(EntitySearchOptions options) {
         checkNotNull(options, "options cannot be null");
 
+        if (inMemoryIndex.isEnabled()) {
+            return inMemoryIndex.search(options);
+        }
+
         List<String> terms = SearchUtilities.mkTerms(options.searchQuery().toLowerCase());
         return dataTypeDao.findAll()
                 .stream()
@@ -62,4 +77,30 @@ public class DataTypeSearchDao {
                 .collect(toList());
     }
 
+
+    public boolean refreshIndex() {
+        return inMemoryIndex.refresh();
+    }
+
+
+    public boolean refreshIndex(Set<Long> ids) {
+        return inMemoryIndex.refresh(ids);
+    }
+
+
+    private static InMemorySearchIndex<DataType> mkInMemoryIndex(DSLContext dsl, boolean enabled) {
+        return new InMemorySearchIndex<>(
+                dsl,
+                enabled,
+                "data type",
+                DATA_TYPE,
+                DATA_TYPE.ID,
+                DataTypeDao.TO_DOMAIN,
+                newArrayList(
+                        InvertedIndex.Field.of(dt -> dt.name(), 3),
+                        InvertedIndex.Field.of(dt -> dt.code(), 2),
+                        InvertedIndex.Field.of(dt -> dt.description(), 1)),
+                (dt, options) -> true);
+    }
+
 }
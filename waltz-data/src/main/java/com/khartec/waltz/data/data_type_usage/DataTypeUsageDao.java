@@ -250,6 +250,28 @@ public class DataTypeUsageDao {
     }
 
 
+    /**
+     * @param kind  APPLICATION or ACTOR
+     * @return ids of all entities of the given kind whose usages are recalculated by
+     *          `recalculateForAllApplications`
+     */
+    public List<Long> findIdsForRecalculation(EntityKind kind) {
+        switch (kind) {
+            case APPLICATION:
+                return dsl.select(APPLICATION.ID)
+                        .from(APPLICATION)
+                        .where(IS_ACTIVE)
+                        .fetch(APPLICATION.ID);
+            case ACTOR:
+                return dsl.select(ACTOR.ID)
+                        .from(ACTOR)
+                        .fetch(ACTOR.ID);
+            default:
+                throw new IllegalArgumentException("Cannot recalculate usages for entities of kind: " + kind);
+        }
+    }
+
+
     @Deprecated
     public boolean recalculateForAppIdSelector(Select<Record1<Long>> appIdSelector) {
         return recalculateForIdSelector(EntityKind.APPLICATION, appIdSelector);
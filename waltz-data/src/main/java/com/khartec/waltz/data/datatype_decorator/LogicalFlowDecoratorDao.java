@@ -22,6 +22,8 @@ import com.khartec.waltz.common.SetUtilities;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.FlowDecoratorRatingCandidate;
+import com.khartec.waltz.model.authoritativesource.ImmutableFlowDecoratorRatingCandidate;
 import com.khartec.waltz.model.datatype.DataTypeDecorator;
 import com.khartec.waltz.model.datatype.ImmutableDataTypeDecorator;
 import com.khartec.waltz.model.rating.AuthoritativenessRating;
@@ -34,8 +36,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -55,6 +60,12 @@ import static java.util.stream.Collectors.toList;
 @Repository
 public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
 
+    /**
+     * Max number of ids per update statement, SQL Server allows ~2100
+     * parameters per statement.
+     */
+    private static final int UPDATE_CHUNK_SIZE = 1000;
+
 
     private static final RecordMapper<Record, DataTypeDecorator> TO_DECORATOR_MAPPER = r -> {
         LogicalFlowDecoratorRecord record = r.into(LOGICAL_FLOW_DECORATOR);
@@ -72,7 +83,7 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
                 .build();
     };
 
-    private static final Function<DataTypeDecorator, LogicalFlowDecoratorRecord> TO_RECORD = d -> {
+    public static final Function<DataTypeDecorator, LogicalFlowDecoratorRecord> TO_RECORD = d -> {
         LogicalFlowDecoratorRecord r = new LogicalFlowDecoratorRecord();
         r.setId(d.id().orElse(null));
         r.changed(LOGICAL_FLOW_DECORATOR.ID, false);
@@ -117,7 +128,7 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
                 .and(LOGICAL_NOT_REMOVED)
-                .where(dsl.renderInlined(condition))
+                .where(condition)
                 .fetch(TO_DECORATOR_MAPPER);
     }
 
@@ -133,7 +144,7 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
                 .from(LOGICAL_FLOW_DECORATOR)
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
-                .where(dsl.renderInlined(condition))
+                .where(condition)
                 .and(LOGICAL_NOT_REMOVED)
                 .fetch(TO_DECORATOR_MAPPER);
     }
@@ -268,13 +279,111 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
         return authSourceUpdateCount + nonAuthSourceUpdateCount;
     }
 
+    /**
+     * @return map of logical flow id to the ids of the data types decorating that flow
+     */
+    public Map<Long, long[]> findDataTypeIdsByFlowId() {
+        return findDataTypeIdsByFlowIdForCondition(DSL.trueCondition());
+    }
+
+
+    /**
+     * @param flowIds  logical flows of interest
+     * @return map of logical flow id to the ids of the data types decorating that flow
+     */
+    public Map<Long, long[]> findDataTypeIdsByFlowId(Collection<Long> flowIds) {
+        checkNotNull(flowIds, "flowIds cannot be null");
+        return findDataTypeIdsByFlowIdForCondition(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.in(flowIds));
+    }
+
+
+    /**
+     * Loads every logical flow decorator along with the information required
+     * to determine its authoritative source rating (the flows source app and
+     * the org unit of the target app).
+     */
+    public List<FlowDecoratorRatingCandidate> findRatingCandidates() {
+        Condition isRateable = LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name())
+                .and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                .and(APPLICATION.ID.isNotNull());
+
+        Field<Boolean> rateable = DSL.when(isRateable, DSL.inline(true))
+                .otherwise(DSL.inline(false))
+                .as("rateable");
+
+        return dsl
+                .select(LOGICAL_FLOW_DECORATOR.ID,
+                        LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID,
+                        LOGICAL_FLOW_DECORATOR.RATING,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        APPLICATION.ORGANISATIONAL_UNIT_ID,
+                        rateable)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .leftJoin(LOGICAL_FLOW)
+                .on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
+                .leftJoin(APPLICATION)
+                .on(APPLICATION.ID.eq(LOGICAL_FLOW.TARGET_ENTITY_ID)
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name())))
+                .fetch(r -> {
+                    boolean isCandidate = r.get(rateable);
+                    return ImmutableFlowDecoratorRatingCandidate.builder()
+                            .decoratorId(r.get(LOGICAL_FLOW_DECORATOR.ID))
+                            .dataTypeId(r.get(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID))
+                            .rating(AuthoritativenessRating.valueOf(r.get(LOGICAL_FLOW_DECORATOR.RATING)))
+                            .sourceApplicationId(isCandidate
+                                    ? Optional.of(r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID))
+                                    : Optional.empty())
+                            .targetOrgUnitId(isCandidate
+                                    ? Optional.of(r.get(APPLICATION.ORGANISATIONAL_UNIT_ID))
+                                    : Optional.empty())
+                            .build();
+                });
+    }
+
+
+    /**
+     * Sets the rating of the given decorators, ids are sent in chunks to
+     * keep within database parameter limits.
+     *
+     * @return number of decorators updated
+     */
+    public int updateRatings(AuthoritativenessRating rating, Collection<Long> decoratorIds) {
+        checkNotNull(rating, "rating cannot be null");
+        checkNotNull(decoratorIds, "decoratorIds cannot be null");
+
+        List<Long> ids = new ArrayList<>(decoratorIds);
+        int updateCount = 0;
+        for (int start = 0; start < ids.size(); start += UPDATE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(start, Math.min(ids.size(), start + UPDATE_CHUNK_SIZE));
+            updateCount += updateRatingsByCondition(rating, LOGICAL_FLOW_DECORATOR.ID.in(chunk));
+        }
+        return updateCount;
+    }
+
+
     // --- HELPERS ---
 
+    private Map<Long, long[]> findDataTypeIdsByFlowIdForCondition(Condition condition) {
+        Map<Long, List<Long>> dataTypeIdsByFlowId = dsl
+                .select(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()))
+                .and(condition)
+                .fetchGroups(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID);
+
+        Map<Long, long[]> result = new HashMap<>(dataTypeIdsByFlowId.size() * 2);
+        dataTypeIdsByFlowId.forEach((flowId, dataTypeIds) -> result.put(
+                flowId,
+                dataTypeIds.stream().mapToLong(Long::longValue).toArray()));
+        return result;
+    }
+
+
     private List<DataTypeDecorator> findByCondition(Condition condition) {
         return dsl
                 .select(LOGICAL_FLOW_DECORATOR.fields())
                 .from(LOGICAL_FLOW_DECORATOR)
-                .where(dsl.renderInlined(condition))
+                .where(condition)
                 .fetch(TO_DECORATOR_MAPPER);
     }
 
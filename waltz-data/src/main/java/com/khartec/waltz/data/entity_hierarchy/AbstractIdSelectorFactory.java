@@ -54,23 +54,28 @@ public abstract class AbstractIdSelectorFactory implements IdSelectorFactory {
 
 
     private Select<Record1<Long>> mkForSelf(IdSelectionOptions options) {
+        long id = options.entityReference().id();
 
         Select<Record1<Long>> selector = null;
         switch (options.scope()) {
             case EXACT:
-                selector = DSL.select(DSL.val(options.entityReference().id()));
+                selector = DSL.select(DSL.val(id));
                 break;
             case CHILDREN:
-                selector = DSL.select(ENTITY_HIERARCHY.ID)
-                        .from(ENTITY_HIERARCHY)
-                        .where(ENTITY_HIERARCHY.ANCESTOR_ID.eq(options.entityReference().id()))
-                        .and(ENTITY_HIERARCHY.KIND.eq(entityKind.name()));
+                selector = EntityHierarchyIndexes
+                        .mkSelector(entityKind, id, options.scope())
+                        .orElseGet(() -> DSL.select(ENTITY_HIERARCHY.ID)
+                            .from(ENTITY_HIERARCHY)
+                            .where(ENTITY_HIERARCHY.ANCESTOR_ID.eq(id))
+                            .and(ENTITY_HIERARCHY.KIND.eq(entityKind.name())));
                 break;
             case PARENTS:
-                selector = DSL.select(ENTITY_HIERARCHY.ANCESTOR_ID)
-                        .from(ENTITY_HIERARCHY)
-                        .where(ENTITY_HIERARCHY.ID.eq(options.entityReference().id()))
-                        .and(ENTITY_HIERARCHY.KIND.eq(entityKind.name()));
+                selector = EntityHierarchyIndexes
+                        .mkSelector(entityKind, id, options.scope())
+                        .orElseGet(() -> DSL.select(ENTITY_HIERARCHY.ANCESTOR_ID)
+                            .from(ENTITY_HIERARCHY)
+                            .where(ENTITY_HIERARCHY.ID.eq(id))
+                            .and(ENTITY_HIERARCHY.KIND.eq(entityKind.name())));
                 break;
         }
 
@@ -27,6 +27,7 @@ import com.khartec.waltz.model.tally.Tally;
 import com.khartec.waltz.schema.tables.EntityHierarchy;
 import com.khartec.waltz.schema.tables.records.ApplicationRecord;
 import com.khartec.waltz.schema.tables.records.EntityHierarchyRecord;
+import org.jooq.BatchBindStep;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Record;
@@ -37,12 +38,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.*;
 import java.util.function.Function;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+import static com.khartec.waltz.common.EnumUtilities.readEnum;
 import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.data.JooqUtilities.TO_STRING_TALLY;
+import static com.khartec.waltz.schema.tables.ClientCacheKey.CLIENT_CACHE_KEY;
 import static com.khartec.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
 
 @Repository
@@ -52,6 +56,8 @@ public class EntityHierarchyDao {
 
     private static final EntityHierarchy eh = ENTITY_HIERARCHY;
 
+    private static final String VERSION_KEY_PREFIX = "HIERARCHY:";
+
     private static final Function<EntityHierarchyItem, EntityHierarchyRecord> ITEM_TO_RECORD_MAPPER =
             item -> new EntityHierarchyRecord(
                     item.kind().name(),
@@ -103,6 +109,146 @@ public class EntityHierarchyDao {
     }
 
 
+    /**
+     * Brings the stored hierarchy for the given kind in line with the supplied items
+     * by computing the difference against the existing rows and only deleting,
+     * inserting or updating (levels of) those rows which have changed.  Typically
+     * a re-parented node only affects the rows for itself and its descendants.
+     *
+     * The transaction first updates (or creates) the kind's version row (see `findVersion`),
+     * which also serialises concurrent syncs of the same kind (e.g. the scheduled
+     * rebuild on another server and an on-demand rebuild), and only then reads
+     * the existing rows and applies the difference.
+     *
+     * @param kind  hierarchical entity kind
+     * @param hierarchyItems  complete set of desired hierarchy items (restricted by the `filter`)
+     * @param filter  condition restricting which existing rows are considered
+     * @return number of rows deleted, inserted or updated
+     */
+    public int syncHierarchy(EntityKind kind, List<EntityHierarchyItem> hierarchyItems, Condition filter) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(hierarchyItems, "hierarchyItems cannot be null");
+        checkNotNull(filter, "filter cannot be null");
+
+        Condition kindAndFilter = eh.KIND.eq(kind.name()).and(filter);
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            // locks the version row, held until the changes are committed
+            int versionRows = txDsl
+                    .update(CLIENT_CACHE_KEY)
+                    .set(CLIENT_CACHE_KEY.LAST_UPDATED_AT, nowUtcTimestamp())
+                    .where(CLIENT_CACHE_KEY.KEY.eq(mkVersionKey(kind)))
+                    .execute();
+
+            if (versionRows == 0) {
+                // first sync of this kind, a concurrent first sync fails on the primary key and rolls back
+                txDsl.insertInto(CLIENT_CACHE_KEY)
+                        .set(CLIENT_CACHE_KEY.KEY, mkVersionKey(kind))
+                        .set(CLIENT_CACHE_KEY.GUID, UUID.randomUUID().toString())
+                        .set(CLIENT_CACHE_KEY.LAST_UPDATED_AT, nowUtcTimestamp())
+                        .execute();
+            }
+
+            List<EntityHierarchyRecord> existing = txDsl
+                    .selectFrom(eh)
+                    .where(kindAndFilter)
+                    .and(eh.ANCESTOR_ID.isNotNull())
+                    .fetch();
+
+            EntityHierarchyDiff diff = EntityHierarchyDiff.compute(kind, hierarchyItems, existing);
+
+            int removedOrphans = txDsl
+                    .deleteFrom(eh)
+                    .where(kindAndFilter)
+                    .and(eh.ANCESTOR_ID.isNull())
+                    .execute();
+
+            if (! diff.toDelete().isEmpty()) {
+                BatchBindStep deleteBatch = txDsl.batch(txDsl
+                        .deleteFrom(eh)
+                        .where(eh.KIND.eq(kind.name()))
+                        .and(eh.ID.eq((Long) null))
+                        .and(eh.ANCESTOR_ID.eq((Long) null)));
+                diff.toDelete().forEach(key -> deleteBatch.bind(kind.name(), key.v1, key.v2));
+                deleteBatch.execute();
+            }
+
+            if (! diff.toUpdate().isEmpty()) {
+                BatchBindStep updateBatch = txDsl.batch(txDsl
+                        .update(eh)
+                        .set(eh.LEVEL, (Integer) null)
+                        .where(eh.KIND.eq(kind.name()))
+                        .and(eh.ID.eq((Long) null))
+                        .and(eh.ANCESTOR_ID.eq((Long) null)));
+                diff.toUpdate().forEach(r -> updateBatch.bind(r.getLevel(), kind.name(), r.getId(), r.getAncestorId()));
+                updateBatch.execute();
+            }
+
+            if (! diff.toInsert().isEmpty()) {
+                txDsl.batchInsert(diff.toInsert())
+                        .execute();
+            }
+
+            int changes = diff.toDelete().size() + removedOrphans + diff.toUpdate().size() + diff.toInsert().size();
+
+            if (changes > 0) {
+                txDsl.update(CLIENT_CACHE_KEY)
+                        .set(CLIENT_CACHE_KEY.GUID, UUID.randomUUID().toString())
+                        .where(CLIENT_CACHE_KEY.KEY.eq(mkVersionKey(kind)))
+                        .execute();
+            }
+
+            LOG.info("Synchronised hierarchy items for kind: {}, deleted: {}, updated: {}, inserted: {}",
+                    kind,
+                    diff.toDelete().size() + removedOrphans,
+                    diff.toUpdate().size(),
+                    diff.toInsert().size());
+
+            return changes;
+        });
+    }
+
+
+    /**
+     * The version of a kind's hierarchy changes whenever a sync alters its rows,
+     * allowing servers to detect rebuilds made by other servers.
+     *
+     * @return current version of the hierarchy, empty if it has never been synchronised
+     */
+    public Optional<String> findVersion(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        return dsl
+                .select(CLIENT_CACHE_KEY.GUID)
+                .from(CLIENT_CACHE_KEY)
+                .where(CLIENT_CACHE_KEY.KEY.eq(mkVersionKey(kind)))
+                .fetchOptional(CLIENT_CACHE_KEY.GUID);
+    }
+
+
+    /**
+     * @return current version of each hierarchy which has been synchronised
+     */
+    public Map<EntityKind, String> findVersions() {
+        Map<EntityKind, String> versions = new EnumMap<>(EntityKind.class);
+        dsl.select(CLIENT_CACHE_KEY.KEY, CLIENT_CACHE_KEY.GUID)
+                .from(CLIENT_CACHE_KEY)
+                .where(CLIENT_CACHE_KEY.KEY.startsWith(VERSION_KEY_PREFIX))
+                .fetch()
+                .forEach(r -> {
+                    EntityKind kind = readEnum(
+                            r.get(CLIENT_CACHE_KEY.KEY).substring(VERSION_KEY_PREFIX.length()),
+                            EntityKind.class,
+                            s -> null);
+                    if (kind != null) {
+                        versions.put(kind, r.get(CLIENT_CACHE_KEY.GUID));
+                    }
+                });
+        return versions;
+    }
+
+
     public List<Tally<String>> tallyByKind() {
         return JooqUtilities.calculateStringTallies(dsl, eh, eh.KIND, DSL.trueCondition());
     }
@@ -127,4 +273,33 @@ public class EntityHierarchyDao {
                 .fetch(TO_DOMAIN_MAPPER);
     }
 
+
+
+    /**
+     * Loads the ancestors (including the entity itself) of every entity of
+     * the given kind in a single query, useful when many entities need to be
+     * checked for membership of a sub-tree.
+     *
+     * @param kind  hierarchical entity kind
+     * @return map of entity id to the ids of its ancestors (and itself)
+     */
+    public Map<Long, long[]> findAncestorIdsByKind(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        Map<Long, List<Long>> ancestorsById = dsl
+                .select(eh.ID, eh.ANCESTOR_ID)
+                .from(eh)
+                .where(eh.KIND.eq(kind.name()))
+                .fetchGroups(eh.ID, eh.ANCESTOR_ID);
+
+        Map<Long, long[]> result = new HashMap<>(ancestorsById.size() * 2);
+        ancestorsById.forEach((id, ancestors) -> result.put(
+                id,
+                ancestors.stream().mapToLong(Long::longValue).toArray()));
+        return result;
+    }
+
+
+    private static String mkVersionKey(EntityKind kind) {
+        return VERSION_KEY_PREFIX + kind.name();
+    }
 }
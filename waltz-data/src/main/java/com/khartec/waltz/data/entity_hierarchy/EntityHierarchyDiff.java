@@ -0,0 +1,110 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_hierarchy;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import com.khartec.waltz.schema.tables.records.EntityHierarchyRecord;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Difference between the stored rows of a hierarchy and the desired items,
+ * expressed as the (id, ancestor id) pairs to delete and the rows to update
+ * (level only) or insert.  Pairs which are stored more than once are deleted
+ * and re-inserted, so the result never contains duplicates.
+ */
+class EntityHierarchyDiff {
+
+    private final List<Tuple2<Long, Long>> toDelete = new ArrayList<>();
+    private final List<EntityHierarchyRecord> toUpdate = new ArrayList<>();
+    private final List<EntityHierarchyRecord> toInsert = new ArrayList<>();
+
+
+    private EntityHierarchyDiff() {
+    }
+
+
+    /**
+     * @param kind  hierarchical entity kind
+     * @param desiredItems  complete set of desired hierarchy items
+     * @param existingRows  stored rows with an ancestor (rows without are handled separately)
+     */
+    static EntityHierarchyDiff compute(EntityKind kind,
+                                       Collection<EntityHierarchyItem> desiredItems,
+                                       Collection<EntityHierarchyRecord> existingRows) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(desiredItems, "desiredItems cannot be null");
+        checkNotNull(existingRows, "existingRows cannot be null");
+
+        Map<Tuple2<Long, Long>, Integer> desired = new HashMap<>(desiredItems.size());
+        desiredItems.forEach(item -> desired.put(
+                tuple(item.id().get(), item.parentId().get()),
+                item.level()));
+
+        Map<Tuple2<Long, Long>, Integer> existing = new HashMap<>(existingRows.size());
+        Set<Tuple2<Long, Long>> duplicates = new HashSet<>();
+        existingRows.forEach(r -> {
+            Tuple2<Long, Long> key = tuple(r.getId(), r.getAncestorId());
+            if (existing.put(key, r.getLevel()) != null) {
+                duplicates.add(key);
+            }
+        });
+
+        EntityHierarchyDiff diff = new EntityHierarchyDiff();
+
+        existing.forEach((key, level) -> {
+            Integer desiredLevel = desired.get(key);
+            if (desiredLevel == null || duplicates.contains(key)) {
+                diff.toDelete.add(key);
+            } else if (! desiredLevel.equals(level)) {
+                diff.toUpdate.add(new EntityHierarchyRecord(kind.name(), key.v1, key.v2, desiredLevel));
+            }
+        });
+
+        desired.forEach((key, level) -> {
+            if (! existing.containsKey(key) || duplicates.contains(key)) {
+                diff.toInsert.add(new EntityHierarchyRecord(kind.name(), key.v1, key.v2, level));
+            }
+        });
+
+        return diff;
+    }
+
+
+    List<Tuple2<Long, Long>> toDelete() {
+        return toDelete;
+    }
+
+
+    List<EntityHierarchyRecord> toUpdate() {
+        return toUpdate;
+    }
+
+
+    List<EntityHierarchyRecord> toInsert() {
+        return toInsert;
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_hierarchy;
+
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.HierarchyQueryScope;
+import org.jooq.Record1;
+import org.jooq.Select;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.data.SelectorUtilities.mkIdListSelector;
+
+
+/**
+ * Holds the current in-memory hierarchy index for each hierarchical entity kind.
+ *
+ * Selector factories are plain objects (not spring beans) so the indexes are
+ * held statically.  They are (re)registered by the `EntityHierarchyService`
+ * whenever a hierarchy is rebuilt or refreshed.  If no index is available, or
+ * the resulting id list would be too large to inline, callers should fall back
+ * to querying the `ENTITY_HIERARCHY` table.
+ *
+ * Indexes may be registered with the shared hierarchy version (see
+ * `EntityHierarchyDao.findVersion`) they were built from.  Once a newer version
+ * is reported, e.g. because another server rebuilt the hierarchy, the index is
+ * no longer used until it has been rebuilt.
+ */
+public class EntityHierarchyIndexes {
+
+    /**
+     * Upper bound on the number of ids we are prepared to inline into a selector.
+     * Kept well below the SQL Server limit of 2100 parameters per statement as
+     * a single query may embed several selectors.
+     */
+    public static final int MAX_INLINE_IDS = 500;
+
+    private static final Map<EntityKind, VersionedIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final Map<EntityKind, Optional<String>> CURRENT_VERSIONS = new ConcurrentHashMap<>();
+
+
+    private static class VersionedIndex {
+
+        private final HierarchyIndex index;
+        private final Optional<String> version;
+
+
+        private VersionedIndex(HierarchyIndex index, Optional<String> version) {
+            this.index = index;
+            this.version = version;
+        }
+    }
+
+
+    /**
+     * Registers an index which is not tied to a hierarchy version, it is used
+     * until replaced or removed.
+     */
+    public static void register(EntityKind kind, HierarchyIndex index) {
+        register(kind, index, null);
+    }
+
+
+    /**
+     * @param version  version of the hierarchy the index was built from (empty
+     *                 if the hierarchy has never been synchronised), null if
+     *                 the index is not tied to a version
+     */
+    public static void register(EntityKind kind, HierarchyIndex index, Optional<String> version) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(index, "index cannot be null");
+        INDEXES.put(kind, new VersionedIndex(index, version));
+    }
+
+
+    /**
+     * Records the latest known version of a kind's hierarchy.
+     */
+    public static void updateCurrentVersion(EntityKind kind, Optional<String> version) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(version, "version cannot be null");
+        CURRENT_VERSIONS.put(kind, version);
+    }
+
+
+    /**
+     * @return true if an index is registered for the kind and it was built from
+     *          the latest known version of the hierarchy
+     */
+    public static boolean isCurrent(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        VersionedIndex versionedIndex = INDEXES.get(kind);
+        return versionedIndex != null && isCurrent(kind, versionedIndex);
+    }
+
+
+    public static void remove(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        INDEXES.remove(kind);
+    }
+
+
+    /**
+     * @return the index for the kind, empty if there is none or it is out of date
+     */
+    public static Optional<HierarchyIndex> find(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        return Optional
+                .ofNullable(INDEXES.get(kind))
+                .filter(versionedIndex -> isCurrent(kind, versionedIndex))
+                .map(versionedIndex -> versionedIndex.index);
+    }
+
+
+    /**
+     * Attempts to create a selector which lists the ids of the hierarchy members
+     * directly, avoiding a join to the `ENTITY_HIERARCHY` table.
+     *
+     * @param kind  hierarchical entity kind
+     * @param id  id of the node in the hierarchy
+     * @param scope  CHILDREN (descendants) or PARENTS (ancestors), other scopes are not supported
+     * @return selector of ids (including the node itself) or empty if the index cannot answer the query cheaply
+     */
+    public static Optional<Select<Record1<Long>>> mkSelector(EntityKind kind,
+                                                             long id,
+                                                             HierarchyQueryScope scope) {
+        return find(kind)
+                .filter(index -> index.contains(id))
+                .flatMap(index -> {
+                    switch (scope) {
+                        case CHILDREN:
+                            return index.countDescendants(id) <= MAX_INLINE_IDS
+                                    ? Optional.of(index.findDescendants(id))
+                                    : Optional.empty();
+                        case PARENTS:
+                            return index.countAncestors(id) <= MAX_INLINE_IDS
+                                    ? Optional.of(index.findAncestors(id))
+                                    : Optional.empty();
+                        default:
+                            return Optional.empty();
+                    }
+                })
+                .map(ids -> mkIdListSelector("hierarchy_ids", ids));
+    }
+
+
+    private static boolean isCurrent(EntityKind kind, VersionedIndex versionedIndex) {
+        if (versionedIndex.version == null) {
+            return true;
+        }
+
+        Optional<String> currentVersion = CURRENT_VERSIONS.get(kind);
+        return currentVersion == null || currentVersion.equals(versionedIndex.version);
+    }
+
+}
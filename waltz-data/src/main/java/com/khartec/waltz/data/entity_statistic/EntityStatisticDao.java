@@ -74,7 +74,7 @@ public class EntityStatisticDao implements FindEntityReferencesByIdSelector {
                 .from(es)
                 .innerJoin(esv)
                 .on(esv.STATISTIC_ID.eq(es.ID))
-                .where(dsl.renderInlined(condition))
+                .where(condition)
                 .fetch(TO_COMPOUND_MAPPER);
     }
 
@@ -0,0 +1,664 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_statistic;
+
+import com.khartec.waltz.model.Duration;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.entity_statistic.EntityStatisticRollupState;
+import com.khartec.waltz.model.entity_statistic.EntityStatisticValueSignature;
+import com.khartec.waltz.model.entity_statistic.ImmutableEntityStatisticRollupState;
+import com.khartec.waltz.model.entity_statistic.ImmutableEntityStatisticValueSignature;
+import com.khartec.waltz.model.entity_statistic.RollupKind;
+import com.khartec.waltz.model.tally.ImmutableTally;
+import com.khartec.waltz.model.tally.ImmutableTallyPack;
+import com.khartec.waltz.model.tally.Tally;
+import com.khartec.waltz.model.tally.TallyPack;
+import com.khartec.waltz.schema.tables.EntityStatisticRollup;
+import com.khartec.waltz.schema.tables.EntityStatisticRollupHistory;
+import com.khartec.waltz.schema.tables.records.EntityStatisticRollupNodeRecord;
+import com.khartec.waltz.schema.tables.records.EntityStatisticRollupStateRecord;
+import org.jooq.*;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.common.DateTimeUtilities.toSqlDate;
+import static com.khartec.waltz.schema.Tables.*;
+import static java.util.stream.Collectors.*;
+
+
+/**
+ * Maintains pre-aggregated tallies of entity statistic values for each node
+ * of the org unit and measurable hierarchies.  Each node's tally includes the
+ * values of all active applications associated with the node or any of its
+ * descendants, mirroring the `CHILDREN` scoped application selectors.
+ *
+ * Rollups are rebuilt a statistic at a time.  The accompanying state row
+ * records the latest value the rollups were built from and doubles as an
+ * optimistic lock, so only one server rebuilds a given statistic at once.
+ *
+ * Changes to the membership of hierarchy nodes are detected by comparing a
+ * checksum of each node's applications with the one stored when the rollups
+ * of the node were last brought up to date, allowing just the affected nodes
+ * to be rebuilt.
+ */
+@Repository
+public class EntityStatisticRollupDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityStatisticRollupDao.class);
+
+    public static final Set<EntityKind> ROLLUP_NODE_KINDS = Collections.unmodifiableSet(
+            EnumSet.of(EntityKind.ORG_UNIT, EntityKind.MEASURABLE));
+
+    private static final com.khartec.waltz.schema.tables.EntityStatisticValue esv = ENTITY_STATISTIC_VALUE.as("esv");
+    private static final EntityStatisticRollup esr = ENTITY_STATISTIC_ROLLUP.as("esr");
+    private static final EntityStatisticRollupHistory esrh = ENTITY_STATISTIC_ROLLUP_HISTORY.as("esrh");
+
+    private static final DataType<BigDecimal> decimalValueDataType = SQLDataType.DECIMAL(38, 12);
+    private static final DataType<BigDecimal> decimalTotalDataType = SQLDataType.DECIMAL(38, 2);
+
+    private static final Field<Long> memberNodeId = DSL.field(DSL.name("members", "node_id"), Long.class);
+    private static final Field<Long> memberAppId = DSL.field(DSL.name("members", "app_id"), Long.class);
+    private static final Field<Date> valueDate = DSL.cast(esv.CREATED_AT, Date.class);
+
+    private static final Field<Long> latestValueIdField = DSL.field(DSL
+            .select(DSL.max(esv.ID))
+            .from(esv)
+            .where(esv.STATISTIC_ID.eq(ENTITY_STATISTIC_DEFINITION.ID)))
+            .as("latest_value_id");
+
+    // sum of multiplicatively hashed app ids, order independent and cheap to compute in the database
+    private static final Field<BigDecimal> memberChecksumField = DSL
+            .sum(memberAppId.mul(DSL.inline(2654435761L)).mod(DSL.inline(4294967291L)))
+            .as("member_checksum");
+
+    private static final Field<Integer> currentCountField = DSL.count().as("current_count");
+    private static final Field<Timestamp> earliestCurrentAtField = DSL.min(esv.CREATED_AT).as("earliest_current_at");
+    private static final Field<Timestamp> latestCurrentAtField = DSL.max(esv.CREATED_AT).as("latest_current_at");
+
+
+    private static final RecordMapper<EntityStatisticRollupStateRecord, EntityStatisticRollupState> TO_STATE_MAPPER = r ->
+            ImmutableEntityStatisticRollupState.builder()
+                    .statisticId(r.getStatisticId())
+                    .rollupKind(RollupKind.valueOf(r.getRollupKind()))
+                    .latestValueId(Optional.ofNullable(r.getLatestValueId()))
+                    .signature(ImmutableEntityStatisticValueSignature.builder()
+                            .currentCount(r.getCurrentCount())
+                            .earliestCurrentAt(Optional.ofNullable(r.getEarliestCurrentAt()).map(Timestamp::toLocalDateTime))
+                            .latestCurrentAt(Optional.ofNullable(r.getLatestCurrentAt()).map(Timestamp::toLocalDateTime))
+                            .build())
+                    .rolledUpAt(r.getRolledUpAt().toLocalDateTime())
+                    .build();
+
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public EntityStatisticRollupDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public Map<Long, EntityStatisticRollupState> findStates() {
+        return dsl
+                .selectFrom(ENTITY_STATISTIC_ROLLUP_STATE)
+                .fetch(TO_STATE_MAPPER)
+                .stream()
+                .collect(toMap(EntityStatisticRollupState::statisticId, s -> s));
+    }
+
+
+    /**
+     * Loaders add new value rows (flipping the previous values to historic)
+     * so a change in the latest id of a statistic's values indicates a load.
+     * Each lookup is a single probe of the `(statistic_id, id)` index.
+     *
+     * @return id of the latest value of each statistic which has values
+     */
+    public Map<Long, Long> findLatestValueIds() {
+        return dsl
+                .select(ENTITY_STATISTIC_DEFINITION.ID, latestValueIdField)
+                .from(ENTITY_STATISTIC_DEFINITION)
+                .fetch()
+                .stream()
+                .filter(r -> r.get(latestValueIdField) != null)
+                .collect(toMap(
+                        r -> r.get(ENTITY_STATISTIC_DEFINITION.ID),
+                        r -> r.get(latestValueIdField)));
+    }
+
+
+    /**
+     * @return signature of the current application values of the given statistic
+     */
+    public EntityStatisticValueSignature findCurrentValueSignature(long statisticId) {
+        Record3<Integer, Timestamp, Timestamp> r = dsl
+                .select(currentCountField, earliestCurrentAtField, latestCurrentAtField)
+                .from(esv)
+                .where(esv.STATISTIC_ID.eq(statisticId))
+                .and(esv.CURRENT.eq(true))
+                .and(esv.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                .fetchOne();
+
+        return ImmutableEntityStatisticValueSignature.builder()
+                .currentCount(r.get(currentCountField))
+                .earliestCurrentAt(Optional.ofNullable(r.get(earliestCurrentAtField)).map(Timestamp::toLocalDateTime))
+                .latestCurrentAt(Optional.ofNullable(r.get(latestCurrentAtField)).map(Timestamp::toLocalDateTime))
+                .build();
+    }
+
+
+    /**
+     * @return checksum of the active applications belonging to each hierarchy node (with members)
+     */
+    public Map<EntityReference, Long> findNodeMembershipChecksums() {
+        Map<EntityReference, Long> checksums = new HashMap<>();
+
+        for (EntityKind nodeKind : ROLLUP_NODE_KINDS) {
+            Table<Record2<Long, Long>> members = mkMembers(nodeKind).asTable("members");
+            dsl.select(memberNodeId, memberChecksumField)
+                    .from(members)
+                    .groupBy(memberNodeId)
+                    .fetch()
+                    .forEach(r -> checksums.put(
+                            EntityReference.mkRef(nodeKind, r.get(memberNodeId)),
+                            r.get(memberChecksumField).longValue()));
+        }
+
+        return checksums;
+    }
+
+
+    /**
+     * @return membership checksums recorded by `saveNodeChecksums`
+     */
+    public Map<EntityReference, Long> findStoredNodeChecksums() {
+        return dsl
+                .selectFrom(ENTITY_STATISTIC_ROLLUP_NODE)
+                .fetch()
+                .stream()
+                .collect(toMap(
+                        r -> EntityReference.mkRef(EntityKind.valueOf(r.getNodeKind()), r.getNodeId()),
+                        r -> r.getMemberChecksum()));
+    }
+
+
+    /**
+     * Replaces the stored checksums of the given nodes.  Nodes without an entry
+     * in `checksums` (i.e. nodes which no longer have members) are removed.
+     */
+    public void saveNodeChecksums(Set<EntityReference> nodes, Map<EntityReference, Long> checksums) {
+        checkNotNull(nodes, "nodes cannot be null");
+        checkNotNull(checksums, "checksums cannot be null");
+
+        dsl.transaction(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            byKind(nodes).forEach((kind, ids) -> tx
+                    .deleteFrom(ENTITY_STATISTIC_ROLLUP_NODE)
+                    .where(ENTITY_STATISTIC_ROLLUP_NODE.NODE_KIND.eq(kind.name()))
+                    .and(ENTITY_STATISTIC_ROLLUP_NODE.NODE_ID.in(ids))
+                    .execute());
+
+            List<EntityStatisticRollupNodeRecord> records = nodes
+                    .stream()
+                    .filter(checksums::containsKey)
+                    .map(node -> {
+                        EntityStatisticRollupNodeRecord record = tx.newRecord(ENTITY_STATISTIC_ROLLUP_NODE);
+                        record.setNodeKind(node.kind().name());
+                        record.setNodeId(node.id());
+                        record.setMemberChecksum(checksums.get(node));
+                        return record;
+                    })
+                    .collect(toList());
+
+            tx.batchInsert(records).execute();
+        });
+    }
+
+
+    /**
+     * Rebuilds the rollups for a single statistic.  The current rollups are
+     * always rebuilt in full.  When `includeHistory` is set the historic rollups
+     * are rebuilt from the date of the earliest value which was current at the
+     * previous rebuild (as those values may since have become historic), or
+     * in full if the statistic has not been rolled up before or its rollup kind
+     * has changed.
+     *
+     * @param newState  state to record, the rollup kind determines how values are aggregated
+     * @param previousState  state the caller based its decision to rebuild on
+     * @param includeHistory  whether historic rollups should also be refreshed
+     * @return false if another server claimed the rebuild first (the rollups are left untouched)
+     */
+    public boolean rebuild(EntityStatisticRollupState newState,
+                           Optional<EntityStatisticRollupState> previousState,
+                           boolean includeHistory) {
+        checkNotNull(newState, "newState cannot be null");
+        checkNotNull(previousState, "previousState cannot be null");
+        checkTrue(newState.rollupKind() != RollupKind.NONE, "Cannot rollup statistics with a rollup kind of NONE");
+
+        long statisticId = newState.statisticId();
+        Field<BigDecimal> total = mkTotalField(newState.rollupKind());
+
+        try {
+            return dsl.transactionResult(configuration -> {
+                DSLContext tx = DSL.using(configuration);
+
+                if (! claim(tx, newState, previousState)) {
+                    return false;
+                }
+
+                tx.deleteFrom(ENTITY_STATISTIC_ROLLUP)
+                        .where(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID.eq(statisticId))
+                        .execute();
+
+                for (EntityKind nodeKind : ROLLUP_NODE_KINDS) {
+                    insertCurrentRollups(tx, statisticId, nodeKind, total, DSL.trueCondition());
+                }
+
+                if (includeHistory) {
+                    rebuildHistory(tx, newState, previousState, total);
+                }
+
+                return true;
+            });
+        } catch (DataAccessException dae) {
+            // most likely another server inserted the state row for a new statistic first
+            LOG.warn("Could not rebuild rollups for statistic: {}, {}", statisticId, dae.getMessage());
+            return false;
+        }
+    }
+
+
+    /**
+     * Rebuilds the current rollups of the given nodes of a statistic which has
+     * already been rolled up, leaving its state (other than locking it) and
+     * historic rollups untouched.  Callers should keep the number of nodes
+     * modest as they are passed as `in` lists.
+     *
+     * @return false if the statistic has no rollups to rebuild
+     */
+    public boolean rebuildNodes(long statisticId, Set<EntityReference> nodes) {
+        checkNotNull(nodes, "nodes cannot be null");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            // a no-op update locks the state row, serialising this with full rebuilds of the statistic
+            int locked = tx
+                    .update(ENTITY_STATISTIC_ROLLUP_STATE)
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.ROLLED_UP_AT, ENTITY_STATISTIC_ROLLUP_STATE.ROLLED_UP_AT)
+                    .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.eq(statisticId))
+                    .execute();
+
+            if (locked == 0) {
+                return false;
+            }
+
+            RollupKind rollupKind = RollupKind.valueOf(tx
+                    .select(ENTITY_STATISTIC_ROLLUP_STATE.ROLLUP_KIND)
+                    .from(ENTITY_STATISTIC_ROLLUP_STATE)
+                    .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.eq(statisticId))
+                    .fetchOne(ENTITY_STATISTIC_ROLLUP_STATE.ROLLUP_KIND));
+
+            Field<BigDecimal> total = mkTotalField(rollupKind);
+
+            byKind(nodes).forEach((nodeKind, ids) -> {
+                tx.deleteFrom(ENTITY_STATISTIC_ROLLUP)
+                        .where(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID.eq(statisticId))
+                        .and(ENTITY_STATISTIC_ROLLUP.NODE_KIND.eq(nodeKind.name()))
+                        .and(ENTITY_STATISTIC_ROLLUP.NODE_ID.in(ids))
+                        .execute();
+
+                insertCurrentRollups(tx, statisticId, nodeKind, total, memberNodeId.in(ids));
+            });
+
+            return true;
+        });
+    }
+
+
+    /**
+     * Removes the rollups (current, historic and state) of the given statistics.
+     *
+     * @return number of statistics whose state was removed
+     */
+    public int remove(Collection<Long> statisticIds) {
+        checkNotNull(statisticIds, "statisticIds cannot be null");
+
+        if (statisticIds.isEmpty()) {
+            return 0;
+        }
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            tx.deleteFrom(ENTITY_STATISTIC_ROLLUP)
+                    .where(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID.in(statisticIds))
+                    .execute();
+            tx.deleteFrom(ENTITY_STATISTIC_ROLLUP_HISTORY)
+                    .where(ENTITY_STATISTIC_ROLLUP_HISTORY.STATISTIC_ID.in(statisticIds))
+                    .execute();
+            return tx.deleteFrom(ENTITY_STATISTIC_ROLLUP_STATE)
+                    .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.in(statisticIds))
+                    .execute();
+        });
+    }
+
+
+    /**
+     * @return a tally pack per requested statistic for the given hierarchy node,
+     *          statistics without any values for the node have no tallies
+     */
+    public List<TallyPack<String>> findRollups(Collection<Long> statisticIds, EntityReference node) {
+        checkNotNull(statisticIds, "statisticIds cannot be null");
+        checkNotNull(node, "node cannot be null");
+
+        if (statisticIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, List<Record4<Long, String, BigDecimal, Timestamp>>> rowsByStatisticId = dsl
+                .select(esr.STATISTIC_ID, esr.OUTCOME, esr.TOTAL, esr.LAST_VALUE_AT)
+                .from(esr)
+                .where(esr.STATISTIC_ID.in(statisticIds))
+                .and(esr.NODE_KIND.eq(node.kind().name()))
+                .and(esr.NODE_ID.eq(node.id()))
+                .fetch()
+                .stream()
+                .collect(groupingBy(r -> r.get(esr.STATISTIC_ID)));
+
+        return statisticIds
+                .stream()
+                .distinct()
+                .map(statisticId -> {
+                    List<Record4<Long, String, BigDecimal, Timestamp>> rows = rowsByStatisticId.getOrDefault(
+                            statisticId,
+                            Collections.emptyList());
+
+                    LocalDateTime lastUpdatedAt = rows
+                            .stream()
+                            .map(r -> r.get(esr.LAST_VALUE_AT).toLocalDateTime())
+                            .max(LocalDateTime::compareTo)
+                            .orElseGet(() -> nowUtc());
+
+                    List<Tally<String>> tallies = rows
+                            .stream()
+                            .map(r -> mkTally(r.get(esr.OUTCOME), r.get(esr.TOTAL)))
+                            .collect(toList());
+
+                    return mkTallyPack(statisticId, tallies, lastUpdatedAt);
+                })
+                .collect(toList());
+    }
+
+
+    /**
+     * Historic rollups are held per day, the duration is therefore applied to
+     * whole days (`value_date > today - duration`).
+     *
+     * @return a tally pack per day with historic values, ordered by date
+     */
+    public List<TallyPack<String>> findHistoricRollups(long statisticId, EntityReference node, Duration duration) {
+        checkNotNull(node, "node cannot be null");
+        checkNotNull(duration, "duration cannot be null");
+
+        Condition durationCondition = duration == Duration.ALL
+                ? DSL.trueCondition()
+                : esrh.VALUE_DATE.gt(toSqlDate(LocalDate.now().minusDays(duration.numDays())));
+
+        Map<LocalDate, List<Tally<String>>> talliesByDate = dsl
+                .select(esrh.VALUE_DATE, esrh.OUTCOME, esrh.TOTAL)
+                .from(esrh)
+                .where(esrh.STATISTIC_ID.eq(statisticId))
+                .and(esrh.NODE_KIND.eq(node.kind().name()))
+                .and(esrh.NODE_ID.eq(node.id()))
+                .and(durationCondition)
+                .fetch()
+                .stream()
+                .collect(groupingBy(
+                        r -> r.get(esrh.VALUE_DATE).toLocalDate(),
+                        TreeMap::new,
+                        mapping(r -> mkTally(r.get(esrh.OUTCOME), r.get(esrh.TOTAL)),
+                                toList())));
+
+        return talliesByDate
+                .entrySet()
+                .stream()
+                .map(e -> mkTallyPack(statisticId, e.getValue(), e.getKey().atStartOfDay()))
+                .collect(toList());
+    }
+
+
+    // -- helpers
+
+    private static void insertCurrentRollups(DSLContext tx,
+                                             long statisticId,
+                                             EntityKind nodeKind,
+                                             Field<BigDecimal> total,
+                                             Condition nodeCondition) {
+        Table<Record2<Long, Long>> members = mkMembers(nodeKind).asTable("members");
+        tx.insertInto(ENTITY_STATISTIC_ROLLUP)
+                .columns(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID,
+                        ENTITY_STATISTIC_ROLLUP.NODE_KIND,
+                        ENTITY_STATISTIC_ROLLUP.NODE_ID,
+                        ENTITY_STATISTIC_ROLLUP.OUTCOME,
+                        ENTITY_STATISTIC_ROLLUP.TOTAL,
+                        ENTITY_STATISTIC_ROLLUP.LAST_VALUE_AT)
+                .select(DSL
+                        .select(esv.STATISTIC_ID,
+                                DSL.inline(nodeKind.name()),
+                                memberNodeId,
+                                esv.OUTCOME,
+                                total,
+                                DSL.max(esv.CREATED_AT))
+                        .from(esv)
+                        .innerJoin(members).on(memberAppId.eq(esv.ENTITY_ID))
+                        .where(esv.STATISTIC_ID.eq(statisticId))
+                        .and(esv.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                        .and(esv.CURRENT.eq(true))
+                        .and(nodeCondition)
+                        .groupBy(esv.STATISTIC_ID, memberNodeId, esv.OUTCOME))
+                .execute();
+    }
+
+
+    private static Map<EntityKind, Set<Long>> byKind(Set<EntityReference> nodes) {
+        return nodes
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())));
+    }
+
+
+    private boolean claim(DSLContext tx,
+                          EntityStatisticRollupState newState,
+                          Optional<EntityStatisticRollupState> previousState) {
+        EntityStatisticValueSignature signature = newState.signature();
+
+        if (previousState.isPresent()) {
+            return tx.update(ENTITY_STATISTIC_ROLLUP_STATE)
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.ROLLUP_KIND, newState.rollupKind().name())
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.LATEST_VALUE_ID, newState.latestValueId().orElse(null))
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.CURRENT_COUNT, signature.currentCount())
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.EARLIEST_CURRENT_AT, signature.earliestCurrentAt().map(Timestamp::valueOf).orElse(null))
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.LATEST_CURRENT_AT, signature.latestCurrentAt().map(Timestamp::valueOf).orElse(null))
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.ROLLED_UP_AT, Timestamp.valueOf(newState.rolledUpAt()))
+                    .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.eq(newState.statisticId()))
+                    .and(ENTITY_STATISTIC_ROLLUP_STATE.ROLLED_UP_AT.eq(Timestamp.valueOf(previousState.get().rolledUpAt())))
+                    .execute() == 1;
+        } else {
+            // a concurrent insert of the same statistic fails on the primary key
+            return tx.insertInto(ENTITY_STATISTIC_ROLLUP_STATE)
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID, newState.statisticId())
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.ROLLUP_KIND, newState.rollupKind().name())
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.LATEST_VALUE_ID, newState.latestValueId().orElse(null))
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.CURRENT_COUNT, signature.currentCount())
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.EARLIEST_CURRENT_AT, signature.earliestCurrentAt().map(Timestamp::valueOf).orElse(null))
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.LATEST_CURRENT_AT, signature.latestCurrentAt().map(Timestamp::valueOf).orElse(null))
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.ROLLED_UP_AT, Timestamp.valueOf(newState.rolledUpAt()))
+                    .execute() == 1;
+        }
+    }
+
+
+    private void rebuildHistory(DSLContext tx,
+                                EntityStatisticRollupState newState,
+                                Optional<EntityStatisticRollupState> previousState,
+                                Field<BigDecimal> total) {
+        long statisticId = newState.statisticId();
+
+        boolean fullRebuild = ! previousState.isPresent()
+                || previousState.get().rollupKind() != newState.rollupKind();
+
+        Optional<LocalDate> rebuildFrom = fullRebuild
+                ? Optional.empty()
+                : previousState.get().signature().earliestCurrentAt().map(LocalDateTime::toLocalDate);
+
+        if (! fullRebuild && ! rebuildFrom.isPresent()) {
+            // nothing was current at the last rebuild so nothing can have become historic since
+            return;
+        }
+
+        Condition historyDeleteCondition = ENTITY_STATISTIC_ROLLUP_HISTORY.STATISTIC_ID.eq(statisticId)
+                .and(rebuildFrom
+                        .map(d -> ENTITY_STATISTIC_ROLLUP_HISTORY.VALUE_DATE.ge(toSqlDate(d)))
+                        .orElse(DSL.trueCondition()));
+
+        Condition historyValueCondition = rebuildFrom
+                .map(d -> esv.CREATED_AT.ge(Timestamp.valueOf(d.atStartOfDay())))
+                .orElse(DSL.trueCondition());
+
+        tx.deleteFrom(ENTITY_STATISTIC_ROLLUP_HISTORY)
+                .where(historyDeleteCondition)
+                .execute();
+
+        for (EntityKind nodeKind : ROLLUP_NODE_KINDS) {
+            Table<Record2<Long, Long>> members = mkMembers(nodeKind).asTable("members");
+            tx.insertInto(ENTITY_STATISTIC_ROLLUP_HISTORY)
+                    .columns(ENTITY_STATISTIC_ROLLUP_HISTORY.STATISTIC_ID,
+                            ENTITY_STATISTIC_ROLLUP_HISTORY.NODE_KIND,
+                            ENTITY_STATISTIC_ROLLUP_HISTORY.NODE_ID,
+                            ENTITY_STATISTIC_ROLLUP_HISTORY.OUTCOME,
+                            ENTITY_STATISTIC_ROLLUP_HISTORY.VALUE_DATE,
+                            ENTITY_STATISTIC_ROLLUP_HISTORY.TOTAL)
+                    .select(DSL
+                            .select(esv.STATISTIC_ID,
+                                    DSL.inline(nodeKind.name()),
+                                    memberNodeId,
+                                    esv.OUTCOME,
+                                    valueDate,
+                                    total)
+                            .from(esv)
+                            .innerJoin(members).on(memberAppId.eq(esv.ENTITY_ID))
+                            .where(esv.STATISTIC_ID.eq(statisticId))
+                            .and(esv.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                            .and(esv.CURRENT.eq(false))
+                            .and(historyValueCondition)
+                            .groupBy(esv.STATISTIC_ID, memberNodeId, esv.OUTCOME, valueDate))
+                    .execute();
+        }
+    }
+
+
+    /**
+     * @return distinct (node_id, app_id) pairs linking each hierarchy node to
+     *          the active applications of the node and all of its descendants
+     */
+    private static Select<Record2<Long, Long>> mkMembers(EntityKind nodeKind) {
+        Condition isActive = APPLICATION.ENTITY_LIFECYCLE_STATUS.eq(EntityLifecycleStatus.ACTIVE.name());
+
+        switch (nodeKind) {
+            case ORG_UNIT:
+                return DSL
+                        .select(ENTITY_HIERARCHY.ANCESTOR_ID.as("node_id"), APPLICATION.ID.as("app_id"))
+                        .from(APPLICATION)
+                        .innerJoin(ENTITY_HIERARCHY)
+                            .on(ENTITY_HIERARCHY.ID.eq(APPLICATION.ORGANISATIONAL_UNIT_ID)
+                                .and(ENTITY_HIERARCHY.KIND.eq(EntityKind.ORG_UNIT.name())))
+                        .where(isActive);
+            case MEASURABLE:
+                return DSL
+                        .selectDistinct(ENTITY_HIERARCHY.ANCESTOR_ID.as("node_id"), MEASURABLE_RATING.ENTITY_ID.as("app_id"))
+                        .from(MEASURABLE_RATING)
+                        .innerJoin(ENTITY_HIERARCHY)
+                            .on(ENTITY_HIERARCHY.ID.eq(MEASURABLE_RATING.MEASURABLE_ID)
+                                .and(ENTITY_HIERARCHY.KIND.eq(EntityKind.MEASURABLE.name())))
+                        .innerJoin(APPLICATION)
+                            .on(APPLICATION.ID.eq(MEASURABLE_RATING.ENTITY_ID))
+                        .where(MEASURABLE_RATING.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                        .and(isActive);
+            default:
+                throw new IllegalArgumentException("Cannot rollup statistics for node kind: " + nodeKind);
+        }
+    }
+
+
+    /**
+     * Mirrors the aggregates used by the `EntityStatisticSummaryDao`.
+     */
+    private static Field<BigDecimal> mkTotalField(RollupKind rollupKind) {
+        switch (rollupKind) {
+            case COUNT_BY_ENTITY:
+                return DSL.cast(DSL.count(), decimalTotalDataType);
+            case SUM_BY_VALUE:
+                return DSL.cast(DSL.sum(DSL.cast(esv.VALUE, decimalValueDataType)), decimalTotalDataType);
+            case AVG_BY_VALUE:
+                return DSL.cast(DSL.avg(DSL.cast(esv.VALUE, decimalValueDataType)), decimalTotalDataType);
+            default:
+                throw new UnsupportedOperationException(String.format("Rollup kind [%s] not supported.", rollupKind));
+        }
+    }
+
+
+    private static Tally<String> mkTally(String outcome, BigDecimal total) {
+        return ImmutableTally.<String>builder()
+                .id(outcome)
+                .count(total == null ? 0 : total.doubleValue())
+                .build();
+    }
+
+
+    private static TallyPack<String> mkTallyPack(long statisticId,
+                                                 List<Tally<String>> tallies,
+                                                 LocalDateTime lastUpdatedAt) {
+        return ImmutableTallyPack.<String>builder()
+                .entityReference(EntityReference.mkRef(EntityKind.ENTITY_STATISTIC, statisticId))
+                .tallies(tallies)
+                .lastUpdatedAt(lastUpdatedAt)
+                .build();
+    }
+
+}
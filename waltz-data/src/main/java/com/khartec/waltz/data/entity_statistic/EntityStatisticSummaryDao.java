@@ -165,7 +165,7 @@ public class EntityStatisticSummaryDao {
         Result<Record4<Long, String, String, Timestamp>> values = dsl
                 .select(esv.STATISTIC_ID, esv.OUTCOME, esv.VALUE, max(esv.CREATED_AT).as(maxCreatedAtField))
                 .from(esv)
-                .where(dsl.renderInlined(condition))
+                .where(condition)
                 .groupBy(esv.STATISTIC_ID, esv.OUTCOME, esv.VALUE)
                 .fetch();
 
@@ -204,8 +204,8 @@ public class EntityStatisticSummaryDao {
         Result<Record4<java.sql.Date, Long, String, String>> values = dsl
                 .select(esvCreatedAtDateOnly, esv.STATISTIC_ID, esv.OUTCOME, esv.VALUE)
                 .from(esv)
-                .where(dsl.renderInlined(condition))
-                .and(dsl.renderInlined(mkHistoryDurationCondition(duration)))
+                .where(condition)
+                .and(mkHistoryDurationCondition(duration))
                 .groupBy(castDateField, esv.STATISTIC_ID, esv.OUTCOME, esv.VALUE)
                 .orderBy(esvCreatedAtDateOnly.asc())
                 .fetch();
@@ -314,8 +314,8 @@ public class EntityStatisticSummaryDao {
         Result<Record3<Date, String, T>> values = dsl
                 .select(esvCreatedAtDateOnly, esv.OUTCOME, aggregateField)
                 .from(esv)
-                .where(dsl.renderInlined(condition))
-                .and(dsl.renderInlined(mkHistoryDurationCondition(duration)))
+                .where(condition)
+                .and(mkHistoryDurationCondition(duration))
                 .groupBy(castDateField, esv.OUTCOME)
                 .orderBy(esvCreatedAtDateOnly.asc())
                 .fetch();
@@ -27,6 +27,7 @@ import org.jooq.*;
 import org.jooq.impl.DSL;
 import org.jooq.lambda.tuple.Tuple;
 import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +37,7 @@ import java.sql.Timestamp;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.map;
@@ -303,6 +305,31 @@ public class LogicalFlowDao {
     }
 
 
+    /**
+     * Lightweight alternative to `findAllActive` which only returns the flow id,
+     * source and target (without names) of every flow which has not been removed.
+     * Intended for building in-memory representations of the flow graph.
+     */
+    public List<Tuple3<Long, EntityReference, EntityReference>> findAllActiveSourceAndTargets() {
+        return dsl
+                .select(LOGICAL_FLOW.ID,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_NOT_REMOVED)
+                .fetch(r -> Tuple.tuple(
+                        r.get(LOGICAL_FLOW.ID),
+                        EntityReference.mkRef(
+                                EntityKind.valueOf(r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND)),
+                                r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID)),
+                        EntityReference.mkRef(
+                                EntityKind.valueOf(r.get(LOGICAL_FLOW.TARGET_ENTITY_KIND)),
+                                r.get(LOGICAL_FLOW.TARGET_ENTITY_ID))));
+    }
+
+
     public List<LogicalFlow> findActiveByFlowIds(Collection<Long> dataFlowIds) {
         return findByFlowIdsWithCondition(dataFlowIds, LOGICAL_NOT_REMOVED);
     }
@@ -320,6 +347,18 @@ public class LogicalFlowDao {
     }
 
 
+    /**
+     * Lazy variant of `findBySelector`, rows are mapped as the stream is consumed.
+     * The stream holds an open cursor (and connection) and must be closed by the caller.
+     */
+    public Stream<LogicalFlow> streamBySelector(Select<Record1<Long>> flowIdSelector) {
+        return baseQuery()
+                .where(LOGICAL_FLOW.ID.in(flowIdSelector))
+                .fetchStream()
+                .map(TO_DOMAIN_MAPPER::map);
+    }
+
+
     public Integer cleanupOrphans() {
         Select<Record1<Long>> appIds = DSL
                 .select(APPLICATION.ID)
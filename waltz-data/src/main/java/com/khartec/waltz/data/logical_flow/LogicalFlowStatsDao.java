@@ -100,7 +100,7 @@ public class LogicalFlowStatsDao {
         Select<Record1<Integer>> intraAppCounter = dsl
                     .select(count())
                     .from(APPLICATION)
-                    .where(dsl.renderInlined(APPLICATION.ID.in(appIdSelector)));
+                    .where(APPLICATION.ID.in(appIdSelector));
 
         Future<Integer> inAppCount = dbExecutorPool.submit(() -> inAppCounter.fetchOne().value1());
         Future<Integer> outAppCount = dbExecutorPool.submit(() -> outAppCounter.fetchOne().value1());
@@ -150,7 +150,7 @@ public class LogicalFlowStatsDao {
                     .on(sourceAppId.eq(lf.SOURCE_ENTITY_ID))
                 .leftJoin(targetApp)
                     .on(targetAppId.eq(lf.TARGET_ENTITY_ID))
-                .where(dsl.renderInlined(condition))
+                .where(condition)
                 .groupBy(lfd.DECORATOR_ENTITY_ID, flowTypeCase)
                 .fetchGroups(
                         r -> mkRef(EntityKind.DATA_TYPE, r.getValue(lfd.DECORATOR_ENTITY_ID)),
@@ -230,7 +230,7 @@ public class LogicalFlowStatsDao {
 
         return dsl.select(DSL.countDistinct(fieldToCount))
                 .from(lf)
-                .where(dsl.renderInlined(condition));
+                .where(condition);
 
     }
 
@@ -21,6 +21,7 @@ package com.khartec.waltz.data.measurable;
 
 import com.khartec.waltz.data.IdSelectorFactory;
 import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyIndexes;
 import com.khartec.waltz.data.orgunit.OrganisationalUnitIdSelectorFactory;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.HierarchyQueryScope;
@@ -240,21 +241,26 @@ public class MeasurableIdSelectorFactory implements IdSelectorFactory {
     private Select<Record1<Long>> mkForMeasurable(IdSelectionOptions options) {
         Select<Record1<Long>> selector = null;
         final Condition isMeasurable = ENTITY_HIERARCHY.KIND.eq(EntityKind.MEASURABLE.name());
+        final long measurableId = options.entityReference().id();
         switch (options.scope()) {
             case EXACT:
-                selector = DSL.select(DSL.val(options.entityReference().id()));
+                selector = DSL.select(DSL.val(measurableId));
                 break;
             case CHILDREN:
-                selector = DSL.select(ENTITY_HIERARCHY.ID)
-                        .from(ENTITY_HIERARCHY)
-                        .where(ENTITY_HIERARCHY.ANCESTOR_ID.eq(options.entityReference().id()))
-                        .and(isMeasurable);
+                selector = EntityHierarchyIndexes
+                        .mkSelector(EntityKind.MEASURABLE, measurableId, options.scope())
+                        .orElseGet(() -> DSL.select(ENTITY_HIERARCHY.ID)
+                            .from(ENTITY_HIERARCHY)
+                            .where(ENTITY_HIERARCHY.ANCESTOR_ID.eq(measurableId))
+                            .and(isMeasurable));
                 break;
             case PARENTS:
-                selector = DSL.select(ENTITY_HIERARCHY.ANCESTOR_ID)
-                        .from(ENTITY_HIERARCHY)
-                        .where(ENTITY_HIERARCHY.ID.eq(options.entityReference().id()))
-                        .and(isMeasurable);
+                selector = EntityHierarchyIndexes
+                        .mkSelector(EntityKind.MEASURABLE, measurableId, options.scope())
+                        .orElseGet(() -> DSL.select(ENTITY_HIERARCHY.ANCESTOR_ID)
+                            .from(ENTITY_HIERARCHY)
+                            .where(ENTITY_HIERARCHY.ID.eq(measurableId))
+                            .and(isMeasurable));
                 break;
         }
 
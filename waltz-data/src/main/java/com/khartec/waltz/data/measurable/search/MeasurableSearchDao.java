@@ -18,7 +18,9 @@
 
 package com.khartec.waltz.data.measurable.search;
 
+import com.khartec.waltz.common.search.InvertedIndex;
 import com.khartec.waltz.data.FullTextSearch;
+import com.khartec.waltz.data.InMemorySearchIndex;
 import com.khartec.waltz.data.UnsupportedSearcher;
 import com.khartec.waltz.data.measurable.MeasurableDao;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
@@ -28,12 +30,15 @@ import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.SetUtilities.orderedUnion;
 import static com.khartec.waltz.common.StringUtilities.lower;
 import static com.khartec.waltz.data.JooqUtilities.*;
@@ -47,12 +52,15 @@ public class MeasurableSearchDao {
 
     private final DSLContext dsl;
     private final FullTextSearch<Measurable> searcher;
+    private final InMemorySearchIndex<Measurable> inMemoryIndex;
 
 
     @Autowired
-    public MeasurableSearchDao(DSLContext dsl) {
+    public MeasurableSearchDao(DSLContext dsl,
+                               @Value("${waltz.search.in-memory.enabled:false}") boolean inMemorySearchEnabled) {
         this.dsl = dsl;
         this.searcher = determineSearcher(dsl.dialect());
+        this.inMemoryIndex = mkInMemoryIndex(dsl, inMemorySearchEnabled);
     }
 
 
@@ -63,6 +71,10 @@ public class MeasurableSearchDao {
             return emptyList();
         }
 
+        if (inMemoryIndex.isEnabled()) {
+            return inMemoryIndex.search(options);
+        }
+
         Condition externalIdCondition = terms.stream()
                 .map(MEASURABLE.EXTERNAL_ID::containsIgnoreCase)
                 .collect(Collectors.reducing(
@@ -99,6 +111,32 @@ public class MeasurableSearchDao {
     }
 
 
+    public boolean refreshIndex() {
+        return inMemoryIndex.refresh();
+    }
+
+
+    public boolean refreshIndex(Set<Long> ids) {
+        return inMemoryIndex.refresh(ids);
+    }
+
+
+    private static InMemorySearchIndex<Measurable> mkInMemoryIndex(DSLContext dsl, boolean enabled) {
+        return new InMemorySearchIndex<>(
+                dsl,
+                enabled,
+                "measurable",
+                MEASURABLE,
+                MEASURABLE.ID,
+                MeasurableDao.TO_DOMAIN_MAPPER,
+                newArrayList(
+                        InvertedIndex.Field.of(m -> m.name(), 3),
+                        InvertedIndex.Field.of(m -> m.externalId().orElse(null), 2),
+                        InvertedIndex.Field.of(m -> m.description(), 1)),
+                (m, options) -> options.entityLifecycleStatuses().contains(m.entityLifecycleStatus()));
+    }
+
+
     private FullTextSearch<Measurable> determineSearcher(SQLDialect dialect) {
 
         if (isPostgres(dialect)) {
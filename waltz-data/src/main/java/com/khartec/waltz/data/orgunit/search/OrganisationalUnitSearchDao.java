@@ -18,7 +18,9 @@
 
 package com.khartec.waltz.data.orgunit.search;
 
+import com.khartec.waltz.common.search.InvertedIndex;
 import com.khartec.waltz.data.FullTextSearch;
+import com.khartec.waltz.data.InMemorySearchIndex;
 import com.khartec.waltz.data.UnsupportedSearcher;
 import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
@@ -28,13 +30,16 @@ import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.SetUtilities.orderedUnion;
 import static com.khartec.waltz.data.JooqUtilities.*;
 import static com.khartec.waltz.data.SearchUtilities.mkTerms;
@@ -45,12 +50,15 @@ public class OrganisationalUnitSearchDao {
 
     private final DSLContext dsl;
     private final FullTextSearch<OrganisationalUnit> searcher;
+    private final InMemorySearchIndex<OrganisationalUnit> inMemoryIndex;
 
 
     @Autowired
-    public OrganisationalUnitSearchDao(DSLContext dsl) {
+    public OrganisationalUnitSearchDao(DSLContext dsl,
+                                       @Value("${waltz.search.in-memory.enabled:false}") boolean inMemorySearchEnabled) {
         this.dsl = dsl;
         this.searcher = determineSearcher(dsl.dialect());
+        this.inMemoryIndex = mkInMemoryIndex(dsl, inMemorySearchEnabled);
     }
 
 
@@ -61,6 +69,10 @@ public class OrganisationalUnitSearchDao {
             return Collections.emptyList();
         }
 
+        if (inMemoryIndex.isEnabled()) {
+            return inMemoryIndex.search(options);
+        }
+
         Condition nameCondition = terms.stream()
                 .map(ORGANISATIONAL_UNIT.NAME::containsIgnoreCase)
                 .collect(Collectors.reducing(
@@ -80,6 +92,32 @@ public class OrganisationalUnitSearchDao {
     }
 
 
+    public boolean refreshIndex() {
+        return inMemoryIndex.refresh();
+    }
+
+
+    public boolean refreshIndex(Set<Long> ids) {
+        return inMemoryIndex.refresh(ids);
+    }
+
+
+    private static InMemorySearchIndex<OrganisationalUnit> mkInMemoryIndex(DSLContext dsl, boolean enabled) {
+        return new InMemorySearchIndex<>(
+                dsl,
+                enabled,
+                "org unit",
+                ORGANISATIONAL_UNIT,
+                ORGANISATIONAL_UNIT.ID,
+                OrganisationalUnitDao.TO_DOMAIN_MAPPER,
+                newArrayList(
+                        InvertedIndex.Field.of(ou -> ou.name(), 3),
+                        InvertedIndex.Field.of(ou -> ou.externalId().orElse(null), 2),
+                        InvertedIndex.Field.of(ou -> ou.description(), 1)),
+                (ou, options) -> true);
+    }
+
+
     private FullTextSearch<OrganisationalUnit> determineSearcher(SQLDialect dialect) {
 
         if (isPostgres(dialect)) {
@@ -41,7 +41,7 @@ public class PostgresOrganisationalUnitSearch implements FullTextSearch<Organisa
                 .field("ts_rank_cd(to_tsvector({0}), plainto_tsquery({1}))",
                         Double.class,
                         DSL.lower(ORGANISATIONAL_UNIT.DESCRIPTION),
-                        DSL.inline(options.searchQuery().toLowerCase()));
+                        DSL.val(options.searchQuery().toLowerCase()));
 
         return dsl
                 .select(ORGANISATIONAL_UNIT.fields())
@@ -18,6 +18,8 @@
 
 package com.khartec.waltz.data.person.search;
 
+import com.khartec.waltz.common.search.InvertedIndex;
+import com.khartec.waltz.data.InMemorySearchIndex;
 import com.khartec.waltz.data.person.PersonDao;
 import com.khartec.waltz.model.EntityLifecycleStatus;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
@@ -26,13 +28,16 @@ import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.SetUtilities.orderedUnion;
 import static com.khartec.waltz.data.SearchUtilities.mkTerms;
 import static com.khartec.waltz.schema.tables.Person.PERSON;
@@ -41,11 +46,14 @@ import static com.khartec.waltz.schema.tables.Person.PERSON;
 public class PersonSearchDao {
 
     private final DSLContext dsl;
+    private final InMemorySearchIndex<Person> inMemoryIndex;
 
 
     @Autowired
-    public PersonSearchDao(DSLContext dsl) {
+    public PersonSearchDao(DSLContext dsl,
+                           @Value("${waltz.search.in-memory.enabled:false}") boolean inMemorySearchEnabled) {
         this.dsl = dsl;
+        this.inMemoryIndex = mkInMemoryIndex(dsl, inMemorySearchEnabled);
     }
 
 
@@ -55,6 +63,10 @@ public class PersonSearchDao {
             return Collections.emptyList();
         }
 
+        if (inMemoryIndex.isEnabled()) {
+            return inMemoryIndex.search(options);
+        }
+
         Condition displayNameCondition = terms.stream()
                 .map(PERSON.DISPLAY_NAME::containsIgnoreCase)
                 .collect(Collectors.reducing(
@@ -67,6 +79,33 @@ public class PersonSearchDao {
         return new ArrayList<>(orderedUnion(peopleViaEmail, peopleViaName));
     }
 
+
+    public boolean refreshIndex() {
+        return inMemoryIndex.refresh();
+    }
+
+
+    public boolean refreshIndex(Set<Long> ids) {
+        return inMemoryIndex.refresh(ids);
+    }
+
+
+    private static InMemorySearchIndex<Person> mkInMemoryIndex(DSLContext dsl, boolean enabled) {
+        return new InMemorySearchIndex<>(
+                dsl,
+                enabled,
+                "person",
+                PERSON,
+                PERSON.ID,
+                PersonDao.personMapper::map,
+                newArrayList(
+                        InvertedIndex.Field.of(p -> p.displayName(), 3),
+                        InvertedIndex.Field.of(p -> p.email(), 2),
+                        InvertedIndex.Field.of(p -> p.title().orElse(null), 1)),
+                (p, options) -> ! p.isRemoved() || options.entityLifecycleStatuses().contains(EntityLifecycleStatus.REMOVED));
+    }
+
+
     private List<Person> executeWithCondition(EntitySearchOptions options, Condition condition) {
         boolean showRemoved = options
                 .entityLifecycleStatuses()
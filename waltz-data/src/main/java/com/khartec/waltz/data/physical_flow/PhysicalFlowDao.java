@@ -332,7 +332,7 @@ public class PhysicalFlowDao {
                 .on(PHYSICAL_SPECIFICATION.ID.eq(PHYSICAL_FLOW.SPECIFICATION_ID))
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID))
-                .where(dsl.renderInlined(isSender))
+                .where(isSender)
                 .and(PHYSICAL_FLOW_NOT_REMOVED);
     }
 
@@ -347,7 +347,7 @@ public class PhysicalFlowDao {
                 .from(PHYSICAL_FLOW)
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID))
-                .where(dsl.renderInlined(matchesLogicalFlow))
+                .where(matchesLogicalFlow)
                 .and(PHYSICAL_FLOW_NOT_REMOVED);
     }
 
@@ -364,7 +364,7 @@ public class PhysicalFlowDao {
                 .from(PHYSICAL_FLOW)
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID))
-                .where(dsl.renderInlined(matchesLogicalFlow));
+                .where(matchesLogicalFlow);
     }
 
 
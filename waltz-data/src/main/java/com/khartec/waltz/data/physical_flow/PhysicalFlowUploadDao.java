@@ -0,0 +1,650 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.physical_flow;
+
+import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
+import com.khartec.waltz.data.datatype_decorator.PhysicalSpecDecoratorDao;
+import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.UserTimestamp;
+import com.khartec.waltz.model.datatype.DataTypeDecorator;
+import com.khartec.waltz.model.datatype.ImmutableDataTypeDecorator;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlow;
+import com.khartec.waltz.model.physical_flow.ImmutablePhysicalFlowUploadResult;
+import com.khartec.waltz.model.physical_flow.PhysicalFlowParsed;
+import com.khartec.waltz.model.physical_flow.PhysicalFlowUploadResult;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import com.khartec.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
+import com.khartec.waltz.schema.tables.records.LogicalFlowRecord;
+import com.khartec.waltz.schema.tables.records.PhysicalFlowRecord;
+import com.khartec.waltz.schema.tables.records.PhysicalSpecDataTypeRecord;
+import com.khartec.waltz.schema.tables.records.PhysicalSpecificationRecord;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.jooq.lambda.tuple.Tuple6;
+import org.jooq.lambda.tuple.Tuple10;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.data.logical_flow.LogicalFlowDao.PHYSICAL_FLOW_NOT_REMOVED;
+import static com.khartec.waltz.model.EntityLifecycleStatus.ACTIVE;
+import static com.khartec.waltz.model.EntityLifecycleStatus.REMOVED;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
+import static com.khartec.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
+import static com.khartec.waltz.schema.tables.PhysicalFlow.PHYSICAL_FLOW;
+import static com.khartec.waltz.schema.tables.PhysicalSpecDataType.PHYSICAL_SPEC_DATA_TYPE;
+import static com.khartec.waltz.schema.tables.PhysicalSpecification.PHYSICAL_SPECIFICATION;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Set based support for the bulk physical flow upload.
+ *
+ * Rather than looking up (and creating) the logical flow, specification and
+ * physical flow for each uploaded row in turn, existing entities are resolved
+ * with a handful of chunked `in (...)` queries and matched in memory.  Missing
+ * entities are then batch inserted and their ids read back with the same
+ * keyed queries.
+ */
+@Repository
+public class PhysicalFlowUploadDao {
+
+    /** SQL Server allows at most 2100 parameters per statement */
+    private static final int MAX_IDS_PER_QUERY = 2_000;
+    private static final String PROVENANCE = "waltz";
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public PhysicalFlowUploadDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * Equivalent to calling `PhysicalFlowDao.getByParsedFlow` for each of the
+     * given flows.
+     *
+     * @param flows  fully resolved (i.e. validated) parsed flows
+     * @return map of parsed flow to the id of the matching (active) physical flow, flows without a match are omitted
+     */
+    public Map<PhysicalFlowParsed, Long> findExistingPhysicalFlowIds(Collection<PhysicalFlowParsed> flows) {
+        checkNotNull(flows, "flows cannot be null");
+
+        Set<Long> sourceIds = flows
+                .stream()
+                .map(f -> f.source().id())
+                .collect(toSet());
+
+        Map<Tuple10<EntityReference, EntityReference, EntityReference, String, String, Long, Integer, String, String, String>, Long> idsByKey = new HashMap<>();
+
+        fetchInChunks(sourceIds, ids -> dsl
+                    .select(PHYSICAL_FLOW.ID,
+                            PHYSICAL_FLOW.BASIS_OFFSET,
+                            PHYSICAL_FLOW.FREQUENCY,
+                            PHYSICAL_FLOW.TRANSPORT,
+                            PHYSICAL_FLOW.CRITICALITY,
+                            LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                            LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                            LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                            LOGICAL_FLOW.TARGET_ENTITY_ID,
+                            PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+                            PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+                            PHYSICAL_SPECIFICATION.NAME,
+                            PHYSICAL_SPECIFICATION.FORMAT,
+                            PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)
+                    .from(PHYSICAL_FLOW)
+                    .join(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID))
+                    .join(PHYSICAL_SPECIFICATION).on(PHYSICAL_SPECIFICATION.ID.eq(PHYSICAL_FLOW.SPECIFICATION_ID))
+                    .join(PHYSICAL_SPEC_DATA_TYPE).on(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.eq(PHYSICAL_SPECIFICATION.ID))
+                    .where(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(ids))
+                    .and(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name()))
+                    .and(PHYSICAL_SPECIFICATION.IS_REMOVED.isFalse())
+                    .and(PHYSICAL_FLOW_NOT_REMOVED)
+                    .fetch())
+                .forEach(r -> idsByKey.merge(
+                        tuple(mkRef(EntityKind.valueOf(r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND)), r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID)),
+                                mkRef(EntityKind.valueOf(r.get(LOGICAL_FLOW.TARGET_ENTITY_KIND)), r.get(LOGICAL_FLOW.TARGET_ENTITY_ID)),
+                                mkRef(EntityKind.valueOf(r.get(PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND)), r.get(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID)),
+                                r.get(PHYSICAL_SPECIFICATION.NAME),
+                                r.get(PHYSICAL_SPECIFICATION.FORMAT),
+                                r.get(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID),
+                                r.get(PHYSICAL_FLOW.BASIS_OFFSET),
+                                r.get(PHYSICAL_FLOW.FREQUENCY),
+                                r.get(PHYSICAL_FLOW.TRANSPORT),
+                                r.get(PHYSICAL_FLOW.CRITICALITY)),
+                        r.get(PHYSICAL_FLOW.ID),
+                        Math::min));
+
+        Map<PhysicalFlowParsed, Long> result = new HashMap<>();
+        flows.forEach(f -> {
+            Long id = idsByKey.get(tuple(
+                    toRef(f.source()),
+                    toRef(f.target()),
+                    toRef(f.owner()),
+                    f.name(),
+                    f.format().name(),
+                    f.dataType().id(),
+                    f.basisOffset(),
+                    f.frequency().name(),
+                    f.transport(),
+                    f.criticality().name()));
+            if (id != null) {
+                result.put(f, id);
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Creates the physical flows described by the given (validated) parsed
+     * flows along with any required logical flows, specifications and data
+     * type decorations.  Existing entities are reused, removed logical flows
+     * are restored.  All changes are made in a single transaction.
+     *
+     * Logical flow decorators are added with a rating of `NO_OPINION`, callers
+     * are responsible for calculating the actual ratings.
+     *
+     * @param flows  fully resolved (i.e. validated) parsed flows
+     * @param username  who is performing the upload
+     * @return ids of the physical flows (in the same order as the given flows) and details of what was created
+     */
+    public PhysicalFlowUploadResult bulkCreate(List<PhysicalFlowParsed> flows, String username) {
+        checkNotNull(flows, "flows cannot be null");
+        checkNotNull(username, "username cannot be null");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            Timestamp now = Timestamp.valueOf(nowUtc());
+            ImmutablePhysicalFlowUploadResult.Builder result = ImmutablePhysicalFlowUploadResult.builder();
+
+            Map<Tuple2<EntityReference, EntityReference>, Long> logicalFlowIds = resolveLogicalFlows(tx, flows, username, now, result);
+            Map<Tuple3<EntityReference, String, String>, Long> specIds = resolveSpecifications(tx, flows, username, now, result);
+
+            List<Long> lfIds = map(flows, f -> logicalFlowIds.get(toLogicalFlowKey(f)));
+            List<Long> specIdsInOrder = map(flows, f -> specIds.get(toSpecKey(f)));
+            result.logicalFlowIds(lfIds);
+            result.specificationIds(specIdsInOrder);
+
+            Set<Tuple2<Long, Long>> logicalFlowDataTypes = new HashSet<>();
+            Set<Tuple2<Long, Long>> specDataTypes = new HashSet<>();
+            for (int i = 0; i < flows.size(); i++) {
+                long dataTypeId = flows.get(i).dataType().id();
+                logicalFlowDataTypes.add(tuple(lfIds.get(i), dataTypeId));
+                specDataTypes.add(tuple(specIdsInOrder.get(i), dataTypeId));
+            }
+
+            Set<Tuple2<Long, Long>> addedSpecDataTypes = addSpecDataTypes(tx, specDataTypes, username, now, result);
+            logicalFlowDataTypes.addAll(findLogicalFlowDataTypesForSpecs(tx, addedSpecDataTypes));
+            addLogicalFlowDataTypes(tx, logicalFlowDataTypes, username, now, result);
+
+            Map<Tuple6<Long, Long, Integer, String, String, String>, Long> physicalFlowIds = resolvePhysicalFlows(
+                    tx,
+                    flows,
+                    lfIds,
+                    specIdsInOrder,
+                    username,
+                    now,
+                    result);
+
+            for (int i = 0; i < flows.size(); i++) {
+                result.addPhysicalFlowIds(physicalFlowIds.get(toPhysicalFlowKey(flows.get(i), lfIds.get(i), specIdsInOrder.get(i))));
+            }
+
+            return result.build();
+        });
+    }
+
+
+    // -- logical flows ---
+
+    private Map<Tuple2<EntityReference, EntityReference>, Long> resolveLogicalFlows(DSLContext tx,
+                                                                                   List<PhysicalFlowParsed> flows,
+                                                                                   String username,
+                                                                                   Timestamp now,
+                                                                                   ImmutablePhysicalFlowUploadResult.Builder result) {
+        Map<Tuple2<EntityReference, EntityReference>, PhysicalFlowParsed> wanted = indexFirst(flows, PhysicalFlowUploadDao::toLogicalFlowKey);
+
+        Map<Tuple2<EntityReference, EntityReference>, Long> active = new HashMap<>();
+        Map<Tuple2<EntityReference, EntityReference>, Long> removed = new HashMap<>();
+        fetchLogicalFlows(tx, map(wanted.keySet(), k -> k.v1.id()))
+                .stream()
+                .filter(r -> wanted.containsKey(r.v1))
+                .forEach(r -> (r.v3 ? removed : active).merge(r.v1, r.v2, Math::min));
+
+        Set<Long> toRestore = removed
+                .entrySet()
+                .stream()
+                .filter(e -> ! active.containsKey(e.getKey()))
+                .map(Map.Entry::getValue)
+                .collect(toSet());
+
+        executeInChunks(toRestore, ids -> tx
+                .update(LOGICAL_FLOW)
+                .set(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS, ACTIVE.name())
+                .set(LOGICAL_FLOW.IS_REMOVED, false)
+                .set(LOGICAL_FLOW.LAST_UPDATED_BY, username)
+                .set(LOGICAL_FLOW.LAST_UPDATED_AT, now)
+                .where(LOGICAL_FLOW.ID.in(ids))
+                .execute());
+
+        result.addAllRestoredLogicalFlowIds(toRestore);
+        removed.forEach(active::putIfAbsent);
+
+        List<PhysicalFlowParsed> missing = wanted
+                .entrySet()
+                .stream()
+                .filter(e -> ! active.containsKey(e.getKey()))
+                .map(Map.Entry::getValue)
+                .collect(toList());
+
+        if (! missing.isEmpty()) {
+            LocalDateTime created = now.toLocalDateTime();
+            List<LogicalFlowRecord> records = map(missing, f -> LogicalFlowDao.TO_RECORD_MAPPER.apply(
+                    ImmutableLogicalFlow.builder()
+                            .source(toRef(f.source()))
+                            .target(toRef(f.target()))
+                            .lastUpdatedBy(username)
+                            .lastUpdatedAt(created)
+                            .provenance(PROVENANCE)
+                            .created(UserTimestamp.mkForUser(username, created))
+                            .build(),
+                    tx));
+            tx.batchInsert(records).execute();
+
+            Set<Tuple2<EntityReference, EntityReference>> missingKeys = map(missing, PhysicalFlowUploadDao::toLogicalFlowKey)
+                    .stream()
+                    .collect(toSet());
+
+            fetchLogicalFlows(tx, map(missing, f -> f.source().id()))
+                    .stream()
+                    .filter(r -> ! r.v3 && missingKeys.contains(r.v1))
+                    .forEach(r -> {
+                        active.merge(r.v1, r.v2, Math::min);
+                        result.addCreatedLogicalFlowIds(r.v2);
+                    });
+        }
+
+        return active;
+    }
+
+
+    /**
+     * @return tuples of (source/target key, flow id, is removed)
+     */
+    private List<Tuple3<Tuple2<EntityReference, EntityReference>, Long, Boolean>> fetchLogicalFlows(DSLContext tx,
+                                                                                                     Collection<Long> sourceIds) {
+        return fetchInChunks(new HashSet<>(sourceIds), ids -> tx
+                .select(LOGICAL_FLOW.ID,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID,
+                        LOGICAL_FLOW.IS_REMOVED,
+                        LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(ids))
+                .fetch(r -> tuple(
+                        tuple(mkRef(EntityKind.valueOf(r.value2()), r.value3()),
+                                mkRef(EntityKind.valueOf(r.value4()), r.value5())),
+                        r.value1(),
+                        r.value6() || REMOVED.name().equals(r.value7()))));
+    }
+
+
+    // -- specifications ---
+
+    private Map<Tuple3<EntityReference, String, String>, Long> resolveSpecifications(DSLContext tx,
+                                                                                     List<PhysicalFlowParsed> flows,
+                                                                                     String username,
+                                                                                     Timestamp now,
+                                                                                     ImmutablePhysicalFlowUploadResult.Builder result) {
+        Map<Tuple3<EntityReference, String, String>, PhysicalFlowParsed> wanted = indexFirst(flows, PhysicalFlowUploadDao::toSpecKey);
+
+        Map<Tuple3<EntityReference, String, String>, Long> existing = new HashMap<>();
+        fetchSpecifications(tx, map(wanted.keySet(), k -> k.v1.id()))
+                .stream()
+                .filter(r -> wanted.containsKey(r.v1))
+                .forEach(r -> existing.merge(r.v1, r.v2, Math::min));
+
+        List<PhysicalFlowParsed> missing = wanted
+                .entrySet()
+                .stream()
+                .filter(e -> ! existing.containsKey(e.getKey()))
+                .map(Map.Entry::getValue)
+                .collect(toList());
+
+        if (! missing.isEmpty()) {
+            List<PhysicalSpecificationRecord> records = map(missing, f -> {
+                PhysicalSpecificationRecord record = tx.newRecord(PHYSICAL_SPECIFICATION);
+                record.setOwningEntityKind(f.owner().kind().name());
+                record.setOwningEntityId(f.owner().id());
+                record.setName(f.name());
+                record.setExternalId(Optional.ofNullable(f.specExternalId()).orElse(""));
+                record.setDescription(Optional.ofNullable(f.specDescription()).orElse(""));
+                record.setFormat(f.format().name());
+                record.setLastUpdatedAt(now);
+                record.setLastUpdatedBy(username);
+                record.setIsRemoved(false);
+                record.setProvenance(PROVENANCE);
+                record.setCreatedAt(now);
+                record.setCreatedBy(username);
+                return record;
+            });
+            tx.batchInsert(records).execute();
+
+            Set<Tuple3<EntityReference, String, String>> missingKeys = map(missing, PhysicalFlowUploadDao::toSpecKey)
+                    .stream()
+                    .collect(toSet());
+
+            fetchSpecifications(tx, map(missing, f -> f.owner().id()))
+                    .stream()
+                    .filter(r -> missingKeys.contains(r.v1))
+                    .forEach(r -> {
+                        existing.merge(r.v1, r.v2, Math::min);
+                        result.addCreatedSpecificationIds(r.v2);
+                    });
+        }
+
+        return existing;
+    }
+
+
+    /**
+     * @return tuples of (owner/name/format key, specification id) for non-removed specifications
+     */
+    private List<Tuple2<Tuple3<EntityReference, String, String>, Long>> fetchSpecifications(DSLContext tx,
+                                                                                            Collection<Long> ownerIds) {
+        return fetchInChunks(new HashSet<>(ownerIds), ids -> tx
+                .select(PHYSICAL_SPECIFICATION.ID,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+                        PHYSICAL_SPECIFICATION.NAME,
+                        PHYSICAL_SPECIFICATION.FORMAT)
+                .from(PHYSICAL_SPECIFICATION)
+                .where(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID.in(ids))
+                .and(PHYSICAL_SPECIFICATION.IS_REMOVED.isFalse())
+                .fetch(r -> tuple(
+                        tuple(mkRef(EntityKind.valueOf(r.value2()), r.value3()), r.value4(), r.value5()),
+                        r.value1())));
+    }
+
+
+    // -- data types ---
+
+    /**
+     * @return the (specification id, data type id) pairs which were added
+     */
+    private Set<Tuple2<Long, Long>> addSpecDataTypes(DSLContext tx,
+                                                     Set<Tuple2<Long, Long>> wanted,
+                                                     String username,
+                                                     Timestamp now,
+                                                     ImmutablePhysicalFlowUploadResult.Builder result) {
+        Set<Tuple2<Long, Long>> missing = new HashSet<>(wanted);
+        fetchInChunks(map(wanted, t -> t.v1), ids -> tx
+                    .select(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID, PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)
+                    .from(PHYSICAL_SPEC_DATA_TYPE)
+                    .where(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.in(ids))
+                    .fetch(r -> tuple(r.value1(), r.value2())))
+                .forEach(missing::remove);
+
+        List<DataTypeDecorator> decorators = map(
+                missing,
+                t -> mkDecorator(mkRef(EntityKind.PHYSICAL_SPECIFICATION, t.v1), t.v2, Optional.empty(), username, now));
+
+        List<PhysicalSpecDataTypeRecord> records = map(decorators, PhysicalSpecDecoratorDao.TO_RECORD_MAPPER);
+        if (! records.isEmpty()) {
+            tx.batchInsert(records).execute();
+        }
+
+        result.addAllAddedDecorators(decorators);
+        return missing;
+    }
+
+
+    /**
+     * Data types added to a specification are also added to the logical flows
+     * of the physical flows which share that specification.
+     *
+     * @return (logical flow id, data type id) pairs
+     */
+    private Set<Tuple2<Long, Long>> findLogicalFlowDataTypesForSpecs(DSLContext tx,
+                                                                     Set<Tuple2<Long, Long>> specDataTypes) {
+        Map<Long, Set<Long>> dataTypeIdsBySpecId = new HashMap<>();
+        specDataTypes.forEach(t -> dataTypeIdsBySpecId
+                .computeIfAbsent(t.v1, k -> new HashSet<>())
+                .add(t.v2));
+
+        Set<Tuple2<Long, Long>> result = new HashSet<>();
+        fetchInChunks(dataTypeIdsBySpecId.keySet(), ids -> tx
+                    .selectDistinct(PHYSICAL_FLOW.SPECIFICATION_ID, PHYSICAL_FLOW.LOGICAL_FLOW_ID)
+                    .from(PHYSICAL_FLOW)
+                    .where(PHYSICAL_FLOW.SPECIFICATION_ID.in(ids))
+                    .fetch(r -> tuple(r.value1(), r.value2())))
+                .forEach(t -> dataTypeIdsBySpecId
+                        .get(t.v1)
+                        .forEach(dtId -> result.add(tuple(t.v2, dtId))));
+        return result;
+    }
+
+
+    private void addLogicalFlowDataTypes(DSLContext tx,
+                                         Set<Tuple2<Long, Long>> wanted,
+                                         String username,
+                                         Timestamp now,
+                                         ImmutablePhysicalFlowUploadResult.Builder result) {
+        Set<Tuple2<Long, Long>> missing = new HashSet<>(wanted);
+        fetchInChunks(map(wanted, t -> t.v1), ids -> tx
+                    .select(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
+                    .from(LOGICAL_FLOW_DECORATOR)
+                    .where(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.in(ids))
+                    .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
+                    .fetch(r -> tuple(r.value1(), r.value2())))
+                .forEach(missing::remove);
+
+        List<DataTypeDecorator> decorators = map(
+                missing,
+                t -> mkDecorator(mkRef(EntityKind.LOGICAL_DATA_FLOW, t.v1), t.v2, Optional.of(AuthoritativenessRating.NO_OPINION), username, now));
+
+        List<LogicalFlowDecoratorRecord> records = map(decorators, LogicalFlowDecoratorDao.TO_RECORD);
+        if (! records.isEmpty()) {
+            tx.batchInsert(records).execute();
+        }
+
+        result.addAllAddedDecorators(decorators);
+    }
+
+
+    private static DataTypeDecorator mkDecorator(EntityReference ref,
+                                                 long dataTypeId,
+                                                 Optional<AuthoritativenessRating> rating,
+                                                 String username,
+                                                 Timestamp now) {
+        return ImmutableDataTypeDecorator.builder()
+                .entityReference(ref)
+                .decoratorEntity(mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .rating(rating)
+                .provenance(PROVENANCE)
+                .lastUpdatedAt(now.toLocalDateTime())
+                .lastUpdatedBy(username)
+                .build();
+    }
+
+
+    // -- physical flows ---
+
+    private Map<Tuple6<Long, Long, Integer, String, String, String>, Long> resolvePhysicalFlows(DSLContext tx,
+                                                                                              List<PhysicalFlowParsed> flows,
+                                                                                              List<Long> lfIds,
+                                                                                              List<Long> specIds,
+                                                                                              String username,
+                                                                                              Timestamp now,
+                                                                                              ImmutablePhysicalFlowUploadResult.Builder result) {
+        Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlowParsed> wanted = new LinkedHashMap<>();
+        for (int i = 0; i < flows.size(); i++) {
+            wanted.putIfAbsent(toPhysicalFlowKey(flows.get(i), lfIds.get(i), specIds.get(i)), flows.get(i));
+        }
+
+        // as per `PhysicalFlowDao.matchPhysicalFlow`, removed flows are also matched
+        Map<Tuple6<Long, Long, Integer, String, String, String>, Long> existing = new HashMap<>();
+        fetchPhysicalFlows(tx, lfIds)
+                .stream()
+                .filter(r -> wanted.containsKey(r.v1))
+                .forEach(r -> existing.merge(r.v1, r.v2, Math::min));
+
+        List<Tuple6<Long, Long, Integer, String, String, String>> missing = wanted
+                .keySet()
+                .stream()
+                .filter(k -> ! existing.containsKey(k))
+                .collect(toList());
+
+        if (! missing.isEmpty()) {
+            List<PhysicalFlowRecord> records = map(missing, k -> {
+                PhysicalFlowParsed f = wanted.get(k);
+                PhysicalFlowRecord record = tx.newRecord(PHYSICAL_FLOW);
+                record.setLogicalFlowId(k.v1);
+                record.setSpecificationId(k.v2);
+                record.setBasisOffset(f.basisOffset());
+                record.setFrequency(f.frequency().name());
+                record.setTransport(f.transport());
+                record.setCriticality(f.criticality().name());
+                record.setDescription(f.description());
+                record.setLastUpdatedBy(username);
+                record.setLastUpdatedAt(now);
+                record.setIsRemoved(false);
+                record.setProvenance(PROVENANCE);
+                record.setExternalId(f.externalId());
+                record.setCreatedAt(now);
+                record.setCreatedBy(username);
+                return record;
+            });
+            tx.batchInsert(records).execute();
+
+            Set<Tuple6<Long, Long, Integer, String, String, String>> missingKeys = new HashSet<>(missing);
+            fetchPhysicalFlows(tx, map(missing, k -> k.v1))
+                    .stream()
+                    .filter(r -> missingKeys.contains(r.v1))
+                    .forEach(r -> {
+                        existing.merge(r.v1, r.v2, Math::min);
+                        result.addCreatedPhysicalFlowIds(r.v2);
+                    });
+        }
+
+        return existing;
+    }
+
+
+    /**
+     * @return tuples of (logical flow/spec/attributes key, physical flow id)
+     */
+    private List<Tuple2<Tuple6<Long, Long, Integer, String, String, String>, Long>> fetchPhysicalFlows(DSLContext tx,
+                                                                                                      Collection<Long> logicalFlowIds) {
+        return fetchInChunks(new HashSet<>(logicalFlowIds), ids -> tx
+                .select(PHYSICAL_FLOW.ID,
+                        PHYSICAL_FLOW.LOGICAL_FLOW_ID,
+                        PHYSICAL_FLOW.SPECIFICATION_ID,
+                        PHYSICAL_FLOW.BASIS_OFFSET,
+                        PHYSICAL_FLOW.FREQUENCY,
+                        PHYSICAL_FLOW.TRANSPORT,
+                        PHYSICAL_FLOW.CRITICALITY)
+                .from(PHYSICAL_FLOW)
+                .where(PHYSICAL_FLOW.LOGICAL_FLOW_ID.in(ids))
+                .fetch(r -> tuple(
+                        tuple(r.value2(), r.value3(), r.value4(), r.value5(), r.value6(), r.value7()),
+                        r.value1())));
+    }
+
+
+    // -- helpers ---
+
+    private static Tuple2<EntityReference, EntityReference> toLogicalFlowKey(PhysicalFlowParsed flow) {
+        return tuple(toRef(flow.source()), toRef(flow.target()));
+    }
+
+
+    private static Tuple3<EntityReference, String, String> toSpecKey(PhysicalFlowParsed flow) {
+        return tuple(toRef(flow.owner()), flow.name(), flow.format().name());
+    }
+
+
+    private static Tuple6<Long, Long, Integer, String, String, String> toPhysicalFlowKey(PhysicalFlowParsed flow,
+                                                                                        Long logicalFlowId,
+                                                                                        Long specificationId) {
+        return tuple(
+                logicalFlowId,
+                specificationId,
+                flow.basisOffset(),
+                flow.frequency().name(),
+                flow.transport(),
+                flow.criticality().name());
+    }
+
+
+    /**
+     * Parsed references may carry names, keys only use the kind and id
+     */
+    private static EntityReference toRef(EntityReference ref) {
+        return mkRef(ref.kind(), ref.id());
+    }
+
+
+    private static <K> Map<K, PhysicalFlowParsed> indexFirst(List<PhysicalFlowParsed> flows,
+                                                             Function<PhysicalFlowParsed, K> keyFn) {
+        Map<K, PhysicalFlowParsed> result = new LinkedHashMap<>();
+        flows.forEach(f -> result.putIfAbsent(keyFn.apply(f), f));
+        return result;
+    }
+
+
+    private static <A, B> List<B> map(Collection<A> as, Function<A, B> fn) {
+        return as.stream().map(fn).collect(toList());
+    }
+
+
+    private static <T> List<T> fetchInChunks(Collection<Long> ids, Function<List<Long>, List<T>> fetcher) {
+        List<Long> idList = new ArrayList<>(new HashSet<>(ids));
+        List<T> result = new ArrayList<>();
+        for (int start = 0; start < idList.size(); start += MAX_IDS_PER_QUERY) {
+            result.addAll(fetcher.apply(idList.subList(start, Math.min(idList.size(), start + MAX_IDS_PER_QUERY))));
+        }
+        return result;
+    }
+
+
+    private static void executeInChunks(Collection<Long> ids, Function<List<Long>, Integer> executor) {
+        fetchInChunks(ids, chunk -> Collections.singletonList(executor.apply(chunk)));
+    }
+
+}
@@ -62,6 +62,22 @@ public class ScheduledJobDao {
     }
 
 
+    /**
+     * Makes a finished (completed or errored) job runnable again, used by jobs
+     * which recur.  Jobs which are already runnable or running are unaffected.
+     * @return true if the job was made runnable
+     */
+    public boolean markJobAsRunnable(JobKey jobKey) {
+        return dsl.update(SETTINGS)
+                .set(SETTINGS.VALUE, JobLifecycleStatus.RUNNABLE.name())
+                .where(SETTINGS.NAME.eq(jobKey.name()))
+                .and(SETTINGS.VALUE.in(JobLifecycleStatus.COMPLETED.name(), JobLifecycleStatus.ERRORED.name()))
+                .execute()
+                ==
+                1;
+    }
+
+
     public void updateJobStatus(JobKey jobKey, JobLifecycleStatus newStatus) {
         dsl.update(SETTINGS)
                 .set(SETTINGS.VALUE, newStatus.name())
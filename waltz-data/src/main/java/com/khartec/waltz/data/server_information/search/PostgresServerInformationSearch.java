@@ -39,7 +39,7 @@ public class PostgresServerInformationSearch implements FullTextSearch<ServerInf
                         Double.class,
                         DSL.lower(SERVER_INFORMATION.OPERATING_SYSTEM),
                         DSL.lower(SERVER_INFORMATION.LOCATION),
-                        DSL.inline(options.searchQuery().toLowerCase()));
+                        DSL.val(options.searchQuery().toLowerCase()));
 
         return dsl
                 .select(SERVER_INFORMATION.fields())
@@ -18,7 +18,9 @@
 
 package com.khartec.waltz.data.server_information.search;
 
+import com.khartec.waltz.common.search.InvertedIndex;
 import com.khartec.waltz.data.FullTextSearch;
+import com.khartec.waltz.data.InMemorySearchIndex;
 import com.khartec.waltz.data.UnsupportedSearcher;
 import com.khartec.waltz.data.server_information.ServerInformationDao;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
@@ -28,14 +30,17 @@ import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.SetUtilities.orderedUnion;
 import static com.khartec.waltz.data.JooqUtilities.*;
 import static com.khartec.waltz.data.SearchUtilities.mkRelevancyComparator;
@@ -48,12 +53,15 @@ public class ServerInformationSearchDao {
 
     private final DSLContext dsl;
     private final FullTextSearch<ServerInformation> searcher;
+    private final InMemorySearchIndex<ServerInformation> inMemoryIndex;
 
 
     @Autowired
-    public ServerInformationSearchDao(DSLContext dsl) {
+    public ServerInformationSearchDao(DSLContext dsl,
+                                      @Value("${waltz.search.in-memory.enabled:false}") boolean inMemorySearchEnabled) {
         this.dsl = dsl;
         this.searcher = determineSearcher(dsl.dialect());
+        this.inMemoryIndex = mkInMemoryIndex(dsl, inMemorySearchEnabled);
     }
 
 
@@ -65,6 +73,10 @@ public class ServerInformationSearchDao {
             return Collections.emptyList();
         }
 
+        if (inMemoryIndex.isEnabled()) {
+            return inMemoryIndex.search(options);
+        }
+
         Condition externalIdCondition = terms.stream()
                 .map(SERVER_INFORMATION.EXTERNAL_ID::startsWithIgnoreCase)
                 .collect(Collectors.reducing(
@@ -100,6 +112,33 @@ public class ServerInformationSearchDao {
     }
 
 
+    public boolean refreshIndex() {
+        return inMemoryIndex.refresh();
+    }
+
+
+    public boolean refreshIndex(Set<Long> ids) {
+        return inMemoryIndex.refresh(ids);
+    }
+
+
+    private static InMemorySearchIndex<ServerInformation> mkInMemoryIndex(DSLContext dsl, boolean enabled) {
+        return new InMemorySearchIndex<>(
+                dsl,
+                enabled,
+                "server",
+                SERVER_INFORMATION,
+                SERVER_INFORMATION.ID,
+                ServerInformationDao.TO_DOMAIN_MAPPER,
+                newArrayList(
+                        InvertedIndex.Field.of(s -> s.hostname(), 3),
+                        InvertedIndex.Field.of(s -> s.externalId().orElse(null), 2),
+                        InvertedIndex.Field.of(s -> s.operatingSystem(), 1),
+                        InvertedIndex.Field.of(s -> s.location(), 1)),
+                (s, options) -> true);
+    }
+
+
     private FullTextSearch<ServerInformation> determineSearcher(SQLDialect dialect) {
 
         if (isPostgres(dialect)) {
@@ -19,6 +19,8 @@
 package com.khartec.waltz.data.survey;
 
 import com.khartec.waltz.common.CollectionUtilities;
+import com.khartec.waltz.common.ListUtilities;
+import com.khartec.waltz.common.SetUtilities;
 import com.khartec.waltz.data.InlineSelectFieldFactory;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
@@ -27,22 +29,27 @@ import com.khartec.waltz.schema.tables.records.SurveyInstanceRecipientRecord;
 import com.khartec.waltz.schema.tables.records.SurveyInstanceRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
 import static com.khartec.waltz.common.DateTimeUtilities.toSqlDate;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.data.JooqUtilities.insertReturningIds;
 import static com.khartec.waltz.schema.Tables.*;
 import static java.util.Optional.ofNullable;
 
@@ -134,20 +141,62 @@ public class SurveyInstanceDao {
     public long create(SurveyInstanceCreateCommand command) {
         checkNotNull(command, "command cannot be null");
 
-        SurveyInstanceRecord record = dsl.newRecord(SURVEY_INSTANCE);
-        record.setSurveyRunId(command.surveyRunId());
-        record.setEntityKind(command.entityReference().kind().name());
-        record.setEntityId(command.entityReference().id());
-        record.setStatus(command.status().name());
-        record.setDueDate(command.dueDate().map(Date::valueOf).orElse(null));
-        record.setOwnerId(command.ownerId());
-        record.setOwningRole(command.owningRole());
+        SurveyInstanceRecord record = mkRecord(command);
+        record.attach(dsl.configuration());
 
         record.store();
         return record.getId();
     }
 
 
+    /**
+     * Creates instances, and their recipients, for a single survey run in one
+     * transaction.  The instances are bulk inserted returning their generated
+     * ids (see `JooqUtilities.insertReturningIds`) and the recipients are then
+     * batch inserted.
+     *
+     * @param instancesWithRecipients  instance create commands paired with the person ids of their recipients
+     * @return number of recipients created
+     */
+    public int createWithRecipients(List<Tuple2<SurveyInstanceCreateCommand, Collection<Long>>> instancesWithRecipients) {
+        checkNotNull(instancesWithRecipients, "instancesWithRecipients cannot be null");
+
+        if (instancesWithRecipients.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> runIds = SetUtilities.map(instancesWithRecipients, t -> t.v1.surveyRunId());
+        checkTrue(runIds.size() == 1, "All instances must belong to the same survey run");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            List<Long> instanceIds = insertReturningIds(
+                    tx,
+                    SURVEY_INSTANCE,
+                    SURVEY_INSTANCE.ID,
+                    ListUtilities.map(instancesWithRecipients, t -> mkRecord(t.v1)),
+                    SURVEY_INSTANCE.ENTITY_KIND,
+                    SURVEY_INSTANCE.ENTITY_ID);
+
+            List<SurveyInstanceRecipientRecord> recipientRecords = new ArrayList<>();
+
+            for (int i = 0; i < instancesWithRecipients.size(); i++) {
+                Long instanceId = instanceIds.get(i);
+                instancesWithRecipients
+                        .get(i).v2
+                        .forEach(personId -> recipientRecords.add(mkRecipientRecord(instanceId, personId)));
+            }
+
+            if (! recipientRecords.isEmpty()) {
+                tx.batchInsert(recipientRecords).execute();
+            }
+
+            return recipientRecords.size();
+        });
+    }
+
+
     public long createPreviousVersion(SurveyInstance currentInstance) {
         checkNotNull(currentInstance, "currentInstance cannot be null");
 
@@ -342,13 +391,29 @@ public class SurveyInstanceDao {
     public int[] createInstanceRecipients(Long instanceId, Collection<Long> personIds) {
         Collection<SurveyInstanceRecipientRecord> records = CollectionUtilities.map(
                 personIds,
-                p -> {
-                    SurveyInstanceRecipientRecord record = new SurveyInstanceRecipientRecord();
-                    record.setSurveyInstanceId(instanceId);
-                    record.setPersonId(p);
-                    return record;
-                });
+                p -> mkRecipientRecord(instanceId, p));
 
         return dsl.batchInsert(records).execute();
     }
+
+
+    private static SurveyInstanceRecord mkRecord(SurveyInstanceCreateCommand command) {
+        SurveyInstanceRecord record = new SurveyInstanceRecord();
+        record.setSurveyRunId(command.surveyRunId());
+        record.setEntityKind(command.entityReference().kind().name());
+        record.setEntityId(command.entityReference().id());
+        record.setStatus(command.status().name());
+        record.setDueDate(command.dueDate().map(Date::valueOf).orElse(null));
+        record.setOwnerId(command.ownerId());
+        record.setOwningRole(command.owningRole());
+        return record;
+    }
+
+
+    private static SurveyInstanceRecipientRecord mkRecipientRecord(Long instanceId, Long personId) {
+        SurveyInstanceRecipientRecord record = new SurveyInstanceRecipientRecord();
+        record.setSurveyInstanceId(instanceId);
+        record.setPersonId(personId);
+        return record;
+    }
 }
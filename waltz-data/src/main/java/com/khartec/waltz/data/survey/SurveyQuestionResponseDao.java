@@ -32,6 +32,7 @@ import com.khartec.waltz.schema.tables.records.SurveyQuestionListResponseRecord;
 import com.khartec.waltz.schema.tables.records.SurveyQuestionResponseRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -58,6 +59,7 @@ import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static org.jooq.impl.DSL.*;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class SurveyQuestionResponseDao {
@@ -107,26 +109,51 @@ public class SurveyQuestionResponseDao {
 
 
     public List<SurveyInstanceQuestionResponse> findForInstance(long surveyInstanceId) {
+        return findForInstances(
+                SURVEY_QUESTION_RESPONSE.SURVEY_INSTANCE_ID.eq(surveyInstanceId),
+                SURVEY_QUESTION_LIST_RESPONSE.SURVEY_INSTANCE_ID.eq(surveyInstanceId));
+    }
+
+
+    /**
+     * Responses for all (current, not previous version) instances in a survey run
+     */
+    public List<SurveyInstanceQuestionResponse> findForSurveyRun(long surveyRunId) {
+        Select<Record1<Long>> instanceIds = DSL
+                .select(SURVEY_INSTANCE.ID)
+                .from(SURVEY_INSTANCE)
+                .where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId))
+                .and(SURVEY_INSTANCE.ORIGINAL_INSTANCE_ID.isNull());
+
+        return findForInstances(
+                SURVEY_QUESTION_RESPONSE.SURVEY_INSTANCE_ID.in(instanceIds),
+                SURVEY_QUESTION_LIST_RESPONSE.SURVEY_INSTANCE_ID.in(instanceIds));
+    }
+
+
+    private List<SurveyInstanceQuestionResponse> findForInstances(Condition responseCondition,
+                                                                  Condition listResponseCondition) {
         // fetch list responses
-        Map<Long, List<SurveyQuestionListResponseRecord>> questionIdToListResponses =
+        Map<Tuple2<Long, Long>, List<SurveyQuestionListResponseRecord>> instanceAndQuestionIdToListResponses =
                 dsl.selectFrom(SURVEY_QUESTION_LIST_RESPONSE)
-                .where(SURVEY_QUESTION_LIST_RESPONSE.SURVEY_INSTANCE_ID.eq(surveyInstanceId))
+                .where(listResponseCondition)
                 .fetch()
                 .stream()
-                .collect(groupingBy(SurveyQuestionListResponseRecord::getQuestionId, toList()));
+                .collect(groupingBy(r -> tuple(r.getSurveyInstanceId(), r.getQuestionId()), toList()));
 
         // fetch responses
         List<SurveyInstanceQuestionResponse> responses = dsl.select(SURVEY_QUESTION_RESPONSE.fields())
                 .select(entityNameField)
                 .from(SURVEY_QUESTION_RESPONSE)
-                .where(SURVEY_QUESTION_RESPONSE.SURVEY_INSTANCE_ID.eq(surveyInstanceId))
+                .where(responseCondition)
                 .fetch(TO_DOMAIN_MAPPER);
 
         // plug list responses into responses
         return responses.stream()
                 .map(r -> {
-                    if (questionIdToListResponses.containsKey(r.questionResponse().questionId())) {
-                        List<String> listResponse = questionIdToListResponses.get(r.questionResponse().questionId())
+                    Tuple2<Long, Long> key = tuple(r.surveyInstanceId(), r.questionResponse().questionId());
+                    if (instanceAndQuestionIdToListResponses.containsKey(key)) {
+                        List<String> listResponse = instanceAndQuestionIdToListResponses.get(key)
                                 .stream()
                                 .sorted(comparingInt(SurveyQuestionListResponseRecord::getPosition))
                                 .map(SurveyQuestionListResponseRecord::getResponse)
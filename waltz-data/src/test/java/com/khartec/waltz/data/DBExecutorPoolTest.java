@@ -0,0 +1,89 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.data;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class DBExecutorPoolTest {
+
+    @Test
+    public void completesWithResultWithinTimeout() throws Exception {
+        DBExecutorPool pool = new DBExecutorPool(1, 2);
+        assertEquals("done", pool.submit(() -> "done", Duration.ofSeconds(5)).get());
+    }
+
+
+    @Test
+    public void failsWithTimeoutIfDeadlinePasses() throws Exception {
+        DBExecutorPool pool = new DBExecutorPool(1, 2);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        CompletableFuture<String> future = pool.submit(
+                () -> {
+                    latch.await();
+                    return "late";
+                },
+                Duration.ofMillis(50));
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected a timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        } finally {
+            latch.countDown();
+        }
+    }
+
+
+    @Test
+    public void queuedTasksAreNotRunOnceTimedOut() throws Exception {
+        DBExecutorPool pool = new DBExecutorPool(1, 2); // single worker thread
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean queuedTaskRan = new AtomicBoolean(false);
+
+        pool.submit(() -> latch.await(5, TimeUnit.SECONDS), Duration.ofSeconds(5));
+        CompletableFuture<Boolean> queued = pool.submit(() -> queuedTaskRan.getAndSet(true), Duration.ofMillis(50));
+
+        try {
+            queued.get(5, TimeUnit.SECONDS);
+            fail("expected a timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        latch.countDown();
+        pool.submit(() -> true).get(5, TimeUnit.SECONDS); // drain the worker
+        assertFalse(queuedTaskRan.get());
+    }
+
+
+    @Test
+    public void tasksWithATimeoutCarryAQueryDeadline() throws Exception {
+        DBExecutorPool pool = new DBExecutorPool(1, 2);
+        assertEquals(Integer.valueOf(3), pool.submit(QueryDeadlineListener::remainingSeconds, Duration.ofMillis(2500)).get());
+        assertEquals(Integer.valueOf(0), pool.submit(QueryDeadlineListener::remainingSeconds).get());
+    }
+
+}
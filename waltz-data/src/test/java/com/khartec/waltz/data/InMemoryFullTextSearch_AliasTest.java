@@ -0,0 +1,166 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.common.search.InvertedIndex;
+import com.khartec.waltz.data.data_type.DataTypeDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.datatype.DataType;
+import com.khartec.waltz.schema.tables.records.DataTypeRecord;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.model.entity_search.EntitySearchOptions.mkForEntity;
+import static com.khartec.waltz.schema.Tables.DATA_TYPE;
+import static com.khartec.waltz.schema.Tables.ENTITY_ALIAS;
+import static org.junit.Assert.assertEquals;
+
+public class InMemoryFullTextSearch_AliasTest {
+
+    private final Map<Long, String> names = new HashMap<>();
+    private final List<Map.Entry<Long, String>> aliases = new ArrayList<>();
+    private final DSLContext dsl = mkMockDsl();
+
+
+    @Test
+    public void aliasesAreSearchable() {
+        names.put(1L, "Trade");
+        names.put(2L, "Settlement");
+        aliases.add(new AbstractMap.SimpleEntry<>(2L, "Clearing"));
+        aliases.add(new AbstractMap.SimpleEntry<>(2L, "Payments"));
+
+        InMemoryFullTextSearch<DataType> searcher = mkSearcher(Optional.of(EntityKind.DATA_TYPE));
+
+        assertEquals(newArrayList(2L), search(searcher, "clearing"));
+        assertEquals(newArrayList(2L), search(searcher, "payments"));
+        assertEquals(newArrayList(1L), search(searcher, "trade"));
+    }
+
+
+    @Test
+    public void aliasesAreNotIndexedWithoutAnAliasKind() {
+        names.put(1L, "Settlement");
+        aliases.add(new AbstractMap.SimpleEntry<>(1L, "Clearing"));
+
+        InMemoryFullTextSearch<DataType> searcher = mkSearcher(Optional.empty());
+
+        assertEquals(Collections.emptyList(), search(searcher, "clearing"));
+    }
+
+
+    @Test
+    public void partialRefreshReloadsAliasesOfJustTheGivenEntities() {
+        names.put(1L, "Trade");
+        names.put(2L, "Settlement");
+        aliases.add(new AbstractMap.SimpleEntry<>(1L, "Booking"));
+        aliases.add(new AbstractMap.SimpleEntry<>(2L, "Clearing"));
+
+        InMemoryFullTextSearch<DataType> searcher = mkSearcher(Optional.of(EntityKind.DATA_TYPE));
+        searcher.refresh(dsl);
+
+        aliases.removeIf(e -> e.getKey() == 2L);
+        aliases.add(new AbstractMap.SimpleEntry<>(2L, "Netting"));
+        searcher.refresh(dsl, asSet(2L));
+
+        assertEquals(newArrayList(2L), search(searcher, "netting"));
+        assertEquals(Collections.emptyList(), search(searcher, "clearing"));
+        assertEquals("aliases of other entities are retained", newArrayList(1L), search(searcher, "booking"));
+    }
+
+
+    // --- helpers
+
+    private InMemoryFullTextSearch<DataType> mkSearcher(Optional<EntityKind> aliasKind) {
+        return new InMemoryFullTextSearch<>(
+                "test",
+                DATA_TYPE,
+                DATA_TYPE.ID,
+                DataTypeDao.TO_DOMAIN,
+                newArrayList(InvertedIndex.Field.of(dt -> dt.name(), 3)),
+                (dt, options) -> true,
+                aliasKind);
+    }
+
+
+    private List<Long> search(InMemoryFullTextSearch<DataType> searcher, String query) {
+        return searcher
+                .searchFullText(dsl, mkForEntity(EntityKind.DATA_TYPE, query))
+                .stream()
+                .map(dt -> dt.id().get())
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Answers queries against `entity_alias` from `aliases` and all other
+     * queries with the data types in `names`.  Ids bound to a query restrict
+     * the rows returned to those ids.
+     */
+    private DSLContext mkMockDsl() {
+        return DSL.using(
+                new MockConnection(ctx -> {
+                    DSLContext create = DSL.using(SQLDialect.H2);
+                    Set<Long> boundIds = Arrays
+                            .stream(ctx.bindings())
+                            .filter(b -> b instanceof Long)
+                            .map(b -> (Long) b)
+                            .collect(Collectors.toSet());
+
+                    if (ctx.sql().toLowerCase().contains("entity_alias")) {
+                        Result<Record2<Long, String>> result = create.newResult(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS);
+                        aliases.stream()
+                                .filter(e -> boundIds.isEmpty() || boundIds.contains(e.getKey()))
+                                .forEach(e -> result.add(create
+                                        .newRecord(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS)
+                                        .values(e.getKey(), e.getValue())));
+                        return new MockResult[] { new MockResult(result.size(), result) };
+                    }
+
+                    Result<DataTypeRecord> result = create.newResult(DATA_TYPE);
+                    names.entrySet()
+                            .stream()
+                            .filter(e -> boundIds.isEmpty() || boundIds.contains(e.getKey()))
+                            .forEach(e -> {
+                                DataTypeRecord record = create.newRecord(DATA_TYPE);
+                                record.setId(e.getKey());
+                                record.setCode(e.getValue().toUpperCase());
+                                record.setName(e.getValue());
+                                record.setDescription("");
+                                record.setConcrete(true);
+                                record.setDeprecated(false);
+                                record.setUnknown(false);
+                                result.add(record);
+                            });
+                    return new MockResult[] { new MockResult(result.size(), result) };
+                }),
+                SQLDialect.H2);
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.schema.tables.records.SurveyInstanceRecord;
+import org.jooq.DSLContext;
+import org.jooq.Record3;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.khartec.waltz.data.JooqUtilities.insertReturningIds;
+import static com.khartec.waltz.schema.Tables.SURVEY_INSTANCE;
+import static org.junit.Assert.assertEquals;
+
+public class JooqUtilities_InsertReturningIdsTest {
+
+    @Test
+    public void multiRowInsertsMapIdsBackToRecordsRegardlessOfReturnedOrder() {
+        AtomicInteger statementCount = new AtomicInteger();
+        DSLContext dsl = mkMockDsl(SQLDialect.POSTGRES, statementCount);
+
+        List<SurveyInstanceRecord> records = mkRecords(250);
+        List<Long> ids = insertReturningIds(
+                dsl,
+                SURVEY_INSTANCE,
+                SURVEY_INSTANCE.ID,
+                records,
+                SURVEY_INSTANCE.ENTITY_KIND,
+                SURVEY_INSTANCE.ENTITY_ID);
+
+        assertEquals("expected one statement per chunk of 100", 3, statementCount.get());
+        assertEquals(expectedIds(records), ids);
+    }
+
+
+    @Test
+    public void otherDialectsInsertEachRecordIndividually() {
+        AtomicInteger statementCount = new AtomicInteger();
+        DSLContext dsl = mkMockDsl(SQLDialect.H2, statementCount);
+
+        List<SurveyInstanceRecord> records = mkRecords(5);
+        List<Long> ids = insertReturningIds(
+                dsl,
+                SURVEY_INSTANCE,
+                SURVEY_INSTANCE.ID,
+                records,
+                SURVEY_INSTANCE.ENTITY_KIND,
+                SURVEY_INSTANCE.ENTITY_ID);
+
+        assertEquals(5, statementCount.get());
+        assertEquals(expectedIds(records), ids);
+    }
+
+
+    // --- helpers
+
+    /**
+     * The mock 'generates' ids of 1000 + entity id and returns the inserted
+     * rows in reverse order.
+     */
+    private static DSLContext mkMockDsl(SQLDialect dialect, AtomicInteger statementCount) {
+        return DSL.using(
+                new MockConnection(ctx -> {
+                    statementCount.incrementAndGet();
+                    DSLContext create = DSL.using(dialect);
+                    Result<Record3<Long, String, Long>> result = create.newResult(
+                            SURVEY_INSTANCE.ID,
+                            SURVEY_INSTANCE.ENTITY_KIND,
+                            SURVEY_INSTANCE.ENTITY_ID);
+
+                    Object[] bindings = ctx.bindings();
+                    List<Record3<Long, String, Long>> rows = new ArrayList<>();
+                    for (int i = 0; i < bindings.length - 1; i++) {
+                        if ("APPLICATION".equals(bindings[i])) {
+                            long entityId = ((Number) bindings[i + 1]).longValue();
+                            Record3<Long, String, Long> row = create.newRecord(
+                                    SURVEY_INSTANCE.ID,
+                                    SURVEY_INSTANCE.ENTITY_KIND,
+                                    SURVEY_INSTANCE.ENTITY_ID);
+                            row.values(1000 + entityId, "APPLICATION", entityId);
+                            rows.add(row);
+                        }
+                    }
+                    Collections.reverse(rows);
+                    result.addAll(rows);
+                    return new MockResult[] { new MockResult(rows.size(), result) };
+                }),
+                dialect);
+    }
+
+
+    private static List<SurveyInstanceRecord> mkRecords(int count) {
+        return LongStream
+                .rangeClosed(1, count)
+                .mapToObj(id -> {
+                    SurveyInstanceRecord record = new SurveyInstanceRecord();
+                    record.setSurveyRunId(1L);
+                    record.setEntityKind("APPLICATION");
+                    record.setEntityId(id);
+                    record.setStatus("NOT_STARTED");
+                    return record;
+                })
+                .collect(Collectors.toList());
+    }
+
+
+    private static List<Long> expectedIds(List<SurveyInstanceRecord> records) {
+        return records
+                .stream()
+                .map(r -> 1000 + r.getEntityId())
+                .collect(Collectors.toList());
+    }
+
+}
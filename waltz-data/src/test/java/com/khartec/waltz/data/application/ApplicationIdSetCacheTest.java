@@ -0,0 +1,146 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.application;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.HierarchyQueryScope;
+import com.khartec.waltz.model.IdSelectionOptions;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.khartec.waltz.data.entity_hierarchy.EntityHierarchyIndexes.MAX_INLINE_IDS;
+import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
+import static org.junit.Assert.*;
+
+public class ApplicationIdSetCacheTest {
+
+    private static final Select<Record1<Long>> ORIGINAL_SELECTOR = DSL.select(DSL.inline(-1L));
+
+    private final AtomicInteger queryCount = new AtomicInteger();
+    private final AtomicInteger factoryCount = new AtomicInteger();
+    private final Function<IdSelectionOptions, Select<Record1<Long>>> selectorFactory = opts -> {
+        factoryCount.incrementAndGet();
+        return ORIGINAL_SELECTOR;
+    };
+
+
+    @Test
+    public void selectionsWhichOnlyDifferByNameShareAnEntry() {
+        ApplicationIdSetCache cache = new ApplicationIdSetCache(mkDsl(3, () -> {}), 10, 60_000);
+
+        Select<Record1<Long>> first = cache.apply(mkOptions("Org A"), selectorFactory);
+        Select<Record1<Long>> second = cache.apply(mkOptions("Renamed Org A"), selectorFactory);
+
+        assertEquals(1, queryCount.get());
+        assertEquals(1, cache.hitCount());
+        assertNotSame(ORIGINAL_SELECTOR, first);
+        assertEquals(first.getSQL(), second.getSQL());
+    }
+
+
+    @Test
+    public void selectionsTooLargeToInlineUseTheOriginalSelectorWithoutRequerying() {
+        ApplicationIdSetCache cache = new ApplicationIdSetCache(mkDsl(MAX_INLINE_IDS + 1, () -> {}), 10, 60_000);
+
+        assertSame(ORIGINAL_SELECTOR, cache.apply(mkOptions("Org A"), selectorFactory));
+        assertSame(ORIGINAL_SELECTOR, cache.apply(mkOptions("Org A"), selectorFactory));
+
+        assertEquals("too large selections are remembered, not re-resolved", 1, queryCount.get());
+    }
+
+
+    @Test
+    public void selectionsResolvedDuringAnInvalidationAreNotCached() {
+        AtomicInteger invalidateOnQuery = new AtomicInteger(1);
+        ApplicationIdSetCache[] holder = new ApplicationIdSetCache[1];
+        ApplicationIdSetCache cache = new ApplicationIdSetCache(
+                mkDsl(3, () -> {
+                    // simulates a change being committed whilst the selection is resolved
+                    if (invalidateOnQuery.getAndDecrement() > 0) {
+                        holder[0].invalidate(Collections.singleton(EntityKind.ORG_UNIT));
+                    }
+                }),
+                10,
+                60_000);
+        holder[0] = cache;
+
+        cache.apply(mkOptions("Org A"), selectorFactory);
+        assertEquals(0, cache.size());
+
+        cache.apply(mkOptions("Org A"), selectorFactory);
+        cache.apply(mkOptions("Org A"), selectorFactory);
+        assertEquals(2, queryCount.get());
+        assertEquals(1, cache.size());
+    }
+
+
+    @Test
+    public void invalidationOnlyRemovesAffectedSelections() {
+        ApplicationIdSetCache cache = new ApplicationIdSetCache(mkDsl(3, () -> {}), 10, 60_000);
+
+        cache.apply(mkOptions("Org A"), selectorFactory);
+        cache.apply(mkOpts(EntityReference.mkRef(EntityKind.PERSON, 2L), HierarchyQueryScope.CHILDREN), selectorFactory);
+        assertEquals(2, cache.size());
+
+        cache.invalidate(Collections.singleton(EntityKind.INVOLVEMENT));
+        assertEquals("person selections are affected by involvement changes", 1, cache.size());
+
+        cache.invalidate(Collections.singleton(EntityKind.APPLICATION));
+        assertEquals(0, cache.size());
+    }
+
+
+    // --- helpers
+
+    private static IdSelectionOptions mkOptions(String name) {
+        return mkOpts(EntityReference.mkRef(EntityKind.ORG_UNIT, 1L, name), HierarchyQueryScope.CHILDREN);
+    }
+
+
+    /**
+     * Every query returns ids 1..idCount, running the callback first.
+     */
+    private DSLContext mkDsl(int idCount, Runnable onQuery) {
+        return DSL.using(
+                new MockConnection(ctx -> {
+                    queryCount.incrementAndGet();
+                    onQuery.run();
+                    DSLContext create = DSL.using(SQLDialect.DEFAULT);
+                    Result<Record1<Long>> result = create.newResult(DSL.field("id", Long.class));
+                    for (long id = 1; id <= idCount; id++) {
+                        result.add(create.newRecord(DSL.field("id", Long.class)).values(id));
+                    }
+                    return new MockResult[] { new MockResult(idCount, result) };
+                }),
+                SQLDialect.POSTGRES);
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_hierarchy;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import com.khartec.waltz.schema.tables.records.EntityHierarchyRecord;
+import org.jooq.DSLContext;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.schema.Tables.ENTITY_HIERARCHY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EntityHierarchyDao_SyncHierarchyTest {
+
+    @Test
+    public void versionRowIsWrittenBeforeExistingRowsAreRead() {
+        List<String> statements = new ArrayList<>();
+        MockConnection connection = new MockConnection(ctx -> {
+            String sql = ctx.sql().toLowerCase();
+            statements.add(sql);
+            if (sql.startsWith("select")) {
+                DSLContext create = DSL.using(SQLDialect.H2);
+                Result<EntityHierarchyRecord> result = create.newResult(ENTITY_HIERARCHY);
+                result.add(new EntityHierarchyRecord(EntityKind.ORG_UNIT.name(), 1L, 1L, 1));
+                result.add(new EntityHierarchyRecord(EntityKind.ORG_UNIT.name(), 2L, 3L, 1));
+                return new MockResult[] { new MockResult(result.size(), result) };
+            }
+            return new MockResult[] { new MockResult(1, null) };
+        });
+
+        EntityHierarchyDao dao = new EntityHierarchyDao(DSL.using(connection, SQLDialect.H2));
+
+        int changes = dao.syncHierarchy(
+                EntityKind.ORG_UNIT,
+                newArrayList(
+                        ImmutableEntityHierarchyItem.builder().kind(EntityKind.ORG_UNIT).id(1L).parentId(1L).level(1).build(),
+                        ImmutableEntityHierarchyItem.builder().kind(EntityKind.ORG_UNIT).id(2L).parentId(1L).level(1).build()),
+                DSL.trueCondition());
+
+        assertTrue("expected the version row to be updated first: " + statements.get(0),
+                statements.get(0).contains("client_cache_key"));
+        assertTrue("expected the existing rows to be read second: " + statements.get(1),
+                statements.get(1).startsWith("select") && statements.get(1).contains("entity_hierarchy"));
+        assertEquals("orphans, (2, 3) deleted and (2, 1) inserted", 3, changes);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_hierarchy;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import com.khartec.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import com.khartec.waltz.schema.tables.records.EntityHierarchyRecord;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EntityHierarchyDiffTest {
+
+    private static final EntityKind KIND = EntityKind.ORG_UNIT;
+
+
+    @Test
+    public void unchangedHierarchyProducesNoChanges() {
+        EntityHierarchyDiff diff = EntityHierarchyDiff.compute(
+                KIND,
+                newArrayList(item(1, 1, 1), item(2, 1, 1), item(2, 2, 2)),
+                newArrayList(row(1, 1, 1), row(2, 1, 1), row(2, 2, 2)));
+
+        assertTrue(diff.toDelete().isEmpty());
+        assertTrue(diff.toUpdate().isEmpty());
+        assertTrue(diff.toInsert().isEmpty());
+    }
+
+
+    /**
+     * Tree before: 1 -> 2 -> 3, 1 -> 4.  Node 3 is moved under 4, only the
+     * rows for node 3 change.
+     */
+    @Test
+    public void reParentingOnlyTouchesRowsOfTheMovedNode() {
+        EntityHierarchyDiff diff = EntityHierarchyDiff.compute(
+                KIND,
+                newArrayList(
+                        item(1, 1, 1),
+                        item(2, 1, 1), item(2, 2, 2),
+                        item(3, 1, 1), item(3, 4, 2), item(3, 3, 3),
+                        item(4, 1, 1), item(4, 4, 2)),
+                newArrayList(
+                        row(1, 1, 1),
+                        row(2, 1, 1), row(2, 2, 2),
+                        row(3, 1, 1), row(3, 2, 2), row(3, 3, 3),
+                        row(4, 1, 1), row(4, 4, 2)));
+
+        assertEquals(newArrayList(tuple(3L, 2L)), diff.toDelete());
+        assertTrue(diff.toUpdate().isEmpty());
+        assertEquals(asSet("3/4@2"), describe(diff.toInsert()));
+    }
+
+
+    @Test
+    public void levelChangesAreUpdatedInPlace() {
+        EntityHierarchyDiff diff = EntityHierarchyDiff.compute(
+                KIND,
+                newArrayList(item(2, 2, 1), item(3, 2, 1), item(3, 3, 2)),
+                newArrayList(row(2, 2, 2), row(3, 2, 2), row(3, 3, 3), row(2, 1, 1), row(3, 1, 1)));
+
+        assertEquals(asSet(tuple(2L, 1L), tuple(3L, 1L)), new HashSet<>(diff.toDelete()));
+        assertEquals(asSet("2/2@1", "3/2@1", "3/3@2"), describe(diff.toUpdate()));
+        assertTrue(diff.toInsert().isEmpty());
+    }
+
+
+    @Test
+    public void duplicateRowsAreDeletedAndReinsertedOnce() {
+        EntityHierarchyDiff diff = EntityHierarchyDiff.compute(
+                KIND,
+                newArrayList(item(1, 1, 1), item(2, 1, 1)),
+                newArrayList(row(1, 1, 1), row(2, 1, 1), row(2, 1, 1), row(2, 1, 3)));
+
+        assertEquals(newArrayList(tuple(2L, 1L)), diff.toDelete());
+        assertTrue(diff.toUpdate().isEmpty());
+        assertEquals(newArrayList("2/1@1"), diff.toInsert().stream().map(EntityHierarchyDiffTest::describe).collect(Collectors.toList()));
+    }
+
+
+    @Test
+    public void newNodesAreInsertedAndRemovedNodesDeleted() {
+        EntityHierarchyDiff diff = EntityHierarchyDiff.compute(
+                KIND,
+                newArrayList(item(1, 1, 1), item(5, 1, 1), item(5, 5, 2)),
+                newArrayList(row(1, 1, 1), row(6, 1, 1), row(6, 6, 2)));
+
+        assertEquals(asSet(tuple(6L, 1L), tuple(6L, 6L)), new HashSet<>(diff.toDelete()));
+        assertTrue(diff.toUpdate().isEmpty());
+        assertEquals(asSet("5/1@1", "5/5@2"), describe(diff.toInsert()));
+        assertTrue(diff.toInsert().stream().allMatch(r -> r.getKind().equals(KIND.name())));
+    }
+
+
+    @Test
+    public void emptyDesiredItemsDeleteEverything() {
+        EntityHierarchyDiff diff = EntityHierarchyDiff.compute(
+                KIND,
+                Collections.emptyList(),
+                newArrayList(row(1, 1, 1)));
+
+        assertEquals(newArrayList(tuple(1L, 1L)), diff.toDelete());
+        assertTrue(diff.toInsert().isEmpty());
+    }
+
+
+    // --- helpers
+
+    private static EntityHierarchyItem item(long id, long ancestorId, int level) {
+        return ImmutableEntityHierarchyItem.builder()
+                .kind(KIND)
+                .id(id)
+                .parentId(ancestorId)
+                .level(level)
+                .build();
+    }
+
+
+    private static EntityHierarchyRecord row(long id, long ancestorId, int level) {
+        return new EntityHierarchyRecord(KIND.name(), id, ancestorId, level);
+    }
+
+
+    private static Set<String> describe(List<EntityHierarchyRecord> records) {
+        return records
+                .stream()
+                .map(EntityHierarchyDiffTest::describe)
+                .collect(Collectors.toSet());
+    }
+
+
+    private static String describe(EntityHierarchyRecord record) {
+        return record.getId() + "/" + record.getAncestorId() + "@" + record.getLevel();
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_hierarchy;
+
+import com.khartec.waltz.common.hierarchy.FlatNode;
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
+import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
+import com.khartec.waltz.model.EntityKind;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntityHierarchyIndexesTest {
+
+    private static final EntityKind KIND = EntityKind.ENTITY_STATISTIC;
+
+    private final HierarchyIndex index = HierarchyIndex.fromForest(HierarchyUtilities.toForest(newArrayList(
+            new FlatNode<>(1L, Optional.empty(), 1L),
+            new FlatNode<>(2L, Optional.of(1L), 2L))));
+
+
+    @After
+    public void tearDown() {
+        EntityHierarchyIndexes.remove(KIND);
+        EntityHierarchyIndexes.updateCurrentVersion(KIND, Optional.empty());
+    }
+
+
+    @Test
+    public void indexIsUsedWhilstItsVersionIsCurrent() {
+        EntityHierarchyIndexes.updateCurrentVersion(KIND, Optional.of("v1"));
+        EntityHierarchyIndexes.register(KIND, index, Optional.of("v1"));
+
+        assertTrue(EntityHierarchyIndexes.isCurrent(KIND));
+        assertTrue(EntityHierarchyIndexes.find(KIND).isPresent());
+    }
+
+
+    @Test
+    public void indexIsNotUsedOnceANewerVersionIsSeen() {
+        EntityHierarchyIndexes.register(KIND, index, Optional.of("v1"));
+        EntityHierarchyIndexes.updateCurrentVersion(KIND, Optional.of("v2"));
+
+        assertFalse(EntityHierarchyIndexes.isCurrent(KIND));
+        assertFalse(EntityHierarchyIndexes.find(KIND).isPresent());
+
+        EntityHierarchyIndexes.register(KIND, index, Optional.of("v2"));
+        assertTrue(EntityHierarchyIndexes.find(KIND).isPresent());
+    }
+
+
+    @Test
+    public void firstSyncByAnotherServerInvalidatesAnIndexBuiltBeforeAnyVersionExisted() {
+        EntityHierarchyIndexes.register(KIND, index, Optional.empty());
+        EntityHierarchyIndexes.updateCurrentVersion(KIND, Optional.of("v1"));
+
+        assertFalse(EntityHierarchyIndexes.find(KIND).isPresent());
+    }
+
+
+    @Test
+    public void unversionedIndexesAreAlwaysUsed() {
+        EntityHierarchyIndexes.register(KIND, index);
+        EntityHierarchyIndexes.updateCurrentVersion(KIND, Optional.of("v2"));
+
+        assertTrue(EntityHierarchyIndexes.find(KIND).isPresent());
+    }
+
+}
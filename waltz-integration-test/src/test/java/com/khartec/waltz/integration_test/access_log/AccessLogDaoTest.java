@@ -0,0 +1,162 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.integration_test.access_log;
+
+import com.khartec.waltz.common.DateTimeUtilities;
+import com.khartec.waltz.data.access_log.AccessLogDao;
+import com.khartec.waltz.integration_test.BaseIntegrationTest;
+import com.khartec.waltz.model.accesslog.AccessLog;
+import com.khartec.waltz.model.accesslog.DailyAccessCount;
+import com.khartec.waltz.model.accesslog.ImmutableAccessLog;
+import com.khartec.waltz.service.BatchingWriter;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.khartec.waltz.common.DateTimeUtilities.toSqlDate;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.schema.tables.AccessLogDaily.ACCESS_LOG_DAILY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AccessLogDaoTest extends BaseIntegrationTest {
+
+    private static final AtomicLong userCounter = new AtomicLong();
+    private final AccessLogDao dao = ctx.getBean(AccessLogDao.class);
+
+
+    @Test
+    public void writesAreAddedToDailyCounts() {
+        String userId = mkUserId();
+
+        dao.write(newArrayList(mkEntry(userId, "main.home"), mkEntry(userId, "main.home"), mkEntry(userId, "main.app.view")));
+        dao.write(newArrayList(mkEntry(userId, "main.home")));
+
+        Map<String, Integer> countsByState = findCountsByState(userId);
+        assertEquals(2, countsByState.size());
+        assertEquals(3, countsByState.get("main.home").intValue());
+        assertEquals(1, countsByState.get("main.app.view").intValue());
+        assertEquals(4, dao.findForUserId(userId, Optional.empty()).size());
+    }
+
+
+    /**
+     * Another writer creates the daily count for the same user, day and state
+     * while the batch is being written, so the batch fails on the primary key.
+     * The batching writer then retries each entry individually, and these
+     * must increment (rather than replace or skip) the other writer's count.
+     */
+    @Test
+    public void batchFailingOnConcurrentlyCreatedDailyCountIsRetriedWithCorrectCounts() throws Exception {
+        String userId = mkUserId();
+        LocalDate today = DateTimeUtilities.nowUtc().toLocalDate();
+        DSLContext dsl = getDsl();
+
+        BatchingWriter<AccessLog> writer = new BatchingWriter<>("AccessLogDaoTest", dao::write, true, 100, 100, 10_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch otherWriterInserted = new CountDownLatch(1);
+        CountDownLatch releaseOtherWriter = new CountDownLatch(1);
+
+        try {
+            Future<?> otherWriter = executor.submit(() -> dsl.transaction(configuration -> {
+                DSL.using(configuration)
+                        .insertInto(ACCESS_LOG_DAILY)
+                        .set(ACCESS_LOG_DAILY.USER_ID, userId)
+                        .set(ACCESS_LOG_DAILY.ACCESS_DATE, toSqlDate(today))
+                        .set(ACCESS_LOG_DAILY.STATE, "main.home")
+                        .set(ACCESS_LOG_DAILY.ACCESS_COUNT, 1)
+                        .set(ACCESS_LOG_DAILY.LAST_ACCESSED_AT, Timestamp.valueOf(DateTimeUtilities.nowUtc()))
+                        .execute();
+                otherWriterInserted.countDown();
+                assertTrue(releaseOtherWriter.await(30, TimeUnit.SECONDS));
+            }));
+
+            assertTrue(otherWriterInserted.await(30, TimeUnit.SECONDS));
+
+            writer.write(newArrayList(
+                    mkEntry(userId, "main.home"),
+                    mkEntry(userId, "main.home"),
+                    mkEntry(userId, "main.app.view")));
+
+            // the batch's insert of the same key waits on the uncommitted row
+            awaitBlockedLock(dsl);
+            releaseOtherWriter.countDown();
+            otherWriter.get(30, TimeUnit.SECONDS);
+
+            assertTrue(writer.flush());
+        } finally {
+            releaseOtherWriter.countDown();
+            executor.shutdownNow();
+            writer.close();
+        }
+
+        Map<String, Integer> countsByState = findCountsByState(userId);
+        assertEquals(3, countsByState.get("main.home").intValue());
+        assertEquals(1, countsByState.get("main.app.view").intValue());
+        assertEquals(3, dao.findForUserId(userId, Optional.empty()).size());
+        assertEquals(0, writer.getStatistics().failedCount());
+    }
+
+
+    // -- HELPERS ----
+
+    private Map<String, Integer> findCountsByState(String userId) {
+        List<DailyAccessCount> counts = dao.findDailyCountsForUserId(userId, DateTimeUtilities.nowUtc().toLocalDate());
+        return counts
+                .stream()
+                .collect(Collectors.toMap(DailyAccessCount::state, DailyAccessCount::count));
+    }
+
+
+    private static void awaitBlockedLock(DSLContext dsl) throws InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + 30_000;
+        while (dsl.fetchCount(DSL.selectFrom(DSL.table("pg_locks")).where(DSL.field("granted").isFalse())) == 0) {
+            assertTrue("expected the batch to wait on the other writer", System.currentTimeMillis() < giveUpAt);
+            Thread.sleep(50);
+        }
+    }
+
+
+    private static AccessLog mkEntry(String userId, String state) {
+        return ImmutableAccessLog.builder()
+                .userId(userId)
+                .state(state)
+                .params("{}")
+                .build();
+    }
+
+
+    private static String mkUserId() {
+        return "access-log-test-" + userCounter.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+
+/**
+ * Snapshot of the progress of a (potentially long running) bulk issuance
+ * of instances and recipients for a run, e.g. a survey or attestation run.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableIssuanceProgress.class)
+@JsonDeserialize(as = ImmutableIssuanceProgress.class)
+public abstract class IssuanceProgress {
+
+    public abstract EntityReference run();
+
+    public abstract IssuanceStatus status();
+
+    public abstract int instanceCount();
+
+
+    @Value.Default
+    public int instancesCreated() {
+        return 0;
+    }
+
+
+    @Value.Default
+    public int recipientsCreated() {
+        return 0;
+    }
+
+
+    public abstract LocalDateTime startedAt();
+
+    public abstract Optional<LocalDateTime> completedAt();
+
+    public abstract Optional<String> message();
+}
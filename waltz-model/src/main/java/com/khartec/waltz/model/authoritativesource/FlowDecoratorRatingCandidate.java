@@ -0,0 +1,44 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.authoritativesource;
+
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+
+/**
+ * Minimal view of a logical flow decorator used when recalculating
+ * authoritative source ratings in bulk.
+ *
+ * The source application and target org unit are only present for
+ * data type decorators on application to application flows, all other
+ * decorators are not eligible for an authoritative source rating.
+ */
+@Value.Immutable
+public abstract class FlowDecoratorRatingCandidate {
+
+    public abstract long decoratorId();
+    public abstract long dataTypeId();
+    public abstract AuthoritativenessRating rating();
+    public abstract Optional<Long> sourceApplicationId();
+    public abstract Optional<Long> targetOrgUnitId();
+
+}
@@ -36,7 +36,7 @@ public abstract class ClientCacheKey {
     public abstract String guid();
 
     @Value.Default
-    LocalDateTime lastUpdatedAt() {
+    public LocalDateTime lastUpdatedAt() {
         return DateTimeUtilities.nowUtc();
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.client_cache_key;
+
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * Validator describing the current version of one or more entity kinds.
+ * The `tag` changes whenever any of the kinds are modified and is suitable
+ * for use as an (opaque) ETag.
+ */
+@Value.Immutable
+public abstract class VersionStamp {
+
+    public abstract String tag();
+
+    public abstract LocalDateTime lastModified();
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.entity_statistic;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+
+/**
+ * Records which values a statistic's pre-aggregated rollups were built from.
+ * If the rollup kind or the id of the latest value differ from those
+ * recorded here the rollups are stale.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableEntityStatisticRollupState.class)
+@JsonDeserialize(as = ImmutableEntityStatisticRollupState.class)
+public abstract class EntityStatisticRollupState {
+
+    public abstract long statisticId();
+    public abstract RollupKind rollupKind();
+    public abstract Optional<Long> latestValueId();
+    public abstract EntityStatisticValueSignature signature();
+    public abstract LocalDateTime rolledUpAt();
+
+}
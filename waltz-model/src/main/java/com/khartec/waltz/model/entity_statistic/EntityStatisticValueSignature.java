@@ -0,0 +1,43 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.entity_statistic;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+
+/**
+ * Summary of the current values of a statistic at the time its rollups were
+ * built.  Values which were current then may since have become historic, so
+ * the earliest creation time bounds how much of the history must be rebuilt.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableEntityStatisticValueSignature.class)
+@JsonDeserialize(as = ImmutableEntityStatisticValueSignature.class)
+public abstract class EntityStatisticValueSignature {
+
+    public abstract int currentCount();
+    public abstract Optional<LocalDateTime> earliestCurrentAt();
+    public abstract Optional<LocalDateTime> latestCurrentAt();
+
+}
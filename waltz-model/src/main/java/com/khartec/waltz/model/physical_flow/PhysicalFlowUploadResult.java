@@ -0,0 +1,64 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.physical_flow;
+
+import com.khartec.waltz.model.datatype.DataTypeDecorator;
+import org.immutables.value.Value;
+
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Outcome of creating a batch of uploaded physical flows, describing which
+ * entities were created (or restored) so follow up work, e.g. change logging,
+ * can also be done in bulk.
+ */
+@Value.Immutable
+public abstract class PhysicalFlowUploadResult {
+
+    /**
+     * @return ids of the physical flows, in the same order as the uploaded flows
+     */
+    public abstract List<Long> physicalFlowIds();
+
+    /**
+     * @return ids of the logical flows, in the same order as the uploaded flows
+     */
+    public abstract List<Long> logicalFlowIds();
+
+    /**
+     * @return ids of the specifications, in the same order as the uploaded flows
+     */
+    public abstract List<Long> specificationIds();
+
+    public abstract Set<Long> createdLogicalFlowIds();
+
+    public abstract Set<Long> restoredLogicalFlowIds();
+
+    public abstract Set<Long> createdSpecificationIds();
+
+    public abstract Set<Long> createdPhysicalFlowIds();
+
+    /**
+     * @return data type decorators added to logical flows and specifications
+     */
+    public abstract List<DataTypeDecorator> addedDecorators();
+
+}
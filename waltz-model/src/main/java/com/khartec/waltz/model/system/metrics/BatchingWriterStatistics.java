@@ -0,0 +1,48 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.system.metrics;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+
+@Value.Immutable
+@JsonSerialize(as = ImmutableBatchingWriterStatistics.class)
+@JsonDeserialize(as = ImmutableBatchingWriterStatistics.class)
+public abstract class BatchingWriterStatistics {
+
+    public abstract String name();
+    public abstract boolean asynchronous();
+    public abstract int queueCapacity();
+    public abstract int queueDepth();
+    public abstract int maxQueueDepth();
+
+    /** items accepted onto the queue */
+    public abstract long enqueuedCount();
+
+    /** items written synchronously by the caller as the queue was full */
+    public abstract long overflowCount();
+
+    public abstract long writtenCount();
+    public abstract long failedCount();
+    public abstract long batchCount();
+    public abstract int largestBatchSize();
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.system.metrics;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.khartec.waltz.common.LatencyHistogram;
+import org.immutables.value.Value;
+
+
+/**
+ * Point in time summary of a latency histogram.  All durations are
+ * in milliseconds, percentiles are approximate.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableLatencySummary.class)
+@JsonDeserialize(as = ImmutableLatencySummary.class)
+public abstract class LatencySummary {
+
+    public abstract String key();
+    public abstract long count();
+    public abstract double totalMillis();
+    public abstract double meanMillis();
+    public abstract double p50Millis();
+    public abstract double p95Millis();
+    public abstract double p99Millis();
+    public abstract double maxMillis();
+
+
+    /**
+     * @param key  identifies what was measured (e.g. a query shape or an endpoint)
+     * @param histogram  durations in nanoseconds
+     * @return summary of the current state of the histogram
+     */
+    public static LatencySummary fromHistogram(String key, LatencyHistogram histogram) {
+        return ImmutableLatencySummary.builder()
+                .key(key)
+                .count(histogram.count())
+                .totalMillis(toMillis(histogram.total()))
+                .meanMillis(toMillis(histogram.mean()))
+                .p50Millis(toMillis(histogram.percentile(50)))
+                .p95Millis(toMillis(histogram.percentile(95)))
+                .p99Millis(toMillis(histogram.percentile(99)))
+                .maxMillis(toMillis(histogram.max()))
+                .build();
+    }
+
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.system.metrics;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+
+@Value.Immutable
+@JsonSerialize(as = ImmutableQueryStatistics.class)
+@JsonDeserialize(as = ImmutableQueryStatistics.class)
+public abstract class QueryStatistics {
+
+    public abstract LocalDateTime collectingSince();
+    public abstract List<LatencySummary> byShape();
+
+    /** sampled, so counts and totals are a fraction of the actual executions */
+    public abstract List<LatencySummary> byCaller();
+
+    public abstract List<LiteralQueryShape> literalShapes();
+
+}
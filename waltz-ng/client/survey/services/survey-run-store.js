@@ -117,6 +117,18 @@ function store($http, baseApiUrl) {
             .post(`${base}/${id}/recipients`, excludedRecipients);
     };
 
+    const issueSurveyRunInstancesAndRecipients = (id, excludedRecipients) => {
+        return $http
+            .post(`${base}/${id}/recipients/issue`, excludedRecipients)
+            .then(r => r.data);
+    };
+
+    const getIssuanceProgress = (id) => {
+        return $http
+            .get(`${base}/${id}/issuance-progress`)
+            .then(r => r.data);
+    };
+
     const getCompletionRate = (id) => {
         return $http
             .get(`${base}/${id}/completion-rate`)
@@ -143,6 +155,8 @@ function store($http, baseApiUrl) {
         updateDueDate,
         generateSurveyRunRecipients,
         createSurveyRunInstancesAndRecipients,
+        issueSurveyRunInstancesAndRecipients,
+        getIssuanceProgress,
         getCompletionRate,
         createSurveyInstances,
         updateOwningRole
@@ -225,6 +239,16 @@ export const SurveyRunStore_API = {
         serviceFnName: 'createSurveyRunInstancesAndRecipients',
         description: 'create a survey run, instances and recipients'
     },
+    issueSurveyRunInstancesAndRecipients: {
+        serviceName,
+        serviceFnName: 'issueSurveyRunInstancesAndRecipients',
+        description: 'start (in the background) creating the instances and recipients for a survey run'
+    },
+    getIssuanceProgress: {
+        serviceName,
+        serviceFnName: 'getIssuanceProgress',
+        description: 'get progress of instance and recipient creation for a given survey run id'
+    },
     getCompletionRate: {
         serviceName,
         serviceFnName: 'getCompletionRate',
@@ -22,6 +22,10 @@ import template from "./survey-run-create.html";
 import {CORE_API} from "../common/services/core-api-utils";
 
 
+const ISSUANCE_POLL_INTERVAL_MILLIS = 1000;
+const ISSUANCE_MAX_WAIT_MILLIS = 10 * 60 * 1000;
+
+
 const initialState = {
     step: "GENERAL",
     surveyRun: {
@@ -37,8 +41,10 @@ const initialState = {
 function controller($document,
                     $interval,
                     $location,
+                    $q,
                     $state,
                     $stateParams,
+                    notification,
                     surveyRunStore,
                     surveyTemplateStore,
                     serviceBroker) {
@@ -120,15 +126,47 @@ function controller($document,
         }
     };
 
+    // large runs are issued in the background, poll until all instances have been created.
+    // Progress is only tracked by the server which issued the run, so a missing progress
+    // report (e.g. after a restart) is treated as terminal rather than polled forever
+    const awaitIssuance = (surveyRunId) => $q((resolve, reject) => {
+        const startedAt = Date.now();
+        const poller = $interval(() => {
+            surveyRunStore
+                .getIssuanceProgress(surveyRunId)
+                .then(progress => {
+                    vm.issuanceProgress = progress;
+                    if (!progress) {
+                        $interval.cancel(poller);
+                        reject("Issuance progress is no longer available, check the survey run to see which instances were created");
+                    } else if (progress.status !== "IN_PROGRESS") {
+                        $interval.cancel(poller);
+                        progress.status === "COMPLETED"
+                            ? resolve(progress)
+                            : reject("Failed to create all survey instances");
+                    } else if (Date.now() - startedAt > ISSUANCE_MAX_WAIT_MILLIS) {
+                        $interval.cancel(poller);
+                        reject("Timed out waiting for survey instances to be created, check the survey run later");
+                    }
+                }, e => {
+                    $interval.cancel(poller);
+                    reject(_.get(e, ["data", "message"], "Failed to get survey issuance progress"));
+                });
+        }, ISSUANCE_POLL_INTERVAL_MILLIS);
+    });
+
     vm.onSaveRecipient = (surveyRun, includedRecipients, excludedRecipients) => {
-        surveyRunStore.createSurveyRunInstancesAndRecipients(surveyRun.id, excludedRecipients)
+        surveyRunStore.issueSurveyRunInstancesAndRecipients(surveyRun.id, excludedRecipients)
+            .then(progress => vm.issuanceProgress = progress)
+            .then(() => awaitIssuance(surveyRun.id))
             .then(() => serviceBroker.execute(CORE_API.SurveyRunStore.updateOwningRole, [surveyRun.id, {owningRole: surveyRun.owningRole}]))
             .then(() => surveyRunStore.updateStatus(surveyRun.id, {newStatus: "ISSUED"})
                 .then(() => {
                     vm.step = "COMPLETED";
                     generateEmailLink(surveyRun, includedRecipients);
                 })
-            );
+            )
+            .catch(e => notification.error(e));
     };
 
     vm.goBack = () => {
@@ -141,8 +179,10 @@ controller.$inject = [
     "$document",
     "$interval",
     "$location",
+    "$q",
     "$state",
     "$stateParams",
+    "Notification",
     "SurveyRunStore",
     "SurveyTemplateStore",
     "ServiceBroker"
@@ -0,0 +1,293 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service;
+
+import com.khartec.waltz.model.system.metrics.BatchingWriterStatistics;
+import com.khartec.waltz.model.system.metrics.ImmutableBatchingWriterStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static com.khartec.waltz.common.Checks.checkNotEmpty;
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Writes items on a dedicated thread, taking everything queued since the
+ * last write (up to `maxBatchSize` items) and passing it to the batch writer
+ * in one go.  Callers therefore do not pay for a database round trip per item.
+ *
+ * The queue is bounded.  If it is full, items are written synchronously by
+ * the caller rather than being dropped, which naturally slows down producers
+ * until the writer catches up.  If a batch fails the items are retried
+ * individually so one bad item does not lose the rest of the batch.
+ *
+ * Owners should call `close` on shutdown to drain the queue.
+ */
+public class BatchingWriter<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingWriter.class);
+    private static final long POLL_MILLIS = 500;
+
+    private final String name;
+    private final Consumer<List<T>> batchWriter;
+    private final boolean asynchronous;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final long flushTimeoutMillis;
+
+    private final BlockingQueue<T> queue;
+    private final Thread writerThread;
+    private volatile boolean stopping = false;
+
+    // enqueuedCount is guarded by enqueueLock so queue order matches count order,
+    // processedCount by progressLock which flushing threads wait on
+    private final Object enqueueLock = new Object();
+    private final Object progressLock = new Object();
+    private long enqueuedCount = 0;
+    private long processedCount = 0;
+
+    private final LongAdder overflowCount = new LongAdder();
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAccumulator largestBatchSize = new LongAccumulator(Long::max, 0);
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Long::max, 0);
+
+
+    /**
+     * @param name  used for the writer thread and in log messages
+     * @param batchWriter  writes a batch of items, should be all or nothing
+     * @param asynchronous  if false items are written on the caller's thread
+     * @param queueCapacity  maximum number of queued items
+     * @param maxBatchSize  maximum number of items passed to the batch writer at once
+     * @param flushTimeoutMillis  maximum time to wait when flushing or closing
+     */
+    public BatchingWriter(String name,
+                          Consumer<List<T>> batchWriter,
+                          boolean asynchronous,
+                          int queueCapacity,
+                          int maxBatchSize,
+                          long flushTimeoutMillis) {
+        checkNotEmpty(name, "name cannot be empty");
+        checkNotNull(batchWriter, "batchWriter cannot be null");
+        checkTrue(queueCapacity > 0, "queueCapacity must be positive");
+        checkTrue(maxBatchSize > 0, "maxBatchSize must be positive");
+
+        this.name = name;
+        this.batchWriter = batchWriter;
+        this.asynchronous = asynchronous;
+        this.queueCapacity = queueCapacity;
+        this.maxBatchSize = maxBatchSize;
+        this.flushTimeoutMillis = flushTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        if (asynchronous) {
+            writerThread = new Thread(this::run, name);
+            writerThread.setDaemon(true);
+            writerThread.start();
+        } else {
+            writerThread = null;
+        }
+    }
+
+
+    public void write(Collection<T> items) {
+        checkNotNull(items, "items cannot be null");
+
+        if (items.isEmpty()) {
+            return;
+        }
+
+        if (! asynchronous || stopping) {
+            writeSynchronously(new ArrayList<>(items));
+            return;
+        }
+
+        List<T> overflow = new ArrayList<>();
+        synchronized (enqueueLock) {
+            for (T item : items) {
+                if (queue.offer(item)) {
+                    enqueuedCount++;
+                } else {
+                    overflow.add(item);
+                }
+            }
+        }
+        maxQueueDepth.accumulate(queue.size());
+
+        if (! overflow.isEmpty()) {
+            overflowCount.add(overflow.size());
+            writeSynchronously(overflow);
+        }
+    }
+
+
+    /**
+     * Blocks until every item queued before this call has been written (or has
+     * failed to write), or until the flush timeout elapses.
+     *
+     * @return true if all prior items were processed within the timeout
+     */
+    public boolean flush() {
+        if (! asynchronous) {
+            return true;
+        }
+
+        long target;
+        synchronized (enqueueLock) {
+            target = enqueuedCount;
+        }
+
+        long deadline = System.currentTimeMillis() + flushTimeoutMillis;
+        synchronized (progressLock) {
+            while (processedCount < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    LOG.warn("{}: timed out waiting for queued items to be written, {} still queued", name, queue.size());
+                    return false;
+                }
+                try {
+                    progressLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+
+    public BatchingWriterStatistics getStatistics() {
+        long enqueued;
+        synchronized (enqueueLock) {
+            enqueued = enqueuedCount;
+        }
+
+        return ImmutableBatchingWriterStatistics.builder()
+                .name(name)
+                .asynchronous(asynchronous)
+                .queueCapacity(queueCapacity)
+                .queueDepth(queue.size())
+                .maxQueueDepth((int) maxQueueDepth.get())
+                .enqueuedCount(enqueued)
+                .overflowCount(overflowCount.sum())
+                .writtenCount(writtenCount.sum())
+                .failedCount(failedCount.sum())
+                .batchCount(batchCount.sum())
+                .largestBatchSize((int) largestBatchSize.get())
+                .build();
+    }
+
+
+    /**
+     * Stops accepting items onto the queue (later items are written
+     * synchronously) and waits for the queue to drain.
+     */
+    public void close() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+
+        stopping = true;
+        writerThread.join(flushTimeoutMillis + POLL_MILLIS);
+
+        if (writerThread.isAlive()) {
+            LOG.warn("{}: did not finish draining, {} items still queued", name, queue.size());
+        } else {
+            // catch anything which slipped onto the queue as we were stopping
+            List<T> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (! remaining.isEmpty()) {
+                writeBatch(remaining);
+            }
+        }
+    }
+
+
+    // -- helpers
+
+    private void run() {
+        List<T> batch = new ArrayList<>(maxBatchSize);
+
+        while (true) {
+            T first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = queue.poll();
+            }
+
+            if (first == null) {
+                if (stopping) {
+                    return;
+                }
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            writeBatch(batch);
+
+            synchronized (progressLock) {
+                processedCount += batch.size();
+                progressLock.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+
+    private void writeBatch(List<T> batch) {
+        try {
+            writeSynchronously(batch);
+        } catch (Exception e) {
+            LOG.warn("{}: failed to write batch of {} items, retrying individually", name, batch.size(), e);
+            for (T item : batch) {
+                try {
+                    writeSynchronously(Collections.singletonList(item));
+                } catch (Exception ex) {
+                    failedCount.increment();
+                    LOG.error("{}: failed to write item: {}", name, item, ex);
+                }
+            }
+        }
+    }
+
+
+    private void writeSynchronously(List<T> items) {
+        batchWriter.accept(items);
+        writtenCount.add(items.size());
+        batchCount.increment();
+        largestBatchSize.accumulate(items.size());
+    }
+
+}
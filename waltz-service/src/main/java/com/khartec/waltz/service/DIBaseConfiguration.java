@@ -21,6 +21,7 @@ package com.khartec.waltz.service;
 
 import com.khartec.waltz.data.DBExecutorPool;
 import com.khartec.waltz.data.DBExecutorPoolInterface;
+import com.khartec.waltz.data.QueryDeadlineListener;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.jooq.DSLContext;
@@ -37,6 +38,10 @@ import org.springframework.context.annotation.PropertySource;
 
 import javax.sql.DataSource;
 
+import static com.khartec.waltz.data.JooqUtilities.isMariaDB;
+import static com.khartec.waltz.data.JooqUtilities.isPostgres;
+import static com.khartec.waltz.data.JooqUtilities.isSQLServer;
+
 @Configuration
 @PropertySource(value = "classpath:waltz.properties", ignoreResourceNotFound = true)
 @PropertySource(value = "file:${user.home}/.waltz/waltz.properties", ignoreResourceNotFound = true)
@@ -66,6 +71,9 @@ public class DIBaseConfiguration {
     @Value("${database.pool.min:2}")
     private int dbPoolMin;
 
+    @Value("${database.pool.statement.cache.size:0}")
+    private int dbStatementCacheSize;
+
     @Value("${jooq.dialect}")
     private String dialect;
 
@@ -82,6 +90,9 @@ public class DIBaseConfiguration {
         dsConfig.setDriverClassName(dbDriver);
         dsConfig.setMaximumPoolSize(dbPoolMax);
         dsConfig.setMinimumIdle(dbPoolMin);
+        if (dbStatementCacheSize > 0) {
+            configureStatementCache(dsConfig, SQLDialect.valueOf(dialect), dbStatementCacheSize);
+        }
         return new HikariDataSource(dsConfig);
     }
 
@@ -92,9 +103,16 @@ public class DIBaseConfiguration {
     }
 
 
+    @Bean
+    public QueryTimingListener queryTimingListener() {
+        return new QueryTimingListener(databasePerformanceQuerySlowThreshold);
+    }
+
+
     @Bean
     @Autowired
-    public DSLContext dsl(DataSource dataSource) {
+    public DSLContext dsl(DataSource dataSource,
+                          QueryTimingListener queryTimingListener) {
         try {
             SQLDialect.valueOf(dialect);
         } catch (IllegalArgumentException iae) {
@@ -103,8 +121,10 @@ public class DIBaseConfiguration {
         }
 
         // TODO: remove sql server setting, see #4553
+        // in-list padding reduces the number of distinct statements produced by variable length in-lists
         Settings dslSettings = new Settings()
-                .withRenderOutputForSQLServerReturningClause(false);
+                .withRenderOutputForSQLServerReturningClause(false)
+                .withInListPadding(true);
 
         if ("true".equals(System.getProperty(JOOQ_DEBUG_PROPERTY))) {
             dslSettings
@@ -116,9 +136,30 @@ public class DIBaseConfiguration {
                 .set(dataSource)
                 .set(SQLDialect.valueOf(dialect))
                 .set(dslSettings)
-                .set(new SlowQueryListener(databasePerformanceQuerySlowThreshold));
+                .set(queryTimingListener, new QueryDeadlineListener());
 
         return DSL.using(configuration);
     }
 
+
+    /**
+     * Statement caching is configured via driver specific properties, which
+     * Hikari passes through when creating connections.
+     */
+    private static void configureStatementCache(HikariConfig dsConfig,
+                                                SQLDialect dialect,
+                                                int cacheSize) {
+        if (isPostgres(dialect)) {
+            dsConfig.addDataSourceProperty("preparedStatementCacheQueries", cacheSize);
+        } else if (isSQLServer(dialect)) {
+            dsConfig.addDataSourceProperty("disableStatementPooling", false);
+            dsConfig.addDataSourceProperty("statementPoolingCacheSize", cacheSize);
+        } else if (isMariaDB(dialect)) {
+            dsConfig.addDataSourceProperty("cachePrepStmts", true);
+            dsConfig.addDataSourceProperty("prepStmtCacheSize", cacheSize);
+        } else {
+            System.err.println("Prepared statement cache not supported for dialect: " + dialect);
+        }
+    }
+
 }
@@ -24,7 +24,10 @@ import com.khartec.waltz.model.settings.ImmutableSetting;
 import com.khartec.waltz.model.settings.Setting;
 import com.khartec.waltz.service.email.DummyJavaMailSender;
 import com.khartec.waltz.service.jmx.PersonMaintenance;
+import com.khartec.waltz.service.jmx.QueryTimings;
+import com.khartec.waltz.service.jmx.UserRoleCache;
 import com.khartec.waltz.service.person_hierarchy.PersonHierarchyService;
+import com.khartec.waltz.service.user.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
@@ -60,6 +63,10 @@ public class DIConfiguration implements SchedulingConfigurer {
     @Value("${smtpPort:25}")
     private int smtpPort;
 
+    // one thread per scheduled task, so long running rebuilds do not delay the short syncs (e.g. version stamps)
+    @Value("${waltz.scheduler.pool.size:10}")
+    private int schedulerPoolSize;
+
     // -- BUILD ---
 
     @Value("${build.pom:dev}")
@@ -119,6 +126,20 @@ public class DIConfiguration implements SchedulingConfigurer {
     }
 
 
+    @Bean
+    @Autowired
+    public QueryTimings queryTimings(QueryTimingListener queryTimingListener) {
+        return new QueryTimings(queryTimingListener);
+    }
+
+
+    @Bean
+    @Autowired
+    public UserRoleCache userRoleCache(UserRoleService userRoleService) {
+        return new UserRoleCache(userRoleService);
+    }
+
+
     @Bean
     public JavaMailSender mailSender() {
         if (smtpHost == null) {
@@ -135,6 +156,8 @@ public class DIConfiguration implements SchedulingConfigurer {
     @Bean
     public TaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(schedulerPoolSize);
+        scheduler.setThreadNamePrefix("WaltzScheduler-");
         scheduler.setDaemon(true);
         return scheduler;
     }
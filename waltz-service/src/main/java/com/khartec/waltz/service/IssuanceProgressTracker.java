@@ -0,0 +1,110 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service;
+
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.ImmutableIssuanceProgress;
+import com.khartec.waltz.model.IssuanceProgress;
+import com.khartec.waltz.model.IssuanceStatus;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+
+
+/**
+ * Tracks the progress of bulk issuances (keyed by run) so callers can poll
+ * for status whilst the issuance proceeds in the background.
+ *
+ * Only the most recent issuance for each run is retained.
+ */
+public class IssuanceProgressTracker {
+
+    private final Map<EntityReference, IssuanceProgress> progressByRun = new ConcurrentHashMap<>();
+
+
+    /**
+     * Registers the start of an issuance.
+     *
+     * @throws IllegalArgumentException if an issuance for the run is already in progress
+     */
+    public IssuanceProgress start(EntityReference run, int instanceCount) {
+        checkNotNull(run, "run cannot be null");
+
+        return progressByRun.compute(run, (k, existing) -> {
+            checkTrue(
+                    existing == null || existing.status() != IssuanceStatus.IN_PROGRESS,
+                    "Issuance already in progress for: " + run);
+
+            return ImmutableIssuanceProgress.builder()
+                    .run(run)
+                    .status(IssuanceStatus.IN_PROGRESS)
+                    .instanceCount(instanceCount)
+                    .startedAt(nowUtc())
+                    .build();
+        });
+    }
+
+
+    public IssuanceProgress advance(EntityReference run, int instancesCreated, int recipientsCreated) {
+        return update(run, p -> ImmutableIssuanceProgress
+                .copyOf(p)
+                .withInstancesCreated(p.instancesCreated() + instancesCreated)
+                .withRecipientsCreated(p.recipientsCreated() + recipientsCreated));
+    }
+
+
+    public IssuanceProgress complete(EntityReference run) {
+        return update(run, p -> ImmutableIssuanceProgress
+                .copyOf(p)
+                .withStatus(IssuanceStatus.COMPLETED)
+                .withCompletedAt(nowUtc()));
+    }
+
+
+    public IssuanceProgress fail(EntityReference run, Throwable cause) {
+        return update(run, p -> ImmutableIssuanceProgress
+                .copyOf(p)
+                .withStatus(IssuanceStatus.FAILED)
+                .withCompletedAt(nowUtc())
+                .withMessage(String.valueOf(cause.getMessage())));
+    }
+
+
+    public Optional<IssuanceProgress> find(EntityReference run) {
+        checkNotNull(run, "run cannot be null");
+        return Optional.ofNullable(progressByRun.get(run));
+    }
+
+
+    private IssuanceProgress update(EntityReference run,
+                                    UnaryOperator<IssuanceProgress> updater) {
+        checkNotNull(run, "run cannot be null");
+
+        IssuanceProgress updated = progressByRun.computeIfPresent(run, (k, p) -> updater.apply(p));
+        checkNotNull(updated, "No issuance has been started for: " + run);
+        return updated;
+    }
+
+}
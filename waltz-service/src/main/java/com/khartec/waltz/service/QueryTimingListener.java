@@ -0,0 +1,311 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service;
+
+
+import com.khartec.waltz.common.LatencyHistogram;
+import com.khartec.waltz.model.system.metrics.ImmutableLiteralQueryShape;
+import com.khartec.waltz.model.system.metrics.ImmutableQueryStatistics;
+import com.khartec.waltz.model.system.metrics.LatencySummary;
+import com.khartec.waltz.model.system.metrics.LiteralQueryShape;
+import com.khartec.waltz.model.system.metrics.QueryStatistics;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Records the execution time of every query issued via the DSLContext.
+ *
+ * Timings are gathered into histograms keyed by the 'shape' of the sql (literals
+ * and in-lists collapsed) and by the DAO method which issued the query.  Queries
+ * exceeding the slow query threshold are also logged to the performance log.
+ *
+ * Shapes which are executed with differing literal values (rather than bind
+ * parameters) are flagged, once, in the performance log and listed in the
+ * statistics.  Each variant is a distinct statement for the database to parse
+ * and plan, which defeats its plan cache.
+ *
+ * Finding the DAO method means walking the stack, which is too costly to do for
+ * every execution.  Caller timings are therefore sampled, one in every
+ * `CALLER_SAMPLE_RATE` executions, and so give relative rather than absolute
+ * figures.  Slow queries always have their caller logged.
+ *
+ * A single instance is shared by all executions so per-execution state (i.e. the
+ * start time) is held in the ExecuteContext.
+ */
+public class QueryTimingListener extends DefaultExecuteListener {
+
+    private static final String PERFORMANCE_APPENDER = "WALTZ.PERFORMANCE";
+    private static final Logger LOG = LoggerFactory.getLogger(PERFORMANCE_APPENDER);
+
+    private static final String START_KEY = QueryTimingListener.class.getName() + ".start";
+
+    private static final String CALLER_PACKAGE = "com.khartec.waltz.data.";
+    private static final String UNKNOWN_CALLER = "[unknown]";
+    private static final String OTHER_SHAPE = "[other]";
+
+    /** limits memory use if the application generates many distinct sql shapes */
+    private static final int MAX_TRACKED_KEYS = 1_000;
+    private static final int MAX_CACHED_SQL = 5_000;
+    private static final int MAX_TRACKED_VARIANTS = 100;
+
+    private static final int CALLER_SAMPLE_RATE = 10;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long slowQueryThresholdInNanos;
+    private final Map<String, String> shapesBySql = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histogramsByShape = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histogramsByCaller = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> variantsByShape = new ConcurrentHashMap<>();
+    private final Map<String, String> callersByLiteralShape = new ConcurrentHashMap<>();
+    private final AtomicLong executionCount = new AtomicLong();
+
+    private volatile LocalDateTime collectingSince = nowUtc();
+
+
+    public class SQLPerformanceWarning
+            extends Exception {
+
+        public SQLPerformanceWarning(String message) {
+            super(message);
+        }
+    }
+
+
+    public QueryTimingListener(int slowQueryThresholdSeconds) {
+        LOG.info("Initialising with {} second threshold", slowQueryThresholdSeconds);
+        this.slowQueryThresholdInNanos = TimeUnit.SECONDS.toNanos(slowQueryThresholdSeconds);
+    }
+
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        super.executeStart(ctx);
+        ctx.data(START_KEY, System.nanoTime());
+    }
+
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        super.executeEnd(ctx);
+        Object start = ctx.data(START_KEY);
+        if (start == null) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - (Long) start;
+
+        histogramFor(histogramsByShape, toShape(determineSql(ctx))).record(elapsed);
+
+        if (executionCount.incrementAndGet() % CALLER_SAMPLE_RATE == 0) {
+            histogramFor(histogramsByCaller, determineCaller()).record(elapsed);
+        }
+
+        if (elapsed > slowQueryThresholdInNanos && ctx.query() != null) {
+            DSLContext context = DSL.using(ctx.dialect(),
+                    // ... and the flag for pretty-printing
+                    new Settings().withRenderFormatted(true));
+
+            LOG.warn(
+                    String.format(
+                            "Slow SQL executed in %d seconds by %s",
+                            TimeUnit.NANOSECONDS.toSeconds(elapsed),
+                            determineCaller()),
+                    new SQLPerformanceWarning(context.renderInlined(ctx.query())));
+        }
+    }
+
+
+    /**
+     * @param limit  maximum number of entries to return for each grouping
+     * @return summaries ordered by total time spent (descending)
+     */
+    public QueryStatistics getStatistics(int limit) {
+        return ImmutableQueryStatistics.builder()
+                .collectingSince(collectingSince)
+                .byShape(summarise(histogramsByShape, limit))
+                .byCaller(summarise(histogramsByCaller, limit))
+                .literalShapes(summariseLiteralShapes(limit))
+                .build();
+    }
+
+
+    public void reset() {
+        LOG.info("Resetting query statistics");
+        histogramsByShape.clear();
+        histogramsByCaller.clear();
+        variantsByShape.clear();
+        callersByLiteralShape.clear();
+        collectingSince = nowUtc();
+    }
+
+
+    // -- helpers
+
+    static String normaliseSql(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMERIC_LITERAL.matcher(shape).replaceAll("?");
+        return collapseParameters(shape);
+    }
+
+
+    /**
+     * Like `normaliseSql` but literals are retained, therefore statements
+     * which only differ by the number of bind parameters in an in-list are
+     * not considered to be different variants of a shape.
+     */
+    static String toVariant(String sql) {
+        return collapseParameters(sql);
+    }
+
+
+    private static String collapseParameters(String sql) {
+        String result = WHITESPACE.matcher(sql).replaceAll(" ");
+        result = PARAMETER_LIST.matcher(result).replaceAll("(?...)");
+        return result.trim();
+    }
+
+
+    private String toShape(String sql) {
+        if (sql == null) {
+            return OTHER_SHAPE;
+        }
+
+        String shape = shapesBySql.get(sql);
+        if (shape == null) {
+            shape = normaliseSql(sql);
+            if (shapesBySql.size() >= MAX_CACHED_SQL) {
+                shapesBySql.clear();
+            }
+            shapesBySql.put(sql, shape);
+            trackVariant(shape, sql);
+        }
+        return shape;
+    }
+
+
+    private void trackVariant(String shape, String sql) {
+        Set<Integer> variants = variantsByShape.get(shape);
+        if (variants == null) {
+            if (variantsByShape.size() >= MAX_TRACKED_KEYS) {
+                return;
+            }
+            variants = variantsByShape.computeIfAbsent(shape, k -> ConcurrentHashMap.newKeySet());
+        }
+
+        if (variants.size() >= MAX_TRACKED_VARIANTS || ! variants.add(toVariant(sql).hashCode())) {
+            return;
+        }
+
+        if (variants.size() < 2 || callersByLiteralShape.containsKey(shape)) {
+            return;
+        }
+
+        String caller = determineCaller();
+        if (callersByLiteralShape.putIfAbsent(shape, caller) == null) {
+            LOG.warn("Query issued by {} is being rendered with varying literals, consider using bind parameters. Shape: {}",
+                    caller,
+                    shape);
+        }
+    }
+
+
+    private static String determineSql(ExecuteContext ctx) {
+        if (ctx.sql() != null) {
+            return ctx.sql();
+        }
+        String[] batchSql = ctx.batchSQL();
+        return batchSql.length > 0
+                ? batchSql[0]
+                : null;
+    }
+
+
+    private static String determineCaller() {
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            if (frame.getClassName().startsWith(CALLER_PACKAGE)) {
+                String className = frame.getClassName();
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+        }
+        return UNKNOWN_CALLER;
+    }
+
+
+    private static LatencyHistogram histogramFor(Map<String, LatencyHistogram> histograms, String key) {
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        String effectiveKey = histograms.size() < MAX_TRACKED_KEYS
+                ? key
+                : OTHER_SHAPE;
+        return histograms.computeIfAbsent(effectiveKey, k -> new LatencyHistogram());
+    }
+
+
+    private List<LiteralQueryShape> summariseLiteralShapes(int limit) {
+        return callersByLiteralShape
+                .entrySet()
+                .stream()
+                .map(e -> ImmutableLiteralQueryShape.builder()
+                        .shape(e.getKey())
+                        .caller(e.getValue())
+                        .variants(variantsByShape.getOrDefault(e.getKey(), Collections.emptySet()).size())
+                        .build())
+                .sorted(Comparator.comparingInt(s -> -s.variants()))
+                .limit(limit)
+                .collect(toList());
+    }
+
+
+    private static List<LatencySummary> summarise(Map<String, LatencyHistogram> histograms, int limit) {
+        return histograms
+                .entrySet()
+                .stream()
+                .sorted(Comparator.comparingLong(e -> -e.getValue().total()))
+                .limit(limit)
+                .map(e -> LatencySummary.fromHistogram(e.getKey(), e.getValue()))
+                .collect(toList());
+    }
+
+}
@@ -21,46 +21,135 @@ package com.khartec.waltz.service.access_log;
 import com.khartec.waltz.data.access_log.AccessLogDao;
 import com.khartec.waltz.model.accesslog.AccessLog;
 import com.khartec.waltz.model.accesslog.AccessTime;
+import com.khartec.waltz.model.accesslog.DailyAccessCount;
+import com.khartec.waltz.model.system.metrics.BatchingWriterStatistics;
+import com.khartec.waltz.service.BatchingWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static com.khartec.waltz.common.Checks.checkNotEmpty;
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
 
 
+/**
+ * Access log entries are written asynchronously, in batches, via a
+ * `BatchingWriter` so page views do not wait on the database.  Each batch
+ * also updates the per user, per day counts which back the activity queries,
+ * allowing raw entries to be removed once they exceed the retention period.
+ */
 @Service
-public class AccessLogService {
+public class AccessLogService implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccessLogService.class);
+
+    private static final int RETENTION_DELETE_CHUNK_SIZE = 10_000;
 
     private final AccessLogDao accessLogDao;
+    private final BatchingWriter<AccessLog> writer;
+    private final int retentionDays;
+
 
     @Autowired
-    public AccessLogService(AccessLogDao accessLogDao) {
+    public AccessLogService(AccessLogDao accessLogDao,
+                            @Value("${waltz.access-log.async.enabled:true}") boolean asynchronous,
+                            @Value("${waltz.access-log.async.queue.capacity:10000}") int queueCapacity,
+                            @Value("${waltz.access-log.async.batch.size:1000}") int maxBatchSize,
+                            @Value("${waltz.access-log.async.flush.timeout.millis:5000}") long flushTimeoutMillis,
+                            @Value("${waltz.access-log.retention.days:90}") int retentionDays) {
+        checkNotNull(accessLogDao, "accessLogDao cannot be null");
+        checkTrue(retentionDays >= 0, "retentionDays cannot be negative");
+
         this.accessLogDao = accessLogDao;
+        this.retentionDays = retentionDays;
+        this.writer = new BatchingWriter<>(
+                "AccessLogWriter",
+                accessLogDao::write,
+                asynchronous,
+                queueCapacity,
+                maxBatchSize,
+                flushTimeoutMillis);
     }
 
 
-    public int write(AccessLog logEntry) {
+    public void write(AccessLog logEntry) {
         checkNotNull(logEntry, "logEntry must not be null");
-        return accessLogDao.write(logEntry);
+        writer.write(Collections.singletonList(logEntry));
     }
 
 
     public List<AccessLog> findForUserId(String userId,
                                          Optional<Integer> limit) {
         checkNotEmpty(userId, "UserId must not be empty");
+        writer.flush();
         return accessLogDao.findForUserId(userId, limit);
     }
 
 
     public List<AccessTime> findActiveUsersSince(Duration duration) {
         LocalDateTime sinceTime = nowUtc().minus(duration);
+        writer.flush();
         return accessLogDao.findActiveUsersSince(sinceTime);
     }
 
+
+    /**
+     * Daily counts are retained after the raw entries have been removed.
+     *
+     * @param userId  user to retrieve counts for (case insensitive)
+     * @param days  number of days, including today, to include
+     */
+    public List<DailyAccessCount> findDailyAccessCounts(String userId,
+                                                        int days) {
+        checkNotEmpty(userId, "UserId must not be empty");
+        checkTrue(days > 0, "days must be positive");
+        writer.flush();
+        return accessLogDao.findDailyCountsForUserId(
+                userId,
+                nowUtc().toLocalDate().minusDays(days - 1));
+    }
+
+
+    public BatchingWriterStatistics getWriterStatistics() {
+        return writer.getStatistics();
+    }
+
+
+    /**
+     * Removes raw entries older than the retention period, their visits remain
+     * included in the daily counts.  Run by the `ACCESS_LOG_RETENTION` scheduled
+     * job so only one server performs the removal.
+     *
+     * @return number of entries removed, always zero if retention is disabled
+     */
+    public int removeExpired() {
+        if (retentionDays == 0) {
+            return 0;
+        }
+
+        LocalDateTime cutoff = nowUtc().minusDays(retentionDays);
+        int count = accessLogDao.removeOlderThan(cutoff, RETENTION_DELETE_CHUNK_SIZE);
+        if (count > 0) {
+            LOG.info("Removed {} access log entries older than {} days", count, retentionDays);
+        }
+        return count;
+    }
+
+
+    @Override
+    public void destroy() throws InterruptedException {
+        writer.close();
+    }
+
 }
@@ -0,0 +1,104 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.application;
+
+import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.ApplicationIdSetCache;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.IdSelectionOptions;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Provides application id selectors backed by the `ApplicationIdSetCache`.
+ *
+ * Resolving a selection runs a query outside of any transaction the caller
+ * may be in, so only read only code paths should opt in to using this in
+ * preference to the (pure) `ApplicationIdSelectorFactory`.
+ */
+@Service
+public class ApplicationIdSetCacheService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApplicationIdSetCacheService.class);
+
+    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final Optional<ApplicationIdSetCache> cache;
+
+
+    @Autowired
+    public ApplicationIdSetCacheService(DSLContext dsl,
+                                        @Value("${waltz.app-id-set.cache.enabled:true}") boolean enabled,
+                                        @Value("${waltz.app-id-set.cache.size:500}") int maxSize,
+                                        @Value("${waltz.app-id-set.cache.max.age.millis:300000}") long maxAgeMillis) {
+        checkNotNull(dsl, "dsl cannot be null");
+
+        if (enabled) {
+            cache = Optional.of(new ApplicationIdSetCache(dsl, maxSize, maxAgeMillis));
+            LOG.info("Application id set cache enabled, size: {}, max age: {}ms", maxSize, maxAgeMillis);
+        } else {
+            cache = Optional.empty();
+        }
+    }
+
+
+    /**
+     * Returns a selector for the applications identified by the given options,
+     * as an inline id list if the ids have been (or can be) resolved and are
+     * few enough, otherwise the selector from the `ApplicationIdSelectorFactory`.
+     */
+    public Select<Record1<Long>> mkSelector(IdSelectionOptions options) {
+        checkNotNull(options, "options cannot be null");
+
+        if (options.entityReference().kind() == EntityKind.APPLICATION) {
+            // nothing to gain from caching
+            return appIdSelectorFactory.apply(options);
+        }
+
+        return cache
+                .map(c -> c.apply(options, appIdSelectorFactory))
+                .orElseGet(() -> appIdSelectorFactory.apply(options));
+    }
+
+
+    /**
+     * Should only be called once the changes have been committed, otherwise
+     * a concurrent lookup may re-cache the previous selection.
+     */
+    public void invalidate(Collection<EntityKind> changedKinds) {
+        cache.ifPresent(c -> c.invalidate(changedKinds));
+    }
+
+
+    public void invalidateAll() {
+        cache.ifPresent(ApplicationIdSetCache::invalidateAll);
+    }
+
+}
@@ -18,13 +18,13 @@
 
 package com.khartec.waltz.service.asset_cost;
 
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.asset_cost.AssetCostDao;
 import com.khartec.waltz.data.asset_cost.AssetCostStatsDao;
 import com.khartec.waltz.model.IdSelectionOptions;
 import com.khartec.waltz.model.cost.ApplicationCost;
 import com.khartec.waltz.model.cost.AssetCost;
 import com.khartec.waltz.model.cost.Cost;
+import com.khartec.waltz.service.application.ApplicationIdSetCacheService;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.lambda.tuple.Tuple2;
@@ -43,17 +43,20 @@ public class AssetCostService {
 
     private final AssetCostDao assetCostDao;
     private final AssetCostStatsDao assetCostStatsDao;
-    private final ApplicationIdSelectorFactory idSelectorFactory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSetCacheService applicationIdSetCacheService;
 
 
     @Autowired
     public AssetCostService(AssetCostDao assetCodeDao,
-                            AssetCostStatsDao assetCostStatsDao) {
+                            AssetCostStatsDao assetCostStatsDao,
+                            ApplicationIdSetCacheService applicationIdSetCacheService) {
         checkNotNull(assetCodeDao, "assetCodeDao cannot be null");
         checkNotNull(assetCostStatsDao, "assetCostStatsDao cannot be null");
+        checkNotNull(applicationIdSetCacheService, "applicationIdSetCacheService cannot be null");
 
         this.assetCostDao = assetCodeDao;
         this.assetCostStatsDao = assetCostStatsDao;
+        this.applicationIdSetCacheService = applicationIdSetCacheService;
     }
 
 
@@ -70,7 +73,7 @@ public class AssetCostService {
 
     public List<ApplicationCost> findAppCostsByAppIds(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
-        Select<Record1<Long>> selector = idSelectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSetCacheService.mkSelector(options);
 
         return assetCostDao
                 .findLatestYear()
@@ -81,7 +84,7 @@ public class AssetCostService {
 
     public List<ApplicationCost> findTopAppCostsByAppIds(IdSelectionOptions options, int limit) {
         checkNotNull(options, "options cannot be null");
-        Select<Record1<Long>> selector = idSelectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSetCacheService.mkSelector(options);
 
         return assetCostDao
                 .findLatestYear()
@@ -93,7 +96,7 @@ public class AssetCostService {
     public List<Tuple2<Long, BigDecimal>> calculateCombinedAmountsForSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
 
-        Select<Record1<Long>> appIdSelector = idSelectorFactory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
 
         return assetCostDao
                 .findLatestYear()
@@ -105,7 +108,7 @@ public class AssetCostService {
     public Cost calculateTotalCostForAppSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
 
-        Select<Record1<Long>> appIdSelector = idSelectorFactory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
 
         return assetCostDao
                 .findLatestYear()
@@ -19,6 +19,7 @@
 package com.khartec.waltz.service.attestation;
 
 
+import com.khartec.waltz.data.DBExecutorPoolInterface;
 import com.khartec.waltz.data.GenericSelector;
 import com.khartec.waltz.data.GenericSelectorFactory;
 import com.khartec.waltz.data.attestation.AttestationInstanceDao;
@@ -28,9 +29,13 @@ import com.khartec.waltz.data.involvement.InvolvementDao;
 import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.attestation.*;
 import com.khartec.waltz.model.person.Person;
+import com.khartec.waltz.service.IssuanceProgressTracker;
 import com.khartec.waltz.service.email.EmailService;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -38,6 +43,7 @@ import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
@@ -47,33 +53,44 @@ import static com.khartec.waltz.model.EntityReference.mkRef;
 import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
 import static java.util.Optional.empty;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Service
 public class AttestationRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AttestationRunService.class);
+
+    /**
+     * Number of instances created (along with their recipients) per transaction
+     * when issuing an attestation run.
+     */
+    private static final int ISSUANCE_CHUNK_SIZE = 1_000;
+
     private final AttestationInstanceDao attestationInstanceDao;
-    private final AttestationInstanceRecipientDao attestationInstanceRecipientDao;
     private final AttestationRunDao attestationRunDao;
+    private final DBExecutorPoolInterface dbExecutorPool;
     private final EmailService emailService;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
     private final InvolvementDao involvementDao;
+    private final IssuanceProgressTracker issuanceProgressTracker = new IssuanceProgressTracker();
 
     @Autowired
     public AttestationRunService(AttestationInstanceDao attestationInstanceDao,
-                                 AttestationInstanceRecipientDao attestationInstanceRecipientDao,
                                  AttestationRunDao attestationRunDao,
+                                 DBExecutorPoolInterface dbExecutorPool,
                                  EmailService emailService,
                                  InvolvementDao involvementDao) {
-        checkNotNull(attestationInstanceRecipientDao, "attestationInstanceRecipientDao cannot be null");
         checkNotNull(attestationInstanceDao, "attestationInstanceDao cannot be null");
         checkNotNull(attestationRunDao, "attestationRunDao cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(emailService, "emailService cannot be null");
         checkNotNull(involvementDao, "involvementDao cannot be null");
 
         this.attestationInstanceDao = attestationInstanceDao;
-        this.attestationInstanceRecipientDao = attestationInstanceRecipientDao;
         this.attestationRunDao = attestationRunDao;
+        this.dbExecutorPool = dbExecutorPool;
         this.emailService = emailService;
         this.involvementDao = involvementDao;
     }
@@ -141,17 +158,48 @@ public class AttestationRunService {
     public IdCommandResponse create(String userId, AttestationRunCreateCommand command) {
         // create run
         Long runId = attestationRunDao.create(userId, command);
+        EntityReference runRef = mkRef(EntityKind.ATTESTATION_RUN, runId);
 
         // generate instances and recipients
-        List<AttestationInstanceRecipient> instanceRecipients = generateAttestationInstanceRecipients(
+        List<Tuple2<AttestationInstance, Collection<String>>> instancesToCreate = prepareAttestationInstancesAndRecipients(
                 runId,
                 command.attestedEntityKind(),
                 userId);
 
         // store
-        createAttestationInstancesAndRecipients(instanceRecipients);
+        issuanceProgressTracker.start(runRef, instancesToCreate.size());
+        createAttestationInstancesAndRecipients(runRef, instancesToCreate);
+
+        return ImmutableIdCommandResponse.builder()
+                .id(runId)
+                .build();
+    }
+
+
+    /**
+     * Asynchronous variant of `create`.  The run is created, and its recipients
+     * resolved, before returning.  The instances and recipients are then created
+     * in the background (followed by the email notification).  Use
+     * `getIssuanceProgress` to monitor the issuance.
+     *
+     * @param userId  user creating the run
+     * @param command  details of the run
+     * @return id of the newly created run
+     */
+    public IdCommandResponse issue(String userId, AttestationRunCreateCommand command) {
+        // create run
+        Long runId = attestationRunDao.create(userId, command);
+        EntityReference runRef = mkRef(EntityKind.ATTESTATION_RUN, runId);
+
+        // generate instances and recipients
+        List<Tuple2<AttestationInstance, Collection<String>>> instancesToCreate = prepareAttestationInstancesAndRecipients(
+                runId,
+                command.attestedEntityKind(),
+                userId);
 
-        emailService.sendEmailNotification(mkRef(EntityKind.ATTESTATION_RUN, runId));
+        // store, in the background
+        issuanceProgressTracker.start(runRef, instancesToCreate.size());
+        dbExecutorPool.submit(() -> createAttestationInstancesAndRecipients(runRef, instancesToCreate));
 
         return ImmutableIdCommandResponse.builder()
                 .id(runId)
@@ -159,6 +207,26 @@ public class AttestationRunService {
     }
 
 
+    public Optional<IssuanceProgress> getIssuanceProgress(long attestationRunId) {
+        return issuanceProgressTracker.find(mkRef(EntityKind.ATTESTATION_RUN, attestationRunId));
+    }
+
+
+    private List<Tuple2<AttestationInstance, Collection<String>>> prepareAttestationInstancesAndRecipients(long attestationRunId,
+                                                                                                         EntityKind attestedEntityKind,
+                                                                                                         String userId) {
+        return generateAttestationInstanceRecipients(attestationRunId, attestedEntityKind, userId)
+                .stream()
+                .collect(groupingBy(
+                        AttestationInstanceRecipient::attestationInstance,
+                        mapping(AttestationInstanceRecipient::userId, toList())))
+                .entrySet()
+                .stream()
+                .map(e -> tuple(e.getKey(), (Collection<String>) e.getValue()))
+                .collect(toList());
+    }
+
+
     private List<AttestationInstanceRecipient> generateAttestationInstanceRecipients(long attestationRunId,
                                                                                      EntityKind attestedEntityKind,
                                                                                      String userId) {
@@ -223,25 +291,33 @@ public class AttestationRunService {
     }
 
 
-    private void createAttestationInstancesAndRecipients(List<AttestationInstanceRecipient> instanceRecipients) {
-        Map<AttestationInstance, List<AttestationInstanceRecipient>> instancesAndRecipientsToSave = instanceRecipients
-                .stream()
-                .collect(groupingBy(
-                        AttestationInstanceRecipient::attestationInstance,
-                        toList()
-                ));
-
-
-        // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k, v) -> {
-                    // create instance
-                    long instanceId = attestationInstanceDao.create(k);
+    private boolean createAttestationInstancesAndRecipients(EntityReference runRef,
+                                                            List<Tuple2<AttestationInstance, Collection<String>>> instancesToCreate) {
+        try {
+            // insert new instances and recipients, in chunks to bound transaction size
+            for (int start = 0; start < instancesToCreate.size(); start += ISSUANCE_CHUNK_SIZE) {
+                List<Tuple2<AttestationInstance, Collection<String>>> chunk = instancesToCreate.subList(
+                        start,
+                        Math.min(instancesToCreate.size(), start + ISSUANCE_CHUNK_SIZE));
+
+                int recipientCount = attestationInstanceDao.createWithRecipients(chunk);
+                IssuanceProgress progress = issuanceProgressTracker.advance(runRef, chunk.size(), recipientCount);
+
+                LOG.debug("Attestation run: {}, created {}/{} instances",
+                        runRef.id(),
+                        progress.instancesCreated(),
+                        progress.instanceCount());
+            }
+
+            issuanceProgressTracker.complete(runRef);
+        } catch (RuntimeException e) {
+            LOG.error("Failed to issue attestation run: " + runRef.id(), e);
+            issuanceProgressTracker.fail(runRef, e);
+            throw e;
+        }
 
-                    // create recipients for the instance
-                    v.forEach(r -> attestationInstanceRecipientDao.create(instanceId, r.userId()));
-                }
-        );
+        emailService.sendEmailNotification(runRef);
+        return true;
     }
 
 
@@ -0,0 +1,228 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.authoritative_source;
+
+import com.khartec.waltz.data.authoritative_source.AuthoritativeSourceDao;
+import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
+import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.FlowDecoratorRatingCandidate;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Recalculates the authoritative source rating of every logical flow decorator
+ * in a single pass.
+ *
+ * All inputs (vantage points, org unit and data type hierarchies and the
+ * decorators themselves) are loaded up front, ratings are computed in memory
+ * and only decorators whose rating has changed are written back.
+ *
+ * The rules are the same as repeatedly applying
+ * `LogicalFlowDecoratorDao.updateDecoratorsForAuthSource` to each vantage point
+ * (most specific first) after resetting all ratings to `NO_OPINION`.
+ */
+@Service
+public class AuthSourceRatingRecalculator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuthSourceRatingRecalculator.class);
+
+    private static final long[] NO_IDS = new long[0];
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final AuthoritativeSourceDao authoritativeSourceDao;
+    private final EntityHierarchyDao entityHierarchyDao;
+    private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+
+
+    @Autowired
+    public AuthSourceRatingRecalculator(AuthoritativeSourceDao authoritativeSourceDao,
+                                        EntityHierarchyDao entityHierarchyDao,
+                                        LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+        checkNotNull(authoritativeSourceDao, "authoritativeSourceDao cannot be null");
+        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
+        checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+
+        this.authoritativeSourceDao = authoritativeSourceDao;
+        this.entityHierarchyDao = entityHierarchyDao;
+        this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+    }
+
+
+    /**
+     * @return number of decorators whose rating was changed
+     */
+    public int recalculateAll() {
+        long start = System.currentTimeMillis();
+
+        RatingRules rules = new RatingRules(
+                authoritativeSourceDao.findAuthoritativeRatingVantagePoints(),
+                entityHierarchyDao.findAncestorIdsByKind(EntityKind.ORG_UNIT),
+                entityHierarchyDao.findAncestorIdsByKind(EntityKind.DATA_TYPE));
+
+        List<FlowDecoratorRatingCandidate> candidates = logicalFlowDecoratorDao.findRatingCandidates();
+
+        Map<AuthoritativenessRating, List<Long>> changedIdsByRating = candidates
+                .parallelStream()
+                .map(c -> tuple(c, rules.rate(c)))
+                .filter(t -> t.v2 != t.v1.rating())
+                .collect(groupingBy(
+                        t -> t.v2,
+                        mapping(t -> t.v1.decoratorId(), toList())));
+
+        int updateCount = changedIdsByRating
+                .entrySet()
+                .stream()
+                .mapToInt(e -> logicalFlowDecoratorDao.updateRatings(e.getKey(), e.getValue()))
+                .sum();
+
+        LOG.info("Recalculated ratings for {} decorators using {} vantage points, updated {} in {}ms",
+                candidates.size(),
+                rules.vantagePointCount(),
+                updateCount,
+                System.currentTimeMillis() - start);
+
+        return updateCount;
+    }
+
+
+    /**
+     * Immutable, in-memory form of the rating rules.  Vantage points are
+     * indexed by org unit and then data type, each entry holding the positions
+     * (i.e. order of precedence) of the matching vantage points.
+     */
+    static class RatingRules {
+
+        private final long[] vantagePointApps;
+        private final AuthoritativenessRating[] vantagePointRatings;
+        private final Map<Long, Map<Long, int[]>> positionsByOrgUnitThenDataType;
+        private final Map<Long, long[]> orgUnitAncestors;
+        private final Map<Long, long[]> dataTypeAncestors;
+
+
+        /**
+         * @param vantagePoints  in order of precedence (most specific first)
+         * @param orgUnitAncestors  org unit id to ids of itself and its ancestors
+         * @param dataTypeAncestors  data type id to ids of itself and its ancestors
+         */
+        RatingRules(List<AuthoritativeRatingVantagePoint> vantagePoints,
+                    Map<Long, long[]> orgUnitAncestors,
+                    Map<Long, long[]> dataTypeAncestors) {
+            checkNotNull(vantagePoints, "vantagePoints cannot be null");
+            checkNotNull(orgUnitAncestors, "orgUnitAncestors cannot be null");
+            checkNotNull(dataTypeAncestors, "dataTypeAncestors cannot be null");
+
+            int count = vantagePoints.size();
+            this.vantagePointApps = new long[count];
+            this.vantagePointRatings = new AuthoritativenessRating[count];
+            this.orgUnitAncestors = orgUnitAncestors;
+            this.dataTypeAncestors = dataTypeAncestors;
+
+            Map<Long, Map<Long, int[]>> positions = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                AuthoritativeRatingVantagePoint vantagePoint = vantagePoints.get(i);
+                vantagePointApps[i] = vantagePoint.applicationId();
+                vantagePointRatings[i] = vantagePoint.rating();
+
+                int position = i;
+                positions
+                        .computeIfAbsent(vantagePoint.vantagePoint().id(), k -> new HashMap<>())
+                        .merge(vantagePoint.dataType().id(),
+                                new int[]{ position },
+                                RatingRules::concat);
+            }
+            this.positionsByOrgUnitThenDataType = positions;
+        }
+
+
+        int vantagePointCount() {
+            return vantagePointApps.length;
+        }
+
+
+        AuthoritativenessRating rate(FlowDecoratorRatingCandidate candidate) {
+            if (! candidate.sourceApplicationId().isPresent() || ! candidate.targetOrgUnitId().isPresent()) {
+                return AuthoritativenessRating.NO_OPINION;
+            }
+
+            long sourceAppId = candidate.sourceApplicationId().get();
+            int[] positions = findApplicablePositions(
+                    candidate.targetOrgUnitId().get(),
+                    candidate.dataTypeId());
+
+            AuthoritativenessRating rating = AuthoritativenessRating.NO_OPINION;
+            for (int position : positions) {
+                if (rating == AuthoritativenessRating.NO_OPINION || rating == AuthoritativenessRating.DISCOURAGED) {
+                    rating = vantagePointApps[position] == sourceAppId
+                            ? vantagePointRatings[position]
+                            : AuthoritativenessRating.DISCOURAGED;
+                }
+            }
+            return rating;
+        }
+
+
+        private int[] findApplicablePositions(long orgUnitId, long dataTypeId) {
+            long[] orgUnits = orgUnitAncestors.getOrDefault(orgUnitId, NO_IDS);
+            long[] dataTypes = dataTypeAncestors.getOrDefault(dataTypeId, NO_IDS);
+
+            int[] result = NO_POSITIONS;
+            for (long orgUnit : orgUnits) {
+                Map<Long, int[]> positionsByDataType = positionsByOrgUnitThenDataType.getOrDefault(orgUnit, Collections.emptyMap());
+                if (positionsByDataType.isEmpty()) {
+                    continue;
+                }
+                for (long dataType : dataTypes) {
+                    int[] positions = positionsByDataType.get(dataType);
+                    if (positions != null) {
+                        result = concat(result, positions);
+                    }
+                }
+            }
+
+            Arrays.sort(result);
+            return result;
+        }
+
+
+        private static int[] concat(int[] a, int[] b) {
+            int[] result = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, result, a.length, b.length);
+            return result;
+        }
+    }
+
+}
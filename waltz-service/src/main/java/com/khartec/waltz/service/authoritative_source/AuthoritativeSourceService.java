@@ -70,6 +70,7 @@ public class AuthoritativeSourceService {
     private final AuthSourceRatingCalculator ratingCalculator;
     private final ChangeLogService changeLogService;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final AuthSourceRatingRecalculator ratingRecalculator;
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
     private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
@@ -82,7 +83,8 @@ public class AuthoritativeSourceService {
                                       ApplicationDao applicationDao,
                                       AuthSourceRatingCalculator ratingCalculator,
                                       ChangeLogService changeLogService,
-                                      LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                                      LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                      AuthSourceRatingRecalculator ratingRecalculator) {
         checkNotNull(authoritativeSourceDao, "authoritativeSourceDao must not be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
         checkNotNull(organisationalUnitDao, "organisationalUnitDao cannot be null");
@@ -90,6 +92,7 @@ public class AuthoritativeSourceService {
         checkNotNull(ratingCalculator, "ratingCalculator cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+        checkNotNull(ratingRecalculator, "ratingRecalculator cannot be null");
 
         this.authoritativeSourceDao = authoritativeSourceDao;
         this.dataTypeDao = dataTypeDao;
@@ -98,6 +101,7 @@ public class AuthoritativeSourceService {
         this.ratingCalculator = ratingCalculator;
         this.changeLogService = changeLogService;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.ratingRecalculator = ratingRecalculator;
     }
 
 
@@ -168,13 +172,7 @@ public class AuthoritativeSourceService {
 
 
     public boolean fastRecalculateAllFlowRatings() {
-        logicalFlowDecoratorDao.updateRatingsByCondition(AuthoritativenessRating.NO_OPINION, DSL.trueCondition());
-        List<AuthoritativeRatingVantagePoint> authoritativeRatingVantagePoints = authoritativeSourceDao.findAuthoritativeRatingVantagePoints();
-        authoritativeRatingVantagePoints.forEach(a -> {
-            LOG.info("Updating decorators for: {}", a);
-            int updateCount = logicalFlowDecoratorDao.updateDecoratorsForAuthSource(a);
-            LOG.info("Updated {} decorators for: {}", updateCount, a);
-        });
+        ratingRecalculator.recalculateAll();
         return true;
     }
 
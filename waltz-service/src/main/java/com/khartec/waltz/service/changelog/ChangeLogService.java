@@ -39,7 +39,10 @@ import com.khartec.waltz.model.measurable_rating_planned_decommission.Measurable
 import com.khartec.waltz.model.measurable_rating_replacement.MeasurableRatingReplacement;
 import com.khartec.waltz.model.physical_flow.PhysicalFlow;
 import com.khartec.waltz.model.physical_specification.PhysicalSpecification;
+import com.khartec.waltz.model.system.metrics.BatchingWriterStatistics;
 import com.khartec.waltz.model.tally.DateTally;
+import com.khartec.waltz.service.application.ApplicationIdSetCacheService;
+import com.khartec.waltz.service.client_cache_key.VersionStampService;
 import org.jooq.lambda.Unchecked;
 import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
@@ -73,6 +76,8 @@ public class ChangeLogService {
     private final MeasurableRatingReplacementDao measurableRatingReplacementdao;
     private final MeasurableRatingPlannedDecommissionDao measurableRatingPlannedDecommissionDao;
     private final EntityReferenceNameResolver nameResolver;
+    private final VersionStampService versionStampService;
+    private final ChangeLogWriter changeLogWriter;
 
 
     @Autowired
@@ -85,7 +90,10 @@ public class ChangeLogService {
                             ApplicationDao applicationDao,
                             MeasurableRatingReplacementDao measurableRatingReplacementDao,
                             MeasurableRatingPlannedDecommissionDao measurableRatingPlannedDecommissionDao,
-                            EntityReferenceNameResolver nameResolver) {
+                            EntityReferenceNameResolver nameResolver,
+                            VersionStampService versionStampService,
+                            ApplicationIdSetCacheService applicationIdSetCacheService,
+                            ChangeLogWriter changeLogWriter) {
         checkNotNull(changeLogDao, "changeLogDao must not be null");
         checkNotNull(changeLogSummariesDao, "changeLogSummariesDao must not be null");
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
@@ -95,6 +103,9 @@ public class ChangeLogService {
         checkNotNull(measurableRatingReplacementDao, "measurableRatingReplacementDao cannot be null");
         checkNotNull(measurableRatingPlannedDecommissionDao, "measurableRatingPlannedDecommissionDao cannot be null");
         checkNotNull(nameResolver, "nameResolver cannot be null");
+        checkNotNull(versionStampService, "versionStampService cannot be null");
+        checkNotNull(applicationIdSetCacheService, "applicationIdSetCacheService cannot be null");
+        checkNotNull(changeLogWriter, "changeLogWriter cannot be null");
 
         this.changeLogDao = changeLogDao;
         this.changeLogSummariesDao = changeLogSummariesDao;
@@ -106,6 +117,16 @@ public class ChangeLogService {
         this.measurableRatingReplacementdao = measurableRatingReplacementDao;
         this.measurableRatingPlannedDecommissionDao = measurableRatingPlannedDecommissionDao;
         this.nameResolver = nameResolver;
+        this.versionStampService = versionStampService;
+        this.changeLogWriter = changeLogWriter;
+
+        // cached application id sets must not be re-resolved, nor version stamps bumped, before
+        // the changes are visible.  Otherwise a client could cache the new stamp with old data
+        changeLogWriter.addWrittenListener(changeLogs -> {
+            Set<EntityKind> kinds = toKinds(changeLogs);
+            applicationIdSetCacheService.invalidate(kinds);
+            versionStampService.bump(kinds);
+        });
     }
 
 
@@ -113,6 +134,7 @@ public class ChangeLogService {
                                                  Optional<Date> date,
                                                  Optional<Integer> limit) {
         checkNotNull(ref, "ref must not be null");
+        flush();
         if(ref.kind() == EntityKind.PHYSICAL_FLOW) {
             return findByParentReferenceForPhysicalFlow(ref, date, limit);
         }
@@ -124,6 +146,7 @@ public class ChangeLogService {
                                                  Optional<Date> date,
                                                  Optional<Integer> limit) {
         checkNotNull(ref, "ref must not be null");
+        flush();
         return changeLogDao.findByPersonReference(ref, date, limit);
     }
 
@@ -131,17 +154,44 @@ public class ChangeLogService {
     public List<ChangeLog> findByUser(String userName,
                                       Optional<Integer> limit) {
         checkNotEmpty(userName, "Username cannot be empty");
+        flush();
         return changeLogDao.findByUser(userName, limit);
     }
 
 
-    public int write(ChangeLog changeLog) {
-        return changeLogDao.write(changeLog);
+    /**
+     * Entries are written asynchronously (see `ChangeLogWriter`), use `flush`
+     * if they need to be read back straight away.
+     *
+     * Version stamps for the affected kinds are bumped once the entry has been
+     * written, so entries should be written after the change they describe.
+     */
+    public void write(ChangeLog changeLog) {
+        // the change may have been a rename
+        nameResolver.invalidate(changeLog.parentReference());
+        changeLogWriter.write(Collections.singleton(changeLog));
+    }
+
+
+    public void write(Collection<ChangeLog> changeLogs) {
+        changeLogs.forEach(cl -> nameResolver.invalidate(cl.parentReference()));
+        changeLogWriter.write(changeLogs);
+    }
+
+
+    /**
+     * Waits for any queued change log entries to be written.  The finders in
+     * this service call this themselves so users see their own changes.
+     *
+     * @return false if the entries could not be written within the flush timeout
+     */
+    public boolean flush() {
+        return changeLogWriter.flush();
     }
 
 
-    public int[] write(Collection<ChangeLog> changeLogs) {
-        return changeLogDao.write(changeLogs);
+    public BatchingWriterStatistics getWriterStatistics() {
+        return changeLogWriter.getStatistics();
     }
 
 
@@ -154,6 +204,7 @@ public class ChangeLogService {
      * @return list of changes (empty if no attestations or if no changes)
      */
     public List<ChangeLog> findUnattestedChanges(EntityReference ref) {
+        flush();
         return changeLogDao.findUnattestedChanges(ref);
     }
 
@@ -223,6 +274,7 @@ public class ChangeLogService {
                                                                   IdSelectionOptions selectionOptions,
                                                                   Optional<Integer> limit) {
         GenericSelector genericSelector = new GenericSelectorFactory().applyForKind(parentKind, selectionOptions);
+        flush();
         return changeLogSummariesDao.findCountByDateForParentKindBySelector(genericSelector, limit);
     }
 
@@ -366,4 +418,15 @@ public class ChangeLogService {
                 .flatMap(EntityReference::name)
                 .orElse("UNKNOWN");
     }
+
+
+    private static Set<EntityKind> toKinds(Collection<ChangeLog> changeLogs) {
+        Set<EntityKind> kinds = new HashSet<>();
+        changeLogs.forEach(cl -> {
+            kinds.add(cl.parentReference().kind());
+            cl.childKind().ifPresent(kinds::add);
+        });
+        return kinds;
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.changelog;
+
+import com.khartec.waltz.data.changelog.ChangeLogDao;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import com.khartec.waltz.model.system.metrics.BatchingWriterStatistics;
+import com.khartec.waltz.service.BatchingWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Writes change log entries asynchronously, in batches, via a `BatchingWriter`.
+ * Callers which need to read their own writes should call `flush` first.
+ *
+ * Listeners are told about each batch once it has been committed, by which
+ * time the changes the entries describe have (typically) been committed too.
+ */
+@Service
+public class ChangeLogWriter implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogWriter.class);
+
+    private final BatchingWriter<ChangeLog> writer;
+    private final List<Consumer<List<ChangeLog>>> writtenListeners = new CopyOnWriteArrayList<>();
+
+
+    @Autowired
+    public ChangeLogWriter(ChangeLogDao changeLogDao,
+                           @Value("${waltz.change-log.async.enabled:true}") boolean asynchronous,
+                           @Value("${waltz.change-log.async.queue.capacity:10000}") int queueCapacity,
+                           @Value("${waltz.change-log.async.batch.size:1000}") int maxBatchSize,
+                           @Value("${waltz.change-log.async.flush.timeout.millis:5000}") long flushTimeoutMillis) {
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+
+        this.writer = new BatchingWriter<>(
+                "ChangeLogWriter",
+                batch -> {
+                    changeLogDao.write(batch);
+                    notifyWrittenListeners(batch);
+                },
+                asynchronous,
+                queueCapacity,
+                maxBatchSize,
+                flushTimeoutMillis);
+    }
+
+
+    public void addWrittenListener(Consumer<List<ChangeLog>> listener) {
+        checkNotNull(listener, "listener cannot be null");
+        writtenListeners.add(listener);
+    }
+
+
+    public void write(Collection<ChangeLog> changeLogs) {
+        writer.write(changeLogs);
+    }
+
+
+    /**
+     * @return true if all entries queued before this call were written within the flush timeout
+     */
+    public boolean flush() {
+        return writer.flush();
+    }
+
+
+    public BatchingWriterStatistics getStatistics() {
+        return writer.getStatistics();
+    }
+
+
+    /**
+     * A failing listener must not fail the batch, otherwise the writer would
+     * retry (and therefore duplicate) the entries which have already been written.
+     */
+    private void notifyWrittenListeners(List<ChangeLog> batch) {
+        writtenListeners.forEach(listener -> {
+            try {
+                listener.accept(batch);
+            } catch (Exception e) {
+                LOG.error("Change log written-listener failed for batch of {} entries", batch.size(), e);
+            }
+        });
+    }
+
+
+    @Override
+    public void destroy() throws InterruptedException {
+        writer.close();
+    }
+
+}
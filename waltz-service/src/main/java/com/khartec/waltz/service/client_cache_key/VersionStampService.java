@@ -0,0 +1,183 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.client_cache_key;
+
+import com.khartec.waltz.data.client_cache_key.ClientCacheKeyDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.WaltzVersionInfo;
+import com.khartec.waltz.model.client_cache_key.ClientCacheKey;
+import com.khartec.waltz.model.client_cache_key.ImmutableClientCacheKey;
+import com.khartec.waltz.model.client_cache_key.ImmutableVersionStamp;
+import com.khartec.waltz.model.client_cache_key.VersionStamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.DateTimeUtilities.UTC;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static java.util.UUID.randomUUID;
+
+
+/**
+ * Maintains a version stamp per entity kind, allowing clients (and the http
+ * layer) to cheaply determine whether data may have changed.
+ *
+ * Stamps are bumped whenever a change log entry is written for a kind.  Bumps
+ * are visible on this server immediately and are persisted, as
+ * `VERSION:<kind>` client cache keys, on the next sync.  Each sync also picks
+ * up stamps bumped by other servers.
+ *
+ * Not every change is recorded in the change log (e.g. bulk loads), therefore
+ * stamps also roll over every `waltz.version-stamp.max.age.millis`, bounding
+ * how long a client may continue to use a stale response.
+ */
+@Service
+public class VersionStampService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VersionStampService.class);
+    private static final String KEY_PREFIX = "VERSION:";
+
+    private final ClientCacheKeyDao clientCacheKeyDao;
+    private final String buildId;
+    private final long maxAgeMillis;
+
+    private final Map<EntityKind, ClientCacheKey> stampsByKind = new ConcurrentHashMap<>();
+    private final Set<EntityKind> pendingKinds = ConcurrentHashMap.newKeySet();
+
+
+    @Autowired
+    public VersionStampService(ClientCacheKeyDao clientCacheKeyDao,
+                               WaltzVersionInfo versionInfo,
+                               @Value("${waltz.version-stamp.max.age.millis:600000}") long maxAgeMillis) {
+        checkNotNull(clientCacheKeyDao, "clientCacheKeyDao cannot be null");
+        checkNotNull(versionInfo, "versionInfo cannot be null");
+        checkTrue(maxAgeMillis > 0, "maxAgeMillis must be positive");
+
+        this.clientCacheKeyDao = clientCacheKeyDao;
+        this.buildId = versionInfo.pomVersion() + "/" + versionInfo.revision() + "/" + versionInfo.timestamp();
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+
+    public void bump(EntityKind... kinds) {
+        bump(Arrays.asList(kinds));
+    }
+
+
+    public void bump(Collection<EntityKind> kinds) {
+        checkNotNull(kinds, "kinds cannot be null");
+        LocalDateTime now = nowUtc();
+        kinds.forEach(kind -> {
+            stampsByKind.put(kind, ImmutableClientCacheKey.builder()
+                    .key(KEY_PREFIX + kind.name())
+                    .guid(randomUUID().toString())
+                    .lastUpdatedAt(now)
+                    .build());
+            pendingKinds.add(kind);
+        });
+    }
+
+
+    /**
+     * @param kinds  entity kinds which contribute to a response
+     * @return stamp which changes whenever any of the given kinds changes,
+     *          when the application is redeployed, or when the max age elapses
+     */
+    public VersionStamp getStamp(EntityKind... kinds) {
+        long now = System.currentTimeMillis();
+        long bucket = now / maxAgeMillis;
+        LocalDateTime lastModified = LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket * maxAgeMillis), UTC);
+
+        StringBuilder sb = new StringBuilder(buildId)
+                .append('/')
+                .append(bucket);
+
+        EntityKind[] sortedKinds = kinds.clone();
+        Arrays.sort(sortedKinds);
+        for (EntityKind kind : sortedKinds) {
+            ClientCacheKey stamp = stampsByKind.get(kind);
+            sb.append('/').append(kind.name());
+            if (stamp != null) {
+                sb.append('=').append(stamp.guid());
+                if (stamp.lastUpdatedAt().isAfter(lastModified)) {
+                    lastModified = stamp.lastUpdatedAt();
+                }
+            }
+        }
+
+        return ImmutableVersionStamp.builder()
+                .tag(UUID.nameUUIDFromBytes(sb.toString().getBytes(StandardCharsets.UTF_8)).toString())
+                .lastModified(lastModified)
+                .build();
+    }
+
+
+    /**
+     * Persists any locally bumped stamps and then reloads all stamps, thereby
+     * picking up changes made via other servers.
+     */
+    @Scheduled(
+            initialDelay = 0,
+            fixedDelayString = "${waltz.version-stamp.refresh.millis:5000}")
+    public synchronized void sync() {
+        try {
+            for (EntityKind kind : new ArrayList<>(pendingKinds)) {
+                pendingKinds.remove(kind);
+                ClientCacheKey stamp = stampsByKind.get(kind);
+                try {
+                    clientCacheKeyDao.createOrUpdate(stamp.key(), stamp.guid());
+                } catch (RuntimeException e) {
+                    pendingKinds.add(kind);
+                    throw e;
+                }
+            }
+
+            clientCacheKeyDao
+                    .findAll()
+                    .stream()
+                    .filter(k -> k.key().startsWith(KEY_PREFIX))
+                    .forEach(k -> toKind(k.key())
+                            .filter(kind -> ! pendingKinds.contains(kind))
+                            .ifPresent(kind -> stampsByKind.put(kind, k)));
+        } catch (Exception e) {
+            LOG.warn("Failed to sync version stamps, will retry", e);
+        }
+    }
+
+
+    private static Optional<EntityKind> toKind(String key) {
+        try {
+            return Optional.of(EntityKind.valueOf(key.substring(KEY_PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+}
@@ -18,7 +18,6 @@
 package com.khartec.waltz.service.complexity;
 
 import com.khartec.waltz.common.ListUtilities;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.complexity.ComplexityScoreDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.IdSelectionOptions;
@@ -26,6 +25,7 @@ import com.khartec.waltz.model.complexity.ComplexityKind;
 import com.khartec.waltz.model.complexity.ComplexityRating;
 import com.khartec.waltz.model.complexity.ComplexityScore;
 import com.khartec.waltz.schema.tables.records.ComplexityScoreRecord;
+import com.khartec.waltz.service.application.ApplicationIdSetCacheService;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.SelectJoinStep;
@@ -53,24 +53,27 @@ public class ComplexityRatingService {
     private final ConnectionComplexityService connectionComplexityService;
     private final ServerComplexityService serverComplexityService;
 
-    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSetCacheService applicationIdSetCacheService;
 
 
     @Autowired
     public ComplexityRatingService(ComplexityScoreDao complexityScoreDao,
                                    MeasurableComplexityService measurableComplexityService,
                                    ConnectionComplexityService connectionComplexityService,
-                                   ServerComplexityService serverComplexityService) {
+                                   ServerComplexityService serverComplexityService,
+                                   ApplicationIdSetCacheService applicationIdSetCacheService) {
 
         checkNotNull(complexityScoreDao, "complexityScoreDao cannot be null");
         checkNotNull(measurableComplexityService, "measurableComplexityService cannot be null");
         checkNotNull(connectionComplexityService, "connectionComplexityService cannot be null");
         checkNotNull(serverComplexityService, "serverComplexityService cannot be null");
+        checkNotNull(applicationIdSetCacheService, "applicationIdSetCacheService cannot be null");
 
         this.complexityScoreDao = complexityScoreDao;
         this.measurableComplexityService = measurableComplexityService;
         this.connectionComplexityService = connectionComplexityService;
         this.serverComplexityService = serverComplexityService;
+        this.applicationIdSetCacheService = applicationIdSetCacheService;
     }
 
 
@@ -89,7 +92,7 @@ public class ComplexityRatingService {
      * @return
      */
     public List<ComplexityRating> findForAppIdSelector(IdSelectionOptions options) {
-        Select<Record1<Long>> appIdSelector = appIdSelectorFactory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
         return complexityScoreDao.findForAppIdSelector(appIdSelector);
     }
 
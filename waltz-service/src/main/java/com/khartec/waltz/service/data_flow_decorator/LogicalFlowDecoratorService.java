@@ -22,7 +22,6 @@ package com.khartec.waltz.service.data_flow_decorator;
 import com.khartec.waltz.common.Checks;
 import com.khartec.waltz.common.ListUtilities;
 import com.khartec.waltz.common.SetUtilities;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.data_flow_decorator.LogicalFlowDecoratorSummaryDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
@@ -38,6 +37,7 @@ import com.khartec.waltz.model.datatype.ImmutableDataTypeDecorator;
 import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlowMeasures;
 import com.khartec.waltz.model.logical_flow.LogicalFlow;
 import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import com.khartec.waltz.service.application.ApplicationIdSetCacheService;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import com.khartec.waltz.service.logical_flow.LogicalFlowService;
 import com.khartec.waltz.service.usage_info.DataTypeUsageService;
@@ -72,7 +72,7 @@ public class LogicalFlowDecoratorService {
     private final LogicalFlowDecoratorSummaryDao logicalFlowDecoratorSummaryDao;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
     private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
-    private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSetCacheService applicationIdSetCacheService;
     private final DataTypeUsageService dataTypeUsageService;
     private final DataTypeDao dataTypeDao;
     private final LogicalFlowDao logicalFlowDao;
@@ -88,7 +88,8 @@ public class LogicalFlowDecoratorService {
                                        LogicalFlowDao logicalFlowDao,
                                        LogicalFlowService logicalFlowService,
                                        LogicalFlowStatsDao logicalFlowStatsDao,
-                                       ChangeLogService changeLogService) {
+                                       ChangeLogService changeLogService,
+                                       ApplicationIdSetCacheService applicationIdSetCacheService) {
 
         checkNotNull(logicalFlowDecoratorSummaryDao, "logicalFlowDecoratorDao cannot be null");
         checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
@@ -98,6 +99,7 @@ public class LogicalFlowDecoratorService {
         checkNotNull(logicalFlowService, "logicalFlowService cannot be null");
         checkNotNull(logicalFlowStatsDao, "logicalFlowStatsDao cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(applicationIdSetCacheService, "applicationIdSetCacheService cannot be null");
 
         this.logicalFlowDecoratorSummaryDao = logicalFlowDecoratorSummaryDao;
         this.ratingsCalculator = ratingsCalculator;
@@ -106,6 +108,7 @@ public class LogicalFlowDecoratorService {
         this.logicalFlowDao = logicalFlowDao;
         this.changeLogService = changeLogService;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.applicationIdSetCacheService = applicationIdSetCacheService;
     }
 
 
@@ -142,7 +145,7 @@ public class LogicalFlowDecoratorService {
                 .flatMap(f -> Stream.of(f.source(), f.target()))
                 .collect(Collectors.toList());
 
-        dataTypeUsageService.recalculateForApplications(effectedEntities);
+        dataTypeUsageService.markDirty(effectedEntities);
         bulkAudit(actions, username, effectedFlows);
 
         return added;
@@ -151,14 +154,14 @@ public class LogicalFlowDecoratorService {
 
     public List<DecoratorRatingSummary> summarizeInboundForSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
-        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSetCacheService.mkSelector(options);
         return logicalFlowDecoratorSummaryDao.summarizeInboundForSelector(selector);
     }
 
 
     public List<DecoratorRatingSummary> summarizeOutboundForSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
-        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSetCacheService.mkSelector(options);
         return logicalFlowDecoratorSummaryDao.summarizeOutboundForSelector(selector);
     }
 
@@ -236,7 +239,7 @@ public class LogicalFlowDecoratorService {
 
     public Set<LogicalFlowDecoratorStat> findFlowsByDatatypeForEntity(IdSelectionOptions selectionOptions) {
 
-        Select<Record1<Long>> appIds = applicationIdSelectorFactory.apply(selectionOptions);
+        Select<Record1<Long>> appIds = applicationIdSetCacheService.mkSelector(selectionOptions);
 
         Map<DataTypeDirectionKey, List<Long>> dataTypeIdAndFlowTypeKeyToLogicalFlowIdsMap =
                 logicalFlowDecoratorSummaryDao.logicalFlowIdsByTypeAndDirection(appIds);
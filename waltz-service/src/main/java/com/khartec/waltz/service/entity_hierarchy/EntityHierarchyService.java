@@ -21,11 +21,13 @@ package com.khartec.waltz.service.entity_hierarchy;
 import com.khartec.waltz.common.ListUtilities;
 import com.khartec.waltz.common.hierarchy.FlatNode;
 import com.khartec.waltz.common.hierarchy.Forest;
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
 import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
 import com.khartec.waltz.common.hierarchy.Node;
 import com.khartec.waltz.data.change_initiative.ChangeInitiativeDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyIndexes;
 import com.khartec.waltz.data.entity_hierarchy.EntityRootsSelectorFactory;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticDao;
 import com.khartec.waltz.data.measurable.MeasurableDao;
@@ -37,10 +39,14 @@ import com.khartec.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
 import com.khartec.waltz.model.tally.ImmutableTally;
 import com.khartec.waltz.model.tally.Tally;
 import com.khartec.waltz.schema.Tables;
+import com.khartec.waltz.service.application.ApplicationIdSetCacheService;
 import com.khartec.waltz.service.person_hierarchy.PersonHierarchyService;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -57,7 +63,18 @@ import static org.jooq.impl.DSL.select;
 @Service
 public class EntityHierarchyService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntityHierarchyService.class);
+
+    private static final EntityKind[] INDEXED_KINDS = {
+            EntityKind.CHANGE_INITIATIVE,
+            EntityKind.DATA_TYPE,
+            EntityKind.ENTITY_STATISTIC,
+            EntityKind.MEASURABLE,
+            EntityKind.ORG_UNIT
+    };
+
     private final DSLContext dsl;
+    private final ApplicationIdSetCacheService applicationIdSetCacheService;
     private final ChangeInitiativeDao changeInitiativeDao;
     private final DataTypeDao dataTypeDao;
     private final EntityHierarchyDao entityHierarchyDao;
@@ -69,6 +86,7 @@ public class EntityHierarchyService {
 
     @Autowired
     public EntityHierarchyService(DSLContext dsl,
+                                  ApplicationIdSetCacheService applicationIdSetCacheService,
                                   ChangeInitiativeDao changeInitiativeDao,
                                   DataTypeDao dataTypeDao,
                                   EntityHierarchyDao entityHierarchyDao,
@@ -78,6 +96,7 @@ public class EntityHierarchyService {
                                   PersonHierarchyService personHierarchyService) {
 
         checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(applicationIdSetCacheService, "applicationIdSetCacheService cannot be null");
         checkNotNull(changeInitiativeDao, "changeInitiativeDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
         checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
@@ -87,6 +106,7 @@ public class EntityHierarchyService {
         checkNotNull(personHierarchyService, "personHierarchyService cannot be null");
 
         this.dsl = dsl;
+        this.applicationIdSetCacheService = applicationIdSetCacheService;
         this.changeInitiativeDao = changeInitiativeDao;
         this.dataTypeDao = dataTypeDao;
         this.entityHierarchyDao = entityHierarchyDao;
@@ -142,21 +162,100 @@ public class EntityHierarchyService {
     public int buildFor(EntityKind kind) {
         if (kind == PERSON) {
             int[] rc = personHierarchyService.build();
+            applicationIdSetCacheService.invalidate(Collections.singleton(PERSON));
             return rc.length;
         } else {
             Table table = determineTableToRebuild(kind);
-            return buildFor(table, kind, DSL.trueCondition(), DSL.trueCondition());
+            int rc = buildFor(table, kind, DSL.trueCondition(), DSL.trueCondition());
+            refreshIndex(kind);
+            applicationIdSetCacheService.invalidate(Collections.singleton(kind));
+            return rc;
         }
     }
 
 
     public int buildForMeasurableByCategory(long categoryId) {
-        return buildFor(MEASURABLE,
+        int rc = buildFor(MEASURABLE,
                         EntityKind.MEASURABLE,
                         MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId),
                         ENTITY_HIERARCHY.ID.in(select(MEASURABLE.ID)
                                                 .from(MEASURABLE)
                                                 .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId))));
+        refreshIndex(EntityKind.MEASURABLE);
+        applicationIdSetCacheService.invalidate(Collections.singleton(EntityKind.MEASURABLE));
+        return rc;
+    }
+
+
+    /**
+     * Rebuilds the in-memory hierarchy index for the given kind.  The index
+     * is used by the id selector factories to avoid joining to the
+     * `ENTITY_HIERARCHY` table for small sub-trees.
+     *
+     * @param kind  hierarchical entity kind (not PERSON)
+     * @return number of nodes in the new index
+     */
+    public int refreshIndex(EntityKind kind) {
+        Table table = determineTableToRebuild(kind);
+        // read before the nodes so a concurrent rebuild causes another refresh rather than being missed
+        Optional<String> version = entityHierarchyDao.findVersion(kind);
+        Forest<Long, Long> forest = HierarchyUtilities.toForest(fetchFlatNodes(table, DSL.trueCondition()));
+        HierarchyIndex index = HierarchyIndex.fromForest(forest);
+        EntityHierarchyIndexes.register(kind, index, version);
+        EntityHierarchyIndexes.updateCurrentVersion(kind, version);
+        LOG.info("Refreshed hierarchy index for kind: {}, {}", kind, index);
+        return index.size();
+    }
+
+
+    /**
+     * Picks up hierarchies rebuilt by other server instances.  Indexes built
+     * from an older version stop being used as soon as the new version is seen
+     * (selectors fall back to the `ENTITY_HIERARCHY` table) and are then rebuilt.
+     */
+    @Scheduled(
+            initialDelay = 5_000,
+            fixedDelayString = "${waltz.entity-hierarchy.version.check.millis:5000}")
+    public void checkIndexVersions() {
+        Map<EntityKind, String> versions;
+        try {
+            versions = entityHierarchyDao.findVersions();
+        } catch (Exception e) {
+            LOG.warn("Failed to check hierarchy versions, will retry", e);
+            return;
+        }
+
+        for (EntityKind kind : INDEXED_KINDS) {
+            EntityHierarchyIndexes.updateCurrentVersion(kind, Optional.ofNullable(versions.get(kind)));
+            if (EntityHierarchyIndexes.isCurrent(kind)) {
+                continue;
+            }
+
+            try {
+                refreshIndex(kind);
+                applicationIdSetCacheService.invalidate(Collections.singleton(kind));
+            } catch (Exception e) {
+                LOG.warn("Failed to refresh hierarchy index for kind: " + kind, e);
+            }
+        }
+    }
+
+
+    /**
+     * Periodically refreshes the in-memory hierarchy indexes.  This ensures
+     * they are populated at startup and pick up changes to the underlying
+     * tables which have not (yet) been followed by a hierarchy rebuild.
+     */
+    @Scheduled(initialDelay = 0, fixedRate = 900_000)
+    public void refreshIndexes() {
+        for (EntityKind kind : INDEXED_KINDS) {
+            try {
+                refreshIndex(kind);
+            } catch (Exception e) {
+                LOG.warn("Failed to refresh hierarchy index for kind: " + kind, e);
+                EntityHierarchyIndexes.remove(kind);
+            }
+        }
     }
 
 
@@ -167,7 +266,7 @@ public class EntityHierarchyService {
         Collection<FlatNode<Long, Long>> flatNodes = fetchFlatNodes(table, selectFilter);
         List<EntityHierarchyItem> hierarchyItems = convertFlatNodesToHierarchyItems(kind, flatNodes);
 
-        return entityHierarchyDao.replaceHierarchy(kind, hierarchyItems, deleteFilter);
+        return entityHierarchyDao.syncHierarchy(kind, hierarchyItems, deleteFilter);
     }
 
 
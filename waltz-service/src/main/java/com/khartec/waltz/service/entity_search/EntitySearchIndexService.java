@@ -0,0 +1,200 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_search;
+
+import com.khartec.waltz.data.application.search.ApplicationSearchDao;
+import com.khartec.waltz.data.change_initiative.search.ChangeInitiativeSearchDao;
+import com.khartec.waltz.data.changelog.ChangeLogDao;
+import com.khartec.waltz.data.data_type.search.DataTypeSearchDao;
+import com.khartec.waltz.data.measurable.search.MeasurableSearchDao;
+import com.khartec.waltz.data.orgunit.search.OrganisationalUnitSearchDao;
+import com.khartec.waltz.data.person.search.PersonSearchDao;
+import com.khartec.waltz.data.server_information.search.ServerInformationSearchDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+
+
+/**
+ * Keeps the in-memory search indexes (see `waltz.search.in-memory.enabled`) up to date.
+ *
+ * Indexes are built at startup.  Entities named as the parent of new change
+ * log entries are then reloaded into their index.  As bulk loads do not always
+ * write to the change log all indexes are also periodically rebuilt.
+ */
+@Service
+public class EntitySearchIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchIndexService.class);
+
+    /**
+     * Change log entries are written asynchronously, in batches and by other
+     * servers, so may be committed some time after their creation time (and
+     * not in id order).  Each check therefore looks back this far before the
+     * previous check, ignoring entries it has already seen.
+     */
+    private static final Duration CHANGE_LOG_LOOKBACK = Duration.ofMinutes(5);
+
+    private final ChangeLogDao changeLogDao;
+    private final boolean inMemorySearchEnabled;
+    private final Map<EntityKind, BooleanSupplier> indexRefreshers = new EnumMap<>(EntityKind.class);
+    private final Map<EntityKind, Predicate<Set<Long>>> entityRefreshers = new EnumMap<>(EntityKind.class);
+
+    private LocalDateTime lastCheckedAt = null;
+    private Set<Integer> seenChangeLogIds = Collections.emptySet();
+
+
+    @Autowired
+    public EntitySearchIndexService(ChangeLogDao changeLogDao,
+                                    ApplicationSearchDao applicationSearchDao,
+                                    ChangeInitiativeSearchDao changeInitiativeSearchDao,
+                                    MeasurableSearchDao measurableSearchDao,
+                                    OrganisationalUnitSearchDao organisationalUnitSearchDao,
+                                    ServerInformationSearchDao serverInformationSearchDao,
+                                    PersonSearchDao personSearchDao,
+                                    DataTypeSearchDao dataTypeSearchDao,
+                                    @Value("${waltz.search.in-memory.enabled:false}") boolean inMemorySearchEnabled) {
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+        checkNotNull(applicationSearchDao, "applicationSearchDao cannot be null");
+        checkNotNull(changeInitiativeSearchDao, "changeInitiativeSearchDao cannot be null");
+        checkNotNull(measurableSearchDao, "measurableSearchDao cannot be null");
+        checkNotNull(organisationalUnitSearchDao, "organisationalUnitSearchDao cannot be null");
+        checkNotNull(serverInformationSearchDao, "serverInformationSearchDao cannot be null");
+        checkNotNull(personSearchDao, "personSearchDao cannot be null");
+        checkNotNull(dataTypeSearchDao, "dataTypeSearchDao cannot be null");
+
+        this.changeLogDao = changeLogDao;
+        this.inMemorySearchEnabled = inMemorySearchEnabled;
+
+        indexRefreshers.put(EntityKind.APPLICATION, applicationSearchDao::refreshIndex);
+        indexRefreshers.put(EntityKind.CHANGE_INITIATIVE, changeInitiativeSearchDao::refreshIndex);
+        indexRefreshers.put(EntityKind.MEASURABLE, measurableSearchDao::refreshIndex);
+        indexRefreshers.put(EntityKind.ORG_UNIT, organisationalUnitSearchDao::refreshIndex);
+        indexRefreshers.put(EntityKind.SERVER, serverInformationSearchDao::refreshIndex);
+        indexRefreshers.put(EntityKind.PERSON, personSearchDao::refreshIndex);
+        indexRefreshers.put(EntityKind.DATA_TYPE, dataTypeSearchDao::refreshIndex);
+
+        entityRefreshers.put(EntityKind.APPLICATION, applicationSearchDao::refreshIndex);
+        entityRefreshers.put(EntityKind.CHANGE_INITIATIVE, changeInitiativeSearchDao::refreshIndex);
+        entityRefreshers.put(EntityKind.MEASURABLE, measurableSearchDao::refreshIndex);
+        entityRefreshers.put(EntityKind.ORG_UNIT, organisationalUnitSearchDao::refreshIndex);
+        entityRefreshers.put(EntityKind.SERVER, serverInformationSearchDao::refreshIndex);
+        entityRefreshers.put(EntityKind.PERSON, personSearchDao::refreshIndex);
+        entityRefreshers.put(EntityKind.DATA_TYPE, dataTypeSearchDao::refreshIndex);
+    }
+
+
+    /**
+     * Reloads entities which are the parent of change log entries not seen by
+     * a previous check.  The first invocation builds all indexes.
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = 30_000)
+    public synchronized void refreshChangedIndexes() {
+        if (! inMemorySearchEnabled) {
+            return;
+        }
+
+        LocalDateTime checkStartedAt = nowUtc();
+        LocalDateTime since = (lastCheckedAt == null ? checkStartedAt : lastCheckedAt).minus(CHANGE_LOG_LOOKBACK);
+
+        Map<Integer, EntityReference> recentChanges = changeLogDao.findParentReferencesCreatedSince(
+                since,
+                indexRefreshers.keySet());
+
+        Set<EntityKind> failedKinds = new HashSet<>();
+        if (lastCheckedAt == null) {
+            refreshAll();
+        } else {
+            recentChanges.entrySet()
+                    .stream()
+                    .filter(e -> ! seenChangeLogIds.contains(e.getKey()))
+                    .map(Map.Entry::getValue)
+                    .collect(Collectors.groupingBy(
+                            EntityReference::kind,
+                            Collectors.mapping(EntityReference::id, Collectors.toSet())))
+                    .forEach((kind, ids) -> {
+                        if (! refresh(kind, ids)) {
+                            failedKinds.add(kind);
+                        }
+                    });
+        }
+
+        // entries for kinds which failed to refresh are retried by the next check
+        seenChangeLogIds = recentChanges.entrySet()
+                .stream()
+                .filter(e -> ! failedKinds.contains(e.getValue().kind()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        lastCheckedAt = checkStartedAt;
+    }
+
+
+    @Scheduled(initialDelay = 3_600_000, fixedDelay = 3_600_000)
+    public void refreshAll() {
+        if (inMemorySearchEnabled) {
+            refresh(indexRefreshers.keySet());
+        }
+    }
+
+
+    public void refresh(Collection<EntityKind> kinds) {
+        kinds.forEach(this::refresh);
+    }
+
+
+    private void refresh(EntityKind kind) {
+        try {
+            indexRefreshers.get(kind).getAsBoolean();
+        } catch (Exception e) {
+            LOG.error("Failed to refresh search index for {}", kind, e);
+        }
+    }
+
+
+    private boolean refresh(EntityKind kind, Set<Long> ids) {
+        try {
+            entityRefreshers.get(kind).test(ids);
+            return true;
+        } catch (Exception e) {
+            LOG.error("Failed to refresh {} {} entities in search index", ids.size(), kind, e);
+            return false;
+        }
+    }
+
+}
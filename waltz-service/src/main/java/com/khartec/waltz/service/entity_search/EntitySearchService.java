@@ -36,22 +36,29 @@ import com.khartec.waltz.service.physical_specification.PhysicalSpecificationSer
 import com.khartec.waltz.service.roadmap.RoadmapService;
 import com.khartec.waltz.service.server_information.ServerInformationService;
 import com.khartec.waltz.service.software_catalog.SoftwareCatalogService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.EnumUtilities.readEnum;
+import static com.khartec.waltz.common.StringUtilities.mkSafe;
 import static java.util.stream.Collectors.toList;
-import static org.jooq.lambda.Unchecked.supplier;
 
 @Service
 public class EntitySearchService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchService.class);
+
+    private final Duration defaultTimeout;
+    private final Map<EntityKind, Duration> timeoutOverrides;
     private final DBExecutorPoolInterface dbExecutorPool;
     private final ActorService actorService;
     private final ApplicationService applicationService;
@@ -82,7 +89,10 @@ public class EntitySearchService {
                                PhysicalSpecificationService physicalSpecificationService,
                                RoadmapService roadmapService,
                                ServerInformationService serverInformationService,
-                               SoftwareCatalogService softwareCatalogService) {
+                               SoftwareCatalogService softwareCatalogService,
+                               @Value("${waltz.search.timeout.millis:5000}") long defaultTimeoutMillis,
+                               @Value("${waltz.search.timeout.overrides:}") String timeoutOverrides) {
+        checkTrue(defaultTimeoutMillis > 0, "defaultTimeoutMillis must be positive");
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(actorService, "actorService cannot be null");
         checkNotNull(applicationService, "applicationService cannot be null");
@@ -112,28 +122,90 @@ public class EntitySearchService {
         this.roadmapService = roadmapService;
         this.serverInformationService = serverInformationService;
         this.softwareCatalogService = softwareCatalogService;
+        this.defaultTimeout = Duration.ofMillis(defaultTimeoutMillis);
+        this.timeoutOverrides = parseTimeoutOverrides(timeoutOverrides);
     }
 
 
+    /**
+     * Searches across all the requested entity kinds.  Kinds which do not
+     * respond within their timeout are omitted from the results.
+     */
     public List<EntityReference> search(EntitySearchOptions options) {
+        return searchByKind(options)
+                .entrySet()
+                .stream()
+                .flatMap(e -> awaitResult(e.getKey(), e.getValue()).stream())
+                .collect(toList());
+    }
+
+
+    private Map<EntityKind, CompletableFuture<List<EntityReference>>> searchByKind(EntitySearchOptions options) {
         checkNotNull(options, "options cannot be null");
 
         if (StringUtilities.isEmpty(options.searchQuery())
                 || SearchUtilities.mkTerms(options.searchQuery()).isEmpty()) {
-            return Collections.emptyList();
+            return Collections.emptyMap();
         }
 
-        List<Future<Collection<? extends WaltzEntity>>> futures = options
-                .entityKinds()
+        Map<EntityKind, CompletableFuture<List<EntityReference>>> futures = new LinkedHashMap<>();
+        options.entityKinds()
                 .stream()
-                .map(ek -> dbExecutorPool.submit(mkCallable(ek, options)))
-                .collect(toList());
+                .distinct()
+                .forEach(ek -> futures.put(
+                        ek,
+                        dbExecutorPool
+                                .submit(mkCallable(ek, options), timeoutOverrides.getOrDefault(ek, defaultTimeout))
+                                .thenApply(xs -> xs
+                                        .stream()
+                                        .map(WaltzEntity::entityReference)
+                                        .collect(toList()))));
+        return futures;
+    }
 
-        return futures
-                .stream()
-                .flatMap(f -> supplier(f::get).get().stream())
-                .map(WaltzEntity::entityReference)
-                .collect(toList());
+
+    private static List<EntityReference> awaitResult(EntityKind kind,
+                                                     CompletableFuture<List<EntityReference>> future) {
+        return future
+                .handle((results, e) -> {
+                    if (e == null) {
+                        return results;
+                    }
+
+                    if (e instanceof TimeoutException || e.getCause() instanceof TimeoutException) {
+                        LOG.warn("Search for {} timed out", kind);
+                    } else {
+                        LOG.error("Search for {} failed", kind, e);
+                    }
+                    return Collections.<EntityReference>emptyList();
+                })
+                .join();
+    }
+
+
+    /**
+     * Overrides are specified as `KIND=millis` pairs separated by semi-colons,
+     * e.g. `APPLICATION=8000;PERSON=3000`
+     */
+    private static Map<EntityKind, Duration> parseTimeoutOverrides(String overrides) {
+        Map<EntityKind, Duration> result = new EnumMap<>(EntityKind.class);
+        for (String override : mkSafe(overrides).split(";")) {
+            String[] kv = override.split("=");
+            if (kv.length != 2) {
+                continue;
+            }
+            EntityKind kind = readEnum(kv[0].trim(), EntityKind.class, s -> null);
+            if (kind == null) {
+                LOG.warn("Ignoring search timeout override for unknown kind: {}", kv[0]);
+                continue;
+            }
+            try {
+                result.put(kind, Duration.ofMillis(Long.parseLong(kv[1].trim())));
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring search timeout override for {} with invalid value: {}", kind, kv[1]);
+            }
+        }
+        return result;
     }
 
 
@@ -0,0 +1,270 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_statistic;
+
+import com.khartec.waltz.data.entity_statistic.EntityStatisticDefinitionDao;
+import com.khartec.waltz.data.entity_statistic.EntityStatisticRollupDao;
+import com.khartec.waltz.model.Duration;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.HierarchyQueryScope;
+import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.model.entity_statistic.*;
+import com.khartec.waltz.model.tally.TallyPack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.common.SetUtilities.minus;
+import static com.khartec.waltz.common.SetUtilities.union;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+
+/**
+ * Keeps the pre-aggregated entity statistic rollups up to date and decides
+ * whether a summary request can be answered from them.
+ *
+ * Loaders do not notify Waltz when they replace statistic values, instead
+ * the id of each statistic's latest value is compared to the one recorded at
+ * the last rebuild.  Changes to hierarchy membership (apps moving org unit,
+ * new measurable ratings etc.) are picked up by comparing node membership
+ * checksums and rebuilding the current rollups of just the affected nodes.
+ * As a backstop (e.g. for values updated in place) the current rollups are
+ * rebuilt in full once older than `waltz.entity-statistic.rollup.max.age.millis`.
+ * Historic rollups reflect hierarchy membership at the time they were built.
+ */
+@Service
+public class EntityStatisticRollupService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityStatisticRollupService.class);
+
+    /**
+     * Beyond this many changed nodes (e.g. after a hierarchy rebuild) the
+     * current rollups are rebuilt in full rather than node by node.
+     */
+    private static final int MAX_NODES_PER_PARTIAL_REBUILD = 500;
+
+    private static final Set<EntityLifecycleStatus> ROLLUP_LIFECYCLE_STATUSES = Collections.singleton(EntityLifecycleStatus.ACTIVE);
+
+    private final EntityStatisticRollupDao rollupDao;
+    private final EntityStatisticDefinitionDao definitionDao;
+    private final boolean enabled;
+    private final long maxAgeMillis;
+
+    private volatile Map<Long, EntityStatisticRollupState> statesByStatisticId = Collections.emptyMap();
+
+
+    @Autowired
+    public EntityStatisticRollupService(EntityStatisticRollupDao rollupDao,
+                                        EntityStatisticDefinitionDao definitionDao,
+                                        @Value("${waltz.entity-statistic.rollup.enabled:true}") boolean enabled,
+                                        @Value("${waltz.entity-statistic.rollup.max.age.millis:86400000}") long maxAgeMillis) {
+        checkNotNull(rollupDao, "rollupDao cannot be null");
+        checkNotNull(definitionDao, "definitionDao cannot be null");
+
+        this.rollupDao = rollupDao;
+        this.definitionDao = definitionDao;
+        this.enabled = enabled;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+
+    /**
+     * Rollups can only stand in for the live summary queries if the options
+     * select exactly the applications the rollups were built from: the active
+     * applications of a hierarchy node and its descendants.
+     *
+     * @return true if the given statistic's summary for the given options can be taken from the rollups
+     */
+    public boolean canServe(long statisticId, RollupKind rollupKind, IdSelectionOptions options) {
+        checkNotNull(rollupKind, "rollupKind cannot be null");
+        checkNotNull(options, "options cannot be null");
+
+        if (! enabled) {
+            return false;
+        }
+
+        boolean optionsSupported = EntityStatisticRollupDao.ROLLUP_NODE_KINDS.contains(options.entityReference().kind())
+                && options.scope() == HierarchyQueryScope.CHILDREN
+                && ! options.joiningEntityKind().isPresent()
+                && ROLLUP_LIFECYCLE_STATUSES.equals(options.entityLifecycleStatuses())
+                && options.filters().omitApplicationKinds().isEmpty();
+
+        return optionsSupported && Optional
+                .ofNullable(statesByStatisticId.get(statisticId))
+                .map(state -> state.rollupKind() == rollupKind)
+                .orElse(false);
+    }
+
+
+    public List<TallyPack<String>> findRollups(Collection<Long> statisticIds, EntityReference node) {
+        return rollupDao.findRollups(statisticIds, node);
+    }
+
+
+    public List<TallyPack<String>> findHistoricRollups(long statisticId, EntityReference node, Duration duration) {
+        return rollupDao.findHistoricRollups(statisticId, node, duration);
+    }
+
+
+    @Scheduled(
+            initialDelay = 60_000,
+            fixedDelayString = "${waltz.entity-statistic.rollup.refresh.millis:300000}")
+    public void refreshOnSchedule() {
+        if (! enabled) {
+            return;
+        }
+
+        try {
+            int count = refresh();
+            if (count > 0) {
+                LOG.info("Rebuilt entity statistic rollups for {} statistics", count);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to refresh entity statistic rollups, will retry on next run", e);
+        }
+    }
+
+
+    /**
+     * Rebuilds the rollups of any statistic whose latest value or rollup kind
+     * have changed, or whose rollups have exceeded their maximum age, then
+     * rebuilds the current rollups of hierarchy nodes whose membership has
+     * changed.  The rollups of statistics which are no longer active are removed.
+     *
+     * @return number of statistics whose rollups were rebuilt in full by this server
+     */
+    public int refresh() {
+        Map<Long, RollupKind> rollupKindsByStatisticId = definitionDao
+                .findAllActiveDefinitions(false)
+                .stream()
+                .filter(d -> d.id().isPresent())
+                .filter(d -> d.rollupKind() != RollupKind.NONE)
+                .collect(toMap(d -> d.id().get(), EntityStatisticDefinition::rollupKind));
+
+        Map<Long, EntityStatisticRollupState> previousStates = rollupDao.findStates();
+        Map<Long, Long> latestValueIds = rollupDao.findLatestValueIds();
+
+        rollupDao.remove(minus(previousStates.keySet(), rollupKindsByStatisticId.keySet()));
+
+        LocalDateTime now = nowUtc().truncatedTo(ChronoUnit.MILLIS);
+        Set<Long> rebuiltIds = new HashSet<>();
+
+        for (Map.Entry<Long, RollupKind> entry : rollupKindsByStatisticId.entrySet()) {
+            long statisticId = entry.getKey();
+            Optional<Long> latestValueId = Optional.ofNullable(latestValueIds.get(statisticId));
+            Optional<EntityStatisticRollupState> previousState = Optional.ofNullable(previousStates.get(statisticId));
+
+            boolean valuesChanged = previousState
+                    .map(prev -> prev.rollupKind() != entry.getValue() || ! prev.latestValueId().equals(latestValueId))
+                    .orElse(true);
+
+            boolean expired = previousState
+                    .map(prev -> prev.rolledUpAt().plus(maxAgeMillis, ChronoUnit.MILLIS).isBefore(now))
+                    .orElse(true);
+
+            if (! valuesChanged && ! expired) {
+                continue;
+            }
+
+            try {
+                EntityStatisticRollupState newState = valuesChanged
+                        ? ImmutableEntityStatisticRollupState.builder()
+                            .statisticId(statisticId)
+                            .rollupKind(entry.getValue())
+                            .latestValueId(latestValueId)
+                            .signature(rollupDao.findCurrentValueSignature(statisticId))
+                            .rolledUpAt(now)
+                            .build()
+                        : ImmutableEntityStatisticRollupState.copyOf(previousState.get()).withRolledUpAt(now);
+
+                if (rollupDao.rebuild(newState, previousState, valuesChanged)) {
+                    rebuiltIds.add(statisticId);
+                }
+            } catch (Exception e) {
+                LOG.warn("Failed to rebuild rollups for statistic: " + statisticId, e);
+            }
+        }
+
+        refreshChangedNodes(minus(rollupKindsByStatisticId.keySet(), rebuiltIds), now);
+
+        statesByStatisticId = rollupDao.findStates();
+        return rebuiltIds.size();
+    }
+
+
+    /**
+     * The stored node checksums are only updated once every statistic has been
+     * brought up to date, otherwise the changes are picked up again on the next run.
+     * Statistics rebuilt in full during this run already reflect the current membership.
+     */
+    private void refreshChangedNodes(Set<Long> statisticIds, LocalDateTime now) {
+        Map<EntityReference, Long> checksums = rollupDao.findNodeMembershipChecksums();
+        Map<EntityReference, Long> storedChecksums = rollupDao.findStoredNodeChecksums();
+
+        Set<EntityReference> changedNodes = union(checksums.keySet(), storedChecksums.keySet())
+                .stream()
+                .filter(node -> ! Objects.equals(checksums.get(node), storedChecksums.get(node)))
+                .collect(toSet());
+
+        if (changedNodes.isEmpty()) {
+            return;
+        }
+
+        boolean partial = changedNodes.size() <= MAX_NODES_PER_PARTIAL_REBUILD;
+        Map<Long, EntityStatisticRollupState> states = partial
+                ? Collections.emptyMap()
+                : rollupDao.findStates();
+
+        boolean allRebuilt = true;
+
+        for (Long statisticId : statisticIds) {
+            try {
+                if (partial) {
+                    rollupDao.rebuildNodes(statisticId, changedNodes);
+                } else if (states.containsKey(statisticId)) {
+                    EntityStatisticRollupState state = states.get(statisticId);
+                    allRebuilt &= rollupDao.rebuild(
+                            ImmutableEntityStatisticRollupState.copyOf(state).withRolledUpAt(now),
+                            Optional.of(state),
+                            false);
+                }
+            } catch (Exception e) {
+                allRebuilt = false;
+                LOG.warn("Failed to rebuild node rollups for statistic: " + statisticId, e);
+            }
+        }
+
+        if (allRebuilt) {
+            rollupDao.saveNodeChecksums(changedNodes, checksums);
+            LOG.info("Rebuilt entity statistic rollups for {} hierarchy nodes with changed membership", changedNodes.size());
+        }
+    }
+
+}
@@ -19,7 +19,6 @@
 package com.khartec.waltz.service.entity_statistic;
 
 import com.khartec.waltz.common.Checks;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticDao;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticDefinitionDao;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticSummaryDao;
@@ -35,6 +34,7 @@ import com.khartec.waltz.model.entity_statistic.RollupKind;
 import com.khartec.waltz.model.immediate_hierarchy.ImmediateHierarchy;
 import com.khartec.waltz.model.immediate_hierarchy.ImmediateHierarchyUtilities;
 import com.khartec.waltz.model.tally.TallyPack;
+import com.khartec.waltz.service.application.ApplicationIdSetCacheService;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,35 +45,46 @@ import java.util.List;
 import java.util.Map;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.CollectionUtilities.first;
 import static com.khartec.waltz.common.ListUtilities.concat;
+import static com.khartec.waltz.common.ListUtilities.map;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.MapUtilities.groupBy;
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.partitioningBy;
 
 @Service
 public class EntityStatisticService {
 
-    private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSetCacheService applicationIdSetCacheService;
     private final EntityStatisticValueDao valueDao;
     private final EntityStatisticDefinitionDao definitionDao;
     private final EntityStatisticSummaryDao summaryDao;
     private final EntityStatisticDao statisticDao;
+    private final EntityStatisticRollupService rollupService;
 
 
     @Autowired
     public EntityStatisticService(EntityStatisticValueDao valueDao,
                                   EntityStatisticDefinitionDao definitionDao,
                                   EntityStatisticSummaryDao summaryDao,
-                                  EntityStatisticDao statisticDao)
+                                  EntityStatisticDao statisticDao,
+                                  EntityStatisticRollupService rollupService,
+                                  ApplicationIdSetCacheService applicationIdSetCacheService)
     {
         checkNotNull(valueDao, "valueDao cannot be null");
         checkNotNull(definitionDao, "definitionDao cannot be null");
         checkNotNull(summaryDao, "summaryDao cannot be null");
         checkNotNull(statisticDao, "statisticDao cannot be null");
+        checkNotNull(rollupService, "rollupService cannot be null");
+        checkNotNull(applicationIdSetCacheService, "applicationIdSetCacheService cannot be null");
 
         this.valueDao = valueDao;
         this.definitionDao = definitionDao;
         this.summaryDao = summaryDao;
         this.statisticDao = statisticDao;
+        this.rollupService = rollupService;
+        this.applicationIdSetCacheService = applicationIdSetCacheService;
 
     }
 
@@ -91,14 +102,14 @@ public class EntityStatisticService {
 
 
     public List<EntityStatisticValue> getStatisticValuesForAppIdSelector(long statisticId, IdSelectionOptions options) {
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
 
         return valueDao.getStatisticValuesForAppIdSelector(statisticId, appIdSelector);
     }
 
 
     public List<Application> getStatisticAppsForAppIdSelector(long statisticId, IdSelectionOptions options) {
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
 
         return valueDao.getStatisticAppsForAppIdSelector(statisticId, appIdSelector);
     }
@@ -108,15 +119,31 @@ public class EntityStatisticService {
         Checks.checkNotNull(statisticIds, "statisticIds cannot be null");
         Checks.checkNotNull(options, "options cannot be null");
 
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        // statistics with up to date rollups for the selected hierarchy node are served from those
+        Map<Boolean, List<EntityStatisticDefinition>> definitionsByRolledUp = definitionDao
+                .findByIds(statisticIds)
+                .stream()
+                .collect(partitioningBy(d -> d.id().isPresent()
+                        && rollupService.canServe(d.id().get(), d.rollupKind(), options)));
+
+        List<TallyPack<String>> rolledUpTallies = rollupService.findRollups(
+                map(definitionsByRolledUp.get(true), d -> d.id().get()),
+                options.entityReference());
+
+        if (definitionsByRolledUp.get(false).isEmpty()) {
+            return rolledUpTallies;
+        }
+
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
 
         Map<RollupKind, Collection<Long>> definitionIdsByRollupKind = groupBy(
                 EntityStatisticDefinition::rollupKind,
                 d -> d.id().orElse(null),
-                definitionDao.findByIds(statisticIds));
+                definitionsByRolledUp.get(false));
 
 
         return concat(
+                rolledUpTallies,
                 summaryDao.generateWithCountByEntity(
                         definitionIdsByRollupKind.getOrDefault(RollupKind.COUNT_BY_ENTITY, emptyList()),
                         appIdSelector),
@@ -139,7 +166,11 @@ public class EntityStatisticService {
         Checks.checkNotNull(options, "options cannot be null");
         Checks.checkNotNull(rollupKind, "rollupKind cannot be null");
 
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        if (rollupService.canServe(statisticId, rollupKind, options)) {
+            return first(rollupService.findRollups(newArrayList(statisticId), options.entityReference()));
+        }
+
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
 
         switch(rollupKind) {
             case COUNT_BY_ENTITY:
@@ -165,7 +196,11 @@ public class EntityStatisticService {
         Checks.checkNotNull(options, "options cannot be null");
         Checks.checkNotNull(duration, "duration cannot be null");
 
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        if (rollupService.canServe(statisticId, rollupKind, options)) {
+            return rollupService.findHistoricRollups(statisticId, options.entityReference(), duration);
+        }
+
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
 
         switch(rollupKind) {
             case COUNT_BY_ENTITY:
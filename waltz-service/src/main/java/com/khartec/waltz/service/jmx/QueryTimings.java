@@ -0,0 +1,85 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.model.system.metrics.LatencySummary;
+import com.khartec.waltz.service.QueryTimingListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.List;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+@ManagedResource(description = "SQL execution timings, grouped by query shape and by calling DAO method")
+public class QueryTimings {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final QueryTimingListener queryTimingListener;
+
+    @Autowired
+    public QueryTimings(QueryTimingListener queryTimingListener) {
+        checkNotNull(queryTimingListener, "queryTimingListener cannot be null");
+        this.queryTimingListener = queryTimingListener;
+    }
+
+
+    @ManagedAttribute(description = "Slowest (by total time) query shapes: count, p50/p95/p99/max in ms")
+    public String[] getSlowestShapes() {
+        return format(queryTimingListener.getStatistics(DEFAULT_LIMIT).byShape());
+    }
+
+
+    @ManagedAttribute(description = "Slowest (by total time) DAO methods: count, p50/p95/p99/max in ms")
+    public String[] getSlowestCallers() {
+        return format(queryTimingListener.getStatistics(DEFAULT_LIMIT).byCaller());
+    }
+
+
+    @ManagedAttribute
+    public String getCollectingSince() {
+        return queryTimingListener.getStatistics(0).collectingSince().toString();
+    }
+
+
+    @ManagedOperation(description = "Discard all gathered timings")
+    public void reset() {
+        queryTimingListener.reset();
+    }
+
+
+    private static String[] format(List<LatencySummary> summaries) {
+        return summaries
+                .stream()
+                .map(s -> String.format(
+                        "count: %d, p50: %.1f, p95: %.1f, p99: %.1f, max: %.1f, total: %.1f - %s",
+                        s.count(),
+                        s.p50Millis(),
+                        s.p95Millis(),
+                        s.p99Millis(),
+                        s.maxMillis(),
+                        s.totalMillis(),
+                        s.key()))
+                .toArray(String[]::new);
+    }
+
+}
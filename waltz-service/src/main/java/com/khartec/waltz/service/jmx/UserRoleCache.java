@@ -0,0 +1,64 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.user.UserRoleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+@ManagedResource(description = "Cache of user roles used by role checks")
+public class UserRoleCache {
+
+    private final UserRoleService userRoleService;
+
+    @Autowired
+    public UserRoleCache(UserRoleService userRoleService) {
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+        this.userRoleService = userRoleService;
+    }
+
+
+    @ManagedAttribute
+    public int getSize() {
+        return userRoleService.getRoleCache().size();
+    }
+
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return userRoleService.getRoleCache().hitCount();
+    }
+
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return userRoleService.getRoleCache().missCount();
+    }
+
+
+    @ManagedOperation(description = "Discard all cached roles, they will be reloaded on next use")
+    public void invalidateAll() {
+        userRoleService.invalidateAllCachedRoles();
+    }
+
+}
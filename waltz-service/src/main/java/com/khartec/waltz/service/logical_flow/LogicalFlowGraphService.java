@@ -0,0 +1,407 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.logical_flow;
+
+import com.khartec.waltz.common.graph.DirectedMultigraph;
+import com.khartec.waltz.common.graph.DirectedMultigraph.Direction;
+import com.khartec.waltz.data.EntityReferenceNameResolver;
+import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
+import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyIndexes;
+import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.FlowDirection;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlowGraphEdge;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.model.logical_flow.LogicalFlowGraphEdge;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.MapUtilities.indexBy;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Answers multi-hop lineage questions (upstream/downstream flows, shortest
+ * paths, reachability) from an in-memory graph of all active logical flows.
+ *
+ * The graph is built on first use and kept up to date by `LogicalFlowService`
+ * (via `syncFlows`) as flows are added, removed and restored.  Changes made by
+ * other means (e.g. bulk loads, data type decorator edits) are picked up by a
+ * periodic rebuild, see `waltz.logical-flow-graph.refresh.millis`.
+ */
+@Service
+public class LogicalFlowGraphService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogicalFlowGraphService.class);
+
+    public static final int MAX_HOPS = 20;
+
+    private static class GraphState {
+        private final DirectedMultigraph graph = new DirectedMultigraph();
+        private final Map<EntityReference, Integer> nodesByRef = new HashMap<>();
+        private final List<EntityReference> refsByNode = new ArrayList<>();
+
+        private int findOrAddNode(EntityReference ref) {
+            EntityReference key = mkRef(ref.kind(), ref.id());
+            Integer node = nodesByRef.get(key);
+            if (node == null) {
+                node = graph.addNode();
+                nodesByRef.put(key, node);
+                refsByNode.add(key);
+            }
+            return node;
+        }
+
+        private Optional<Integer> findNode(EntityReference ref) {
+            return Optional.ofNullable(nodesByRef.get(mkRef(ref.kind(), ref.id())));
+        }
+
+        private void putFlow(long flowId, EntityReference source, EntityReference target, long[] dataTypeIds) {
+            graph.putEdge(flowId, findOrAddNode(source), findOrAddNode(target), dataTypeIds);
+        }
+    }
+
+    private final LogicalFlowDao logicalFlowDao;
+    private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final EntityHierarchyDao entityHierarchyDao;
+    private final EntityReferenceNameResolver nameResolver;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    private volatile GraphState state = null;
+    private volatile Set<Long> flowsChangedDuringRebuild = null;
+
+
+    @Autowired
+    public LogicalFlowGraphService(LogicalFlowDao logicalFlowDao,
+                                   LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                   EntityHierarchyDao entityHierarchyDao,
+                                   EntityReferenceNameResolver nameResolver) {
+        checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
+        checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
+        checkNotNull(nameResolver, "nameResolver cannot be null");
+
+        this.logicalFlowDao = logicalFlowDao;
+        this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.entityHierarchyDao = entityHierarchyDao;
+        this.nameResolver = nameResolver;
+    }
+
+
+    /**
+     * @param ref  entity to start from
+     * @param maxHops  how many flows away from the entity to look (1 - `MAX_HOPS`)
+     * @param dataTypeId  if present, only follow flows carrying this data type (or one of its descendants)
+     * @return flows feeding (directly or indirectly) into the given entity
+     */
+    public List<LogicalFlowGraphEdge> findUpstreamFlows(EntityReference ref, int maxHops, Optional<Long> dataTypeId) {
+        return traverse(ref, Direction.BACKWARD, maxHops, dataTypeId);
+    }
+
+
+    /**
+     * @param ref  entity to start from
+     * @param maxHops  how many flows away from the entity to look (1 - `MAX_HOPS`)
+     * @param dataTypeId  if present, only follow flows carrying this data type (or one of its descendants)
+     * @return flows fed (directly or indirectly) by the given entity
+     */
+    public List<LogicalFlowGraphEdge> findDownstreamFlows(EntityReference ref, int maxHops, Optional<Long> dataTypeId) {
+        return traverse(ref, Direction.FORWARD, maxHops, dataTypeId);
+    }
+
+
+    /**
+     * @param dataTypeId  if present, only follow flows carrying this data type (or one of its descendants)
+     * @return flows, in order, on a shortest route from source to target, or an empty list if there is no route
+     */
+    public List<LogicalFlowGraphEdge> findShortestPath(EntityReference source,
+                                                       EntityReference target,
+                                                       Optional<Long> dataTypeId) {
+        checkNotNull(source, "source cannot be null");
+        checkNotNull(target, "target cannot be null");
+        LongPredicate dataTypeFilter = mkDataTypeFilter(dataTypeId);
+
+        List<LogicalFlowGraphEdge> path = withReadLock(() -> {
+            GraphState s = state;
+            Optional<Integer> sourceNode = s.findNode(source);
+            Optional<Integer> targetNode = s.findNode(target);
+            if (! sourceNode.isPresent() || ! targetNode.isPresent()) {
+                return Collections.emptyList();
+            }
+            return toGraphEdges(s, s.graph.findShortestPath(sourceNode.get(), targetNode.get(), dataTypeFilter));
+        });
+
+        return withNames(path);
+    }
+
+
+    /**
+     * @param direction  INBOUND for upstream entities, OUTBOUND for downstream entities
+     * @param dataTypeId  if present, only follow flows carrying this data type (or one of its descendants)
+     * @return all entities which can be reached (in any number of hops) from the given entity
+     */
+    public List<EntityReference> findReachableEntities(EntityReference ref,
+                                                       FlowDirection direction,
+                                                       Optional<Long> dataTypeId) {
+        checkNotNull(ref, "ref cannot be null");
+        checkNotNull(direction, "direction cannot be null");
+        Direction graphDirection = toGraphDirection(direction);
+        LongPredicate dataTypeFilter = mkDataTypeFilter(dataTypeId);
+
+        List<EntityReference> reachable = withReadLock(() -> {
+            GraphState s = state;
+            return s.findNode(ref)
+                    .map(node -> Arrays
+                            .stream(s.graph.findReachable(node, graphDirection, dataTypeFilter))
+                            .mapToObj(s.refsByNode::get)
+                            .collect(toList()))
+                    .orElse(Collections.emptyList());
+        });
+
+        return nameResolver.resolve(reachable);
+    }
+
+
+    /**
+     * Brings the given flows up to date in the graph (if it has been built).
+     * Flows which no longer exist, or have been removed, are dropped from the graph.
+     */
+    public void syncFlows(Collection<Long> flowIds) {
+        checkNotNull(flowIds, "flowIds cannot be null");
+        if (flowIds.isEmpty()) {
+            return;
+        }
+
+        Set<Long> pending = flowsChangedDuringRebuild;
+        if (pending != null) {
+            pending.addAll(flowIds);
+        }
+
+        if (state == null) {
+            return;
+        }
+
+        Map<Long, LogicalFlow> activeFlowsById = indexBy(
+                f -> f.id().get(),
+                logicalFlowDao.findActiveByFlowIds(flowIds));
+        Map<Long, long[]> dataTypeIdsByFlowId = logicalFlowDecoratorDao.findDataTypeIdsByFlowId(flowIds);
+
+        withWriteLock(() -> {
+            GraphState s = state;
+            for (Long flowId : flowIds) {
+                LogicalFlow flow = activeFlowsById.get(flowId);
+                if (flow == null) {
+                    s.graph.removeEdge(flowId);
+                } else {
+                    s.putFlow(flowId, flow.source(), flow.target(), dataTypeIdsByFlowId.get(flowId));
+                }
+            }
+            return null;
+        });
+    }
+
+
+    /**
+     * Rebuilds the graph from the database.
+     * @return number of flows in the graph
+     */
+    public int rebuild() {
+        synchronized (rebuildMonitor) {
+            long start = System.currentTimeMillis();
+            flowsChangedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+            List<Tuple3<Long, EntityReference, EntityReference>> flows = logicalFlowDao.findAllActiveSourceAndTargets();
+            Map<Long, long[]> dataTypeIdsByFlowId = logicalFlowDecoratorDao.findDataTypeIdsByFlowId();
+
+            GraphState newState = new GraphState();
+            flows.forEach(f -> newState.putFlow(f.v1, f.v2, f.v3, dataTypeIdsByFlowId.get(f.v1)));
+
+            Set<Long> changedFlows = withWriteLock(() -> {
+                state = newState;
+                Set<Long> changed = flowsChangedDuringRebuild;
+                flowsChangedDuringRebuild = null;
+                return changed;
+            });
+
+            // flows modified whilst we were loading may not be reflected in the new graph
+            syncFlows(changedFlows);
+
+            LOG.info("Built logical flow graph: {} in {}ms",
+                    newState.graph,
+                    System.currentTimeMillis() - start);
+            return newState.graph.edgeCount();
+        }
+    }
+
+
+    @Scheduled(
+            initialDelayString = "${waltz.logical-flow-graph.refresh.millis:600000}",
+            fixedDelayString = "${waltz.logical-flow-graph.refresh.millis:600000}")
+    public void refresh() {
+        if (state == null) {
+            return; // not used yet, will be built on demand
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            LOG.warn("Failed to rebuild logical flow graph, will continue with existing graph", e);
+        }
+    }
+
+
+    // -- HELPERS
+
+    private List<LogicalFlowGraphEdge> traverse(EntityReference ref,
+                                                Direction direction,
+                                                int maxHops,
+                                                Optional<Long> dataTypeId) {
+        checkNotNull(ref, "ref cannot be null");
+        checkTrue(maxHops > 0 && maxHops <= MAX_HOPS, "maxHops must be between 1 and " + MAX_HOPS);
+        LongPredicate dataTypeFilter = mkDataTypeFilter(dataTypeId);
+
+        List<LogicalFlowGraphEdge> edges = withReadLock(() -> {
+            GraphState s = state;
+            return s.findNode(ref)
+                    .map(node -> toGraphEdges(s, s.graph.traverse(node, direction, maxHops, dataTypeFilter)))
+                    .orElse(Collections.emptyList());
+        });
+
+        return withNames(edges);
+    }
+
+
+    private static List<LogicalFlowGraphEdge> toGraphEdges(GraphState s, List<DirectedMultigraph.Edge> edges) {
+        return edges
+                .stream()
+                .map(e -> ImmutableLogicalFlowGraphEdge.builder()
+                        .logicalFlowId(e.id())
+                        .source(s.refsByNode.get(e.source()))
+                        .target(s.refsByNode.get(e.target()))
+                        .hops(e.hops())
+                        .build())
+                .collect(toList());
+    }
+
+
+    private List<LogicalFlowGraphEdge> withNames(List<LogicalFlowGraphEdge> edges) {
+        List<EntityReference> refs = edges
+                .stream()
+                .flatMap(e -> Arrays.asList(e.source(), e.target()).stream())
+                .collect(toList());
+
+        Map<Tuple2<EntityKind, Long>, EntityReference> namedRefs = indexBy(
+                r -> tuple(r.kind(), r.id()),
+                nameResolver.resolve(refs));
+
+        return edges
+                .stream()
+                .map(e -> ImmutableLogicalFlowGraphEdge
+                        .copyOf(e)
+                        .withSource(namedRefs.getOrDefault(tuple(e.source().kind(), e.source().id()), e.source()))
+                        .withTarget(namedRefs.getOrDefault(tuple(e.target().kind(), e.target().id()), e.target())))
+                .collect(toList());
+    }
+
+
+    private LongPredicate mkDataTypeFilter(Optional<Long> dataTypeId) {
+        checkNotNull(dataTypeId, "dataTypeId cannot be null");
+        return dataTypeId
+                .map(id -> {
+                    long[] ids = EntityHierarchyIndexes
+                            .find(EntityKind.DATA_TYPE)
+                            .filter(index -> index.contains(id))
+                            .map(index -> index.findDescendants(id))
+                            .orElseGet(() -> entityHierarchyDao
+                                    .findDesendents(mkRef(EntityKind.DATA_TYPE, id))
+                                    .stream()
+                                    .mapToLong(d -> d.id().get())
+                                    .toArray());
+                    long[] sortedIds = ids.length == 0
+                            ? new long[]{ id }
+                            : ids.clone();
+                    Arrays.sort(sortedIds);
+                    return (LongPredicate) label -> Arrays.binarySearch(sortedIds, label) >= 0;
+                })
+                .orElse(null);
+    }
+
+
+    private static Direction toGraphDirection(FlowDirection direction) {
+        switch (direction) {
+            case INBOUND:
+                return Direction.BACKWARD;
+            case OUTBOUND:
+                return Direction.FORWARD;
+            default:
+                throw new IllegalArgumentException("Unsupported direction: " + direction);
+        }
+    }
+
+
+    private <T> T withReadLock(Supplier<T> action) {
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    private <T> T withWriteLock(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    private void ensureBuilt() {
+        if (state == null) {
+            synchronized (rebuildMonitor) {
+                if (state == null) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+}
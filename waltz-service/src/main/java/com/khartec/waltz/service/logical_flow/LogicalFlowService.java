@@ -34,6 +34,7 @@ import com.khartec.waltz.model.datatype.ImmutableDataTypeDecorator;
 import com.khartec.waltz.model.logical_flow.*;
 import com.khartec.waltz.model.rating.AuthoritativenessRating;
 import com.khartec.waltz.model.tally.TallyPack;
+import com.khartec.waltz.service.application.ApplicationIdSetCacheService;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import com.khartec.waltz.service.data_type.DataTypeService;
 import com.khartec.waltz.service.usage_info.DataTypeUsageService;
@@ -76,6 +77,8 @@ public class LogicalFlowService {
     private final LogicalFlowDao logicalFlowDao;
     private final LogicalFlowStatsDao logicalFlowStatsDao;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final LogicalFlowGraphService logicalFlowGraphService;
+    private final ApplicationIdSetCacheService applicationIdSetCacheService;
 
     private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final LogicalFlowIdSelectorFactory logicalFlowIdSelectorFactory = new LogicalFlowIdSelectorFactory();
@@ -89,7 +92,9 @@ public class LogicalFlowService {
                               DBExecutorPoolInterface dbExecutorPool,
                               LogicalFlowDao logicalFlowDao,
                               LogicalFlowStatsDao logicalFlowStatsDao,
-                              LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                              LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                              LogicalFlowGraphService logicalFlowGraphService,
+                              ApplicationIdSetCacheService applicationIdSetCacheService) {
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(dataTypeService, "dataTypeService cannot be null");
@@ -97,6 +102,8 @@ public class LogicalFlowService {
         checkNotNull(logicalFlowDao, "logicalFlowDao must not be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDataTypeDecoratorDao cannot be null");
         checkNotNull(logicalFlowStatsDao, "logicalFlowStatsDao cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
+        checkNotNull(applicationIdSetCacheService, "applicationIdSetCacheService cannot be null");
 
         this.changeLogService = changeLogService;
         this.dataTypeService = dataTypeService;
@@ -105,6 +112,8 @@ public class LogicalFlowService {
         this.logicalFlowDao = logicalFlowDao;
         this.logicalFlowStatsDao = logicalFlowStatsDao;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.logicalFlowGraphService = logicalFlowGraphService;
+        this.applicationIdSetCacheService = applicationIdSetCacheService;
     }
 
 
@@ -148,6 +157,16 @@ public class LogicalFlowService {
     }
 
 
+    /**
+     * As `findBySelector` but lazily reads the flows, the returned stream must be closed.
+     * @param options given to logical flow selector factory to determine in-scope flows
+     * @return a stream of logical flows matching the given options
+     */
+    public Stream<LogicalFlow> streamBySelector(IdSelectionOptions options) {
+        return logicalFlowDao.streamBySelector(logicalFlowIdSelectorFactory.apply(options));
+    }
+
+
     /**
      * Creates a logical flow and creates a default, 'UNKNOWN' data type decoration
      * if possible.
@@ -173,6 +192,8 @@ public class LogicalFlowService {
 
         LogicalFlow logicalFlow = logicalFlowDao.addFlow(flowToAdd);
         attemptToAddUnknownDecoration(logicalFlow, username);
+        logicalFlowGraphService.syncFlows(newArrayList(logicalFlow.id().get()));
+        dataTypeUsageService.markDirty(newArrayList(logicalFlow.source(), logicalFlow.target()));
 
         changeLogService.writeChangeLogEntries(logicalFlow, username, "Added", Operation.ADD);
 
@@ -219,7 +240,17 @@ public class LogicalFlowService {
                         .build())
                 .collect(toList());
 
-        return logicalFlowDao.addFlows(flowsToAdd, username);
+        List<LogicalFlow> addedFlows = logicalFlowDao.addFlows(flowsToAdd, username);
+        logicalFlowGraphService.syncFlows(addedFlows
+                .stream()
+                .map(f -> f.id().get())
+                .collect(toList()));
+        dataTypeUsageService.markDirty(addedFlows
+                .stream()
+                .flatMap(f -> Stream.of(f.source(), f.target()))
+                .collect(toList()));
+
+        return addedFlows;
     }
 
 
@@ -235,7 +266,8 @@ public class LogicalFlowService {
 
     /**
      * Removes the given logical flow and creates an audit log entry.
-     * The removal is a soft removal. After the removal usage stats are recalculated
+     * The removal is a soft removal. After the removal the source and target are
+     * marked for data type usage recalculation
      *
      * todo: #WALTZ-1894 for cleanupOrphans task
      *
@@ -247,10 +279,11 @@ public class LogicalFlowService {
         LogicalFlow logicalFlow = logicalFlowDao.getByFlowId(flowId);
 
         int deleted = logicalFlowDao.removeFlow(flowId, username);
+        logicalFlowGraphService.syncFlows(newArrayList(flowId));
 
         Set<EntityReference> affectedEntityRefs = SetUtilities.fromArray(logicalFlow.source(), logicalFlow.target());
 
-        dataTypeUsageService.recalculateForApplications(affectedEntityRefs);
+        dataTypeUsageService.markDirty(affectedEntityRefs);
 
         changeLogService.writeChangeLogEntries(logicalFlow, username,
                 "Removed : datatypes [" + getAssociatedDatatypeNamesAsCsv(flowId) + "]",
@@ -284,7 +317,8 @@ public class LogicalFlowService {
     private LogicalFlowStatistics calculateStatsForAppIdSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
 
-        Select<Record1<Long>> appIdSelector = appIdSelectorFactory.apply(options);
+        // resolved once and shared by the parallel queries below
+        Select<Record1<Long>> appIdSelector = applicationIdSetCacheService.mkSelector(options);
 
         Future<List<TallyPack<String>>> dataTypeCounts = dbExecutorPool.submit(() ->
                 FunctionUtilities.time("DFS.dataTypes",
@@ -311,6 +345,9 @@ public class LogicalFlowService {
     public boolean restoreFlow(long logicalFlowId, String username) {
         boolean result = logicalFlowDao.restoreFlow(logicalFlowId, username);
         if (result) {
+            logicalFlowGraphService.syncFlows(newArrayList(logicalFlowId));
+            LogicalFlow logicalFlow = logicalFlowDao.getByFlowId(logicalFlowId);
+            dataTypeUsageService.markDirty(newArrayList(logicalFlow.source(), logicalFlow.target()));
             changeLogService.writeChangeLogEntries(mkRef(LOGICAL_DATA_FLOW, logicalFlowId), username, "Restored", Operation.ADD);
         }
         return result;
@@ -318,12 +355,16 @@ public class LogicalFlowService {
 
 
     public Integer cleanupOrphans() {
-        return logicalFlowDao.cleanupOrphans();
+        Integer removed = logicalFlowDao.cleanupOrphans();
+        logicalFlowGraphService.refresh();
+        return removed;
     }
 
 
     public int cleanupSelfReferencingFlows() {
-        return logicalFlowDao.cleanupSelfReferencingFlows();
+        int removed = logicalFlowDao.cleanupSelfReferencingFlows();
+        logicalFlowGraphService.refresh();
+        return removed;
     }
 
 
@@ -23,58 +23,62 @@ import com.khartec.waltz.common.MapUtilities;
 import com.khartec.waltz.data.actor.ActorDao;
 import com.khartec.waltz.data.application.ApplicationDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
+import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
-import com.khartec.waltz.data.physical_flow.PhysicalFlowDao;
-import com.khartec.waltz.data.physical_specification.PhysicalSpecificationDao;
-import com.khartec.waltz.model.Criticality;
-import com.khartec.waltz.model.EntityKind;
-import com.khartec.waltz.model.EntityReference;
-import com.khartec.waltz.model.UserTimestamp;
+import com.khartec.waltz.data.physical_flow.PhysicalFlowUploadDao;
+import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.actor.Actor;
 import com.khartec.waltz.model.application.Application;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import com.khartec.waltz.model.changelog.ImmutableChangeLog;
 import com.khartec.waltz.model.command.CommandOutcome;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.datatype.DataTypeDecorator;
 import com.khartec.waltz.model.enum_value.EnumValueKind;
-import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlow;
 import com.khartec.waltz.model.logical_flow.LogicalFlow;
 import com.khartec.waltz.model.physical_flow.*;
 import com.khartec.waltz.model.physical_specification.DataFormatKind;
-import com.khartec.waltz.model.physical_specification.ImmutablePhysicalSpecification;
-import com.khartec.waltz.model.physical_specification.PhysicalSpecification;
-import com.khartec.waltz.service.data_type.DataTypeDecoratorService;
+import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
 import com.khartec.waltz.service.enum_value.EnumValueAliasService;
-import com.khartec.waltz.service.physical_specification_data_type.PhysicalSpecDataTypeService;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
+import com.khartec.waltz.service.usage_info.DataTypeUsageService;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
-import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
-import static com.khartec.waltz.common.SetUtilities.fromArray;
+import static com.khartec.waltz.common.ListUtilities.map;
+import static com.khartec.waltz.common.SetUtilities.union;
 import static com.khartec.waltz.common.StringUtilities.isEmpty;
 import static com.khartec.waltz.common.StringUtilities.lower;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.model.EntityReferenceUtilities.safeName;
+import static java.lang.String.format;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 
 @Service
 public class PhysicalFlowUploadService {
 
+    private static final int RATING_CHUNK_SIZE = 1_000;
+
     private final ActorDao actorDao;
     private final ApplicationDao applicationDao;
     private final DataTypeDao dataTypeDao;
     private final LogicalFlowDao logicalFlowDao;
-    private final DataTypeDecoratorService dataTypeDecoratorService;
-    private final PhysicalFlowDao physicalFlowDao;
-    private final PhysicalSpecificationDao physicalSpecificationDao;
+    private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final PhysicalFlowUploadDao physicalFlowUploadDao;
     private final EnumValueAliasService enumValueAliasService;
+    private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
+    private final DataTypeUsageService dataTypeUsageService;
+    private final LogicalFlowGraphService logicalFlowGraphService;
+    private final ChangeLogService changeLogService;
 
     private final Pattern basisOffsetRegex = Pattern.compile("T?(?<offset>[\\+\\-]?\\d+)");
 
@@ -83,26 +87,35 @@ public class PhysicalFlowUploadService {
                                      ApplicationDao applicationDao,
                                      DataTypeDao dataTypeDao,
                                      LogicalFlowDao logicalFlowDao,
-                                     DataTypeDecoratorService dataTypeDecoratorService,
-                                     PhysicalFlowDao physicalFlowDao,
-                                     PhysicalSpecificationDao physicalSpecificationDao,
-                                     EnumValueAliasService enumValueAliasService) {
+                                     LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                     PhysicalFlowUploadDao physicalFlowUploadDao,
+                                     EnumValueAliasService enumValueAliasService,
+                                     LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
+                                     DataTypeUsageService dataTypeUsageService,
+                                     LogicalFlowGraphService logicalFlowGraphService,
+                                     ChangeLogService changeLogService) {
         checkNotNull(actorDao, "actorDao cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
-        checkNotNull(dataTypeDecoratorService, "dataTypeDecoratorService cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
-        checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
-        checkNotNull(physicalSpecificationDao, "physicalSpecificationDao cannot be null");
+        checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+        checkNotNull(physicalFlowUploadDao, "physicalFlowUploadDao cannot be null");
         checkNotNull(enumValueAliasService, "enumValueAliasService cannot be null");
+        checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
+        checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
+        checkNotNull(changeLogService, "changeLogService cannot be null");
         this.actorDao = actorDao;
         this.applicationDao = applicationDao;
         this.dataTypeDao = dataTypeDao;
         this.logicalFlowDao = logicalFlowDao;
-        this.physicalFlowDao = physicalFlowDao;
-        this.physicalSpecificationDao = physicalSpecificationDao;
+        this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.physicalFlowUploadDao = physicalFlowUploadDao;
         this.enumValueAliasService = enumValueAliasService;
-        this.dataTypeDecoratorService = dataTypeDecoratorService;
+        this.ratingsCalculator = ratingsCalculator;
+        this.dataTypeUsageService = dataTypeUsageService;
+        this.logicalFlowGraphService = logicalFlowGraphService;
+        this.changeLogService = changeLogService;
     }
 
 
@@ -135,18 +148,29 @@ public class PhysicalFlowUploadService {
         }
 
         // no parse errors - check for duplicates
+        Map<PhysicalFlowParsed, Long> existingIds = physicalFlowUploadDao.findExistingPhysicalFlowIds(
+                map(parsedFlows, PhysicalFlowUploadCommandResponse::parsedFlow));
+
         List<PhysicalFlowUploadCommandResponse> responses = parsedFlows.stream()
-                .map(f -> Optional.ofNullable(physicalFlowDao.getByParsedFlow(f.parsedFlow()))
-                    .map(m -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
+                .map(f -> Optional.ofNullable(existingIds.get(f.parsedFlow()))
+                    .map(id -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
                             .copyOf(f)
-                            .withEntityReference(m.entityReference()))
+                            .withEntityReference(mkRef(EntityKind.PHYSICAL_FLOW, id)))
                     .orElse(f))
                 .collect(toList());
 
         return responses;
     }
 
-    
+
+
+    /**
+     * Creates the (validated) flows.  Logical flows, specifications, data
+     * type decorations and physical flows are resolved and created as sets,
+     * in a single transaction, rather than one flow at a time.  Follow up work
+     * (decorator ratings, data type usages and the change log) is also done
+     * in bulk.
+     */
     public List<PhysicalFlowUploadCommandResponse> upload(String username,
                                                           List<PhysicalFlowUploadCommand> cmds) throws Exception {
         checkNotNull(cmds, "cmds cannot be empty");
@@ -162,37 +186,27 @@ public class PhysicalFlowUploadService {
                 .filter(v -> v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)
                 .collect(toList());
 
-        // create physical flow with ids from the above two
-        List<PhysicalFlowUploadCommandResponse> created = newFlowCmds.stream()
-                .map(v -> {
-                    if (!(v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)) {
-                        return v;
-                    }
-
-                    PhysicalFlowParsed flow = v.parsedFlow();
-                    LogicalFlow logicalFlow = getOrCreateLogicalFlow(flow.source(), flow.target(), flow.dataType(), username);
-                    PhysicalSpecification specification = getOrCreatePhysicalSpec(flow, username);
-
-                    PhysicalFlow newFlow = ImmutablePhysicalFlow.builder()
-                            .logicalFlowId(logicalFlow.id().get())
-                            .specificationId(specification.id().get())
-                            .basisOffset(flow.basisOffset())
-                            .frequency(flow.frequency())
-                            .transport(flow.transport())
-                            .criticality(flow.criticality())
-                            .description(flow.description())
-                            .externalId(Optional.ofNullable(flow.externalId()))
-                            .lastUpdatedBy(username)
-                            .lastUpdatedAt(nowUtc())
-                            .build();
-
-                    long id = getOrCreatePhysicalFlow(newFlow);
-
-                    return ImmutablePhysicalFlowUploadCommandResponse.copyOf(v)
-                            .withEntityReference(EntityReference.mkRef(EntityKind.PHYSICAL_FLOW, id));
-                })
-                .collect(toList());
+        if (newFlowCmds.isEmpty()) {
+            return newFlowCmds;
+        }
 
+        List<PhysicalFlowParsed> flows = map(newFlowCmds, PhysicalFlowUploadCommandResponse::parsedFlow);
+        PhysicalFlowUploadResult result = physicalFlowUploadDao.bulkCreate(flows, username);
+
+        List<LogicalFlow> decoratedLogicalFlows = rateLogicalFlowDecorators(result.addedDecorators());
+        dataTypeUsageService.markDirty(decoratedLogicalFlows
+                .stream()
+                .flatMap(f -> Stream.of(f.source(), f.target()))
+                .collect(toSet()));
+        logicalFlowGraphService.syncFlows(union(result.createdLogicalFlowIds(), result.restoredLogicalFlowIds()));
+        changeLogService.write(mkChangeLogEntries(username, flows, result));
+
+        List<PhysicalFlowUploadCommandResponse> created = new ArrayList<>(newFlowCmds.size());
+        for (int i = 0; i < newFlowCmds.size(); i++) {
+            created.add(ImmutablePhysicalFlowUploadCommandResponse
+                    .copyOf(newFlowCmds.get(i))
+                    .withEntityReference(mkRef(EntityKind.PHYSICAL_FLOW, result.physicalFlowIds().get(i))));
+        }
         return created;
     }
 
@@ -362,93 +376,137 @@ public class PhysicalFlowUploadService {
     }
 
 
-    private LogicalFlow getOrCreateLogicalFlow(EntityReference source,
-                                               EntityReference target,
-                                               EntityReference dataType,
-                                               String username) {
-
-        LogicalFlow flow = logicalFlowDao.getBySourceAndTarget(source, target);
-
-        if (flow == null) {
-            LocalDateTime now = nowUtc();
-
-            LogicalFlow flowToAdd = ImmutableLogicalFlow.builder()
-                    .source(source)
-                    .target(target)
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
+    /**
+     * Calculates ratings for the newly added logical flow decorators, in
+     * chunks to keep the number of ids per query manageable.
+     *
+     * @return the (active) logical flows which were decorated
+     */
+    private List<LogicalFlow> rateLogicalFlowDecorators(List<DataTypeDecorator> addedDecorators) {
+        List<DataTypeDecorator> logicalFlowDecorators = addedDecorators
+                .stream()
+                .filter(d -> d.entityReference().kind() == EntityKind.LOGICAL_DATA_FLOW)
+                .collect(toList());
 
-            flow = logicalFlowDao.addFlow(flowToAdd);
+        List<LogicalFlow> decoratedFlows = new ArrayList<>();
+        for (int start = 0; start < logicalFlowDecorators.size(); start += RATING_CHUNK_SIZE) {
+            List<DataTypeDecorator> chunk = logicalFlowDecorators.subList(
+                    start,
+                    Math.min(logicalFlowDecorators.size(), start + RATING_CHUNK_SIZE));
+
+            Collection<DataTypeDecorator> rated = ratingsCalculator.calculate(chunk);
+            if (! rated.isEmpty()) {
+                logicalFlowDecoratorDao.addDecorators(rated);
+            }
+            decoratedFlows.addAll(logicalFlowDao.findActiveByFlowIds(map(chunk, DataTypeDecorator::dataFlowId)));
         }
+        return decoratedFlows;
+    }
 
 
-        EntityReference logicalFlowEntityRef = EntityReference.mkRef(EntityKind.LOGICAL_DATA_FLOW, flow.id().get());
-        DataTypeDecorator existingDecorator = dataTypeDecoratorService.getByEntityRefAndDataTypeId(
-                logicalFlowEntityRef,
-                dataType.id());
-
-        if(existingDecorator == null) {
-            dataTypeDecoratorService
-                    .addDecorators(username, logicalFlowEntityRef, fromArray(dataType.id()));
+    private List<ChangeLog> mkChangeLogEntries(String username,
+                                               List<PhysicalFlowParsed> flows,
+                                               PhysicalFlowUploadResult result) {
+        Map<Long, PhysicalFlowParsed> flowsByLogicalFlowId = new HashMap<>();
+        Map<Long, PhysicalFlowParsed> flowsBySpecId = new HashMap<>();
+        Map<Long, PhysicalFlowParsed> flowsByPhysicalFlowId = new HashMap<>();
+        for (int i = 0; i < flows.size(); i++) {
+            flowsByLogicalFlowId.putIfAbsent(result.logicalFlowIds().get(i), flows.get(i));
+            flowsBySpecId.putIfAbsent(result.specificationIds().get(i), flows.get(i));
+            flowsByPhysicalFlowId.putIfAbsent(result.physicalFlowIds().get(i), flows.get(i));
         }
-        return flow;
-    }
-
 
-    private PhysicalSpecification getOrCreatePhysicalSpec(PhysicalFlowParsed flow,
-                                                          String username) {
-        EntityReference owner = flow.owner();
-        DataFormatKind format = flow.format();
-        String name = flow.name();
-
-
-        // check database
-        PhysicalSpecification spec = physicalSpecificationDao.getByParsedFlow(flow);
-        if (spec == null) {
-
-            // create
-            LocalDateTime now = nowUtc();
-            PhysicalSpecification specToAdd = ImmutablePhysicalSpecification.builder()
-                    .owningEntity(owner)
-                    .format(format)
-                    .name(name)
-                    .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
-                    .description(Optional.ofNullable(flow.specDescription()).orElse(""))
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
-
-            Long id = physicalSpecificationDao.create(specToAdd);
-            spec = ImmutablePhysicalSpecification
-                    .copyOf(specToAdd)
-                    .withId(id);
+        List<ChangeLog> entries = new ArrayList<>();
+
+        result.createdLogicalFlowIds().forEach(id -> entries.addAll(mkLogicalFlowEntries(username, id, flowsByLogicalFlowId.get(id), "created")));
+        result.restoredLogicalFlowIds().forEach(id -> entries.addAll(mkLogicalFlowEntries(username, id, flowsByLogicalFlowId.get(id), "restored")));
+
+        result.createdSpecificationIds().forEach(id -> {
+            PhysicalFlowParsed flow = flowsBySpecId.get(id);
+            String message = format("Specification: %s: created by physical flow upload", flow.name());
+            entries.addAll(mkEntries(
+                    username,
+                    message,
+                    Operation.ADD,
+                    EntityKind.PHYSICAL_SPECIFICATION,
+                    mkRef(EntityKind.PHYSICAL_SPECIFICATION, id),
+                    flow.owner()));
+        });
+
+        for (int i = 0; i < flows.size(); i++) {
+            long id = result.physicalFlowIds().get(i);
+            PhysicalFlowParsed flow = flows.get(i);
+            if (result.createdPhysicalFlowIds().contains(id) && flowsByPhysicalFlowId.get(id) == flow) {
+                String message = format(
+                        "Physical flow: %s, from: %s, to: %s: created by physical flow upload",
+                        flow.name(),
+                        safeName(flow.source()),
+                        safeName(flow.target()));
+                entries.addAll(mkEntries(
+                        username,
+                        message,
+                        Operation.ADD,
+                        EntityKind.PHYSICAL_FLOW,
+                        mkRef(EntityKind.PHYSICAL_FLOW, id),
+                        mkRef(EntityKind.LOGICAL_DATA_FLOW, result.logicalFlowIds().get(i)),
+                        flow.source(),
+                        flow.target()));
+            }
         }
 
-        long dataTypeId = flow.dataType().id();
-        EntityReference specificationEntityRef = EntityReference.mkRef(EntityKind.PHYSICAL_SPECIFICATION, spec.id().get());
+        Map<EntityReference, Set<Long>> addedDataTypeIds = new HashMap<>();
+        result.addedDecorators().forEach(d -> addedDataTypeIds
+                .computeIfAbsent(d.entityReference(), k -> new TreeSet<>())
+                .add(d.dataTypeId()));
+        addedDataTypeIds.forEach((ref, dataTypeIds) -> entries.addAll(mkEntries(
+                username,
+                format("Added data types: %s", dataTypeIds),
+                Operation.UPDATE,
+                EntityKind.DATA_TYPE,
+                ref)));
+
+        return entries;
+    }
 
-        DataTypeDecorator existingDataType = dataTypeDecoratorService.getByEntityRefAndDataTypeId(specificationEntityRef, dataTypeId);
-        if(existingDataType == null) {
-            dataTypeDecoratorService.addDecorators(username, specificationEntityRef, fromArray(dataTypeId));
-        }
-        return spec;
+
+    private List<ChangeLog> mkLogicalFlowEntries(String username,
+                                                 long logicalFlowId,
+                                                 PhysicalFlowParsed flow,
+                                                 String action) {
+        String message = format(
+                "Logical flow from: %s, to: %s: %s by physical flow upload",
+                safeName(flow.source()),
+                safeName(flow.target()),
+                action);
+        return mkEntries(
+                username,
+                message,
+                Operation.ADD,
+                EntityKind.LOGICAL_DATA_FLOW,
+                mkRef(EntityKind.LOGICAL_DATA_FLOW, logicalFlowId),
+                flow.source(),
+                flow.target());
     }
 
 
-    private long getOrCreatePhysicalFlow(PhysicalFlow newFlow) {
-        PhysicalFlow existing = physicalFlowDao.matchPhysicalFlow(newFlow);
-        if (existing != null) {
-            return existing.id().get();
-        } else {
-            return physicalFlowDao.create(newFlow);
-        }
+    private List<ChangeLog> mkEntries(String username,
+                                      String message,
+                                      Operation operation,
+                                      EntityKind childKind,
+                                      EntityReference... parents) {
+        return Stream.of(parents)
+                .map(parent -> (ChangeLog) ImmutableChangeLog.builder()
+                        .parentReference(parent)
+                        .message(message)
+                        .severity(Severity.INFORMATION)
+                        .userId(username)
+                        .childKind(childKind)
+                        .operation(operation)
+                        .build())
+                .collect(toList());
     }
 
+
     private Aliases<String> loadTransportAliases() {
         return enumValueAliasService.mkAliases(EnumValueKind.TRANSPORT_KIND);
     }
@@ -23,6 +23,7 @@ import com.khartec.waltz.data.scheduled_job.ScheduledJobDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.scheduled_job.JobKey;
 import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import com.khartec.waltz.service.access_log.AccessLogService;
 import com.khartec.waltz.service.authoritative_source.AuthoritativeSourceService;
 import com.khartec.waltz.service.complexity.ComplexityRatingService;
 import com.khartec.waltz.service.entity_hierarchy.EntityHierarchyService;
@@ -44,6 +45,7 @@ public class ScheduledJobService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobService.class);
 
+    private final AccessLogService accessLogService;
     private final AuthoritativeSourceService authoritativeSourceService;
     private final ComplexityRatingService complexityRatingService;
     private final DataTypeUsageService dataTypeUsageService;
@@ -54,13 +56,15 @@ public class ScheduledJobService {
 
 
     @Autowired
-    public ScheduledJobService(AuthoritativeSourceService authoritativeSourceService,
+    public ScheduledJobService(AccessLogService accessLogService,
+                               AuthoritativeSourceService authoritativeSourceService,
                                ComplexityRatingService complexityRatingService,
                                DataTypeUsageService dataTypeUsageService,
                                EntityHierarchyService entityHierarchyService,
                                LogicalFlowService logicalFlowService,
                                PhysicalSpecDataTypeService physicalSpecDataTypeService,
                                ScheduledJobDao scheduledJobDao) {
+        checkNotNull(accessLogService, "accessLogService cannot be null");
         checkNotNull(authoritativeSourceService, "authoritativeSourceService cannot be null");
         checkNotNull(complexityRatingService, "complexityRatingService cannot be null");
         checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
@@ -68,6 +72,7 @@ public class ScheduledJobService {
         checkNotNull(physicalSpecDataTypeService, "physicalSpecDataTypeService cannot be null");
         checkNotNull(scheduledJobDao, "scheduledJobDao cannot be null");
 
+        this.accessLogService = accessLogService;
         this.authoritativeSourceService = authoritativeSourceService;
         this.complexityRatingService = complexityRatingService;
         this.dataTypeUsageService = dataTypeUsageService;
@@ -80,7 +85,6 @@ public class ScheduledJobService {
 
     @Scheduled(fixedRate = 300_000)
     public void run() {
-        Thread.currentThread().setName("WaltzScheduledJobService");
         runIfNeeded(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
                 (jk) -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
 
@@ -113,6 +117,21 @@ public class ScheduledJobService {
 
         runIfNeeded(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
                 (jk) -> logicalFlowService.cleanupOrphans());
+
+        runIfNeeded(JobKey.ACCESS_LOG_RETENTION,
+                (jk) -> accessLogService.removeExpired());
+    }
+
+
+    /**
+     * Access log retention recurs, so is made runnable again periodically.
+     * Whichever server next claims the job performs the removal.
+     */
+    @Scheduled(
+            initialDelayString = "${waltz.access-log.retention.check.millis:3600000}",
+            fixedDelayString = "${waltz.access-log.retention.check.millis:3600000}")
+    public void scheduleAccessLogRetention() {
+        scheduledJobDao.markJobAsRunnable(JobKey.ACCESS_LOG_RETENTION);
     }
 
 
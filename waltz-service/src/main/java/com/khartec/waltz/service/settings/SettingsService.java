@@ -18,28 +18,44 @@
 
 package com.khartec.waltz.service.settings;
 
-import com.khartec.waltz.common.CollectionUtilities;
 import com.khartec.waltz.common.MapUtilities;
 import com.khartec.waltz.data.settings.SettingsDao;
 import com.khartec.waltz.model.settings.Setting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
+import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.ListUtilities.ensureNotNull;
 
 
+/**
+ * Settings are read on many request paths (e.g. by the authentication filters)
+ * so they are served from an immutable in-memory snapshot rather than the
+ * database.  The snapshot is loaded at startup, periodically reloaded (see
+ * `waltz.settings.refresh.millis`) and may be reloaded on demand via `refresh()`.
+ * Readers never block, a reload simply replaces the snapshot.
+ */
 @Service
 public class SettingsService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SettingsService.class);
+
     private final SettingsDao settingsDao;
 
     public static final String DEFAULT_ROLES_KEY = "server.authentication.roles.default";
     private final Map<String, Setting> overridesByName;
 
+    private volatile Map<String, Setting> settingsByName;
+
 
     /**
      * Setting service allows the settings table to be interrogated.  For dev purposes then a
@@ -50,24 +66,22 @@ public class SettingsService {
      */
     @Autowired
     public SettingsService(SettingsDao settingsDao, Collection<Setting> overrides) {
+        checkNotNull(settingsDao, "settingsDao cannot be null");
         this.settingsDao = settingsDao;
         this.overridesByName = MapUtilities.indexBy(s -> s.name(), ensureNotNull(overrides));
+        this.settingsByName = loadSnapshot();
     }
 
 
     public Collection<Setting> findAll() {
-        return CollectionUtilities.map(
-                settingsDao.findAll(),
-                s -> Optional
-                        .ofNullable(overridesByName.get(s.name()))
-                        .orElse(s));
+        return settingsByName.values();
     }
 
 
     public Setting getByName(String name) {
         return Optional
                 .ofNullable(overridesByName.get(name))
-                .orElse(settingsDao.getByName(name));
+                .orElse(settingsByName.get(name));
     }
 
     /**
@@ -82,4 +96,28 @@ public class SettingsService {
                 .flatMap(s -> s.value());
     }
 
+
+    /**
+     * Reloads the settings snapshot from the database.  Should be called
+     * after the settings table has been modified.
+     */
+    @Scheduled(
+            initialDelayString = "${waltz.settings.refresh.millis:60000}",
+            fixedDelayString = "${waltz.settings.refresh.millis:60000}")
+    public void refresh() {
+        try {
+            settingsByName = loadSnapshot();
+        } catch (Exception e) {
+            LOG.warn("Failed to refresh settings, continuing with previous values", e);
+        }
+    }
+
+
+    private Map<String, Setting> loadSnapshot() {
+        Map<String, Setting> snapshot = new LinkedHashMap<>();
+        settingsDao.findAll().forEach(s -> snapshot.put(s.name(), s));
+        overridesByName.forEach((name, s) -> snapshot.computeIfPresent(name, (k, v) -> s));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
 }
@@ -20,6 +20,7 @@ package com.khartec.waltz.service.survey;
 
 import com.khartec.waltz.common.ListUtilities;
 import com.khartec.waltz.common.SetUtilities;
+import com.khartec.waltz.data.DBExecutorPoolInterface;
 import com.khartec.waltz.data.GenericSelector;
 import com.khartec.waltz.data.GenericSelectorFactory;
 import com.khartec.waltz.data.involvement.InvolvementDao;
@@ -29,30 +30,48 @@ import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.changelog.ImmutableChangeLog;
 import com.khartec.waltz.model.person.Person;
 import com.khartec.waltz.model.survey.*;
+import com.khartec.waltz.service.IssuanceProgressTracker;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.common.MapUtilities.indexBy;
 import static com.khartec.waltz.common.SetUtilities.fromCollection;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 
 @Service
 public class SurveyRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SurveyRunService.class);
+
+    /**
+     * Number of instances created (along with their recipients) per transaction
+     * when issuing a survey run.
+     */
+    private static final int ISSUANCE_CHUNK_SIZE = 1_000;
+
     private final ChangeLogService changeLogService;
+    private final DBExecutorPoolInterface dbExecutorPool;
     private final InvolvementDao involvementDao;
     private final PersonDao personDao;
     private final SurveyInstanceDao surveyInstanceDao;
@@ -63,10 +82,12 @@ public class SurveyRunService {
 
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
     private final SurveyInstanceIdSelectorFactory surveyInstanceIdSelectorFactory = new SurveyInstanceIdSelectorFactory();
+    private final IssuanceProgressTracker issuanceProgressTracker = new IssuanceProgressTracker();
 
 
     @Autowired
     public SurveyRunService(ChangeLogService changeLogService,
+                            DBExecutorPoolInterface dbExecutorPool,
                             InvolvementDao involvementDao,
                             PersonDao personDao,
                             SurveyInstanceDao surveyInstanceDao,
@@ -75,6 +96,7 @@ public class SurveyRunService {
                             SurveyTemplateDao surveyTemplateDao,
                             SurveyQuestionResponseDao surveyQuestionResponseDao) {
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(involvementDao, "involvementDao cannot be null");
         checkNotNull(personDao, "personDao cannot be null");
         checkNotNull(surveyInstanceDao, "surveyInstanceDao cannot be null");
@@ -84,6 +106,7 @@ public class SurveyRunService {
         checkNotNull(surveyQuestionResponseDao, "surveyQuestionResponseDao cannot be null");
 
         this.changeLogService = changeLogService;
+        this.dbExecutorPool = dbExecutorPool;
         this.involvementDao = involvementDao;
         this.personDao = personDao;
         this.surveyInstanceDao = surveyInstanceDao;
@@ -277,7 +300,48 @@ public class SurveyRunService {
 
     public boolean createSurveyInstancesAndRecipients(long surveyRunId,
                                                       List<SurveyInstanceRecipient> excludedRecipients) {
+        List<Tuple2<SurveyInstanceCreateCommand, Collection<Long>>> instancesToCreate = prepareSurveyInstancesAndRecipients(
+                surveyRunId,
+                excludedRecipients);
+
+        EntityReference runRef = EntityReference.mkRef(EntityKind.SURVEY_RUN, surveyRunId);
+        issuanceProgressTracker.start(runRef, instancesToCreate.size());
+
+        return createSurveyInstancesAndRecipients(runRef, instancesToCreate);
+    }
+
+
+    /**
+     * Asynchronous variant of `createSurveyInstancesAndRecipients`.  Recipients are
+     * resolved before returning, however the instances and recipients are
+     * created in the background.  Use `getIssuanceProgress` to monitor the issuance.
+     *
+     * @param surveyRunId  run to issue
+     * @param excludedRecipients  recipients which should not receive an instance
+     * @return initial progress of the issuance
+     */
+    public IssuanceProgress issueSurveyInstancesAndRecipients(long surveyRunId,
+                                                              List<SurveyInstanceRecipient> excludedRecipients) {
+        List<Tuple2<SurveyInstanceCreateCommand, Collection<Long>>> instancesToCreate = prepareSurveyInstancesAndRecipients(
+                surveyRunId,
+                excludedRecipients);
 
+        EntityReference runRef = EntityReference.mkRef(EntityKind.SURVEY_RUN, surveyRunId);
+        IssuanceProgress progress = issuanceProgressTracker.start(runRef, instancesToCreate.size());
+
+        dbExecutorPool.submit(() -> createSurveyInstancesAndRecipients(runRef, instancesToCreate));
+
+        return progress;
+    }
+
+
+    public Optional<IssuanceProgress> getIssuanceProgress(long surveyRunId) {
+        return issuanceProgressTracker.find(EntityReference.mkRef(EntityKind.SURVEY_RUN, surveyRunId));
+    }
+
+
+    private List<Tuple2<SurveyInstanceCreateCommand, Collection<Long>>> prepareSurveyInstancesAndRecipients(long surveyRunId,
+                                                                                                        List<SurveyInstanceRecipient> excludedRecipients) {
         SurveyRun surveyRun = surveyRunDao.getById(surveyRunId);
         checkNotNull(surveyRun, "surveyRun " + surveyRunId + " not found");
 
@@ -292,27 +356,54 @@ public class SurveyRunService {
                         toList()
                 ));
 
-        // delete existing instances and recipients
-        deleteSurveyInstancesAndRecipients(surveyRunId);
-
-        // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k,v) -> {
-                    if (surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP) {
-                        // one instance per group
-                        long instanceId = createSurveyInstance(k);
-                        v.forEach(r -> createSurveyInstanceRecipient(instanceId, r));
-                    } else {
-                        // one instance for each individual
-                        v.forEach(r -> {
-                            long instanceId = createSurveyInstance(k);
-                            createSurveyInstanceRecipient(instanceId, r);
-                        });
-                    }
-                }
-        );
-
-        return true;
+        return instancesAndRecipientsToSave
+                .entrySet()
+                .stream()
+                .flatMap(e -> {
+                    SurveyInstanceCreateCommand command = mkCreateCommand(e.getKey());
+                    List<Long> personIds = map(e.getValue(), r -> r.person().id().get());
+
+                    Stream<Tuple2<SurveyInstanceCreateCommand, Collection<Long>>> instances =
+                            surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP
+                                    // one instance per group
+                                    ? Stream.of(tuple(command, personIds))
+                                    // one instance for each individual
+                                    : personIds.stream().map(p -> tuple(command, Collections.singletonList(p)));
+
+                    return instances;
+                })
+                .collect(toList());
+    }
+
+
+    private boolean createSurveyInstancesAndRecipients(EntityReference runRef,
+                                                       List<Tuple2<SurveyInstanceCreateCommand, Collection<Long>>> instancesToCreate) {
+        try {
+            // delete existing instances and recipients
+            deleteSurveyInstancesAndRecipients(runRef.id());
+
+            // insert new instances and recipients, in chunks to bound transaction size
+            for (int start = 0; start < instancesToCreate.size(); start += ISSUANCE_CHUNK_SIZE) {
+                List<Tuple2<SurveyInstanceCreateCommand, Collection<Long>>> chunk = instancesToCreate.subList(
+                        start,
+                        Math.min(instancesToCreate.size(), start + ISSUANCE_CHUNK_SIZE));
+
+                int recipientCount = surveyInstanceDao.createWithRecipients(chunk);
+                IssuanceProgress progress = issuanceProgressTracker.advance(runRef, chunk.size(), recipientCount);
+
+                LOG.debug("Survey run: {}, created {}/{} instances",
+                        runRef.id(),
+                        progress.instancesCreated(),
+                        progress.instanceCount());
+            }
+
+            issuanceProgressTracker.complete(runRef);
+            return true;
+        } catch (RuntimeException e) {
+            LOG.error("Failed to issue survey run: " + runRef.id(), e);
+            issuanceProgressTracker.fail(runRef, e);
+            throw e;
+        }
     }
 
 
@@ -322,21 +413,13 @@ public class SurveyRunService {
     }
 
 
-    private long createSurveyInstance(SurveyInstance surveyInstance) {
-        return surveyInstanceDao.create(ImmutableSurveyInstanceCreateCommand.builder()
+    private static SurveyInstanceCreateCommand mkCreateCommand(SurveyInstance surveyInstance) {
+        return ImmutableSurveyInstanceCreateCommand.builder()
                 .surveyRunId(surveyInstance.surveyRunId())
                 .entityReference(surveyInstance.surveyEntity())
                 .status(surveyInstance.status())
                 .dueDate(surveyInstance.dueDate())
-                .build());
-    }
-
-
-    private long createSurveyInstanceRecipient(long surveyInstanceId, SurveyInstanceRecipient surveyInstanceRecipient) {
-        return surveyInstanceRecipientDao.create(ImmutableSurveyInstanceRecipientCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(surveyInstanceRecipient.person().id().get())
-                .build());
+                .build();
     }
 
 
@@ -3,13 +3,13 @@ package com.khartec.waltz.service.survey.inclusion_evaluator;
 import com.khartec.waltz.model.ExternalIdProvider;
 import com.khartec.waltz.model.survey.SurveyQuestion;
 import com.khartec.waltz.model.survey.SurveyQuestionResponse;
-import org.apache.commons.jexl3.JexlEngine;
-import org.apache.commons.jexl3.MapContext;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static org.jooq.lambda.tuple.Tuple.tuple;
@@ -23,7 +23,8 @@ public class QuestionBasePredicateNamespace {
 
     private final Map<String, SurveyQuestion> questionsByExtId;
     private final Map<Long, SurveyQuestionResponse> responsesByQuestionId;
-    private JexlEngine jexl;
+    private final Map<String, Boolean> dittoResultsByExtId = new HashMap<>();
+    private Predicate<String> predicateEvaluator;
 
 
     public QuestionBasePredicateNamespace(List<SurveyQuestion> questions,
@@ -65,14 +66,19 @@ public class QuestionBasePredicateNamespace {
 
 
     public boolean ditto(String qExtId) {
-        SurveyQuestion referencedQuestion = questionsByExtId
-                .get(qExtId);
+        Boolean result = dittoResultsByExtId.get(qExtId);
+        if (result == null) {
+            SurveyQuestion referencedQuestion = questionsByExtId
+                    .get(qExtId);
 
-        return referencedQuestion
-                .inclusionPredicate()
-                .map(p -> jexl.createExpression(p).evaluate(new MapContext()))
-                .map(r -> Boolean.valueOf(r.toString()))
-                .orElse(true);
+            result = referencedQuestion
+                    .inclusionPredicate()
+                    .map(p -> predicateEvaluator.test(p))
+                    .orElse(true);
+
+            dittoResultsByExtId.put(qExtId, result);
+        }
+        return result;
     }
 
 
@@ -117,10 +123,10 @@ public class QuestionBasePredicateNamespace {
 
     /**
      * Need to pass in the evaluator so that 'recursive' functions can be computed (e.g. 'DITTO')
-     * @param jexl
+     * @param predicateEvaluator  evaluates a predicate against this namespace
      */
-    public void usingEvaluator(JexlEngine jexl) {
-        this.jexl = jexl;
+    public void usingEvaluator(Predicate<String> predicateEvaluator) {
+        this.predicateEvaluator = predicateEvaluator;
     }
 
 
@@ -1,8 +1,10 @@
 package com.khartec.waltz.service.survey.inclusion_evaluator;
 
+import com.khartec.waltz.common.LruCache;
 import com.khartec.waltz.data.survey.SurveyInstanceDao;
 import com.khartec.waltz.data.survey.SurveyQuestionDao;
 import com.khartec.waltz.data.survey.SurveyQuestionResponseDao;
+import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.survey.SurveyInstance;
 import com.khartec.waltz.model.survey.SurveyInstanceQuestionResponse;
@@ -11,26 +13,51 @@ import com.khartec.waltz.model.survey.SurveyQuestionResponse;
 import com.khartec.waltz.service.DIConfiguration;
 import org.apache.commons.jexl3.*;
 import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.common.MapUtilities.indexBy;
-import static com.khartec.waltz.common.MapUtilities.newHashMap;
 import static com.khartec.waltz.common.StringUtilities.isEmpty;
+import static java.util.stream.Collectors.groupingBy;
 
 @Service
 public class QuestionPredicateEvaluator {
 
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionPredicateEvaluator.class);
+
+    /**
+     * Engines are thread safe and hold no per-survey state (namespaces are
+     * resolved via the evaluation context) so a single engine is shared.
+     */
+    private static final JexlEngine JEXL = new JexlBuilder().create();
+
+    private static final int EXPRESSION_CACHE_SIZE = 1_000;
+
+    /**
+     * Number of instances whose subject facts are fetched together when
+     * evaluating a whole survey run.  Also bounds the size of the `IN`
+     * clauses used to fetch those facts.
+     */
+    private static final int SUBJECT_BATCH_SIZE = 500;
+
     private final DSLContext dsl;
     private final SurveyQuestionDao questionDao;
     private final SurveyInstanceDao instanceDao;
     private final SurveyQuestionResponseDao responseDao;
 
+    // compiled expressions, keyed by predicate text
+    private final LruCache<String, JexlExpression> expressionCache = new LruCache<>(EXPRESSION_CACHE_SIZE);
+
 
     @Autowired
     public QuestionPredicateEvaluator(DSLContext dsl,
@@ -50,33 +77,88 @@ public class QuestionPredicateEvaluator {
 
         SurveyInstance instance = instanceDao.getById(surveyInstanceId);
         EntityReference subjectRef = instance.surveyEntity();
-        return eval(qs, subjectRef, responsesByQuestionId);
+
+        SubjectFacts facts = new SubjectFacts(
+                dsl,
+                subjectRef.kind(),
+                Collections.singleton(subjectRef.id()));
+
+        return eval(qs, subjectRef, responsesByQuestionId, facts);
+    }
+
+
+    /**
+     * Determines the active questions for every (current) instance in a survey
+     * run.  Subject facts are fetched for batches of instances rather than per
+     * instance, and responses for the entire run are loaded up front.
+     *
+     * @param surveyRunId  run to evaluate
+     * @return active questions keyed by survey instance id
+     */
+    public Map<Long, List<SurveyQuestion>> determineActiveQuestionsForSurveyRun(long surveyRunId) {
+        List<SurveyQuestion> qs = questionDao.findForSurveyRun(surveyRunId);
+        List<SurveyInstance> instances = instanceDao.findForSurveyRun(surveyRunId);
+
+        Map<Long, Map<Long, SurveyQuestionResponse>> responsesByInstanceId = responseDao
+                .findForSurveyRun(surveyRunId)
+                .stream()
+                .collect(groupingBy(
+                        SurveyInstanceQuestionResponse::surveyInstanceId,
+                        Collectors.toMap(
+                                r -> r.questionResponse().questionId(),
+                                SurveyInstanceQuestionResponse::questionResponse,
+                                (a, b) -> a)));
+
+        Map<Long, List<SurveyQuestion>> activeQuestionsByInstanceId = new HashMap<>();
+
+        for (int start = 0; start < instances.size(); start += SUBJECT_BATCH_SIZE) {
+            List<SurveyInstance> batch = instances.subList(
+                    start,
+                    Math.min(instances.size(), start + SUBJECT_BATCH_SIZE));
+
+            Map<EntityKind, List<SurveyInstance>> batchByKind = batch
+                    .stream()
+                    .collect(groupingBy(i -> i.surveyEntity().kind()));
+
+            batchByKind.forEach((kind, instancesOfKind) -> {
+                SubjectFacts facts = new SubjectFacts(
+                        dsl,
+                        kind,
+                        map(instancesOfKind, i -> i.surveyEntity().id()));
+
+                instancesOfKind.forEach(i -> activeQuestionsByInstanceId.put(
+                        i.id().get(),
+                        eval(qs,
+                            i.surveyEntity(),
+                            responsesByInstanceId.getOrDefault(i.id().get(), Collections.emptyMap()),
+                            facts)));
+            });
+        }
+
+        return activeQuestionsByInstanceId;
     }
 
 
     private List<SurveyQuestion> eval(List<SurveyQuestion> qs,
                                       EntityReference subjectRef,
-                                      Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
+                                      Map<Long, SurveyQuestionResponse> responsesByQuestionId,
+                                      SubjectFacts facts) {
 
         QuestionAppPredicateNamespace defaultNamespace = new QuestionAppPredicateNamespace(
-                dsl,
+                facts,
                 subjectRef,
                 qs,
                 responsesByQuestionId);
 
-        JexlBuilder builder = new JexlBuilder();
-        JexlEngine jexl = builder
-                .namespaces(newHashMap(null, defaultNamespace))
-                .create();
+        defaultNamespace.usingEvaluator(p -> evalPredicate(p, defaultNamespace));
 
-        defaultNamespace.usingEvaluator(jexl);
-
-        return determineActiveQs(qs, jexl);
+        return determineActiveQs(qs, defaultNamespace);
     }
 
 
-    private static List<SurveyQuestion> determineActiveQs(List<SurveyQuestion> qs, JexlEngine jexl) {
-        List<SurveyQuestion> activeQs = qs
+    private List<SurveyQuestion> determineActiveQs(List<SurveyQuestion> qs,
+                                                   QuestionBasePredicateNamespace namespace) {
+        return qs
                 .stream()
                 .filter(q -> q
                         .inclusionPredicate()
@@ -84,20 +166,21 @@ public class QuestionPredicateEvaluator {
                             if (isEmpty(p)) {
                                 return true;
                             } else {
-                                JexlExpression expr = jexl.createExpression(p);
-                                JexlContext jexlCtx = new MapContext();
-                                Boolean result = Boolean.valueOf(expr.evaluate(jexlCtx).toString());
-                                System.out.printf(
-                                        "%s [%s] => %s\n",
-                                        q.questionText(),
-                                        q.inclusionPredicate().orElse(""),
-                                        result);
+                                boolean result = evalPredicate(p, namespace);
+                                LOG.debug("{} [{}] => {}", q.questionText(), p, result);
                                 return result;
                             }
                         })
                         .orElse(true))
                 .collect(Collectors.toList());
-        return activeQs;
+    }
+
+
+    private boolean evalPredicate(String predicate,
+                                  QuestionBasePredicateNamespace namespace) {
+        JexlExpression expr = expressionCache.get(predicate, JEXL::createExpression);
+        Object result = expr.evaluate(new NamespaceContext(namespace));
+        return Boolean.valueOf(String.valueOf(result));
     }
 
 
@@ -114,6 +197,29 @@ public class QuestionPredicateEvaluator {
     }
 
 
+    /**
+     * Resolves the default (unprefixed) function namespace to the per-instance
+     * namespace, allowing the engine, and compiled expressions, to be shared.
+     */
+    private static class NamespaceContext extends MapContext implements JexlContext.NamespaceResolver {
+
+        private final Object defaultNamespace;
+
+
+        private NamespaceContext(Object defaultNamespace) {
+            this.defaultNamespace = defaultNamespace;
+        }
+
+
+        @Override
+        public Object resolveNamespace(String name) {
+            return name == null
+                    ? defaultNamespace
+                    : null;
+        }
+    }
+
+
     // --- TEST ---
 
     public static void main(String[] args) {
@@ -0,0 +1,209 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.survey.inclusion_evaluator;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.schema.tables.Application;
+import com.khartec.waltz.schema.tables.DataType;
+import com.khartec.waltz.schema.tables.DataTypeUsage;
+import com.khartec.waltz.schema.tables.EntityHierarchy;
+import com.khartec.waltz.schema.tables.OrganisationalUnit;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.SetUtilities.fromCollection;
+import static com.khartec.waltz.schema.Tables.*;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+
+
+/**
+ * Facts about a batch of survey subjects (all of the same kind) which are
+ * referred to by question inclusion predicates.
+ *
+ * Each kind of fact is loaded, for every subject in the batch, the first time
+ * it is requested.  This means a predicate referring to (say) data type usages
+ * costs one query per batch rather than one query per subject per evaluation.
+ *
+ * Instances are not thread safe and are intended to be discarded once the
+ * predicates for the batch have been evaluated.
+ */
+public class SubjectFacts {
+
+    private final DSLContext dsl;
+    private final EntityKind subjectKind;
+    private final Set<Long> subjectIds;
+
+    private Set<Long> retiringAppIds;
+    private Map<Long, Set<String>> orgUnitIdentifiersByAppId;
+    private Map<Long, Map<String, Set<String>>> dataTypeUsagesBySubjectId;
+    private Map<Long, Map<String, String>> assessmentRatingsBySubjectId;
+
+
+    public SubjectFacts(DSLContext dsl,
+                        EntityKind subjectKind,
+                        Collection<Long> subjectIds) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(subjectKind, "subjectKind cannot be null");
+        checkNotNull(subjectIds, "subjectIds cannot be null");
+
+        this.dsl = dsl;
+        this.subjectKind = subjectKind;
+        this.subjectIds = fromCollection(subjectIds);
+    }
+
+
+    /**
+     * An application is retiring if it has a planned retirement date and has
+     * not yet (actually) been retired.
+     */
+    public boolean isRetiring(long appId) {
+        if (retiringAppIds == null) {
+            Condition isPlanned = APPLICATION.PLANNED_RETIREMENT_DATE.isNotNull();
+
+            Condition notRetiredYet = APPLICATION.ACTUAL_RETIREMENT_DATE.isNull()
+                    .or(APPLICATION.ACTUAL_RETIREMENT_DATE.greaterOrEqual(DSL.now()));
+
+            retiringAppIds = dsl
+                    .select(APPLICATION.ID)
+                    .from(APPLICATION)
+                    .where(APPLICATION.ID.in(appIdsOrEmpty()))
+                    .and(isPlanned)
+                    .and(notRetiredYet)
+                    .fetchSet(APPLICATION.ID);
+        }
+
+        return retiringAppIds.contains(appId);
+    }
+
+
+    /**
+     * @return names and external ids of the org unit the application belongs to, and of all its ancestors
+     */
+    public Set<String> orgUnitIdentifiers(long appId) {
+        if (orgUnitIdentifiersByAppId == null) {
+            EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
+            Application app = APPLICATION.as("app");
+            OrganisationalUnit ou = ORGANISATIONAL_UNIT.as("ou");
+
+            orgUnitIdentifiersByAppId = new HashMap<>();
+            dsl.select(app.ID, ou.NAME, ou.EXTERNAL_ID)
+                    .from(app)
+                    .innerJoin(eh)
+                    .on(eh.ID.eq(app.ORGANISATIONAL_UNIT_ID)
+                            .and(eh.KIND.eq(EntityKind.ORG_UNIT.name())))
+                    .innerJoin(ou)
+                    .on(ou.ID.eq(eh.ANCESTOR_ID))
+                    .where(app.ID.in(appIdsOrEmpty()))
+                    .forEach(r -> {
+                        Set<String> identifiers = orgUnitIdentifiersByAppId.computeIfAbsent(
+                                r.get(app.ID),
+                                k -> new HashSet<>());
+                        identifiers.add(r.get(ou.NAME));
+                        Optional.ofNullable(r.get(ou.EXTERNAL_ID)).ifPresent(identifiers::add);
+                    });
+        }
+
+        return orgUnitIdentifiersByAppId.getOrDefault(appId, Collections.emptySet());
+    }
+
+
+    /**
+     * @param dataTypeNameOrCode  name or code of a data type, usages of descendant data types are included
+     * @return usage kinds (e.g. ORIGINATOR, CONSUMER) of the data type by the subject
+     */
+    public Set<String> dataTypeUsages(long subjectId, String dataTypeNameOrCode) {
+        if (dataTypeUsagesBySubjectId == null) {
+            DataTypeUsage dtu = DATA_TYPE_USAGE.as("dtu");
+            DataType dt = DATA_TYPE.as("dt");
+            EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
+
+            dataTypeUsagesBySubjectId = new HashMap<>();
+            dsl.select(dtu.ENTITY_ID, dtu.USAGE_KIND, dt.CODE, dt.NAME)
+                    .from(dtu)
+                    .innerJoin(eh)
+                    .on(eh.ID.eq(dtu.DATA_TYPE_ID).and(eh.KIND.eq(EntityKind.DATA_TYPE.name())))
+                    .innerJoin(dt)
+                    .on(dt.ID.eq(eh.ANCESTOR_ID))
+                    .where(dtu.ENTITY_KIND.eq(subjectKind.name()))
+                    .and(dtu.ENTITY_ID.in(subjectIds))
+                    .forEach(r -> {
+                        Map<String, Set<String>> usagesByDataType = dataTypeUsagesBySubjectId.computeIfAbsent(
+                                r.get(dtu.ENTITY_ID),
+                                k -> new HashMap<>());
+                        usagesByDataType.computeIfAbsent(r.get(dt.CODE), k -> new HashSet<>()).add(r.get(dtu.USAGE_KIND));
+                        usagesByDataType.computeIfAbsent(r.get(dt.NAME), k -> new HashSet<>()).add(r.get(dtu.USAGE_KIND));
+                    });
+        }
+
+        return dataTypeUsagesBySubjectId
+                .getOrDefault(subjectId, Collections.emptyMap())
+                .getOrDefault(dataTypeNameOrCode, Collections.emptySet());
+    }
+
+
+    /**
+     * @param definitionNameOrExtId  name or external id of an assessment definition
+     * @return code of the rating the subject has been given for the assessment, if any
+     */
+    public Optional<String> assessmentRating(long subjectId, String definitionNameOrExtId) {
+        if (assessmentRatingsBySubjectId == null) {
+            assessmentRatingsBySubjectId = new HashMap<>();
+            dsl.select(ASSESSMENT_RATING.ENTITY_ID,
+                        ASSESSMENT_DEFINITION.NAME,
+                        ASSESSMENT_DEFINITION.EXTERNAL_ID,
+                        RATING_SCHEME_ITEM.CODE)
+                    .from(ASSESSMENT_DEFINITION)
+                    .innerJoin(ASSESSMENT_RATING).on(ASSESSMENT_RATING.ASSESSMENT_DEFINITION_ID.eq(ASSESSMENT_DEFINITION.ID))
+                    .innerJoin(RATING_SCHEME).on(RATING_SCHEME.ID.eq(ASSESSMENT_DEFINITION.RATING_SCHEME_ID))
+                    .innerJoin(RATING_SCHEME_ITEM).on(RATING_SCHEME_ITEM.ID.eq(ASSESSMENT_RATING.RATING_ID))
+                    .where(ASSESSMENT_RATING.ENTITY_KIND.eq(subjectKind.name()))
+                    .and(ASSESSMENT_RATING.ENTITY_ID.in(subjectIds))
+                    .forEach(r -> {
+                        Map<String, String> ratingsByDefinition = assessmentRatingsBySubjectId.computeIfAbsent(
+                                r.get(ASSESSMENT_RATING.ENTITY_ID),
+                                k -> new HashMap<>());
+                        ratingsByDefinition.putIfAbsent(r.get(ASSESSMENT_DEFINITION.NAME), r.get(RATING_SCHEME_ITEM.CODE));
+                        Optional.ofNullable(r.get(ASSESSMENT_DEFINITION.EXTERNAL_ID))
+                                .ifPresent(extId -> ratingsByDefinition.putIfAbsent(extId, r.get(RATING_SCHEME_ITEM.CODE)));
+                    });
+        }
+
+        return Optional.ofNullable(assessmentRatingsBySubjectId
+                .getOrDefault(subjectId, Collections.emptyMap())
+                .get(definitionNameOrExtId));
+    }
+
+
+    private Set<Long> appIdsOrEmpty() {
+        return subjectKind == EntityKind.APPLICATION
+                ? subjectIds
+                : Collections.emptySet();
+    }
+
+}
@@ -34,18 +34,22 @@ import com.khartec.waltz.service.changelog.ChangeLogService;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.CollectionUtilities.*;
 import static com.khartec.waltz.common.SetUtilities.fromCollection;
+import static com.khartec.waltz.model.EntityReference.mkRef;
 import static com.khartec.waltz.model.usage_info.UsageInfoUtilities.mkChangeSet;
 import static com.khartec.waltz.schema.tables.Actor.ACTOR;
 import static com.khartec.waltz.schema.tables.Application.APPLICATION;
@@ -53,23 +57,37 @@ import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 @Service
 public class DataTypeUsageService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DataTypeUsageService.class);
+
     private final DataTypeUsageDao dataTypeUsageDao;
     private final DataTypeDao dataTypeDao;
     private final ApplicationIdSelectorFactory appIdSelectorFactor = new ApplicationIdSelectorFactory();
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
     private final ChangeLogService changeLogService;
+    private final int recalculationChunkSize;
+
+    /**
+     * Applications/actors whose calculated usages may be stale due to flow changes
+     * made via this server.  Held in memory, so changes made elsewhere (other servers,
+     * bulk loads, data type ripples) are only picked up by a full recalculation, see
+     * the `DATA_TYPE_USAGE_RECALC_APPLICATION` job.
+     */
+    private final Set<EntityReference> dirtyRefs = ConcurrentHashMap.newKeySet();
 
 
     @Autowired
     public DataTypeUsageService(DataTypeUsageDao dataTypeUsageDao,
                                 DataTypeDao dataTypeDao,
-                                ChangeLogService changeLogService) {
+                                ChangeLogService changeLogService,
+                                @Value("${waltz.data-type-usage.recalc.chunk.size:100}") int recalculationChunkSize) {
         checkNotNull(dataTypeUsageDao, "dataTypeUsageDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkTrue(recalculationChunkSize > 0, "recalculationChunkSize must be positive");
         this.dataTypeUsageDao = dataTypeUsageDao;
         this.dataTypeDao = dataTypeDao;
         this.changeLogService = changeLogService;
+        this.recalculationChunkSize = recalculationChunkSize;
     }
 
 
@@ -145,8 +163,24 @@ public class DataTypeUsageService {
     }
 
 
+    /**
+     * Recalculates usages for all active applications and all actors.  The work is
+     * split into chunks of `waltz.data-type-usage.recalc.chunk.size` entities, each
+     * in its own transaction, so locks on `DATA_TYPE_USAGE` are only held briefly.
+     */
     public boolean recalculateForAllApplications() {
-        return dataTypeUsageDao.recalculateForAllApplications();
+        // everything currently dirty will be covered by this run
+        List<EntityReference> covered = new ArrayList<>(dirtyRefs);
+        dirtyRefs.removeAll(covered);
+
+        try {
+            recalculateInChunks(EntityKind.APPLICATION, dataTypeUsageDao.findIdsForRecalculation(EntityKind.APPLICATION));
+            recalculateInChunks(EntityKind.ACTOR, dataTypeUsageDao.findIdsForRecalculation(EntityKind.ACTOR));
+        } catch (RuntimeException e) {
+            dirtyRefs.addAll(covered);
+            throw e;
+        }
+        return true;
     }
 
 
@@ -167,22 +201,93 @@ public class DataTypeUsageService {
         if (isEmpty(appIds) && isEmpty(actorIds)) {
             return true;
         } else {
-            Select<Record1<Long>> appIdSelector = convertApplicationIdsToIdSelector(appIds);
-            Select<Record1<Long>> actorIdSelector = convertActorIdsToIdSelector(actorIds);
-            return dataTypeUsageDao.recalculateForIdSelector(EntityKind.APPLICATION, appIdSelector) &&
-                    dataTypeUsageDao.recalculateForIdSelector(EntityKind.ACTOR, actorIdSelector);
+            recalculateInChunks(EntityKind.APPLICATION, appIds);
+            recalculateInChunks(EntityKind.ACTOR, actorIds);
+            return true;
+        }
+    }
+
+
+    /**
+     * Records that the calculated usages of the given entities (typically the
+     * source and target of a modified flow) need recalculating.  Only applications
+     * and actors are recorded, other kinds are ignored.
+     */
+    public void markDirty(Collection<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+        refs.stream()
+                .filter(r -> r.kind() == EntityKind.APPLICATION || r.kind() == EntityKind.ACTOR)
+                .map(r -> mkRef(r.kind(), r.id()))
+                .forEach(dirtyRefs::add);
+    }
+
+
+    public int countDirty() {
+        return dirtyRefs.size();
+    }
+
+
+    /**
+     * Recalculates usages for entities marked as dirty since the last run.
+     * If the recalculation fails the entities remain dirty.
+     * @return number of entities recalculated
+     */
+    public int recalculateDirty() {
+        List<EntityReference> refs = new ArrayList<>(dirtyRefs);
+        if (refs.isEmpty()) {
+            return 0;
+        }
+        dirtyRefs.removeAll(refs);
+
+        try {
+            recalculateForApplications(refs);
+        } catch (RuntimeException e) {
+            dirtyRefs.addAll(refs);
+            throw e;
+        }
+        return refs.size();
+    }
+
+
+    @Scheduled(
+            initialDelayString = "${waltz.data-type-usage.dirty.recalc.millis:60000}",
+            fixedDelayString = "${waltz.data-type-usage.dirty.recalc.millis:60000}")
+    public void recalculateDirtyOnSchedule() {
+        try {
+            int count = recalculateDirty();
+            if (count > 0) {
+                LOG.debug("Recalculated data type usages for {} entities", count);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to recalculate data type usages, will retry on next run", e);
         }
     }
 
 
-    private Select<Record1<Long>> convertApplicationIdsToIdSelector(Set<Long> appIds) {
+    private void recalculateInChunks(EntityKind kind, Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        for (int start = 0; start < idList.size(); start += recalculationChunkSize) {
+            List<Long> chunk = idList.subList(start, Math.min(idList.size(), start + recalculationChunkSize));
+            dataTypeUsageDao.recalculateForIdSelector(kind, mkIdSelector(kind, chunk));
+        }
+    }
+
+
+    private Select<Record1<Long>> mkIdSelector(EntityKind kind, Collection<Long> ids) {
+        return kind == EntityKind.ACTOR
+                ? convertActorIdsToIdSelector(ids)
+                : convertApplicationIdsToIdSelector(ids);
+    }
+
+
+    private Select<Record1<Long>> convertApplicationIdsToIdSelector(Collection<Long> appIds) {
         return DSL.select(APPLICATION.ID)
                 .from(APPLICATION)
                 .where(APPLICATION.ID.in(appIds));
     }
 
 
-    private Select<Record1<Long>> convertActorIdsToIdSelector(Set<Long> actorIds) {
+    private Select<Record1<Long>> convertActorIdsToIdSelector(Collection<Long> actorIds) {
         return DSL.select(ACTOR.ID)
                 .from(ACTOR)
                 .where(ACTOR.ID.in(actorIds));
@@ -18,6 +18,7 @@
 
 package com.khartec.waltz.service.user;
 
+import com.khartec.waltz.common.LruCache;
 import com.khartec.waltz.common.SetUtilities;
 import com.khartec.waltz.data.user.UserRoleDao;
 import com.khartec.waltz.model.EntityKind;
@@ -33,8 +34,10 @@ import com.khartec.waltz.service.person.PersonService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -53,21 +56,34 @@ public class UserRoleService {
 
     private static final Logger LOG = LoggerFactory.getLogger(UserRoleService.class);
 
+    private static final int MAX_CACHED_USERS = 10_000;
+
     private final UserRoleDao userRoleDao;
 
     private final ChangeLogService changeLogService;
 
     private final PersonService personService;
 
+    /**
+     * Role checks are performed on almost every mutating request (often
+     * several times), so roles are cached by (lower cased) user name.
+     * Entries are invalidated when roles are updated via this service and
+     * otherwise expire after `waltz.user.roles.cache.ttl.millis`.
+     */
+    private final LruCache<String, Set<String>> rolesByUser;
+
 
     @Autowired
     public UserRoleService(UserRoleDao userRoleDao,
-                           ChangeLogService changeLogService, PersonService personService) {
+                           ChangeLogService changeLogService,
+                           PersonService personService,
+                           @Value("${waltz.user.roles.cache.ttl.millis:60000}") long roleCacheTtlMillis) {
         this.personService = personService;
         checkNotNull(userRoleDao, "userRoleDao must not be null");
 
         this.userRoleDao = userRoleDao;
         this.changeLogService = changeLogService;
+        this.rolesByUser = new LruCache<>(MAX_CACHED_USERS, roleCacheTtlMillis);
     }
 
 
@@ -83,7 +99,7 @@ public class UserRoleService {
 
 
     public boolean hasRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return userRoles.containsAll(requiredRoles);
     }
 
@@ -98,7 +114,7 @@ public class UserRoleService {
     }
 
     public boolean hasAnyRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return ! SetUtilities.intersection(userRoles, requiredRoles)
                     .isEmpty();
     }
@@ -112,7 +128,7 @@ public class UserRoleService {
     public User getByUserId(String userId) {
         return ImmutableUser.builder()
                 .userName(userId)
-                .addAllRoles(userRoleDao.getUserRoles(userId))
+                .addAllRoles(getUserRoles(userId))
                 .build();
     }
 
@@ -120,6 +136,13 @@ public class UserRoleService {
     public boolean updateRoles(String userName, String targetUserName, Set<String> newRoles) {
         LOG.info("Updating roles for userName: {}, new roles: {}", targetUserName, newRoles);
 
+        boolean updated;
+        try {
+            updated = userRoleDao.updateRoles(targetUserName, newRoles);
+        } finally {
+            invalidateCachedRoles(targetUserName);
+        }
+
         Person person = personService.getPersonByUserId(targetUserName);
         if(person == null) {
             LOG.warn("{} does not exist, cannot create audit log for role updates", targetUserName);
@@ -139,12 +162,43 @@ public class UserRoleService {
             changeLogService.write(logEntry);
         }
 
-        return userRoleDao.updateRoles(targetUserName, newRoles);
+        return updated;
     }
 
 
     public Set<String> getUserRoles(String userName) {
-        return userRoleDao.getUserRoles(userName);
+        if (userName == null) {
+            return Collections.emptySet();
+        }
+        return rolesByUser.get(
+                toCacheKey(userName),
+                k -> Collections.unmodifiableSet(userRoleDao.getUserRoles(userName)));
+    }
+
+
+    /**
+     * Should be called whenever a users roles are modified without going
+     * through `updateRoles` (e.g. default roles assigned at registration).
+     */
+    public void invalidateCachedRoles(String userName) {
+        if (userName != null) {
+            rolesByUser.invalidate(toCacheKey(userName));
+        }
+    }
+
+
+    public void invalidateAllCachedRoles() {
+        rolesByUser.invalidateAll();
+    }
+
+
+    public LruCache<String, Set<String>> getRoleCache() {
+        return rolesByUser;
+    }
+
+
+    private static String toCacheKey(String userName) {
+        return userName.toLowerCase();
     }
 
 }
@@ -0,0 +1,71 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.service;
+
+import org.junit.Test;
+
+import static com.khartec.waltz.service.QueryTimingListener.normaliseSql;
+import static com.khartec.waltz.service.QueryTimingListener.toVariant;
+import static org.junit.Assert.assertEquals;
+
+
+public class QueryTimingListenerTest {
+
+    @Test
+    public void literalsAreReplacedWithPlaceholders() {
+        assertEquals(
+                "select name from application where id = ? and kind = ?",
+                normaliseSql("select name from application where id = 12 and kind = 'IN_HOUSE'"));
+    }
+
+
+    @Test
+    public void escapedQuotesAreTreatedAsPartOfTheLiteral() {
+        assertEquals(
+                "select * from person where name = ?",
+                normaliseSql("select * from person where name = 'O''Brien'"));
+    }
+
+
+    @Test
+    public void inListsAreCollapsedRegardlessOfLength() {
+        String shape = "select * from application where id in (?...)";
+        assertEquals(shape, normaliseSql("select * from application where id in (1, 2, 3)"));
+        assertEquals(shape, normaliseSql("select * from application where id in (?, ?)"));
+    }
+
+
+    @Test
+    public void whitespaceIsCollapsed() {
+        assertEquals(
+                "select * from t1 where x = ?",
+                normaliseSql("select *\n   from t1\n  where x = 1  "));
+    }
+
+
+    @Test
+    public void variantsRetainLiteralsButCollapseParameterLists() {
+        assertEquals(
+                "select * from application where kind = 'IN_HOUSE' and id in (?...)",
+                toVariant("select * from application\n where kind = 'IN_HOUSE' and id in (?, ?, ?)"));
+        assertEquals(
+                "select * from application where id in (1, 2)",
+                toVariant("select * from application where id in (1, 2)"));
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.authoritative_source;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.FlowDecoratorRatingCandidate;
+import com.khartec.waltz.model.authoritativesource.ImmutableAuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.ImmutableFlowDecoratorRatingCandidate;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import com.khartec.waltz.service.authoritative_source.AuthSourceRatingRecalculator.RatingRules;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.model.rating.AuthoritativenessRating.*;
+import static org.junit.Assert.assertEquals;
+
+public class AuthSourceRatingRecalculatorTest {
+
+    // org units: 1 -> 2 -> 3, data types: 10 -> 11
+    private final Map<Long, long[]> orgUnitAncestors = new HashMap<>();
+    private final Map<Long, long[]> dataTypeAncestors = new HashMap<>();
+
+    {
+        orgUnitAncestors.put(1L, new long[]{ 1 });
+        orgUnitAncestors.put(2L, new long[]{ 2, 1 });
+        orgUnitAncestors.put(3L, new long[]{ 3, 2, 1 });
+        dataTypeAncestors.put(10L, new long[]{ 10 });
+        dataTypeAncestors.put(11L, new long[]{ 11, 10 });
+    }
+
+
+    @Test
+    public void decoratorsNotBetweenAppsHaveNoOpinion() {
+        RatingRules rules = mkRules(newArrayList(mkVantagePoint(1, 10, 100, PRIMARY)));
+        FlowDecoratorRatingCandidate candidate = ImmutableFlowDecoratorRatingCandidate.builder()
+                .decoratorId(1)
+                .dataTypeId(10)
+                .rating(PRIMARY)
+                .build();
+
+        assertEquals(NO_OPINION, rules.rate(candidate));
+    }
+
+
+    @Test
+    public void noApplicableVantagePointGivesNoOpinion() {
+        RatingRules rules = mkRules(newArrayList(mkVantagePoint(2, 11, 100, PRIMARY)));
+
+        assertEquals(NO_OPINION, rules.rate(mkCandidate(100, 1, 11)));
+        assertEquals(NO_OPINION, rules.rate(mkCandidate(100, 3, 10)));
+        assertEquals(NO_OPINION, rules.rate(mkCandidate(100, 99, 11)));
+    }
+
+
+    @Test
+    public void vantagePointsApplyToDescendantOrgUnitsAndDataTypes() {
+        RatingRules rules = mkRules(newArrayList(mkVantagePoint(1, 10, 100, SECONDARY)));
+
+        assertEquals(SECONDARY, rules.rate(mkCandidate(100, 3, 11)));
+        assertEquals(DISCOURAGED, rules.rate(mkCandidate(200, 3, 11)));
+    }
+
+
+    @Test
+    public void mostSpecificVantagePointTakesPrecedence() {
+        RatingRules rules = mkRules(newArrayList(
+                mkVantagePoint(3, 11, 100, SECONDARY),
+                mkVantagePoint(1, 10, 100, PRIMARY)));
+
+        assertEquals(SECONDARY, rules.rate(mkCandidate(100, 3, 11)));
+        assertEquals(PRIMARY, rules.rate(mkCandidate(100, 2, 11)));
+    }
+
+
+    @Test
+    public void lessSpecificVantagePointCanUpgradeDiscouragedFlows() {
+        RatingRules rules = mkRules(newArrayList(
+                mkVantagePoint(3, 11, 100, PRIMARY),
+                mkVantagePoint(1, 10, 200, SECONDARY)));
+
+        assertEquals(PRIMARY, rules.rate(mkCandidate(100, 3, 11)));
+        assertEquals(SECONDARY, rules.rate(mkCandidate(200, 3, 11)));
+        assertEquals(DISCOURAGED, rules.rate(mkCandidate(300, 3, 11)));
+    }
+
+
+    private RatingRules mkRules(List<AuthoritativeRatingVantagePoint> vantagePoints) {
+        return new RatingRules(vantagePoints, orgUnitAncestors, dataTypeAncestors);
+    }
+
+
+    private static AuthoritativeRatingVantagePoint mkVantagePoint(long orgUnitId,
+                                                                  long dataTypeId,
+                                                                  long appId,
+                                                                  AuthoritativenessRating rating) {
+        return ImmutableAuthoritativeRatingVantagePoint.builder()
+                .vantagePoint(mkRef(EntityKind.ORG_UNIT, orgUnitId))
+                .vantagePointRank(1)
+                .dataType(mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .dataTypeCode("DT_" + dataTypeId)
+                .dataTypeRank(1)
+                .applicationId(appId)
+                .rating(rating)
+                .build();
+    }
+
+
+    private static FlowDecoratorRatingCandidate mkCandidate(long sourceAppId,
+                                                            long targetOrgUnitId,
+                                                            long dataTypeId) {
+        return ImmutableFlowDecoratorRatingCandidate.builder()
+                .decoratorId(1)
+                .dataTypeId(dataTypeId)
+                .rating(NO_OPINION)
+                .sourceApplicationId(sourceAppId)
+                .targetOrgUnitId(targetOrgUnitId)
+                .build();
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.changelog;
+
+import com.khartec.waltz.data.changelog.ChangeLogDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.Operation;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import com.khartec.waltz.model.changelog.ImmutableChangeLog;
+import com.khartec.waltz.model.system.metrics.BatchingWriterStatistics;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static org.junit.Assert.*;
+
+
+public class ChangeLogWriterTest {
+
+    private static class RecordingDao extends ChangeLogDao {
+
+        private final List<ChangeLog> written = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release;
+        private final AtomicBoolean firstWrite = new AtomicBoolean(true);
+
+
+        RecordingDao(CountDownLatch release) {
+            super(DSL.using(SQLDialect.DEFAULT));
+            this.release = release;
+        }
+
+
+        @Override
+        public int write(ChangeLog changeLog) {
+            return write(Collections.singleton(changeLog));
+        }
+
+
+        @Override
+        public int write(Collection<ChangeLog> changeLogs) {
+            // only the first write blocks, so later writes (e.g. by callers) can proceed
+            if (firstWrite.getAndSet(false)) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            written.addAll(changeLogs);
+            return changeLogs.size();
+        }
+    }
+
+
+    @Test
+    public void flushWaitsForQueuedEntriesToBeWritten() {
+        RecordingDao dao = new RecordingDao(new CountDownLatch(0));
+        ChangeLogWriter writer = new ChangeLogWriter(dao, true, 100, 50, 5000);
+
+        writer.write(mkChangeLogs(10));
+        assertTrue(writer.flush());
+
+        assertEquals(10, dao.written.size());
+        assertEquals(10, writer.getStatistics().writtenCount());
+    }
+
+
+    @Test
+    public void entriesAreWrittenByCallerWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingDao dao = new RecordingDao(release);
+        ChangeLogWriter writer = new ChangeLogWriter(dao, true, 5, 50, 5000);
+
+        // the writer thread takes the first entry then blocks in the dao
+        writer.write(mkChangeLogs(1));
+        assertTrue(dao.entered.await(5, TimeUnit.SECONDS));
+
+        // fills the queue, so the next entries are written by the caller
+        writer.write(mkChangeLogs(5));
+        writer.write(mkChangeLogs(3));
+        assertEquals(3, dao.written.size());
+
+        release.countDown();
+        assertTrue(writer.flush());
+
+        BatchingWriterStatistics stats = writer.getStatistics();
+        assertEquals(9, dao.written.size());
+        assertEquals(3, stats.overflowCount());
+        assertEquals(6, stats.enqueuedCount());
+    }
+
+
+    @Test
+    public void destroyDrainsQueue() throws InterruptedException {
+        RecordingDao dao = new RecordingDao(new CountDownLatch(0));
+        ChangeLogWriter writer = new ChangeLogWriter(dao, true, 1000, 10, 5000);
+
+        writer.write(mkChangeLogs(100));
+        writer.destroy();
+
+        assertEquals(100, dao.written.size());
+    }
+
+
+    @Test
+    public void entriesAreWrittenImmediatelyWhenNotAsynchronous() {
+        RecordingDao dao = new RecordingDao(new CountDownLatch(0));
+        ChangeLogWriter writer = new ChangeLogWriter(dao, false, 10, 10, 5000);
+
+        writer.write(mkChangeLogs(3));
+
+        assertEquals(3, dao.written.size());
+        assertEquals(0, writer.getStatistics().enqueuedCount());
+    }
+
+
+    @Test
+    public void failingListenerDoesNotCauseEntriesToBeRewritten() {
+        RecordingDao dao = new RecordingDao(new CountDownLatch(0));
+        ChangeLogWriter writer = new ChangeLogWriter(dao, true, 100, 50, 5000);
+        List<ChangeLog> notified = Collections.synchronizedList(new ArrayList<>());
+        writer.addWrittenListener(batch -> { throw new IllegalStateException("listener failure"); });
+        writer.addWrittenListener(notified::addAll);
+
+        writer.write(mkChangeLogs(10));
+        assertTrue(writer.flush());
+
+        assertEquals(10, dao.written.size());
+        assertEquals(10, notified.size());
+    }
+
+
+    private static List<ChangeLog> mkChangeLogs(int count) {
+        List<ChangeLog> changeLogs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            changeLogs.add(ImmutableChangeLog.builder()
+                    .parentReference(mkRef(EntityKind.APPLICATION, i))
+                    .message("change " + i)
+                    .userId("test")
+                    .operation(Operation.UPDATE)
+                    .build());
+        }
+        return changeLogs;
+    }
+
+}
@@ -25,6 +25,7 @@ import com.khartec.waltz.common.exception.NotFoundException;
 import com.khartec.waltz.common.exception.UpdateFailedException;
 import com.khartec.waltz.service.DIConfiguration;
 import com.khartec.waltz.service.settings.SettingsService;
+import com.khartec.waltz.web.compression.ResponseCompression;
 import com.khartec.waltz.web.endpoints.Endpoint;
 import com.khartec.waltz.web.endpoints.api.StaticResourcesEndpoint;
 import com.khartec.waltz.web.endpoints.extracts.DataExtractor;
@@ -102,6 +103,8 @@ public class Main {
         LoggingUtilities.configureLogging();
 
         ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
+        // lets beans (e.g. the change log writer) finish their work on shutdown
+        ctx.registerShutdownHook();
 
         Map<String, Endpoint> endpoints = ctx.getBeansOfType(Endpoint.class);
         endpoints.forEach((name, endpoint) -> {
@@ -121,7 +124,7 @@ public class Main {
         LOG.info("Completed endpoint registration");
 
         registerExceptionHandlers();
-        enableGZIP();
+        enableCompression();
         enableCORS();
 
     }
@@ -200,37 +203,28 @@ public class Main {
     }
 
 
-    private void enableGZIP() {
+    /**
+     * Configures compression of responses written via `ResponseCompression`
+     * (json api, extracts and static resources).  The encoding (gzip or
+     * deflate) is negotiated per request.
+     */
+    private void enableCompression() {
         SettingsService settingsService = ctx.getBean(SettingsService.class);
 
-        Boolean gzipEnabled = settingsService
+        boolean gzipEnabled = settingsService
                 .getValue(GZIP_ENABLED_NAME)
                 .map(x -> x.equalsIgnoreCase("true"))
                 .orElse(false);
 
-        if(gzipEnabled) {
-
-            //now fetch the minimum size
-            int minimumLength = settingsService
-                    .getValue(GZIP_MIN_SIZE_NAME)
-                    .map(Integer::parseInt)
-                    .orElse(8192);
-
-            after(((request, response) -> {
-                if(response.body() != null && response.body().length() >= minimumLength) {
-                    response.header("Content-Encoding", "gzip");
-                }
-            }));
-
-            LOG.info("Enabled GZIP (size: " + minimumLength + ")");
-
-        } else {
-            LOG.info("GZIP not enabled");
-        }
-
+        int minimumLength = settingsService
+                .getValue(GZIP_MIN_SIZE_NAME)
+                .map(Integer::parseInt)
+                .orElse(ResponseCompression.DEFAULT_MINIMUM_SIZE);
 
+        ResponseCompression.configure(gzipEnabled, minimumLength);
     }
 
+
     private void enableCORS() {
 
         options("/*", (req, res) -> {
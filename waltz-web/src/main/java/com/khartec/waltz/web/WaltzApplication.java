@@ -35,10 +35,11 @@ public class WaltzApplication implements SparkApplication {
         AnnotationConfigApplicationContext ctx = Main.getSpringContext();
         if (ctx != null) {
             HikariDataSource dataSource = ctx.getBean(HikariDataSource.class);
+            // close the context first so beans can still use the data source whilst shutting down
+            ctx.close();
             if (dataSource != null) {
                 dataSource.close();
             }
-            ctx.close();
         }
     }
 
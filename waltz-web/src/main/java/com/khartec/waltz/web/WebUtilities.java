@@ -18,7 +18,10 @@
 
 package com.khartec.waltz.web;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JSR310Module;
@@ -37,11 +40,13 @@ import spark.Response;
 import spark.ResponseTransformer;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.ObjectUtilities.firstNotNull;
@@ -74,6 +79,45 @@ public class WebUtilities {
 
     public static final ResponseTransformer transformer = mapper::writeValueAsString;
 
+    /**
+     * Used when writing directly to an output stream, we do not want every
+     * (streamed) element to force a flush of the underlying stream
+     */
+    private static final ObjectWriter streamingWriter = mapper
+            .writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+
+    /**
+     * Writes the given object as json directly to the output stream, avoiding
+     * materialising the whole document as a string.  Jackson recycles its
+     * internal encoding buffers between calls.
+     *
+     * If the object is a `Stream` it is written as a json array, element by element,
+     * and closed once exhausted (releasing any underlying database cursor).
+     *
+     * @param obj  object (or stream of objects) to write
+     * @param out  stream to write to, it is closed once the object has been written
+     */
+    public static void writeJson(Object obj, OutputStream out) throws IOException {
+        checkNotNull(out, "out cannot be null");
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            if (obj instanceof Stream) {
+                try (Stream<?> stream = (Stream<?>) obj) {
+                    generator.writeStartArray();
+                    Iterator<?> iterator = stream.iterator();
+                    while (iterator.hasNext()) {
+                        streamingWriter.writeValue(generator, iterator.next());
+                    }
+                    generator.writeEndArray();
+                }
+            } else {
+                streamingWriter.writeValue(generator, obj);
+            }
+        }
+    }
+
 
     /**
      * @see StringUtilities
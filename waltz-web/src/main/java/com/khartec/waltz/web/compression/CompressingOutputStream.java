@@ -0,0 +1,121 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.compression;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Buffers output until the minimum size is reached, at which point the
+ * content encoding header is set and everything written (including the
+ * buffer) is compressed on the fly.  Responses which are closed before
+ * reaching the minimum size are sent as-is, with a content length.
+ *
+ * Flushing whilst still buffering is ignored, otherwise the response would
+ * be committed before we could decide whether to compress it.
+ */
+class CompressingOutputStream extends OutputStream {
+
+    private final HttpServletResponse response;
+    private final ContentEncoding encoding;
+    private final int minimumSize;
+
+    private ByteArrayOutputStream buffer;
+    private OutputStream out;
+    private boolean closed = false;
+
+
+    CompressingOutputStream(HttpServletResponse response,
+                            ContentEncoding encoding,
+                            int minimumSize) {
+        this.response = response;
+        this.encoding = encoding;
+        this.minimumSize = minimumSize;
+        this.buffer = new ByteArrayOutputStream(Math.min(minimumSize, 8192));
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+
+        if (out == null) {
+            if (buffer.size() + len < minimumSize) {
+                buffer.write(b, off, len);
+                return;
+            }
+            startCompressing();
+        }
+        out.write(b, off, len);
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (out == null) {
+            // never reached the threshold, send uncompressed
+            if (! response.isCommitted()) {
+                response.setContentLength(buffer.size());
+            }
+            out = response.getOutputStream();
+            buffer.writeTo(out);
+            buffer = null;
+        }
+        out.close();
+    }
+
+
+    private void startCompressing() throws IOException {
+        if (response.isCommitted() || response.containsHeader("Content-Encoding")) {
+            // too late (or someone else has already encoded the content), pass through
+            out = response.getOutputStream();
+        } else {
+            response.setHeader("Content-Encoding", encoding.getToken());
+            response.setHeader("Content-Length", null);
+            out = encoding.wrap(response.getOutputStream());
+        }
+        buffer.writeTo(out);
+        buffer = null;
+    }
+
+}
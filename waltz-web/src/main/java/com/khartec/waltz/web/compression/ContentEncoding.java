@@ -0,0 +1,77 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Content codings we are able to apply to responses, in order of preference.
+ */
+enum ContentEncoding {
+
+    GZIP("gzip") {
+        @Override
+        OutputStream wrap(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+    },
+
+    DEFLATE("deflate") {
+        @Override
+        OutputStream wrap(OutputStream out) {
+            // http 'deflate' is the zlib format (i.e. with header and checksum)
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, false);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // not released by the stream as we supplied the deflater
+                        deflater.end();
+                    }
+                }
+            };
+        }
+    };
+
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+
+    String getToken() {
+        return token;
+    }
+
+
+    abstract OutputStream wrap(OutputStream out) throws IOException;
+
+}
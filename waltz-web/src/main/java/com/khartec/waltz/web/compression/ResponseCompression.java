@@ -0,0 +1,180 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.StringUtilities.isEmpty;
+
+
+/**
+ * Compresses responses written directly to the servlet output stream, using
+ * whichever encoding (gzip or deflate) the client prefers, as advertised via
+ * the `Accept-Encoding` request header.
+ *
+ * Compression happens on the fly so it can be used with streamed responses.
+ * Responses smaller than the minimum size are not compressed.
+ */
+public class ResponseCompression {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCompression.class);
+
+    public static final int DEFAULT_MINIMUM_SIZE = 8192;
+
+    /**
+     * Content types which are already compressed, compressing them again costs
+     * cpu for little or no reduction in size.
+     */
+    private static final Pattern INCOMPRESSIBLE_TYPES = Pattern.compile(
+            "^(image/(?!svg)|font/|application/(zip|gzip|pdf|font-woff|x-font-woff|vnd\\.openxmlformats)).*",
+            Pattern.CASE_INSENSITIVE);
+
+    private static volatile boolean enabled = false;
+    private static volatile int minimumSize = DEFAULT_MINIMUM_SIZE;
+
+
+    public static void configure(boolean enabled, int minimumSize) {
+        checkTrue(minimumSize >= 0, "minimumSize cannot be negative");
+        ResponseCompression.enabled = enabled;
+        ResponseCompression.minimumSize = minimumSize;
+        LOG.info("Response compression enabled: {}, minimum size: {}", enabled, minimumSize);
+    }
+
+
+    /**
+     * Opens the output stream of the response, compressing the content if
+     * compression is enabled and the client accepts a supported encoding.
+     * Callers must close the returned stream to complete the response.
+     *
+     * The content type should be set before calling this method.
+     */
+    public static OutputStream openOutputStream(Request request,
+                                                Response response) throws IOException {
+        checkNotNull(request, "request cannot be null");
+        checkNotNull(response, "response cannot be null");
+
+        HttpServletResponse httpResponse = response.raw();
+
+        if (! enabled || ! isCompressible(httpResponse.getContentType())) {
+            return httpResponse.getOutputStream();
+        }
+
+        httpResponse.addHeader("Vary", "Accept-Encoding");
+
+        Optional<ContentEncoding> encoding = negotiate(request.headers("Accept-Encoding"));
+        return encoding.isPresent()
+                ? new CompressingOutputStream(httpResponse, encoding.get(), minimumSize)
+                : httpResponse.getOutputStream();
+    }
+
+
+    /**
+     * Writes (and possibly compresses) a payload of known size, the content length
+     * is set unless the payload is compressed.
+     */
+    public static void write(Request request,
+                             Response response,
+                             byte[] bytes) throws IOException {
+        checkNotNull(bytes, "bytes cannot be null");
+
+        response.raw().setContentLength(bytes.length);
+        try (OutputStream out = openOutputStream(request, response)) {
+            out.write(bytes);
+        }
+    }
+
+
+    // -- helpers
+
+    static boolean isCompressible(String contentType) {
+        return contentType == null || ! INCOMPRESSIBLE_TYPES.matcher(contentType).matches();
+    }
+
+
+    /**
+     * @param acceptEncoding  value of the `Accept-Encoding` header, e.g. `gzip;q=0.8, deflate, br`
+     * @return the supported encoding with the highest quality value (gzip wins ties)
+     */
+    static Optional<ContentEncoding> negotiate(String acceptEncoding) {
+        if (isEmpty(acceptEncoding)) {
+            return Optional.empty();
+        }
+
+        Map<ContentEncoding, Double> qualities = new EnumMap<>(ContentEncoding.class);
+        Double wildcardQuality = null;
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] bits = part.split(";");
+            String coding = bits[0].trim().toLowerCase();
+            double quality = parseQuality(bits);
+
+            if (coding.equals("*")) {
+                wildcardQuality = quality;
+            } else if (coding.equals("x-gzip")) {
+                qualities.put(ContentEncoding.GZIP, quality);
+            } else {
+                for (ContentEncoding encoding : ContentEncoding.values()) {
+                    if (encoding.getToken().equals(coding)) {
+                        qualities.put(encoding, quality);
+                    }
+                }
+            }
+        }
+
+        ContentEncoding best = null;
+        double bestQuality = 0;
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            Double quality = qualities.getOrDefault(encoding, wildcardQuality);
+            if (quality != null && quality > bestQuality) {
+                best = encoding;
+                bestQuality = quality;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+
+    private static double parseQuality(String[] bits) {
+        for (int i = 1; i < bits.length; i++) {
+            String param = bits[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+}
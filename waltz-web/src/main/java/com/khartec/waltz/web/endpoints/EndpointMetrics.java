@@ -0,0 +1,167 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints;
+
+import com.khartec.waltz.common.LatencyHistogram;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Holds the metrics for every route registered via `EndpointUtilities`.
+ *
+ * Routes are registered statically (as are the spark routes themselves) so the
+ * metrics are held statically too.  The set of routes is fixed at start up so
+ * the number of entries is bounded.
+ */
+public class EndpointMetrics {
+
+    private static final String PREFIX = "waltz_http_";
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final Map<String, RouteMetrics> METRICS_BY_ROUTE = new ConcurrentHashMap<>();
+
+
+    public static RouteMetrics forRoute(String method, String path) {
+        checkNotNull(method, "method cannot be null");
+        checkNotNull(path, "path cannot be null");
+        RouteMetrics metrics = new RouteMetrics(method, path);
+        return METRICS_BY_ROUTE.computeIfAbsent(metrics.getKey(), k -> metrics);
+    }
+
+
+    public static Collection<RouteMetrics> findAll() {
+        return METRICS_BY_ROUTE.values();
+    }
+
+
+    /**
+     * @param limit  maximum number of routes to return
+     * @return routes ordered by the total time spent in their handlers (descending)
+     */
+    public static List<RouteMetrics> findSlowest(int limit) {
+        return findTop(limit, m -> m.getHandlerTimes().total());
+    }
+
+
+    /**
+     * @param limit  maximum number of routes to return
+     * @return routes ordered by the total number of bytes they have returned (descending)
+     */
+    public static List<RouteMetrics> findLargest(int limit) {
+        return findTop(limit, m -> m.getResponseSizes().total());
+    }
+
+
+    /**
+     * Renders all route metrics using the Prometheus text exposition format (v0.0.4).
+     * Latencies are given in seconds as per Prometheus naming conventions.
+     */
+    public static String toPrometheusText() {
+        List<RouteMetrics> routes = findAll()
+                .stream()
+                .sorted(Comparator.comparing(RouteMetrics::getKey))
+                .collect(toList());
+
+        StringBuilder sb = new StringBuilder();
+
+        writeSummary(sb, routes, "handler_seconds", "Time spent executing route handlers", RouteMetrics::getHandlerTimes, NANOS_PER_SECOND);
+        writeSummary(sb, routes, "serialisation_seconds", "Time spent serialising route results", RouteMetrics::getSerialisationTimes, NANOS_PER_SECOND);
+        writeSummary(sb, routes, "response_size_bytes", "Size of serialised route results", RouteMetrics::getResponseSizes, 1);
+
+        writeHeader(sb, "errors_total", "Number of requests which failed with an exception", "counter");
+        routes.forEach(r -> writeSample(sb, "errors_total", r, null, r.getErrorCount()));
+
+        writeHeader(sb, "in_flight", "Number of requests currently being handled", "gauge");
+        routes.forEach(r -> writeSample(sb, "in_flight", r, null, r.getInFlight()));
+
+        return sb.toString();
+    }
+
+
+    // -- helpers
+
+    private static List<RouteMetrics> findTop(int limit, ToLongFunction<RouteMetrics> measure) {
+        return findAll()
+                .stream()
+                .sorted(Comparator.comparingLong(m -> -measure.applyAsLong(m)))
+                .limit(limit)
+                .collect(toList());
+    }
+
+
+    private static void writeSummary(StringBuilder sb,
+                                     List<RouteMetrics> routes,
+                                     String name,
+                                     String help,
+                                     Function<RouteMetrics, LatencyHistogram> histogramProvider,
+                                     double divisor) {
+        writeHeader(sb, name, help, "summary");
+        for (RouteMetrics route : routes) {
+            LatencyHistogram histogram = histogramProvider.apply(route);
+            for (double quantile : QUANTILES) {
+                writeSample(sb, name, route, quantile, histogram.percentile(quantile * 100) / divisor);
+            }
+            writeSample(sb, name + "_sum", route, null, histogram.total() / divisor);
+            writeSample(sb, name + "_count", route, null, histogram.count());
+        }
+    }
+
+
+    private static void writeHeader(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+
+    private static void writeSample(StringBuilder sb,
+                                    String name,
+                                    RouteMetrics route,
+                                    Double quantile,
+                                    double value) {
+        sb.append(PREFIX)
+                .append(name)
+                .append("{method=\"").append(escapeLabel(route.getMethod()))
+                .append("\",route=\"").append(escapeLabel(route.getPath()))
+                .append('"');
+        if (quantile != null) {
+            sb.append(",quantile=\"").append(quantile).append('"');
+        }
+        sb.append("} ").append(value).append('\n');
+    }
+
+
+    static String escapeLabel(String value) {
+        return value
+                .replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+}
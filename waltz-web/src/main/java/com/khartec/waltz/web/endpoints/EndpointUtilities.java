@@ -18,19 +18,29 @@
 
 package com.khartec.waltz.web.endpoints;
 
+import com.khartec.waltz.model.client_cache_key.VersionStamp;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
+import com.khartec.waltz.web.StreamRoute;
 import com.khartec.waltz.web.WebUtilities;
-import spark.ResponseTransformer;
+import com.khartec.waltz.web.compression.ResponseCompression;
+import spark.Request;
+import spark.Response;
 import spark.Route;
 import spark.Spark;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
+
+import static com.khartec.waltz.common.DateTimeUtilities.UTC;
 import static com.khartec.waltz.web.WebUtilities.TYPE_JSON;
 
 
 public class EndpointUtilities {
 
-    private static final ResponseTransformer transformer = WebUtilities.transformer;
+    private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME;
 
 
     /**
@@ -41,7 +51,7 @@ public class EndpointUtilities {
      * @param <T>
      */
     public static <T> void getForList(String path, ListRoute<T> handler) {
-        Spark.get(path, wrapListHandler(handler), transformer);
+        Spark.get(path, mkStreamingRoute(EndpointMetrics.forRoute("GET", path), wrapListHandler(handler)));
     }
 
 
@@ -54,31 +64,97 @@ public class EndpointUtilities {
      * @param <T>
      */
     public static <T> void getForDatum(String path, DatumRoute<T> handler) {
-        Spark.get(path, wrapDatumHandler(handler), transformer);
+        Spark.get(path, mkStreamingRoute(EndpointMetrics.forRoute("GET", path), wrapDatumHandler(handler)));
+    }
+
+
+    /**
+     * Helper method to register a list route which supports conditional
+     * requests.  Responses carry an ETag (and Last-Modified) header derived
+     * from the supplied version stamp and requests whose `If-None-Match`
+     * header matches the current stamp are answered with a `304 Not Modified`
+     * without invoking the handler.
+     * @param path
+     * @param versionStamp  provides the current stamp for the data backing the route
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForList(String path, Supplier<VersionStamp> versionStamp, ListRoute<T> handler) {
+        Spark.get(path, mkConditionalRoute(versionStamp, mkStreamingRoute(EndpointMetrics.forRoute("GET", path), wrapListHandler(handler))));
     }
 
+
+    /**
+     * Helper method to register a datum route which supports conditional
+     * requests, see `getForList(String, Supplier, ListRoute)`.
+     * @param path
+     * @param versionStamp  provides the current stamp for the data backing the route
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForDatum(String path, Supplier<VersionStamp> versionStamp, DatumRoute<T> handler) {
+        Spark.get(path, mkConditionalRoute(versionStamp, mkStreamingRoute(EndpointMetrics.forRoute("GET", path), wrapDatumHandler(handler))));
+    }
+
+
     public static <T> void postForDatum(String path, DatumRoute<T> handler) {
-        Spark.post(path, wrapDatumHandler(handler), transformer);
+        Spark.post(path, mkStreamingRoute(EndpointMetrics.forRoute("POST", path), wrapDatumHandler(handler)));
     }
 
     public static <T> void postForList(String path, ListRoute<T> handler) {
-        Spark.post(path, wrapListHandler(handler), transformer);
+        Spark.post(path, mkStreamingRoute(EndpointMetrics.forRoute("POST", path), wrapListHandler(handler)));
     }
 
     public static <T> void deleteForList(String path, ListRoute<T> handler) {
-        Spark.delete(path, wrapListHandler(handler), transformer);
+        Spark.delete(path, mkStreamingRoute(EndpointMetrics.forRoute("DELETE", path), wrapListHandler(handler)));
     }
 
     public static <T> void deleteForDatum(String path, DatumRoute<T> handler) {
-        Spark.delete(path, wrapDatumHandler(handler), transformer);
+        Spark.delete(path, mkStreamingRoute(EndpointMetrics.forRoute("DELETE", path), wrapDatumHandler(handler)));
     }
 
     public static <T> void putForDatum(String path, DatumRoute<T> handler) {
-        Spark.put(path, wrapDatumHandler(handler), transformer);
+        Spark.put(path, mkStreamingRoute(EndpointMetrics.forRoute("PUT", path), wrapDatumHandler(handler)));
     }
 
     public static <T> void putForList(String path, ListRoute<T> handler) {
-        Spark.put(path, wrapListHandler(handler), transformer);
+        Spark.put(path, mkStreamingRoute(EndpointMetrics.forRoute("PUT", path), wrapListHandler(handler)));
+    }
+
+
+    /**
+     * Helper method to register a route which lazily provides a (large)
+     * number of items, e.g. from a database cursor.  Items are written to
+     * the response as they are read and the stream is closed afterwards.
+     *
+     * Note: as the items are only read whilst writing the response, the
+     * recorded handler time only covers opening the stream.
+     * @param path
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForStream(String path, StreamRoute<T> handler) {
+        Spark.get(path, mkStreamingRoute(EndpointMetrics.forRoute("GET", path), wrapStreamHandler(handler)));
+    }
+
+    public static <T> void postForStream(String path, StreamRoute<T> handler) {
+        Spark.post(path, mkStreamingRoute(EndpointMetrics.forRoute("POST", path), wrapStreamHandler(handler)));
+    }
+
+
+    /**
+     * Helper method to register a route which writes directly to the
+     * response (e.g. data extracts) rather than returning an object
+     * to be rendered as json.  Only the handler is measured.
+     * @param path
+     * @param route
+     */
+    public static void getForExtract(String path, Route route) {
+        Spark.get(path, EndpointMetrics.forRoute("GET", path).wrap(route));
+    }
+
+    public static void postForExtract(String path, Route route) {
+        Spark.post(path, EndpointMetrics.forRoute("POST", path).wrap(route));
     }
 
 
@@ -98,4 +174,101 @@ public class EndpointUtilities {
         };
     }
 
+    private static <T> Route wrapStreamHandler(StreamRoute<T> handler) {
+        return (request, response) -> {
+            response.type(TYPE_JSON);
+            return handler.apply(request, response);
+        };
+    }
+
+
+    /**
+     * Sets the validator headers and short circuits the route if the client
+     * already holds the current version.  ETags are weak as the same content
+     * may be sent with different content encodings.  `no-cache` ensures
+     * clients revalidate rather than reusing a response without asking.
+     */
+    private static Route mkConditionalRoute(Supplier<VersionStamp> versionStamp, Route route) {
+        return (request, response) -> {
+            VersionStamp stamp = versionStamp.get();
+            String etag = toETag(stamp);
+
+            response.header("ETag", etag);
+            response.header("Last-Modified", HTTP_DATE_FORMAT.format(stamp.lastModified().atZone(UTC)));
+            response.header("Cache-Control", "no-cache");
+
+            if (isNotModified(request.headers("If-None-Match"), etag)) {
+                response.status(HttpServletResponse.SC_NOT_MODIFIED);
+                return "";
+            } else {
+                return route.handle(request, response);
+            }
+        };
+    }
+
+
+    static String toETag(VersionStamp stamp) {
+        return "W/\"" + stamp.tag() + "\"";
+    }
+
+
+    /**
+     * Weak comparison (as per RFC 7232) of the `If-None-Match` header value,
+     * which may be a comma separated list of tags or `*`, against the etag.
+     */
+    static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || stripWeakPrefix(trimmed).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static String stripWeakPrefix(String tag) {
+        return tag.startsWith("W/")
+                ? tag.substring(2)
+                : tag;
+    }
+
+
+    /**
+     * Runs the (timed) handler and then writes its result as json straight to
+     * the (possibly compressed) servlet output stream, rather than rendering it
+     * to an intermediate string.  Once the response has been committed spark
+     * will not attempt to render the returned object itself.
+     */
+    private static Route mkStreamingRoute(RouteMetrics metrics, Route handler) {
+        Route timedHandler = metrics.wrap(handler);
+        return (request, response) -> {
+            Object result = timedHandler.handle(request, response);
+            return writeResult(metrics, result, request, response);
+        };
+    }
+
+
+    static HttpServletResponse writeResult(RouteMetrics metrics,
+                                           Object result,
+                                           Request request,
+                                           Response response) throws IOException {
+        long start = System.nanoTime();
+        CountingOutputStream out = new CountingOutputStream(ResponseCompression.openOutputStream(request, response));
+        try {
+            WebUtilities.writeJson(result, out);
+            metrics.recordResponseSize(out.getCount());
+            return response.raw();
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        } finally {
+            metrics.recordSerialisationTime(System.nanoTime() - start);
+        }
+    }
+
 }
@@ -0,0 +1,141 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints;
+
+import com.khartec.waltz.common.LatencyHistogram;
+import spark.Route;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Metrics gathered for a single registered route.
+ *
+ * Handler time (executing the route, including any service/dao calls) is
+ * recorded separately to serialisation time (rendering the result to json)
+ * as they tend to have very different remedies.  Response sizes are recorded
+ * in bytes (UTF-8, before any compression).
+ *
+ * Counters are never reset, which keeps them compatible with monitoring
+ * systems (e.g. Prometheus) that compute rates from cumulative values.
+ */
+public class RouteMetrics {
+
+    private final String method;
+    private final String path;
+
+    private final LatencyHistogram handlerTimes = new LatencyHistogram();
+    private final LatencyHistogram serialisationTimes = new LatencyHistogram();
+    private final LatencyHistogram responseSizes = new LatencyHistogram();
+    private final LongAdder errorCount = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+
+    RouteMetrics(String method, String path) {
+        checkNotNull(method, "method cannot be null");
+        checkNotNull(path, "path cannot be null");
+        this.method = method;
+        this.path = path;
+    }
+
+
+    public String getMethod() {
+        return method;
+    }
+
+
+    public String getPath() {
+        return path;
+    }
+
+
+    public String getKey() {
+        return method + " " + path;
+    }
+
+
+    /**
+     * @return durations (in nanoseconds) spent executing the route handler
+     */
+    public LatencyHistogram getHandlerTimes() {
+        return handlerTimes;
+    }
+
+
+    /**
+     * @return durations (in nanoseconds) spent rendering handler results
+     */
+    public LatencyHistogram getSerialisationTimes() {
+        return serialisationTimes;
+    }
+
+
+    /**
+     * @return sizes (in bytes) of rendered responses
+     */
+    public LatencyHistogram getResponseSizes() {
+        return responseSizes;
+    }
+
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+
+    Route wrap(Route route) {
+        return (request, response) -> {
+            long start = System.nanoTime();
+            inFlight.incrementAndGet();
+            try {
+                return route.handle(request, response);
+            } catch (Exception e) {
+                errorCount.increment();
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+                handlerTimes.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+
+    void recordSerialisationTime(long nanos) {
+        serialisationTimes.record(nanos);
+    }
+
+
+    void recordResponseSize(long bytes) {
+        responseSizes.record(bytes);
+    }
+
+
+    void recordError() {
+        errorCount.increment();
+    }
+
+}
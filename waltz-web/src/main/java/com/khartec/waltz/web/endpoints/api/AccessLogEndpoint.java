@@ -21,8 +21,11 @@ package com.khartec.waltz.web.endpoints.api;
 import com.khartec.waltz.model.WaltzVersionInfo;
 import com.khartec.waltz.model.accesslog.AccessLog;
 import com.khartec.waltz.model.accesslog.AccessTime;
+import com.khartec.waltz.model.accesslog.DailyAccessCount;
 import com.khartec.waltz.model.accesslog.ImmutableAccessLog;
+import com.khartec.waltz.model.user.SystemRole;
 import com.khartec.waltz.service.access_log.AccessLogService;
+import com.khartec.waltz.service.user.UserRoleService;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +35,7 @@ import spark.Response;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.web.WebUtilities.*;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForDatum;
 
@@ -40,18 +44,23 @@ import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForDatum;
 public class AccessLogEndpoint implements Endpoint {
 
     private static final String BASE_URL = mkPath("api", "access-log");
+    private static final int DEFAULT_DAILY_COUNT_DAYS = 30;
 
     private final AccessLogService accessLogService;
+    private final UserRoleService userRoleService;
     private final WaltzVersionInfo waltzVersionInfo;
 
 
     @Autowired
     public AccessLogEndpoint(AccessLogService accessLogService,
+                             UserRoleService userRoleService,
                              WaltzVersionInfo waltzVersionInfo) {
         checkNotNull(accessLogService, "accessLogService cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
         checkNotNull(waltzVersionInfo, "waltzVersionInfo cannot be null");
 
         this.accessLogService = accessLogService;
+        this.userRoleService = userRoleService;
         this.waltzVersionInfo = waltzVersionInfo;
     }
 
@@ -60,7 +69,9 @@ public class AccessLogEndpoint implements Endpoint {
     public void register() {
 
         String findForUserPath = mkPath(BASE_URL, "user", ":userId");
+        String findDailyCountsForUserPath = mkPath(BASE_URL, "user", ":userId", "daily");
         String findActiveUsersPath = mkPath(BASE_URL, "active", ":minutes");
+        String writerStatisticsPath = mkPath(BASE_URL, "writer-statistics");
         String writePath = mkPath(BASE_URL, ":state");
 
         ListRoute<AccessLog> findForUserRoute = (request, response) ->
@@ -69,9 +80,20 @@ public class AccessLogEndpoint implements Endpoint {
             java.time.Duration minutes = java.time.Duration.ofMinutes(Integer.parseInt(request.params("minutes")));
             return accessLogService.findActiveUsersSince(minutes);
         };
+        ListRoute<DailyAccessCount> findDailyCountsForUserRoute = (request, response) -> {
+            String days = request.queryParams("days");
+            return accessLogService.findDailyAccessCounts(
+                    request.params("userId"),
+                    days == null ? DEFAULT_DAILY_COUNT_DAYS : Integer.parseInt(days));
+        };
 
         getForList(findForUserPath, findForUserRoute);
+        getForList(findDailyCountsForUserPath, findDailyCountsForUserRoute);
         getForList(findActiveUsersPath, findActiveUsersRoute);
+        getForDatum(writerStatisticsPath, (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            return accessLogService.getWriterStatistics();
+        });
         postForDatum(writePath, this::writeRoute);
     }
 
@@ -21,6 +21,7 @@ package com.khartec.waltz.web.endpoints.api;
 
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.IdCommandResponse;
+import com.khartec.waltz.model.IssuanceProgress;
 import com.khartec.waltz.model.application.Application;
 import com.khartec.waltz.model.attestation.AttestationCreateSummary;
 import com.khartec.waltz.model.attestation.AttestationRun;
@@ -68,6 +69,7 @@ public class AttestationRunEndpoint implements Endpoint {
         String findBySelectorPath = mkPath(BASE_URL, "selector");
         String findResponseSummariesPath = mkPath(BASE_URL, "summary", "response");
         String getCreateSummaryPath = mkPath(BASE_URL, "create-summary");
+        String getIssuanceProgressPath = mkPath(BASE_URL, "id", ":id", "issuance-progress");
 
 
         DatumRoute<AttestationRun> getByIdRoute = (req, res) ->
@@ -93,18 +95,24 @@ public class AttestationRunEndpoint implements Endpoint {
                 attestationRunService
                         .getCreateSummary(readCreateCommand(req));
 
+        DatumRoute<IssuanceProgress> getIssuanceProgressRoute = (req, res) ->
+                attestationRunService
+                        .getIssuanceProgress(getId(req))
+                        .orElse(null);
+
         DatumRoute<IdCommandResponse> attestationRunCreateRoute = (req, res) -> {
             if(!readCreateCommand(req).selectionOptions().entityReference().kind().equals(EntityKind.APPLICATION)) {
                 ensureUserHasAttestationAdminRights(req);
             };
 
             return attestationRunService
-                    .create(
+                    .issue(
                             getUsername(req),
                             readCreateCommand(req));
         };
 
         getForDatum(getByIdPath, getByIdRoute);
+        getForDatum(getIssuanceProgressPath, getIssuanceProgressRoute);
         getForList(findAllPath, findAllRoute);
         getForList(findByEntityRefPath, findByEntityRefRoute);
         getForList(findByRecipientPath, findByRecipientRoute);
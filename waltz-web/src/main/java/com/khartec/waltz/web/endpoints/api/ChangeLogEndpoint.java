@@ -20,7 +20,9 @@ package com.khartec.waltz.web.endpoints.api;
 
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.user.SystemRole;
 import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.user.UserRoleService;
 import com.khartec.waltz.web.endpoints.Endpoint;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -30,6 +32,7 @@ import java.util.Optional;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.web.WebUtilities.*;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForList;
 
@@ -41,17 +44,28 @@ public class ChangeLogEndpoint implements Endpoint {
     private static final String BASE_URL = mkPath("api", "change-log");
 
     private final ChangeLogService service;
+    private final UserRoleService userRoleService;
 
 
     @Autowired
-    public ChangeLogEndpoint(ChangeLogService changeLogService) {
+    public ChangeLogEndpoint(ChangeLogService changeLogService,
+                             UserRoleService userRoleService) {
         checkNotNull(changeLogService, "changeLogService must not be null");
+        checkNotNull(userRoleService, "userRoleService must not be null");
         this.service = changeLogService;
+        this.userRoleService = userRoleService;
     }
 
     @Override
     public void register() {
 
+        getForDatum(
+                mkPath(BASE_URL, "writer-statistics"),
+                (request, response) -> {
+                    requireRole(userRoleService, request, SystemRole.ADMIN);
+                    return service.getWriterStatistics();
+                });
+
         getForList(
                 mkPath(BASE_URL, "user", ":userId"),
                 (request, response) -> service.findByUser(request.params("userId"), getLimit(request)));
@@ -21,6 +21,7 @@ package com.khartec.waltz.web.endpoints.api;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import com.khartec.waltz.service.client_cache_key.VersionStampService;
 import com.khartec.waltz.service.data_type.DataTypeService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
@@ -42,11 +43,15 @@ public class DataTypesEndpoint implements Endpoint {
     private static final String BASE_URL = WebUtilities.mkPath("api", "data-types");
 
     private final DataTypeService service;
+    private final VersionStampService versionStampService;
 
     @Autowired
-    public DataTypesEndpoint(DataTypeService service) {
+    public DataTypesEndpoint(DataTypeService service,
+                             VersionStampService versionStampService) {
         checkNotNull(service, "service must not be null");
+        checkNotNull(versionStampService, "versionStampService must not be null");
         this.service = service;
+        this.versionStampService = versionStampService;
     }
 
 
@@ -66,7 +71,10 @@ public class DataTypesEndpoint implements Endpoint {
         DatumRoute<DataType> getDataTypeByCodeRoute = (request, response) ->
                 service.getDataTypeByCode(request.params("code"));
 
-        getForList(BASE_URL, (request, response) -> service.findAll());
+        getForList(
+                BASE_URL,
+                () -> versionStampService.getStamp(EntityKind.DATA_TYPE),
+                (request, response) -> service.findAll());
         postForList(searchPath, searchRoute);
         getForDatum(getDataTypeByIdPath, getDataTypeByIdRoute);
         getForDatum(getDataTypeByCodePath, getDataTypeByCodeRoute);
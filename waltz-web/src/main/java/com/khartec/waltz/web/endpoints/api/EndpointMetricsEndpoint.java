@@ -0,0 +1,65 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints.api;
+
+import com.khartec.waltz.model.user.SystemRole;
+import com.khartec.waltz.service.user.UserRoleService;
+import com.khartec.waltz.web.endpoints.Endpoint;
+import com.khartec.waltz.web.endpoints.EndpointMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import spark.Spark;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.web.WebUtilities.mkPath;
+import static com.khartec.waltz.web.WebUtilities.requireRole;
+
+
+/**
+ * Exposes per-route latency, payload size, error and in-flight metrics in
+ * the Prometheus text format.  See `EndpointMetrics`.
+ */
+@Service
+public class EndpointMetricsEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "sys", "endpoint-metrics");
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public EndpointMetricsEndpoint(UserRoleService userRoleService) {
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        // registered directly (rather than via EndpointUtilities) as the
+        // response is plain text and scrapes should not skew the metrics
+        Spark.get(BASE_URL, (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            response.type(PROMETHEUS_CONTENT_TYPE);
+            return EndpointMetrics.toPrometheusText();
+        });
+    }
+
+}
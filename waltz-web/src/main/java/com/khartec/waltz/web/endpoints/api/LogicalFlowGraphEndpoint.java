@@ -0,0 +1,111 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints.api;
+
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.FlowDirection;
+import com.khartec.waltz.model.logical_flow.LogicalFlowGraphEdge;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
+import com.khartec.waltz.web.ListRoute;
+import com.khartec.waltz.web.endpoints.Endpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import spark.Request;
+
+import java.util.Optional;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.StringUtilities.parseInteger;
+import static com.khartec.waltz.web.WebUtilities.*;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
+
+
+@Service
+public class LogicalFlowGraphEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "logical-flow-graph");
+    private static final int DEFAULT_HOPS = 3;
+
+    private final LogicalFlowGraphService logicalFlowGraphService;
+
+
+    @Autowired
+    public LogicalFlowGraphEndpoint(LogicalFlowGraphService logicalFlowGraphService) {
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
+        this.logicalFlowGraphService = logicalFlowGraphService;
+    }
+
+
+    @Override
+    public void register() {
+        String findUpstreamFlowsPath = mkPath(BASE_URL, "upstream", ":kind", ":id");
+        String findDownstreamFlowsPath = mkPath(BASE_URL, "downstream", ":kind", ":id");
+        String findShortestPathPath = mkPath(BASE_URL, "shortest-path", ":sourceKind", ":sourceId", ":targetKind", ":targetId");
+        String findReachableEntitiesPath = mkPath(BASE_URL, "reachable", ":direction", ":kind", ":id");
+
+        ListRoute<LogicalFlowGraphEdge> findUpstreamFlowsRoute = (request, response)
+                -> logicalFlowGraphService.findUpstreamFlows(
+                        getEntityReference(request),
+                        getHops(request),
+                        getDataTypeId(request));
+
+        ListRoute<LogicalFlowGraphEdge> findDownstreamFlowsRoute = (request, response)
+                -> logicalFlowGraphService.findDownstreamFlows(
+                        getEntityReference(request),
+                        getHops(request),
+                        getDataTypeId(request));
+
+        ListRoute<LogicalFlowGraphEdge> findShortestPathRoute = (request, response)
+                -> logicalFlowGraphService.findShortestPath(
+                        getEntityReference(request, "sourceKind", "sourceId"),
+                        getEntityReference(request, "targetKind", "targetId"),
+                        getDataTypeId(request));
+
+        ListRoute<EntityReference> findReachableEntitiesRoute = (request, response)
+                -> logicalFlowGraphService.findReachableEntities(
+                        getEntityReference(request),
+                        readEnum(request, "direction", FlowDirection.class, s -> {
+                            throw new IllegalArgumentException("Unknown direction: " + s);
+                        }),
+                        getDataTypeId(request));
+
+        getForList(findUpstreamFlowsPath, findUpstreamFlowsRoute);
+        getForList(findDownstreamFlowsPath, findDownstreamFlowsRoute);
+        getForList(findShortestPathPath, findShortestPathRoute);
+        getForList(findReachableEntitiesPath, findReachableEntitiesRoute);
+    }
+
+
+    /**
+     * Missing or non-numeric values give the default, others are clamped
+     * to between 1 and `LogicalFlowGraphService.MAX_HOPS`.
+     */
+    private static int getHops(Request request) {
+        int hops = parseInteger(request.queryParams("hops"), DEFAULT_HOPS);
+        return Math.max(1, Math.min(hops, LogicalFlowGraphService.MAX_HOPS));
+    }
+
+
+    private static Optional<Long> getDataTypeId(Request request) {
+        return Optional
+                .ofNullable(request.queryParams("dataType"))
+                .map(Long::valueOf);
+    }
+
+}
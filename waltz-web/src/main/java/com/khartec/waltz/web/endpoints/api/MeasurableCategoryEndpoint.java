@@ -18,7 +18,9 @@
 
 package com.khartec.waltz.web.endpoints.api;
 
+import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.measurable_category.MeasurableCategory;
+import com.khartec.waltz.service.client_cache_key.VersionStampService;
 import com.khartec.waltz.service.measurable_category.MeasurableCategoryService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
@@ -38,11 +40,14 @@ public class MeasurableCategoryEndpoint implements Endpoint {
     private static final String BASE_URL = mkPath("api", "measurable-category");
 
     private final MeasurableCategoryService measurableCategoryService;
+    private final VersionStampService versionStampService;
 
 
     @Autowired
-    public MeasurableCategoryEndpoint(MeasurableCategoryService measurableCategoryService) {
+    public MeasurableCategoryEndpoint(MeasurableCategoryService measurableCategoryService,
+                                      VersionStampService versionStampService) {
         this.measurableCategoryService = measurableCategoryService;
+        this.versionStampService = versionStampService;
     }
 
 
@@ -61,7 +66,7 @@ public class MeasurableCategoryEndpoint implements Endpoint {
         DatumRoute<MeasurableCategory> getByIdRoute = (request, response)
                 -> measurableCategoryService.getById(getId(request));
 
-        getForList(findAllPath, findAllRoute);
+        getForList(findAllPath, () -> versionStampService.getStamp(EntityKind.MEASURABLE_CATEGORY), findAllRoute);
         getForList(getCategoriesByDirectOrgUnitPath, findCategoriesByDirectOrgUnitRoute);
         getForDatum(getByIdPath, getByIdRoute);
     }
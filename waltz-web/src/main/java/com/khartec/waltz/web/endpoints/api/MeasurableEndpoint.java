@@ -18,7 +18,9 @@
 
 package com.khartec.waltz.web.endpoints.api;
 
+import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.measurable.Measurable;
+import com.khartec.waltz.service.client_cache_key.VersionStampService;
 import com.khartec.waltz.service.measurable.MeasurableService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
@@ -36,11 +38,14 @@ public class MeasurableEndpoint implements Endpoint {
     private static final String BASE_URL = mkPath("api", "measurable");
 
     private final MeasurableService measurableService;
+    private final VersionStampService versionStampService;
 
 
     @Autowired
-    public MeasurableEndpoint(MeasurableService measurableService) {
+    public MeasurableEndpoint(MeasurableService measurableService,
+                              VersionStampService versionStampService) {
         this.measurableService = measurableService;
+        this.versionStampService = versionStampService;
     }
 
 
@@ -73,7 +78,7 @@ public class MeasurableEndpoint implements Endpoint {
                 -> measurableService.findByOrgUnitId(getId(request));
 
 
-        getForList(findAllPath, findAllRoute);
+        getForList(findAllPath, () -> versionStampService.getStamp(EntityKind.MEASURABLE), findAllRoute);
         getForList(findByExternalIdPath, findByExternalIdRoute);
         postForList(findByMeasurableIdSelectorPath, findByMeasurableIdSelectorRoute);
         getForDatum(getByIdPath, getByIdRoute);
@@ -18,9 +18,11 @@
 
 package com.khartec.waltz.web.endpoints.api;
 
+import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.LeveledEntityReference;
 import com.khartec.waltz.model.orgunit.OrganisationalUnit;
 import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.client_cache_key.VersionStampService;
 import com.khartec.waltz.service.orgunit.OrganisationalUnitService;
 import com.khartec.waltz.service.user.UserRoleService;
 import com.khartec.waltz.web.DatumRoute;
@@ -45,19 +47,23 @@ public class OrganisationUnitEndpoint implements Endpoint {
     private final OrganisationalUnitService service;
     private final ChangeLogService changeLogService;
     private final UserRoleService userRoleService;
+    private final VersionStampService versionStampService;
 
 
     @Autowired
     public OrganisationUnitEndpoint(OrganisationalUnitService service,
                                     ChangeLogService changeLogService,
-                                    UserRoleService userRoleService) {
+                                    UserRoleService userRoleService,
+                                    VersionStampService versionStampService) {
         checkNotNull(service, "service must not be null");
         checkNotNull(changeLogService, "changeLogService must not be null");
         checkNotNull(userRoleService, "userRoleService must not be null");
+        checkNotNull(versionStampService, "versionStampService must not be null");
 
         this.service = service;
         this.changeLogService = changeLogService;
         this.userRoleService = userRoleService;
+        this.versionStampService = versionStampService;
     }
 
 
@@ -82,7 +88,7 @@ public class OrganisationUnitEndpoint implements Endpoint {
         DatumRoute<OrganisationalUnit> getByIdRoute = (request, response) -> service.getById(getId(request));
 
 
-        getForList(findAllPath, findAllRoute);
+        getForList(findAllPath, () -> versionStampService.getStamp(EntityKind.ORG_UNIT), findAllRoute);
         getForList(searchPath, searchRoute);
         getForList(findImmediateHierarchyPath, findImmediateHierarchyRoute);
         getForList(findDescendantsPath, findDescendantsRoute);
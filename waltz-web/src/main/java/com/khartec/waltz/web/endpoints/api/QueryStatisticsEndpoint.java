@@ -0,0 +1,75 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.web.endpoints.api;
+
+import com.khartec.waltz.model.system.metrics.QueryStatistics;
+import com.khartec.waltz.model.user.SystemRole;
+import com.khartec.waltz.service.QueryTimingListener;
+import com.khartec.waltz.service.user.UserRoleService;
+import com.khartec.waltz.web.DatumRoute;
+import com.khartec.waltz.web.endpoints.Endpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.web.WebUtilities.*;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForDatum;
+
+@Service
+public class QueryStatisticsEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "sys", "query-stats");
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final QueryTimingListener queryTimingListener;
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public QueryStatisticsEndpoint(QueryTimingListener queryTimingListener,
+                                   UserRoleService userRoleService) {
+        checkNotNull(queryTimingListener, "queryTimingListener cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+
+        this.queryTimingListener = queryTimingListener;
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        String getStatisticsPath = mkPath(BASE_URL);
+        String resetPath = mkPath(BASE_URL, "reset");
+
+        DatumRoute<QueryStatistics> getStatisticsRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            return queryTimingListener.getStatistics(getLimit(request).orElse(DEFAULT_LIMIT));
+        };
+
+        DatumRoute<Boolean> resetRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            queryTimingListener.reset();
+            return true;
+        };
+
+        getForDatum(getStatisticsPath, getStatisticsRoute);
+        postForDatum(resetPath, resetRoute);
+    }
+
+}
@@ -35,8 +35,10 @@ import java.util.Collection;
 import static com.khartec.waltz.common.CollectionUtilities.map;
 import static com.khartec.waltz.web.WebUtilities.getUsername;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
+import static com.khartec.waltz.web.WebUtilities.requireRole;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForList;
 
 @Service
 public class SettingsEndpoint implements Endpoint {
@@ -59,6 +61,7 @@ public class SettingsEndpoint implements Endpoint {
     public void register() {
         String findAllPath = mkPath(BASE_URL);
         String getByNamePath = mkPath(BASE_URL, "name", ":name");
+        String refreshPath = mkPath(BASE_URL, "refresh");
 
 
         ListRoute<Setting> findAllRoute = (request, response) -> {
@@ -74,8 +77,16 @@ public class SettingsEndpoint implements Endpoint {
         };
 
 
+        ListRoute<Setting> refreshRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            settingsService.refresh();
+            return settingsService.findAll();
+        };
+
+
         getForList(findAllPath, findAllRoute);
         getForDatum(getByNamePath, getByNameRoute);
+        postForList(refreshPath, refreshRoute);
     }
 
 
@@ -18,6 +18,7 @@
 
 package com.khartec.waltz.web.endpoints.api;
 
+import com.khartec.waltz.web.compression.ResponseCompression;
 import com.khartec.waltz.web.endpoints.Endpoint;
 import org.eclipse.jetty.http.HttpHeader;
 import org.slf4j.Logger;
@@ -77,11 +78,9 @@ public class StaticResourcesEndpoint implements Endpoint {
                     addCacheHeadersIfNeeded(response, resolvedPath);
                     InputStream modifiedStream = modifyIndexBaseTagIfNeeded(request, resolvedPath, resourceAsStream);
 
-                    OutputStream out = response
-                            .raw()
-                            .getOutputStream();
-                    copyStream(modifiedStream, out);
-                    out.flush();
+                    try (OutputStream out = ResponseCompression.openOutputStream(request, response)) {
+                        copyStream(modifiedStream, out);
+                    }
 
                     return new Object(); // indicate we have handled the request
                 }
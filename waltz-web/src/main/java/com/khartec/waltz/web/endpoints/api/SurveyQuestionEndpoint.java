@@ -18,6 +18,7 @@
 
 package com.khartec.waltz.web.endpoints.api;
 
+import com.khartec.waltz.common.ListUtilities;
 import com.khartec.waltz.model.survey.SurveyQuestion;
 import com.khartec.waltz.model.survey.SurveyQuestionFieldType;
 import com.khartec.waltz.model.user.SystemRole;
@@ -34,11 +35,13 @@ import org.springframework.stereotype.Service;
 import spark.Request;
 
 import java.util.List;
+import java.util.Map;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.web.WebUtilities.*;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.*;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 
 @Service
@@ -69,6 +72,7 @@ public class SurveyQuestionEndpoint implements Endpoint {
     public void register() {
         String findForInstancePath = mkPath(BASE_URL, "instance", ":id");
         String findForTemplatePath = mkPath(BASE_URL, "template", ":id");
+        String findActiveQuestionIdsForRunPath = mkPath(BASE_URL, "run", ":id", "active-question-ids");
         String deletePath = mkPath(BASE_URL, ":id");
 
         ListRoute<SurveyQuestionInfo> findForInstanceRoute =
@@ -87,6 +91,15 @@ public class SurveyQuestionEndpoint implements Endpoint {
                             .collect(toList());
                 };
 
+        DatumRoute<Map<Long, List<Long>>> findActiveQuestionIdsForRunRoute =
+                (req, res) -> surveyQuestionService
+                        .findActiveQuestionsForSurveyRun(getId(req))
+                        .entrySet()
+                        .stream()
+                        .collect(toMap(
+                                Map.Entry::getKey,
+                                e -> ListUtilities.map(e.getValue(), q -> q.id().get())));
+
         DatumRoute<Long> createRoute =
                 (req, res) -> {
                     ensureUserHasAdminRights(req);
@@ -113,6 +126,7 @@ public class SurveyQuestionEndpoint implements Endpoint {
 
         getForList(findForInstancePath, findForInstanceRoute);
         getForList(findForTemplatePath, findForTemplateRoute);
+        getForDatum(findActiveQuestionIdsForRunPath, findActiveQuestionIdsForRunRoute);
         postForDatum(BASE_URL, createRoute);
         putForDatum(BASE_URL, updateRoute);
         deleteForDatum(deletePath, deleteRoute);
@@ -20,6 +20,7 @@ package com.khartec.waltz.web.endpoints.api;
 
 import com.khartec.waltz.model.DateChangeCommand;
 import com.khartec.waltz.model.IdCommandResponse;
+import com.khartec.waltz.model.IssuanceProgress;
 import com.khartec.waltz.model.survey.*;
 import com.khartec.waltz.model.user.SystemRole;
 import com.khartec.waltz.service.survey.SurveyRunService;
@@ -70,6 +71,8 @@ public class SurveyRunEndpoint implements Endpoint {
         String surveyRunDeletePath = mkPath(BASE_URL, ":id");
         String generateSurveyRunRecipientsPath = mkPath(BASE_URL, ":id", "recipients");
         String createSurveyRunInstancesAndRecipientsPath = mkPath(BASE_URL, ":id", "recipients");
+        String issueSurveyRunInstancesAndRecipientsPath = mkPath(BASE_URL, ":id", "recipients", "issue");
+        String getIssuanceProgressPath = mkPath(BASE_URL, ":id", "issuance-progress");
         String createSurveyInstancesPath = mkPath(BASE_URL, ":id", "create-instances");
         String updateSurveyRunStatusPath = mkPath(BASE_URL, ":id", "status");
         String updateSurveyRunDueDatePath = mkPath(BASE_URL, ":id", "due-date");
@@ -154,6 +157,19 @@ public class SurveyRunEndpoint implements Endpoint {
                     newArrayList(readBody(request, SurveyInstanceRecipient[].class)));
         };
 
+        DatumRoute<IssuanceProgress> issueSurveyRunInstancesAndRecipientsRoute = (request, response) -> {
+            ensureUserHasAdminRights(request);
+
+            return surveyRunService.issueSurveyInstancesAndRecipients(
+                    getId(request),
+                    newArrayList(readBody(request, SurveyInstanceRecipient[].class)));
+        };
+
+        DatumRoute<IssuanceProgress> getIssuanceProgressRoute = (request, response) ->
+                surveyRunService
+                        .getIssuanceProgress(getId(request))
+                        .orElse(null);
+
         DatumRoute<Boolean> createSurveyInstancesRoute = (request, response) -> {
             long runId = getId(request);
 
@@ -178,6 +194,8 @@ public class SurveyRunEndpoint implements Endpoint {
         deleteForDatum(surveyRunDeletePath, surveyRunDeleteRoute);
         putForDatum(surveyRunUpdatePath, surveyRunUpdateRoute);
         postForDatum(createSurveyRunInstancesAndRecipientsPath, createSurveyRunInstancesAndRecipientsRoute);
+        postForDatum(issueSurveyRunInstancesAndRecipientsPath, issueSurveyRunInstancesAndRecipientsRoute);
+        getForDatum(getIssuanceProgressPath, getIssuanceProgressRoute);
         postForDatum(createSurveyInstancesPath, createSurveyInstancesRoute);
         putForDatum(updateSurveyRunStatusPath, surveyRunUpdateStatusRoute);
         putForDatum(updateSurveyRunDueDatePath, surveyRunUpdateDueDateRoute);
@@ -29,7 +29,7 @@ import org.springframework.stereotype.Service;
 
 import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.web.WebUtilities.*;
-import static spark.Spark.post;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForExtract;
 
 
 
@@ -54,7 +54,7 @@ public class AllocationsExtractor extends DirectQueryBasedDataExtractor {
 
 
     private void registerExtractForAll(String path) {
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
             IdSelectionOptions idSelectionOptions = readIdSelectionOptionsFromBody(request);
             SelectConditionStep<Record> qry = prepareQuery(
                     DSL.trueCondition(),
@@ -70,7 +70,7 @@ public class AllocationsExtractor extends DirectQueryBasedDataExtractor {
 
 
     private void registerExtractForCategory(String path) {
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
 
             long measurableCategoryId = getLong(request, "measurableCategoryId");
 
@@ -96,7 +96,7 @@ public class AllocationsExtractor extends DirectQueryBasedDataExtractor {
 
 
     private void registerExtractForScheme(String path) {
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
 
             long schemeId = getLong(request, "schemeId");
 
@@ -35,7 +35,7 @@ import static com.khartec.waltz.schema.Tables.APPLICATION;
 import static com.khartec.waltz.schema.tables.AssetCost.ASSET_COST;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
 import static com.khartec.waltz.web.WebUtilities.readIdSelectionOptionsFromBody;
-import static spark.Spark.post;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForExtract;
 
 
 @Service
@@ -53,7 +53,7 @@ public class ApplicationCostExtractor extends DirectQueryBasedDataExtractor {
 
     @Override
     public void register() {
-        post(mkPath("data-extract", "app-cost", "by-selector"), (request, response) -> {
+        postForExtract(mkPath("data-extract", "app-cost", "by-selector"), (request, response) -> {
             IdSelectionOptions idSelectionOptions = readIdSelectionOptionsFromBody(request);
             Select<Record1<Long>> idSelector = applicationIdSelectorFactory.apply(idSelectionOptions);
             Condition condition =
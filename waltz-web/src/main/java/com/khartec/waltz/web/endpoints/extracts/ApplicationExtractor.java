@@ -32,7 +32,7 @@ import static com.khartec.waltz.schema.Tables.APPLICATION;
 import static com.khartec.waltz.schema.Tables.ORGANISATIONAL_UNIT;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
 import static com.khartec.waltz.web.WebUtilities.readIdSelectionOptionsFromBody;
-import static spark.Spark.post;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForExtract;
 
 
 @Service
@@ -50,7 +50,7 @@ public class ApplicationExtractor extends DirectQueryBasedDataExtractor {
 
     @Override
     public void register() {
-        post(mkPath("data-extract", "application", "by-selector"), (request, response) -> {
+        postForExtract(mkPath("data-extract", "application", "by-selector"), (request, response) -> {
             IdSelectionOptions idSelectionOptions = readIdSelectionOptionsFromBody(request);
             Select<Record1<Long>> idSelector = applicationIdSelectorFactory.apply(idSelectionOptions);
             Condition condition =
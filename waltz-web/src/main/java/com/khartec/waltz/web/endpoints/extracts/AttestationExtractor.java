@@ -36,8 +36,8 @@ import static com.khartec.waltz.schema.tables.AttestationInstance.ATTESTATION_IN
 import static com.khartec.waltz.schema.tables.AttestationInstanceRecipient.ATTESTATION_INSTANCE_RECIPIENT;
 import static com.khartec.waltz.schema.tables.AttestationRun.ATTESTATION_RUN;
 import static com.khartec.waltz.web.WebUtilities.*;
-import static spark.Spark.get;
-import static spark.Spark.post;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForExtract;
 
 
 @Service
@@ -62,7 +62,7 @@ public class AttestationExtractor extends DirectQueryBasedDataExtractor {
 
     private void registerExtractForAttestedEntityKindAndSelector(String path) {
 
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
 
             IdSelectionOptions idSelectionOptions = readIdSelectionOptionsFromBody(request);
             Select<Record1<Long>> appIds = applicationIdSelectorFactory.apply(idSelectionOptions);
@@ -128,7 +128,7 @@ public class AttestationExtractor extends DirectQueryBasedDataExtractor {
 
     private void registerExtractForRun(String path) {
 
-        get(path, (request, response) -> {
+        getForExtract(path, (request, response) -> {
             long runId = getId(request);
 
             String runName = dsl
@@ -1,5 +1,6 @@
 package com.khartec.waltz.web.endpoints.extracts;
 
+import com.khartec.waltz.web.compression.ResponseCompression;
 import spark.Request;
 import spark.Response;
 
@@ -15,7 +16,7 @@ public abstract class BinaryDataBasedDataExtractor implements DataExtractor {
         ExtractFormat format = parseExtractFormat(request);
         switch (format) {
             case SVG:
-                return writeSvg(suggestedFilenameStem, dataBytes, response);
+                return writeSvg(suggestedFilenameStem, dataBytes, request, response);
             default:
                 throw new IllegalArgumentException("Cannot write extract using format: " + format);
         }
@@ -24,6 +25,7 @@ public abstract class BinaryDataBasedDataExtractor implements DataExtractor {
 
     private Object writeSvg(String suggestedFilenameStem,
                             byte[] dataBytes,
+                            Request request,
                             Response response) throws IOException {
         HttpServletResponse httpResponse = response.raw();
 
@@ -31,10 +33,7 @@ public abstract class BinaryDataBasedDataExtractor implements DataExtractor {
         httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".svg");
         httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
 
-        httpResponse.setContentLength(dataBytes.length);
-        httpResponse.getOutputStream().write(dataBytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
+        ResponseCompression.write(request, response, dataBytes);
 
         return httpResponse;
     }
@@ -31,7 +31,7 @@ import static com.khartec.waltz.schema.Tables.CHANGE_LOG;
 import static com.khartec.waltz.schema.Tables.PERSON;
 import static com.khartec.waltz.web.WebUtilities.getEntityReference;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.post;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForExtract;
 
 
 @Service
@@ -49,7 +49,7 @@ public class ChangeLogExtractor extends DirectQueryBasedDataExtractor {
 
 
     private void registerExtractForApp(String path) {
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
 
             EntityReference entityRef = getEntityReference(request);
 
@@ -33,7 +33,7 @@ import static com.khartec.waltz.schema.Tables.APPLICATION;
 import static com.khartec.waltz.schema.Tables.COMPLEXITY_SCORE;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
 import static com.khartec.waltz.web.WebUtilities.readIdSelectionOptionsFromBody;
-import static spark.Spark.post;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForExtract;
 
 
 @Service
@@ -53,7 +53,7 @@ public class ComplexityExtractor extends DirectQueryBasedDataExtractor {
     public void register() {
 
         String path = mkPath("data-extract", "complexity", "all");
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
             IdSelectionOptions applicationIdSelectionOptions = readIdSelectionOptionsFromBody(request);
             Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(applicationIdSelectionOptions);
 
@@ -1,5 +1,6 @@
 package com.khartec.waltz.web.endpoints.extracts;
 
+import com.khartec.waltz.web.compression.ResponseCompression;
 import org.eclipse.jetty.http.MimeTypes;
 import org.jooq.lambda.tuple.Tuple3;
 import spark.Request;
@@ -47,7 +48,9 @@ public interface DataExtractor {
     }
 
 
-    default Object writeReportResults(Response response, Tuple3<ExtractFormat, String, byte[]> reportResult) throws IOException {
+    default Object writeReportResults(Request request,
+                                      Response response,
+                                      Tuple3<ExtractFormat, String, byte[]> reportResult) throws IOException {
         String templateName = reportResult.v2;
 
         HttpServletResponse httpResponse = response.raw();
@@ -66,11 +69,7 @@ public interface DataExtractor {
                 break;
         }
 
-        byte[] bytes = reportResult.v3;
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
+        ResponseCompression.write(request, response, reportResult.v3);
 
         return httpResponse;
     }
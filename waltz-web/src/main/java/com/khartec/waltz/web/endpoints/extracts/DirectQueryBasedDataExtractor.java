@@ -19,22 +19,23 @@
 package com.khartec.waltz.web.endpoints.extracts;
 
 
+import com.khartec.waltz.web.compression.ResponseCompression;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.eclipse.jetty.http.MimeTypes;
-import org.jooq.DSLContext;
-import org.jooq.Field;
-import org.jooq.Select;
+import org.jooq.*;
+import org.jooq.impl.DSL;
 import spark.Request;
 import spark.Response;
 
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -44,6 +45,16 @@ import static java.util.Optional.ofNullable;
 
 public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
 
+    /**
+     * Number of rows the jdbc driver should fetch per round trip when streaming extracts
+     */
+    private static final int FETCH_SIZE = 5_000;
+
+    /**
+     * Number of rows kept in memory by the streaming excel writer, older rows are flushed to disk
+     */
+    private static final int EXCEL_ROW_WINDOW = 500;
+
     protected DSLContext dsl;
 
 
@@ -60,9 +71,9 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         ExtractFormat format = parseExtractFormat(request);
         switch (format) {
             case XLSX:
-                return writeAsExcel(suggestedFilenameStem, qry, response);
+                return writeAsExcel(suggestedFilenameStem, qry, request, response);
             case CSV:
-                return writeAsCSV(suggestedFilenameStem, qry, response);
+                return writeAsCSV(suggestedFilenameStem, qry, request, response);
             default:
                 throw new IllegalArgumentException("Cannot write extract using unknown format: " + format);
         }
@@ -71,62 +82,105 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
 
     private Object writeAsExcel(String suggestedFilenameStem,
                                 Select<?> qry,
+                                Request request,
                                 Response response) throws IOException {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet(sanitizeSheetName(suggestedFilenameStem));
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
 
-        writeExcelHeader(qry, sheet);
-        writeExcelBody(qry, sheet);
+        try {
+            SXSSFSheet sheet = workbook.createSheet(sanitizeSheetName(suggestedFilenameStem));
 
-        int endFilterColumnIndex = qry.fields().length == 0
-                ? 0
-                : qry.fields().length - 1;
+            writeExcelHeader(qry, sheet);
+            streamResults(qry, cursor -> writeExcelBody(cursor, sheet));
 
-        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
-        sheet.createFreezePane(0, 1);
+            int endFilterColumnIndex = qry.fields().length == 0
+                    ? 0
+                    : qry.fields().length - 1;
 
-        byte[] bytes = convertExcelToByteArray(workbook);
+            sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
+            sheet.createFreezePane(0, 1);
 
-        HttpServletResponse httpResponse = response.raw();
+            HttpServletResponse httpResponse = response.raw();
 
-        httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
-        httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
+            httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
+            httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
 
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
+            OutputStream outputStream = ResponseCompression.openOutputStream(request, response);
+            workbook.write(outputStream);
+            outputStream.flush();
+            outputStream.close();
 
-        return httpResponse;
+            return httpResponse;
+        } finally {
+            // removes the temporary files backing the flushed rows
+            workbook.dispose();
+            workbook.close();
+        }
     }
 
 
     private Object writeAsCSV(String suggestedFilenameStem,
                               Select<?> qry,
-                              Response response) {
-        String csv = qry.fetch().formatCSV();
+                              Request request,
+                              Response response) throws IOException {
         response.type(MimeTypes.Type.TEXT_PLAIN.name());
         response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
-        return csv;
+
+        HttpServletResponse httpResponse = response.raw();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                ResponseCompression.openOutputStream(request, response),
+                StandardCharsets.UTF_8));
+
+        streamResults(qry, cursor -> cursor.formatCSV(writer));
+
+        writer.flush();
+        writer.close();
+
+        return httpResponse;
     }
 
 
-    private byte[] convertExcelToByteArray(XSSFWorkbook workbook) throws IOException {
-        ByteArrayOutputStream outByteStream = new ByteArrayOutputStream();
-        workbook.write(outByteStream);
-        workbook.close();
-        return outByteStream.toByteArray();
+    /**
+     * Executes the query lazily, passing the open cursor to the given handler.
+     *
+     * The query is run in a read only transaction as some drivers (e.g. postgres)
+     * will only honour the fetch size when auto-commit is disabled, otherwise the
+     * entire result set is buffered by the driver.  The connection's auto-commit
+     * and read only settings are restored before it is returned to the pool.
+     */
+    private <R extends Record> void streamResults(Select<R> qry,
+                                                  CursorHandler<R> handler) {
+        dsl.connection(connection -> {
+            boolean wasAutoCommit = connection.getAutoCommit();
+            boolean wasReadOnly = connection.isReadOnly();
+
+            // read only must be set before the transaction begins
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (Cursor<R> cursor = DSL
+                    .using(dsl.configuration().derive(connection))
+                    .fetchLazy(qry.fetchSize(FETCH_SIZE))) {
+                handler.handle(cursor);
+            } finally {
+                try {
+                    // nothing has been written, so just end the transaction
+                    connection.rollback();
+                } finally {
+                    connection.setAutoCommit(wasAutoCommit);
+                    connection.setReadOnly(wasReadOnly);
+                }
+            }
+        });
     }
 
 
-    private void writeExcelBody(Select<?> qry, XSSFSheet sheet) {
-        AtomicInteger rowNum = new AtomicInteger(1);
-        qry.fetch().forEach(r -> {
-            Row row = sheet.createRow(rowNum.getAndIncrement());
-            AtomicInteger colNum = new AtomicInteger(0);
+    private void writeExcelBody(Cursor<? extends Record> cursor, Sheet sheet) {
+        int rowNum = 1;
+        for (Record r : cursor) {
+            Row row = sheet.createRow(rowNum++);
+            int colNum = 0;
             for (Field<?> field : r.fields()) {
-                Cell cell = row.createCell(colNum.getAndIncrement());
+                Cell cell = row.createCell(colNum++);
                 ofNullable(r.get(field)).ifPresent(v -> {
                     if (v instanceof Number) {
                         cell.setCellType(CellType.NUMERIC);
@@ -136,11 +190,11 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
                     }
                 });
             }
-        });
+        }
     }
 
 
-    private void writeExcelHeader(Select<?> qry, XSSFSheet sheet) {
+    private void writeExcelHeader(Select<?> qry, Sheet sheet) {
         Row headerRow = sheet.createRow(0);
         AtomicInteger colNum = new AtomicInteger();
         qry.fieldStream().forEach(f -> {
@@ -149,4 +203,10 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         });
     }
 
+
+    @FunctionalInterface
+    private interface CursorHandler<R extends Record> {
+        void handle(Cursor<R> cursor) throws IOException;
+    }
+
 }
@@ -35,7 +35,7 @@ import static com.khartec.waltz.schema.Tables.LICENCE;
 import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 import static com.khartec.waltz.web.WebUtilities.getEntityReference;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 
 @Service
@@ -52,7 +52,7 @@ public class LicencesExtractor extends DirectQueryBasedDataExtractor {
     @Override
     public void register() {
         String path = mkPath("data-extract", "licences", ":kind", ":id");
-        get(path, (request, response) -> {
+        getForExtract(path, (request, response) -> {
 
             EntityReference entityRef = getEntityReference(request);
 
@@ -37,7 +37,7 @@ import static com.khartec.waltz.schema.tables.MeasurableCategory.MEASURABLE_CATE
 import static com.khartec.waltz.schema.tables.Person.PERSON;
 import static com.khartec.waltz.web.WebUtilities.getId;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 
 @Service
@@ -56,7 +56,7 @@ public class MeasurableCategoryExtractor extends DirectQueryBasedDataExtractor {
     public void register() {
 
         String path = mkPath("data-extract", "measurable-category", ":id");
-        get(path, (request, response) -> {
+        getForExtract(path, (request, response) -> {
             long categoryId = getId(request);
             String categoryName = dsl
                     .select(MEASURABLE_CATEGORY.NAME)
@@ -36,7 +36,7 @@ import static com.khartec.waltz.schema.tables.Measurable.MEASURABLE;
 import static com.khartec.waltz.schema.tables.MeasurableRating.MEASURABLE_RATING;
 import static com.khartec.waltz.web.WebUtilities.*;
 import static org.jooq.tools.StringUtils.toCamelCase;
-import static spark.Spark.post;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForExtract;
 
 
 @Service
@@ -73,7 +73,7 @@ public class MeasurableRatingExtractor extends DirectQueryBasedDataExtractor {
     }
 
     private void registerAllocations(String path) {
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
             long categoryId = getId(request);
             IdSelectionOptions selectionOpts = readIdSelectionOptionsFromBody(request);
             Select<Record1<Long>> appSelector = applicationIdSelectorFactory.apply(selectionOpts);
@@ -129,7 +129,7 @@ public class MeasurableRatingExtractor extends DirectQueryBasedDataExtractor {
     }
 
     private void registerUnmappedAllocations(String path) {
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
             long categoryId = getId(request);
 
             IdSelectionOptions selectionOpts = readIdSelectionOptionsFromBody(request);
@@ -21,7 +21,7 @@ import static com.khartec.waltz.model.EntityLinkUtilities.mkExternalIdLink;
 import static com.khartec.waltz.model.EntityLinkUtilities.mkIdLink;
 import static com.khartec.waltz.web.WebUtilities.getLong;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 
 @Service
@@ -46,7 +46,7 @@ public class NavAidExtractor extends BinaryDataBasedDataExtractor {
     public void register() {
         String path = mkPath("data-extract", "nav-aid", ":svgDiagramId");
 
-        get(path, (request, response) -> {
+        getForExtract(path, (request, response) -> {
             Long diagramId = getLong(request,"svgDiagramId");
 
             SvgDiagram diagram = svgDiagramService.getById(diagramId);
@@ -27,7 +27,7 @@ import org.springframework.stereotype.Service;
 
 import static com.khartec.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 
 @Service
@@ -42,7 +42,7 @@ public class OrgUnitExtractor extends DirectQueryBasedDataExtractor {
 
     @Override
     public void register() {
-        get(mkPath("data-extract", "org-units"), (request, response) ->
+        getForExtract(mkPath("data-extract", "org-units"), (request, response) ->
                 writeExtract(
                         "organisational-units",
                         prepareExtract(),
@@ -34,7 +34,7 @@ import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
 import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.web.WebUtilities.getEntityReference;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.post;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForExtract;
 
 
 @Service
@@ -57,7 +57,7 @@ public class PeopleExtractor extends DirectQueryBasedDataExtractor {
 
 
     private void registerExtractForApp(String path) {
-        post(path, (request, response) -> {
+        postForExtract(path, (request, response) -> {
 
             EntityReference entityRef = getEntityReference(request);
             IdSelectionOptions selectionOptions = mkOpts(entityRef, HierarchyQueryScope.determineUpwardsScopeForKind(entityRef.kind()));
@@ -29,7 +29,7 @@ import org.springframework.stereotype.Service;
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 
 @Service
@@ -46,7 +46,7 @@ public class PersonApplicationExtractor extends DirectQueryBasedDataExtractor {
     @Override
     public void register() {
         String path = mkPath("data-extract", "application", "person", ":empId");
-        get(path, (request, response) -> {
+        getForExtract(path, (request, response) -> {
             String empId = request.params("empId");
 
             String personName = dsl
@@ -37,7 +37,7 @@ import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 import static com.khartec.waltz.web.WebUtilities.getId;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 
 @Service
@@ -53,7 +53,7 @@ public class ScenarioExtractor extends DirectQueryBasedDataExtractor {
 
     @Override
     public void register() {
-        get(mkPath("data-extract", "scenario", ":id"), this::extract);
+        getForExtract(mkPath("data-extract", "scenario", ":id"), this::extract);
     }
 
 
@@ -65,7 +65,7 @@ import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 import static org.jooq.lambda.fi.util.function.CheckedConsumer.unchecked;
 import static org.jooq.lambda.tuple.Tuple.tuple;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 @Service
 public class SurveyInstanceExtractor implements DataExtractor {
@@ -117,9 +117,10 @@ public class SurveyInstanceExtractor implements DataExtractor {
 
 
     private void registerRunBasedExtract() {
-        get(mkPath(BASE_URL, "run-id", ":id"),
+        getForExtract(mkPath(BASE_URL, "run-id", ":id"),
             (request, response) ->
                 writeReportResults(
+                    request,
                     response,
                     prepareInstancesOfRun(
                             parseExtractFormat(request),
@@ -130,9 +131,10 @@ public class SurveyInstanceExtractor implements DataExtractor {
 
 
     private void registerTemplateBasedExtract() {
-        get(mkPath(BASE_URL, "template-id", ":id"),
+        getForExtract(mkPath(BASE_URL, "template-id", ":id"),
             (request, response) ->
                 writeReportResults(
+                    request,
                     response,
                     prepareInstancesOfTemplate(
                         parseExtractFormat(request),
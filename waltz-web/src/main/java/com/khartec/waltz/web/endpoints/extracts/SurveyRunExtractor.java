@@ -41,7 +41,7 @@ import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 import static com.khartec.waltz.web.WebUtilities.*;
 import static java.lang.String.format;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 
 @Service
@@ -92,7 +92,7 @@ public class SurveyRunExtractor extends DirectQueryBasedDataExtractor {
         String surveyInstanceResponsesPath = mkPath("data-extract", "survey-run-response", "instance", ":id");
         String surveyRunResponsesPath = mkPath("data-extract", "survey-run-response", ":id");
 
-        get(surveyRunPath, (request, response) -> {
+        getForExtract(surveyRunPath, (request, response) -> {
             long runId = getId(request);
 
             LOG.info("Survey run has been exported successfully");
@@ -103,7 +103,7 @@ public class SurveyRunExtractor extends DirectQueryBasedDataExtractor {
                     response);
         });
 
-        get(surveyInstanceResponsesPath, (request, response) -> {
+        getForExtract(surveyInstanceResponsesPath, (request, response) -> {
             long instanceId = getId(request);
 
             LOG.info("Survey instance with responses has been exported successfully");
@@ -114,7 +114,7 @@ public class SurveyRunExtractor extends DirectQueryBasedDataExtractor {
                     response);
         });
 
-        get(surveyRunResponsesPath, (request, response) -> {
+        getForExtract(surveyRunResponsesPath, (request, response) -> {
             long runId = getId(request);
 
             LOG.info("Survey run with responses has been exported successfully");
@@ -125,7 +125,7 @@ public class SurveyRunExtractor extends DirectQueryBasedDataExtractor {
                     response);
         });
         
-        get(surveysForEntityPath, (request, response) -> {
+        getForExtract(surveysForEntityPath, (request, response) -> {
             EntityReference ref = getEntityReference(request);
             
             LOG.info("Survey information for entity has been exported successfully");
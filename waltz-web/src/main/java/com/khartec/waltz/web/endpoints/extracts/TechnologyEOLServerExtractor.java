@@ -32,7 +32,7 @@ import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 import static com.khartec.waltz.web.WebUtilities.getEntityReference;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForExtract;
 
 
 @Service
@@ -54,7 +54,7 @@ public class TechnologyEOLServerExtractor extends DirectQueryBasedDataExtractor
     @Override
     public void register() {
         String path = mkPath("data-extract", "technology-server", ":kind", ":id");
-        get(path, (request, response) -> {
+        getForExtract(path, (request, response) -> {
             EntityReference ref = getReference(request);
             Select<Record1<Long>> appIdSelector = applicationIdSelectorFactory.apply(mkOpts(ref));
 
@@ -0,0 +1,104 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.jmx;
+
+import com.khartec.waltz.model.system.metrics.LatencySummary;
+import com.khartec.waltz.web.endpoints.EndpointMetrics;
+import com.khartec.waltz.web.endpoints.RouteMetrics;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ManagedResource(description = "Per-route handler and serialisation timings, response sizes and error counts")
+public class EndpointTimings {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+
+    @ManagedAttribute(description = "Slowest (by total handler time) routes: count, handler and serialisation p50/p95/p99/max in ms")
+    public String[] getSlowestRoutes() {
+        return formatTimings(EndpointMetrics.findSlowest(DEFAULT_LIMIT));
+    }
+
+
+    @ManagedAttribute(description = "Largest (by total bytes returned) routes: count, mean/p99/max response size in bytes")
+    public String[] getLargestRoutes() {
+        return EndpointMetrics
+                .findLargest(DEFAULT_LIMIT)
+                .stream()
+                .map(m -> String.format(
+                        "count: %d, mean: %d, p99: %d, max: %d, total: %d - %s",
+                        m.getResponseSizes().count(),
+                        m.getResponseSizes().mean(),
+                        m.getResponseSizes().percentile(99),
+                        m.getResponseSizes().max(),
+                        m.getResponseSizes().total(),
+                        m.getKey()))
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute(description = "Routes which have failed with an exception: error count")
+    public String[] getFailingRoutes() {
+        return EndpointMetrics
+                .findAll()
+                .stream()
+                .filter(m -> m.getErrorCount() > 0)
+                .sorted((a, b) -> Long.compare(b.getErrorCount(), a.getErrorCount()))
+                .map(m -> String.format("errors: %d - %s", m.getErrorCount(), m.getKey()))
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute(description = "Number of requests currently being handled, across all routes")
+    public int getInFlight() {
+        return EndpointMetrics
+                .findAll()
+                .stream()
+                .mapToInt(RouteMetrics::getInFlight)
+                .sum();
+    }
+
+
+    private static String[] formatTimings(List<RouteMetrics> routes) {
+        return routes
+                .stream()
+                .map(m -> {
+                    LatencySummary handler = LatencySummary.fromHistogram(m.getKey(), m.getHandlerTimes());
+                    LatencySummary serialisation = LatencySummary.fromHistogram(m.getKey(), m.getSerialisationTimes());
+                    return String.format(
+                            "count: %d, handler p50: %.1f, p95: %.1f, p99: %.1f, max: %.1f, total: %.1f, serialisation p50: %.1f, p99: %.1f, total: %.1f - %s",
+                            handler.count(),
+                            handler.p50Millis(),
+                            handler.p95Millis(),
+                            handler.p99Millis(),
+                            handler.maxMillis(),
+                            handler.totalMillis(),
+                            serialisation.p50Millis(),
+                            serialisation.p99Millis(),
+                            serialisation.totalMillis(),
+                            m.getKey());
+                })
+                .toArray(String[]::new);
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WebUtilities_writeJsonTest {
+
+    @Test
+    public void collectionsAreWrittenAsArrays() throws IOException {
+        assertEquals("[1,2,3]", write(newArrayList(1, 2, 3)));
+        assertEquals("[]", write(newArrayList()));
+    }
+
+
+    @Test
+    public void streamsAreWrittenAsArraysAndClosed() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        Stream<String> stream = Stream.of("a", "b").onClose(() -> closed.set(true));
+
+        assertEquals("[\"a\",\"b\"]", write(stream));
+        assertTrue(closed.get());
+    }
+
+
+    @Test
+    public void writesUsingTheSameConfigurationAsTheTransformer() throws Exception {
+        Object obj = newArrayList(Optional.of("x"), LocalDate.of(2020, 1, 2));
+        assertEquals(WebUtilities.transformer.render(obj), write(obj));
+    }
+
+
+    @Test
+    public void nullIsWrittenAsJsonNull() throws IOException {
+        assertEquals("null", write(null));
+    }
+
+
+    private static String write(Object obj) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WebUtilities.writeJson(obj, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
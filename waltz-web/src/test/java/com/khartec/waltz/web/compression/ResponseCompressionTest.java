@@ -0,0 +1,195 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.compression;
+
+import org.junit.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.khartec.waltz.common.IOUtilities.copyStream;
+import static org.junit.Assert.*;
+
+public class ResponseCompressionTest {
+
+    @Test
+    public void negotiatesPreferredEncoding() {
+        assertEquals(Optional.empty(), ResponseCompression.negotiate(null));
+        assertEquals(Optional.empty(), ResponseCompression.negotiate(""));
+        assertEquals(Optional.empty(), ResponseCompression.negotiate("br, identity"));
+        assertEquals(Optional.of(ContentEncoding.GZIP), ResponseCompression.negotiate("gzip, deflate, br"));
+        assertEquals(Optional.of(ContentEncoding.GZIP), ResponseCompression.negotiate("deflate, gzip"));
+        assertEquals(Optional.of(ContentEncoding.GZIP), ResponseCompression.negotiate("x-gzip"));
+        assertEquals(Optional.of(ContentEncoding.DEFLATE), ResponseCompression.negotiate("deflate"));
+        assertEquals(Optional.of(ContentEncoding.DEFLATE), ResponseCompression.negotiate("gzip;q=0.5, deflate;q=0.8"));
+        assertEquals(Optional.of(ContentEncoding.GZIP), ResponseCompression.negotiate("*"));
+    }
+
+
+    @Test
+    public void zeroQualityMeansNotAcceptable() {
+        assertEquals(Optional.empty(), ResponseCompression.negotiate("gzip;q=0"));
+        assertEquals(Optional.of(ContentEncoding.DEFLATE), ResponseCompression.negotiate("gzip;q=0, *"));
+        assertEquals(Optional.empty(), ResponseCompression.negotiate("*;q=0"));
+    }
+
+
+    @Test
+    public void alreadyCompressedTypesAreSkipped() {
+        assertTrue(ResponseCompression.isCompressible(null));
+        assertTrue(ResponseCompression.isCompressible("application/json"));
+        assertTrue(ResponseCompression.isCompressible("text/html; charset=utf-8"));
+        assertTrue(ResponseCompression.isCompressible("image/svg+xml"));
+        assertFalse(ResponseCompression.isCompressible("image/png"));
+        assertFalse(ResponseCompression.isCompressible("font/woff2"));
+        assertFalse(ResponseCompression.isCompressible("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+    }
+
+
+    @Test
+    public void smallResponsesAreNotCompressed() throws IOException {
+        FakeResponse fake = new FakeResponse();
+        CompressingOutputStream out = new CompressingOutputStream(fake.proxy, ContentEncoding.GZIP, 100);
+        out.write(bytes(50));
+        out.flush();
+        out.close();
+
+        assertNull(fake.headers.get("Content-Encoding"));
+        assertEquals("50", fake.headers.get("Content-Length"));
+        assertArrayEquals(bytes(50), fake.body.toByteArray());
+    }
+
+
+    @Test
+    public void largeResponsesAreGzipped() throws IOException {
+        FakeResponse fake = new FakeResponse();
+        CompressingOutputStream out = new CompressingOutputStream(fake.proxy, ContentEncoding.GZIP, 100);
+        for (int i = 0; i < 10; i++) {
+            out.write(bytes(50));
+        }
+        out.close();
+
+        assertEquals("gzip", fake.headers.get("Content-Encoding"));
+        assertNull(fake.headers.get("Content-Length"));
+        assertArrayEquals(repeat(bytes(50), 10), inflate(new GZIPInputStream(new ByteArrayInputStream(fake.body.toByteArray()))));
+    }
+
+
+    @Test
+    public void largeResponsesCanBeDeflated() throws IOException {
+        FakeResponse fake = new FakeResponse();
+        CompressingOutputStream out = new CompressingOutputStream(fake.proxy, ContentEncoding.DEFLATE, 0);
+        out.write(bytes(500));
+        out.close();
+
+        assertEquals("deflate", fake.headers.get("Content-Encoding"));
+        assertArrayEquals(bytes(500), inflate(new InflaterInputStream(new ByteArrayInputStream(fake.body.toByteArray()))));
+    }
+
+
+    // -- helpers
+
+    private static byte[] bytes(int count) {
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+        }
+        return bytes;
+    }
+
+
+    private static byte[] repeat(byte[] bytes, int times) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < times; i++) {
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+
+    private static byte[] inflate(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copyStream(in, out);
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Minimal response which captures headers and the body
+     */
+    private static class FakeResponse {
+
+        private final Map<String, String> headers = new HashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private final ServletOutputStream servletOutputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        };
+
+        private final HttpServletResponse proxy = (HttpServletResponse) Proxy.newProxyInstance(
+                HttpServletResponse.class.getClassLoader(),
+                new Class[] { HttpServletResponse.class },
+                (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "getOutputStream":
+                            return servletOutputStream;
+                        case "isCommitted":
+                            return false;
+                        case "containsHeader":
+                            return headers.containsKey(args[0]);
+                        case "setHeader":
+                            if (args[1] == null) {
+                                headers.remove(args[0]);
+                            } else {
+                                headers.put((String) args[0], (String) args[1]);
+                            }
+                            return null;
+                        case "setContentLength":
+                            headers.put("Content-Length", String.valueOf(args[0]));
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints;
+
+import com.khartec.waltz.web.WebUtilities;
+import com.khartec.waltz.web.compression.ResponseCompression;
+import org.junit.Test;
+import spark.Request;
+import spark.RequestResponseFactory;
+import spark.Response;
+import spark.Route;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static com.khartec.waltz.common.IOUtilities.copyStream;
+import static org.junit.Assert.*;
+
+public class EndpointMetricsTest {
+
+    @Test
+    public void routesAreRegisteredOncePerMethodAndPath() {
+        RouteMetrics a = EndpointMetrics.forRoute("GET", "api/test/once");
+        RouteMetrics b = EndpointMetrics.forRoute("GET", "api/test/once");
+        RouteMetrics c = EndpointMetrics.forRoute("POST", "api/test/once");
+
+        assertSame(a, b);
+        assertNotSame(a, c);
+    }
+
+
+    @Test
+    public void handlerTimesAndErrorsAreRecorded() throws Exception {
+        RouteMetrics metrics = EndpointMetrics.forRoute("GET", "api/test/handler");
+
+        Route ok = metrics.wrap((Route) (req, resp) -> "ok");
+        Route failing = metrics.wrap((Route) (req, resp) -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertEquals("ok", ok.handle(null, null));
+        try {
+            failing.handle(null, null);
+            fail("expected exception to be rethrown");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(2, metrics.getHandlerTimes().count());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(0, metrics.getInFlight());
+    }
+
+
+    @Test
+    public void uncompressedResponsesAreMeasuredAsWritten() throws IOException {
+        RouteMetrics metrics = EndpointMetrics.forRoute("GET", "api/test/write-uncompressed");
+        FakeExchange exchange = new FakeExchange("gzip");
+
+        EndpointUtilities.writeResult(metrics, PAYLOAD, exchange.request, exchange.response);
+
+        byte[] expected = toJsonBytes(PAYLOAD);
+        assertNull(exchange.headers.get("Content-Encoding"));
+        assertArrayEquals(expected, exchange.body.toByteArray());
+        assertEquals(1, metrics.getSerialisationTimes().count());
+        assertEquals(1, metrics.getResponseSizes().count());
+        assertEquals(expected.length, metrics.getResponseSizes().total());
+        assertEquals(0, metrics.getErrorCount());
+    }
+
+
+    @Test
+    public void compressedResponsesAreMeasuredBeforeCompression() throws IOException {
+        RouteMetrics metrics = EndpointMetrics.forRoute("GET", "api/test/write-compressed");
+        FakeExchange exchange = new FakeExchange("gzip");
+
+        ResponseCompression.configure(true, 0);
+        try {
+            EndpointUtilities.writeResult(metrics, PAYLOAD, exchange.request, exchange.response);
+        } finally {
+            ResponseCompression.configure(false, ResponseCompression.DEFAULT_MINIMUM_SIZE);
+        }
+
+        byte[] expected = toJsonBytes(PAYLOAD);
+        assertEquals("gzip", exchange.headers.get("Content-Encoding"));
+        assertArrayEquals(expected, gunzip(exchange.body.toByteArray()));
+        assertTrue(exchange.body.size() < expected.length);
+        assertEquals(1, metrics.getSerialisationTimes().count());
+        assertEquals(1, metrics.getResponseSizes().count());
+        assertEquals(expected.length, metrics.getResponseSizes().total());
+    }
+
+
+    @Test
+    public void prometheusTextIncludesEachRoute() throws Exception {
+        RouteMetrics metrics = EndpointMetrics.forRoute("DELETE", "api/test/prometheus/:id");
+        metrics.wrap((Route) (req, resp) -> true).handle(null, null);
+
+        String text = EndpointMetrics.toPrometheusText();
+
+        assertTrue(text.contains("# TYPE waltz_http_handler_seconds summary"));
+        assertTrue(text.contains("waltz_http_handler_seconds_count{method=\"DELETE\",route=\"api/test/prometheus/:id\"} 1.0"));
+        assertTrue(text.contains("waltz_http_handler_seconds{method=\"DELETE\",route=\"api/test/prometheus/:id\",quantile=\"0.99\"}"));
+        assertTrue(text.contains("waltz_http_errors_total{method=\"DELETE\",route=\"api/test/prometheus/:id\"} 0.0"));
+    }
+
+
+    @Test
+    public void labelValuesAreEscaped() {
+        assertEquals("a\\\\b\\\"c\\nd", EndpointMetrics.escapeLabel("a\\b\"c\nd"));
+    }
+
+
+
+    // -- helpers
+
+    /**
+     * Multi-byte characters ensure sizes are measured in encoded bytes
+     */
+    private static final List<String> PAYLOAD = Collections.nCopies(200, "caf\u00e9 \u2603 data type usage");
+
+
+    private static byte[] toJsonBytes(Object obj) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WebUtilities.writeJson(obj, out);
+        return out.toByteArray();
+    }
+
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copyStream(new GZIPInputStream(new ByteArrayInputStream(bytes)), out);
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Minimal request/response pair which captures the response headers and body
+     */
+    private static class FakeExchange {
+
+        private final Map<String, String> headers = new HashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final Request request;
+        private final Response response;
+
+        private final ServletOutputStream servletOutputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        };
+
+
+        FakeExchange(String acceptEncoding) {
+            HttpServletRequest rawRequest = (HttpServletRequest) Proxy.newProxyInstance(
+                    HttpServletRequest.class.getClassLoader(),
+                    new Class[] { HttpServletRequest.class },
+                    (p, method, args) -> {
+                        if (method.getName().equals("getHeader")) {
+                            return "Accept-Encoding".equalsIgnoreCase((String) args[0])
+                                    ? acceptEncoding
+                                    : null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+
+            HttpServletResponse rawResponse = (HttpServletResponse) Proxy.newProxyInstance(
+                    HttpServletResponse.class.getClassLoader(),
+                    new Class[] { HttpServletResponse.class },
+                    (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "getOutputStream":
+                                return servletOutputStream;
+                            case "getContentType":
+                                return WebUtilities.TYPE_JSON;
+                            case "isCommitted":
+                                return false;
+                            case "containsHeader":
+                                return headers.containsKey(args[0]);
+                            case "setHeader":
+                            case "addHeader":
+                                if (args[1] == null) {
+                                    headers.remove(args[0]);
+                                } else {
+                                    headers.put((String) args[0], (String) args[1]);
+                                }
+                                return null;
+                            case "setContentLength":
+                                headers.put("Content-Length", String.valueOf(args[0]));
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+
+            this.request = RequestResponseFactory.create(rawRequest);
+            this.response = RequestResponseFactory.create(rawResponse);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints;
+
+import com.khartec.waltz.model.client_cache_key.ImmutableVersionStamp;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.isNotModified;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.toETag;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class EndpointUtilities_isNotModifiedTest {
+
+    private static final String ETAG = "W/\"abc\"";
+
+
+    @Test
+    public void stampsAreRenderedAsWeakETags() {
+        assertEquals(ETAG, toETag(ImmutableVersionStamp.builder()
+                .tag("abc")
+                .lastModified(LocalDateTime.now())
+                .build()));
+    }
+
+
+    @Test
+    public void missingHeaderIsModified() {
+        assertFalse(isNotModified(null, ETAG));
+    }
+
+
+    @Test
+    public void matchingTagIsNotModified() {
+        assertTrue(isNotModified(ETAG, ETAG));
+        assertTrue(isNotModified("\"abc\"", ETAG));
+    }
+
+
+    @Test
+    public void anyTagInListMayMatch() {
+        assertTrue(isNotModified("\"xyz\", W/\"abc\"", ETAG));
+        assertFalse(isNotModified("\"xyz\", W/\"def\"", ETAG));
+    }
+
+
+    @Test
+    public void wildcardAlwaysMatches() {
+        assertTrue(isNotModified("*", ETAG));
+    }
+
+}